@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.appointment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Pending Workflow DAO Interface
+ */
+public interface IPendingWorkflowDAO
+{
+    /**
+     * Insert a new record in the table, or update it if the appointment has already a pending workflow
+     * 
+     * @param pendingWorkflow
+     *            instance of the PendingWorkflow object to save
+     * @param plugin
+     *            the plugin
+     */
+    void save( PendingWorkflow pendingWorkflow, Plugin plugin );
+
+    /**
+     * Claim a pending workflow before processing it again: the number of attempts is incremented only if it has not changed since the workflow was read, so
+     * that a single node processes it
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param nNbAttempts
+     *            the number of attempts read
+     * @param dateAttempt
+     *            the date of the new attempt
+     * @param plugin
+     *            the plugin
+     * @return true if the workflow has been claimed, false if another node has claimed it
+     */
+    boolean claim( int nIdAppointment, int nNbAttempts, LocalDateTime dateAttempt, Plugin plugin );
+
+    /**
+     * Delete the pending workflow of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param plugin
+     *            the plugin
+     */
+    void delete( int nIdAppointment, Plugin plugin );
+
+    /**
+     * Load the pending workflow of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param plugin
+     *            the plugin
+     * @return the pending workflow, null if the workflow of the appointment has been processed
+     */
+    PendingWorkflow select( int nIdAppointment, Plugin plugin );
+
+    /**
+     * Load the pending workflows that have been attempted less than a number of times, and not since a date
+     * 
+     * @param nMaxAttempts
+     *            the max number of attempts
+     * @param dateLastAttemptBefore
+     *            the date before which the last attempt must have been made
+     * @param plugin
+     *            the plugin
+     * @return the pending workflows, the oldest first
+     */
+    List<PendingWorkflow> selectToRetry( int nMaxAttempts, LocalDateTime dateLastAttemptBefore, Plugin plugin );
+
+    /**
+     * Load the ids of the appointments of a form whose workflow is pending
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the plugin
+     * @return the ids of the appointments
+     */
+    List<Integer> selectIdAppointmentsByIdForm( int nIdForm, Plugin plugin );
+}
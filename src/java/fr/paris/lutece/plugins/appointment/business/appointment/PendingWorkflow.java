@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.appointment;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Workflow of an appointment that could not be processed once the appointment was saved, and that must be processed again. The workflow is processed again
+ * without the request of the user: the locale of the request is kept with it
+ */
+public class PendingWorkflow implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -4610284790962475132L;
+    // Variables declarations
+    private int _nIdAppointment;
+    private int _nIdForm;
+    private boolean _bIsReport;
+    private int _nIdAdminUser;
+    private Locale _locale;
+    private int _nNbAttempts;
+    private LocalDateTime _dateLastAttempt;
+    private String _strLastError;
+
+    /**
+     * Returns the IdAppointment
+     * 
+     * @return The IdAppointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Sets the IdAppointment
+     * 
+     * @param nIdAppointment
+     *            The IdAppointment
+     */
+    public void setIdAppointment( int nIdAppointment )
+    {
+        _nIdAppointment = nIdAppointment;
+    }
+
+    /**
+     * Returns the IdForm
+     * 
+     * @return The IdForm
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Sets the IdForm
+     * 
+     * @param nIdForm
+     *            The IdForm
+     */
+    public void setIdForm( int nIdForm )
+    {
+        _nIdForm = nIdForm;
+    }
+
+    /**
+     * Returns true if the workflow is the one of a report of the appointment
+     * 
+     * @return true if it is a report
+     */
+    public boolean getIsReport( )
+    {
+        return _bIsReport;
+    }
+
+    /**
+     * Sets if the workflow is the one of a report of the appointment
+     * 
+     * @param bIsReport
+     *            true if it is a report
+     */
+    public void setIsReport( boolean bIsReport )
+    {
+        _bIsReport = bIsReport;
+    }
+
+    /**
+     * Returns the id of the administrator who saved the appointment
+     * 
+     * @return The id of the administrator, 0 if the appointment was saved by a user of the front office or by a daemon
+     */
+    public int getIdAdminUser( )
+    {
+        return _nIdAdminUser;
+    }
+
+    /**
+     * Sets the id of the administrator who saved the appointment
+     * 
+     * @param nIdAdminUser
+     *            The id of the administrator, 0 if none
+     */
+    public void setIdAdminUser( int nIdAdminUser )
+    {
+        _nIdAdminUser = nIdAdminUser;
+    }
+
+    /**
+     * Returns the locale of the request that saved the appointment, used to process the workflow again
+     * 
+     * @return The locale, null if unknown
+     */
+    public Locale getLocale( )
+    {
+        return _locale;
+    }
+
+    /**
+     * Sets the locale of the request that saved the appointment
+     * 
+     * @param locale
+     *            The locale
+     */
+    public void setLocale( Locale locale )
+    {
+        _locale = locale;
+    }
+
+    /**
+     * Returns the number of attempts to process the workflow
+     * 
+     * @return The number of attempts
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Sets the number of attempts to process the workflow
+     * 
+     * @param nNbAttempts
+     *            The number of attempts
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        _nNbAttempts = nNbAttempts;
+    }
+
+    /**
+     * Returns the date of the last attempt
+     * 
+     * @return The date of the last attempt
+     */
+    public LocalDateTime getDateLastAttempt( )
+    {
+        return _dateLastAttempt;
+    }
+
+    /**
+     * Sets the date of the last attempt
+     * 
+     * @param dateLastAttempt
+     *            The date of the last attempt
+     */
+    public void setDateLastAttempt( LocalDateTime dateLastAttempt )
+    {
+        _dateLastAttempt = dateLastAttempt;
+    }
+
+    /**
+     * Returns the error of the last attempt
+     * 
+     * @return The error of the last attempt
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Sets the error of the last attempt
+     * 
+     * @param strLastError
+     *            The error of the last attempt
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
+}
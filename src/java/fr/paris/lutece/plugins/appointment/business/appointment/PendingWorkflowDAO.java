@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.appointment;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for PendingWorkflow objects
+ */
+public final class PendingWorkflowDAO implements IPendingWorkflowDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_workflow_pending ( id_appointment, id_form, is_report, id_admin_user, locale, nb_attempts, last_attempt_date, last_error ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ? )";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_workflow_pending SET id_form = ?, is_report = ?, id_admin_user = ?, locale = ?, nb_attempts = ?, last_attempt_date = ?, last_error = ? WHERE id_appointment = ?";
+    private static final String SQL_QUERY_CLAIM = "UPDATE appointment_workflow_pending SET nb_attempts = nb_attempts + 1, last_attempt_date = ? WHERE id_appointment = ? AND nb_attempts = ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_workflow_pending WHERE id_appointment = ?";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_appointment, id_form, is_report, id_admin_user, locale, nb_attempts, last_attempt_date, last_error FROM appointment_workflow_pending";
+    private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_appointment = ?";
+    private static final String SQL_QUERY_SELECT_TO_RETRY = SQL_QUERY_SELECT_COLUMNS + " WHERE nb_attempts < ? AND last_attempt_date < ? ORDER BY last_attempt_date";
+    private static final String SQL_QUERY_SELECT_ID_APPOINTMENT_BY_ID_FORM = "SELECT id_appointment FROM appointment_workflow_pending WHERE id_form = ?";
+    private static final int LAST_ERROR_MAX_LENGTH = 255;
+
+    @Override
+    public void save( PendingWorkflow pendingWorkflow, Plugin plugin )
+    {
+        int nbRows;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, pendingWorkflow.getIdForm( ) );
+            daoUtil.setBoolean( nIndex++, pendingWorkflow.getIsReport( ) );
+            daoUtil.setInt( nIndex++, pendingWorkflow.getIdAdminUser( ) );
+            daoUtil.setString( nIndex++, ( pendingWorkflow.getLocale( ) != null ) ? pendingWorkflow.getLocale( ).toLanguageTag( ) : null );
+            daoUtil.setInt( nIndex++, pendingWorkflow.getNbAttempts( ) );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( pendingWorkflow.getDateLastAttempt( ) ) );
+            daoUtil.setString( nIndex++, truncate( pendingWorkflow.getLastError( ) ) );
+            daoUtil.setInt( nIndex, pendingWorkflow.getIdAppointment( ) );
+            nbRows = daoUtil.executeUpdate( );
+        }
+        if ( nbRows == 0 )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+            {
+                int nIndex = 1;
+                daoUtil.setInt( nIndex++, pendingWorkflow.getIdAppointment( ) );
+                daoUtil.setInt( nIndex++, pendingWorkflow.getIdForm( ) );
+                daoUtil.setBoolean( nIndex++, pendingWorkflow.getIsReport( ) );
+                daoUtil.setInt( nIndex++, pendingWorkflow.getIdAdminUser( ) );
+                daoUtil.setString( nIndex++, ( pendingWorkflow.getLocale( ) != null ) ? pendingWorkflow.getLocale( ).toLanguageTag( ) : null );
+                daoUtil.setInt( nIndex++, pendingWorkflow.getNbAttempts( ) );
+                daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( pendingWorkflow.getDateLastAttempt( ) ) );
+                daoUtil.setString( nIndex, truncate( pendingWorkflow.getLastError( ) ) );
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    @Override
+    public boolean claim( int nIdAppointment, int nNbAttempts, LocalDateTime dateAttempt, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_CLAIM, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateAttempt ) );
+            daoUtil.setInt( 2, nIdAppointment );
+            daoUtil.setInt( 3, nNbAttempts );
+            return daoUtil.executeUpdate( ) == 1;
+        }
+    }
+
+    @Override
+    public void delete( int nIdAppointment, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdAppointment );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public PendingWorkflow select( int nIdAppointment, Plugin plugin )
+    {
+        PendingWorkflow pendingWorkflow = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdAppointment );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                pendingWorkflow = buildPendingWorkflow( daoUtil );
+            }
+        }
+        return pendingWorkflow;
+    }
+
+    @Override
+    public List<PendingWorkflow> selectToRetry( int nMaxAttempts, LocalDateTime dateLastAttemptBefore, Plugin plugin )
+    {
+        List<PendingWorkflow> listPendingWorkflow = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_TO_RETRY, plugin ) )
+        {
+            daoUtil.setInt( 1, nMaxAttempts );
+            daoUtil.setTimestamp( 2, Timestamp.valueOf( dateLastAttemptBefore ) );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listPendingWorkflow.add( buildPendingWorkflow( daoUtil ) );
+            }
+        }
+        return listPendingWorkflow;
+    }
+
+    @Override
+    public List<Integer> selectIdAppointmentsByIdForm( int nIdForm, Plugin plugin )
+    {
+        List<Integer> listIdAppointment = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_APPOINTMENT_BY_ID_FORM, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdAppointment.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        return listIdAppointment;
+    }
+
+    /**
+     * Build a PendingWorkflow business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new PendingWorkflow business object with all its attributes assigned
+     */
+    private PendingWorkflow buildPendingWorkflow( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        PendingWorkflow pendingWorkflow = new PendingWorkflow( );
+        pendingWorkflow.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+        pendingWorkflow.setIdForm( daoUtil.getInt( nIndex++ ) );
+        pendingWorkflow.setIsReport( daoUtil.getBoolean( nIndex++ ) );
+        pendingWorkflow.setIdAdminUser( daoUtil.getInt( nIndex++ ) );
+        String strLocale = daoUtil.getString( nIndex++ );
+        if ( strLocale != null )
+        {
+            pendingWorkflow.setLocale( Locale.forLanguageTag( strLocale ) );
+        }
+        pendingWorkflow.setNbAttempts( daoUtil.getInt( nIndex++ ) );
+        pendingWorkflow.setDateLastAttempt( daoUtil.getTimestamp( nIndex++ ).toLocalDateTime( ) );
+        pendingWorkflow.setLastError( daoUtil.getString( nIndex ) );
+        return pendingWorkflow;
+    }
+
+    /**
+     * Truncate an error message to the size of its column
+     * 
+     * @param strLastError
+     *            the error message
+     * @return the truncated message
+     */
+    private static String truncate( String strLastError )
+    {
+        if ( strLastError != null && strLastError.length( ) > LAST_ERROR_MAX_LENGTH )
+        {
+            return strLastError.substring( 0, LAST_ERROR_MAX_LENGTH );
+        }
+        return strLastError;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.appointment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for PendingWorkflow objects
+ */
+public final class PendingWorkflowHome
+{
+    // Static variable pointed at the DAO instance
+    private static IPendingWorkflowDAO _dao = SpringContextService.getBean( "appointment.pendingWorkflowDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private PendingWorkflowHome( )
+    {
+    }
+
+    /**
+     * Save the pending workflow of an appointment
+     * 
+     * @param pendingWorkflow
+     *            the pending workflow
+     * @return the pending workflow saved
+     */
+    public static PendingWorkflow save( PendingWorkflow pendingWorkflow )
+    {
+        _dao.save( pendingWorkflow, _plugin );
+
+        return pendingWorkflow;
+    }
+
+    /**
+     * Claim a pending workflow before processing it again, so that a single node processes it. If it is claimed, its number of attempts and the date of its
+     * last attempt are updated
+     * 
+     * @param pendingWorkflow
+     *            the pending workflow, as read in database
+     * @return true if the workflow has been claimed, false if another node has claimed it
+     */
+    public static boolean claim( PendingWorkflow pendingWorkflow )
+    {
+        LocalDateTime dateAttempt = LocalDateTime.now( );
+        if ( _dao.claim( pendingWorkflow.getIdAppointment( ), pendingWorkflow.getNbAttempts( ), dateAttempt, _plugin ) )
+        {
+            pendingWorkflow.setNbAttempts( pendingWorkflow.getNbAttempts( ) + 1 );
+            pendingWorkflow.setDateLastAttempt( dateAttempt );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Delete the pending workflow of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     */
+    public static void delete( int nIdAppointment )
+    {
+        _dao.delete( nIdAppointment, _plugin );
+    }
+
+    /**
+     * Returns the pending workflow of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @return the pending workflow, null if the workflow of the appointment has been processed
+     */
+    public static PendingWorkflow findByIdAppointment( int nIdAppointment )
+    {
+        return _dao.select( nIdAppointment, _plugin );
+    }
+
+    /**
+     * Returns the pending workflows that can be processed again
+     * 
+     * @param nMaxAttempts
+     *            the max number of attempts of a workflow
+     * @param dateLastAttemptBefore
+     *            the date before which the last attempt must have been made
+     * @return the pending workflows, the oldest first
+     */
+    public static List<PendingWorkflow> findToRetry( int nMaxAttempts, LocalDateTime dateLastAttemptBefore )
+    {
+        return _dao.selectToRetry( nMaxAttempts, dateLastAttemptBefore, _plugin );
+    }
+
+    /**
+     * Returns the ids of the appointments of a form whose workflow is pending
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the ids of the appointments
+     */
+    public static List<Integer> findIdAppointmentsByIdForm( int nIdForm )
+    {
+        return _dao.selectIdAppointmentsByIdForm( nIdForm, _plugin );
+    }
+}
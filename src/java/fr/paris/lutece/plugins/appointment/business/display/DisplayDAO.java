@@ -52,9 +52,11 @@ public final class DisplayDAO implements IDisplayDAO
     private static final String SQL_QUERY_UPDATE = "UPDATE appointment_display SET display_title_fo = ?, icon_form_content = ?, icon_form_mime_type = ?, nb_weeks_to_display = ?, is_displayed_on_portlet = ?, id_calendar_template = ?, id_form = ? WHERE id_display = ?";
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_display WHERE id_display = ?";
     private static final String SQL_QUERY_DELETE_BY_ID_FORM = "DELETE FROM appointment_display WHERE id_form = ?";
-    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_display, display_title_fo, icon_form_content, icon_form_mime_type, nb_weeks_to_display, is_displayed_on_portlet, id_calendar_template, id_form FROM appointment_display";
+    // The content of the icon is not selected: it is loaded on demand with SQL_QUERY_SELECT_ICON_BY_ID_FORM
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_display, display_title_fo, icon_form_mime_type, nb_weeks_to_display, is_displayed_on_portlet, id_calendar_template, id_form FROM appointment_display";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_display = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_ICON_BY_ID_FORM = "SELECT icon_form_content, icon_form_mime_type FROM appointment_display WHERE id_form = ?";
 
     @Override
     public void insert( Display display, Plugin plugin )
@@ -130,8 +132,24 @@ public final class DisplayDAO implements IDisplayDAO
         return display;
     }
 
+    @Override
+    public ImageResource findIconByIdForm( int nIdForm, Plugin plugin )
+    {
+        ImageResource icon = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ICON_BY_ID_FORM, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                icon = buildIcon( daoUtil.getBytes( 1 ), daoUtil.getString( 2 ) );
+            }
+        }
+        return icon;
+    }
+
     /**
-     * Build a Display business object from the resultset
+     * Build a Display business object from the resultset. The icon only has its mime type: its content is not loaded
      * 
      * @param daoUtil
      *            the prepare statement util object
@@ -143,7 +161,7 @@ public final class DisplayDAO implements IDisplayDAO
         Display display = new Display( );
         display.setIdDisplay( daoUtil.getInt( nIndex++ ) );
         display.setDisplayTitleFo( daoUtil.getBoolean( nIndex++ ) );
-        display.setIcon( buildIcon( daoUtil.getBytes( nIndex++ ), daoUtil.getString( nIndex++ ) ) );
+        display.setIcon( buildIcon( null, daoUtil.getString( nIndex++ ) ) );
         display.setNbWeeksToDisplay( daoUtil.getInt( nIndex++ ) );
         display.setIsDisplayedOnPortlet( daoUtil.getBoolean( nIndex++ ) );
         display.setIdCalendarTemplate( daoUtil.getInt( nIndex++ ) );
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business.display;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.image.ImageResource;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
@@ -120,7 +121,7 @@ public final class DisplayHome
     }
 
     /**
-     * Returns the form display
+     * Returns the form display, without the content of its icon
      * 
      * @param nIdForm
      *            the form id
@@ -131,4 +132,16 @@ public final class DisplayHome
         return _dao.findByIdForm( nIdForm, _plugin );
     }
 
+    /**
+     * Returns the icon of the form, with its content
+     * 
+     * @param nIdForm
+     *            the form id
+     * @return the icon of the form, null if the form has no display
+     */
+    public static ImageResource findIconByIdForm( int nIdForm )
+    {
+        return _dao.findIconByIdForm( nIdForm, _plugin );
+    }
+
 }
@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.appointment.business.display;
 
+import fr.paris.lutece.portal.service.image.ImageResource;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -84,7 +85,7 @@ public interface IDisplayDAO
     void deleteByIdForm( int nIdForm, Plugin plugin );
 
     /**
-     * Load the data from the table
+     * Load the data from the table. The icon of the display only has its mime type, its content is loaded with {@link #findIconByIdForm(int, Plugin)}
      * 
      * @param nIdDisplay
      *            The identifier of the Display
@@ -104,4 +105,15 @@ public interface IDisplayDAO
      * @return the form display
      */
     Display findByIdForm( int nIdForm, Plugin plugin );
+
+    /**
+     * Returns the icon of the given form, with its content
+     * 
+     * @param nIdForm
+     *            the form id
+     * @param plugin
+     *            the plugin
+     * @return the icon of the form, null if the form has no display
+     */
+    ImageResource findIconByIdForm( int nIdForm, Plugin plugin );
 }
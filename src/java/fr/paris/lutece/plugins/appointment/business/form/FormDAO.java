@@ -35,7 +35,9 @@ package fr.paris.lutece.plugins.appointment.business.form;
 
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -60,6 +62,9 @@ public final class FormDAO implements IFormDAO
     private static final String SQL_QUERY_SELECT_ACTIVE_AND_DISPLAYED_ON_PORTLET_FORMS = SQL_QUERY_SELECT_COLUMNS
             + " INNER JOIN appointment_display display ON form.id_form = display.id_form WHERE form.is_active = 1 AND display.is_displayed_on_portlet = 1";
     private static final String SQL_QUERY_SELECT_BY_CATEGORY = SQL_QUERY_SELECT_COLUMNS + " WHERE id_category = ?";
+    private static final String SQL_QUERY_INCREMENT_CONFIG_VERSION = "UPDATE appointment_form SET config_version = config_version + 1 WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_CONFIG_VERSION = "SELECT config_version FROM appointment_form WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_ALL_CONFIG_VERSIONS = "SELECT id_form, config_version FROM appointment_form";
 
     @Override
     public void insert( Form form, Plugin plugin )
@@ -186,6 +191,47 @@ public final class FormDAO implements IFormDAO
         return listForms;
     }
 
+    @Override
+    public void incrementConfigVersion( int nIdForm, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_CONFIG_VERSION, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int selectConfigVersion( int nIdForm, Plugin plugin )
+    {
+        int nConfigVersion = -1;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_CONFIG_VERSION, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nConfigVersion = daoUtil.getInt( 1 );
+            }
+        }
+        return nConfigVersion;
+    }
+
+    @Override
+    public Map<Integer, Integer> selectAllConfigVersions( Plugin plugin )
+    {
+        Map<Integer, Integer> mapConfigVersions = new HashMap<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ALL_CONFIG_VERSIONS, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                mapConfigVersions.put( daoUtil.getInt( 1 ), daoUtil.getInt( 2 ) );
+            }
+        }
+        return mapConfigVersions;
+    }
+
     /**
      * Build a Form business object from the resultset
      * 
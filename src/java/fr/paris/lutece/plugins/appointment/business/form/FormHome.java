@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business.form;
 
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -167,4 +168,37 @@ public final class FormHome
 
     }
 
+    /**
+     * Increment the configuration version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void incrementConfigVersion( int nIdForm )
+    {
+        _dao.incrementConfigVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Get the configuration version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the configuration version of the form, -1 if the form does not exist
+     */
+    public static int findConfigVersion( int nIdForm )
+    {
+        return _dao.selectConfigVersion( nIdForm, _plugin );
+    }
+
+    /**
+     * Get the configuration versions of all the forms
+     * 
+     * @return the configuration versions by id of form
+     */
+    public static Map<Integer, Integer> findAllConfigVersions( )
+    {
+        return _dao.selectAllConfigVersions( _plugin );
+    }
+
 }
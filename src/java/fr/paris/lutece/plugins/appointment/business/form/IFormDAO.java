@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business.form;
 
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
@@ -136,4 +137,34 @@ public interface IFormDAO
      */
     List<Form> findAllForms( Plugin plugin );
 
+    /**
+     * Increment the configuration version of a form, read by the other nodes to know that their copy of the configuration of the form is out of date
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the plugin
+     */
+    void incrementConfigVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Get the configuration version of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param plugin
+     *            the plugin
+     * @return the configuration version of the form, -1 if the form does not exist
+     */
+    int selectConfigVersion( int nIdForm, Plugin plugin );
+
+    /**
+     * Get the configuration versions of all the forms
+     * 
+     * @param plugin
+     *            the plugin
+     * @return the configuration versions by id of form
+     */
+    Map<Integer, Integer> selectAllConfigVersions( Plugin plugin );
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.lock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Lock DAO Interface. The methods work on a connection given by the caller, because a lock has to be held on its own connection, outside of the current
+ * transaction of the plugin
+ */
+public interface ILockDAO
+{
+    /**
+     * Insert the row of a lock if it does not already exist
+     * 
+     * @param strLockKey
+     *            the key of the lock
+     * @param connection
+     *            the connection
+     */
+    void insertLockIfNotExists( String strLockKey, Connection connection );
+
+    /**
+     * Lock the row of a lock until the end of the transaction of the connection
+     * 
+     * @param strLockKey
+     *            the key of the lock
+     * @param nTimeoutSeconds
+     *            the max time to wait for the row, in seconds (0 to wait with no limit)
+     * @param connection
+     *            the connection (not in auto commit mode)
+     * @return true if the row has been locked
+     * @throws SQLException
+     *             if the row could not be locked in the given time
+     */
+    boolean selectLockForUpdate( String strLockKey, int nTimeoutSeconds, Connection connection ) throws SQLException;
+
+    /**
+     * Take a lease on a lock: the lease is created if it does not exist, or taken over if it has expired
+     * 
+     * @param strLockKey
+     *            the key of the lock
+     * @param strOwner
+     *            the owner of the lease
+     * @param dateNow
+     *            the current date
+     * @param dateExpiry
+     *            the expiry date of the new lease
+     * @param connection
+     *            the connection
+     * @return true if the lease has been taken
+     */
+    boolean takeLease( String strLockKey, String strOwner, LocalDateTime dateNow, LocalDateTime dateExpiry, Connection connection );
+
+    /**
+     * Extend a lease on a lock, if it is still owned by the given owner and has not expired
+     * 
+     * @param strLockKey
+     *            the key of the lock
+     * @param strOwner
+     *            the owner of the lease
+     * @param dateNow
+     *            the current date
+     * @param dateExpiry
+     *            the new expiry date of the lease
+     * @param connection
+     *            the connection
+     * @return true if the lease has been extended, false if it has expired
+     */
+    boolean renewLease( String strLockKey, String strOwner, LocalDateTime dateNow, LocalDateTime dateExpiry, Connection connection );
+
+    /**
+     * Delete the lease of a lock, if it is still owned by the given owner
+     * 
+     * @param strLockKey
+     *            the key of the lock
+     * @param strOwner
+     *            the owner of the lease
+     * @param connection
+     *            the connection
+     * @return true if the lease has been deleted, false if it has been taken over by another owner
+     */
+    boolean deleteLease( String strLockKey, String strOwner, Connection connection );
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.lock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * This class provides Data Access methods for the lock tables
+ */
+public final class LockDAO implements ILockDAO
+{
+    private static final String SQL_QUERY_SELECT_LOCK = "SELECT lock_key FROM appointment_lock WHERE lock_key = ?";
+    private static final String SQL_QUERY_INSERT_LOCK = "INSERT INTO appointment_lock ( lock_key ) VALUES ( ? )";
+    private static final String SQL_QUERY_SELECT_LOCK_FOR_UPDATE = SQL_QUERY_SELECT_LOCK + " FOR UPDATE";
+    private static final String SQL_QUERY_INSERT_LEASE = "INSERT INTO appointment_lock_lease ( lock_key, lock_owner, expiry_date ) VALUES ( ?, ?, ? )";
+    private static final String SQL_QUERY_UPDATE_EXPIRED_LEASE = "UPDATE appointment_lock_lease SET lock_owner = ?, expiry_date = ? WHERE lock_key = ? AND expiry_date < ?";
+    private static final String SQL_QUERY_RENEW_LEASE = "UPDATE appointment_lock_lease SET expiry_date = ? WHERE lock_key = ? AND lock_owner = ? AND expiry_date >= ?";
+    private static final String SQL_QUERY_DELETE_LEASE = "DELETE FROM appointment_lock_lease WHERE lock_key = ? AND lock_owner = ?";
+
+    // SQL state of a unique constraint violation (PostgreSQL, HSQLDB, Oracle), and MySQL error code of a duplicate entry
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+    private static final int ERROR_CODE_DUPLICATE_ENTRY = 1062;
+
+    @Override
+    public void insertLockIfNotExists( String strLockKey, Connection connection )
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_SELECT_LOCK ) )
+        {
+            statement.setString( 1, strLockKey );
+            try ( ResultSet resultSet = statement.executeQuery( ) )
+            {
+                if ( resultSet.next( ) )
+                {
+                    return;
+                }
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_INSERT_LOCK ) )
+        {
+            statement.setString( 1, strLockKey );
+            statement.executeUpdate( );
+        }
+        catch( SQLException e )
+        {
+            // The row may have been inserted by another node in the meantime
+            if ( !isDuplicateKey( e ) )
+            {
+                throw new AppException( e.getMessage( ), e );
+            }
+        }
+    }
+
+    @Override
+    public boolean selectLockForUpdate( String strLockKey, int nTimeoutSeconds, Connection connection ) throws SQLException
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_SELECT_LOCK_FOR_UPDATE ) )
+        {
+            statement.setString( 1, strLockKey );
+            statement.setQueryTimeout( nTimeoutSeconds );
+            try ( ResultSet resultSet = statement.executeQuery( ) )
+            {
+                return resultSet.next( );
+            }
+        }
+    }
+
+    @Override
+    public boolean takeLease( String strLockKey, String strOwner, LocalDateTime dateNow, LocalDateTime dateExpiry, Connection connection )
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_INSERT_LEASE ) )
+        {
+            statement.setString( 1, strLockKey );
+            statement.setString( 2, strOwner );
+            statement.setTimestamp( 3, Timestamp.valueOf( dateExpiry ) );
+            statement.executeUpdate( );
+            return true;
+        }
+        catch( SQLException e )
+        {
+            // The lease already exists, it can only be taken over if it has expired
+            if ( !isDuplicateKey( e ) )
+            {
+                throw new AppException( e.getMessage( ), e );
+            }
+        }
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_UPDATE_EXPIRED_LEASE ) )
+        {
+            statement.setString( 1, strOwner );
+            statement.setTimestamp( 2, Timestamp.valueOf( dateExpiry ) );
+            statement.setString( 3, strLockKey );
+            statement.setTimestamp( 4, Timestamp.valueOf( dateNow ) );
+            return statement.executeUpdate( ) == 1;
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    @Override
+    public boolean renewLease( String strLockKey, String strOwner, LocalDateTime dateNow, LocalDateTime dateExpiry, Connection connection )
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_RENEW_LEASE ) )
+        {
+            statement.setTimestamp( 1, Timestamp.valueOf( dateExpiry ) );
+            statement.setString( 2, strLockKey );
+            statement.setString( 3, strOwner );
+            statement.setTimestamp( 4, Timestamp.valueOf( dateNow ) );
+            return statement.executeUpdate( ) == 1;
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    @Override
+    public boolean deleteLease( String strLockKey, String strOwner, Connection connection )
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_DELETE_LEASE ) )
+        {
+            statement.setString( 1, strLockKey );
+            statement.setString( 2, strOwner );
+            return statement.executeUpdate( ) == 1;
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Check if an exception is due to the insertion of a row whose key already exists
+     * 
+     * @param e
+     *            the exception
+     * @return true if the key already exists
+     */
+    private static boolean isDuplicateKey( SQLException e )
+    {
+        return SQL_STATE_UNIQUE_VIOLATION.equals( e.getSQLState( ) ) || e.getErrorCode( ) == ERROR_CODE_DUPLICATE_ENTRY;
+    }
+}
@@ -107,4 +107,26 @@ public interface IWorkingDayDAO
      */
     List<WorkingDay> findByIdReservationRule( int nIdWeekDefinitionRule, Plugin plugin );
 
+    /**
+     * Get all the working days of a reservation rule with their time slots, in a single query
+     * 
+     * @param nIdReservationRule
+     *            the reservation rule id
+     * @param plugin
+     *            the Plugin
+     * @return the list of the working days of the reservation rule, with their time slots
+     */
+    List<WorkingDay> findByIdReservationRuleWithListTimeSlot( int nIdReservationRule, Plugin plugin );
+
+    /**
+     * Get all the working days of all the reservation rules of a form with their time slots, in a single query
+     * 
+     * @param nIdForm
+     *            the form id
+     * @param plugin
+     *            the Plugin
+     * @return the list of the working days of the form, ordered by reservation rule, with their time slots
+     */
+    List<WorkingDay> findByIdFormWithListTimeSlot( int nIdForm, Plugin plugin );
+
 }
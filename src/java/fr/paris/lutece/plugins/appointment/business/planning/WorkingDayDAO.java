@@ -56,6 +56,11 @@ public final class WorkingDayDAO implements IWorkingDayDAO
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_working_day, day_of_week, id_reservation_rule FROM appointment_working_day";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_working_day = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_WEEK_DEFINITION_RULE = SQL_QUERY_SELECT_COLUMNS + " WHERE id_reservation_rule = ?";
+    private static final String SQL_QUERY_SELECT_COLUMNS_WITH_TIME_SLOT = "SELECT wd.id_working_day, wd.day_of_week, wd.id_reservation_rule, ts.id_time_slot, ts.starting_time, ts.ending_time, ts.is_open, ts.max_capacity FROM appointment_working_day wd LEFT JOIN appointment_time_slot ts ON ( wd.id_working_day = ts.id_working_day )";
+    private static final String SQL_QUERY_SELECT_BY_ID_RESERVATION_RULE_WITH_TIME_SLOT = SQL_QUERY_SELECT_COLUMNS_WITH_TIME_SLOT
+            + " WHERE wd.id_reservation_rule = ? ORDER BY wd.id_working_day, ts.id_time_slot";
+    private static final String SQL_QUERY_SELECT_BY_ID_FORM_WITH_TIME_SLOT = SQL_QUERY_SELECT_COLUMNS_WITH_TIME_SLOT
+            + " INNER JOIN appointment_reservation_rule rr ON ( wd.id_reservation_rule = rr.id_reservation_rule ) WHERE rr.id_form = ? ORDER BY wd.id_reservation_rule, wd.id_working_day, ts.id_time_slot";
 
     @Override
     public void insert( WorkingDay workingDay, Plugin plugin )
@@ -131,6 +136,66 @@ public final class WorkingDayDAO implements IWorkingDayDAO
         return listWorkingDays;
     }
 
+    @Override
+    public List<WorkingDay> findByIdReservationRuleWithListTimeSlot( int nIdReservationRule, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_RESERVATION_RULE_WITH_TIME_SLOT, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdReservationRule );
+            daoUtil.executeQuery( );
+            return buildListWorkingDayWithListTimeSlot( daoUtil );
+        }
+    }
+
+    @Override
+    public List<WorkingDay> findByIdFormWithListTimeSlot( int nIdForm, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_FORM_WITH_TIME_SLOT, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdForm );
+            daoUtil.executeQuery( );
+            return buildListWorkingDayWithListTimeSlot( daoUtil );
+        }
+    }
+
+    /**
+     * Build the working days and their time slots from the rows of a join ordered by working day. A working day without time slot comes in a single row whose
+     * time slot columns are null
+     * 
+     * @param daoUtil
+     *            the prepare statement util object, already executed
+     * @return the list of the working days with their time slots
+     */
+    private List<WorkingDay> buildListWorkingDayWithListTimeSlot( DAOUtil daoUtil )
+    {
+        List<WorkingDay> listWorkingDays = new ArrayList<>( );
+        WorkingDay workingDay = null;
+        while ( daoUtil.next( ) )
+        {
+            int nIdWorkingDay = daoUtil.getInt( 1 );
+            if ( workingDay == null || workingDay.getIdWorkingDay( ) != nIdWorkingDay )
+            {
+                workingDay = buildWorkingDay( daoUtil );
+                workingDay.setListTimeSlot( new ArrayList<>( ) );
+                listWorkingDays.add( workingDay );
+            }
+            int nIdTimeSlot = daoUtil.getInt( 4 );
+            if ( nIdTimeSlot != 0 )
+            {
+                int nIndex = 5;
+                TimeSlot timeSlot = new TimeSlot( );
+                timeSlot.setIdTimeSlot( nIdTimeSlot );
+                timeSlot.setSqlStartingTime( daoUtil.getTime( nIndex++ ) );
+                timeSlot.setSqlEndingTime( daoUtil.getTime( nIndex++ ) );
+                timeSlot.setIsOpen( daoUtil.getBoolean( nIndex++ ) );
+                timeSlot.setMaxCapacity( daoUtil.getInt( nIndex ) );
+                timeSlot.setIdWorkingDay( nIdWorkingDay );
+                workingDay.getListTimeSlot( ).add( timeSlot );
+            }
+        }
+        return listWorkingDays;
+    }
+
     /**
      * Build a WorkingDay business object from the resultset
      * 
@@ -134,4 +134,28 @@ public final class WorkingDayHome
         return _dao.findByIdReservationRule( nIdReservationRule, _plugin );
     }
 
+    /**
+     * Find the Working Days of the Reservation Rule with their time slots
+     * 
+     * @param nIdReservationRule
+     *            the Reservation Id Rule
+     * @return a list of the working days of the rule, with their time slots
+     */
+    public static List<WorkingDay> findByIdReservationRuleWithListTimeSlot( int nIdReservationRule )
+    {
+        return _dao.findByIdReservationRuleWithListTimeSlot( nIdReservationRule, _plugin );
+    }
+
+    /**
+     * Find the Working Days of all the Reservation Rules of a form with their time slots
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return a list of the working days of the form, ordered by reservation rule, with their time slots
+     */
+    public static List<WorkingDay> findByIdFormWithListTimeSlot( int nIdForm )
+    {
+        return _dao.findByIdFormWithListTimeSlot( nIdForm, _plugin );
+    }
+
 }
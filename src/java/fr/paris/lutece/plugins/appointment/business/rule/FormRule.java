@@ -93,6 +93,16 @@ public final class FormRule implements Serializable
      */
     private boolean _bBoOverbooking;
 
+    /**
+     * Maximum number of requests of the front office admitted per second on the calendar and the booking of the form (0 for no limit)
+     */
+    private int _nNbAdmissionsPerSecond;
+
+    /**
+     * Maximum number of requests of the front office processed at the same time on the calendar and the booking of the form (0 for no limit)
+     */
+    private int _nNbMaxConcurrentRequests;
+
     /**
      * Form id (foreign key)
      */
@@ -287,6 +297,48 @@ public final class FormRule implements Serializable
         _bBoOverbooking = bBoOverbooking;
     }
 
+    /**
+     * Get the maximum number of requests admitted per second
+     * 
+     * @return the number of requests per second (0 for no limit)
+     */
+    public int getNbAdmissionsPerSecond( )
+    {
+        return _nNbAdmissionsPerSecond;
+    }
+
+    /**
+     * Set the maximum number of requests admitted per second
+     * 
+     * @param nNbAdmissionsPerSecond
+     *            the number of requests per second (0 for no limit)
+     */
+    public void setNbAdmissionsPerSecond( int nNbAdmissionsPerSecond )
+    {
+        _nNbAdmissionsPerSecond = nNbAdmissionsPerSecond;
+    }
+
+    /**
+     * Get the maximum number of requests processed at the same time
+     * 
+     * @return the number of requests (0 for no limit)
+     */
+    public int getNbMaxConcurrentRequests( )
+    {
+        return _nNbMaxConcurrentRequests;
+    }
+
+    /**
+     * Set the maximum number of requests processed at the same time
+     * 
+     * @param nNbMaxConcurrentRequests
+     *            the number of requests (0 for no limit)
+     */
+    public void setNbMaxConcurrentRequests( int nNbMaxConcurrentRequests )
+    {
+        _nNbMaxConcurrentRequests = nNbMaxConcurrentRequests;
+    }
+
     /**
      * Get the form id the formRule belongs to
      * 
@@ -47,11 +47,11 @@ import fr.paris.lutece.util.sql.DAOUtil;
 public final class FormRuleDAO implements IFormRuleDAO
 {
 
-    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_form_rule ( is_captcha_enabled, is_mandatory_email_enabled, is_active_authentication, nb_days_before_new_appointment, min_time_before_appointment, nb_max_appointments_per_user, nb_days_for_max_appointments_per_user, bo_overbooking, id_form) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_form_rule SET is_captcha_enabled = ?, is_mandatory_email_enabled = ?, is_active_authentication = ?, nb_days_before_new_appointment = ?, min_time_before_appointment = ?, nb_max_appointments_per_user = ?, nb_days_for_max_appointments_per_user = ?, bo_overbooking=? , id_form = ? WHERE id_form_rule = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_form_rule ( is_captcha_enabled, is_mandatory_email_enabled, is_active_authentication, nb_days_before_new_appointment, min_time_before_appointment, nb_max_appointments_per_user, nb_days_for_max_appointments_per_user, bo_overbooking, nb_admissions_per_second, nb_max_concurrent_requests, id_form) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE appointment_form_rule SET is_captcha_enabled = ?, is_mandatory_email_enabled = ?, is_active_authentication = ?, nb_days_before_new_appointment = ?, min_time_before_appointment = ?, nb_max_appointments_per_user = ?, nb_days_for_max_appointments_per_user = ?, bo_overbooking=? , nb_admissions_per_second = ?, nb_max_concurrent_requests = ?, id_form = ? WHERE id_form_rule = ?";
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_form_rule WHERE id_form_rule = ?";
     private static final String SQL_QUERY_DELETE_BY_ID_FORM = "DELETE FROM appointment_form_rule WHERE id_form = ?";
-    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_form_rule, is_captcha_enabled, is_mandatory_email_enabled, is_active_authentication, nb_days_before_new_appointment, min_time_before_appointment, nb_max_appointments_per_user, nb_days_for_max_appointments_per_user, bo_overbooking, id_form FROM appointment_form_rule";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_form_rule, is_captcha_enabled, is_mandatory_email_enabled, is_active_authentication, nb_days_before_new_appointment, min_time_before_appointment, nb_max_appointments_per_user, nb_days_for_max_appointments_per_user, bo_overbooking, nb_admissions_per_second, nb_max_concurrent_requests, id_form FROM appointment_form_rule";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form_rule = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
 
@@ -149,6 +149,8 @@ public final class FormRuleDAO implements IFormRuleDAO
         formRule.setNbMaxAppointmentsPerUser( daoUtil.getInt( nIndex++ ) );
         formRule.setNbDaysForMaxAppointmentsPerUser( daoUtil.getInt( nIndex++ ) );
         formRule.setBoOverbooking( daoUtil.getBoolean( nIndex++ ) );
+        formRule.setNbAdmissionsPerSecond( daoUtil.getInt( nIndex++ ) );
+        formRule.setNbMaxConcurrentRequests( daoUtil.getInt( nIndex++ ) );
         formRule.setIdForm( daoUtil.getInt( nIndex ) );
         return formRule;
     }
@@ -187,6 +189,8 @@ public final class FormRuleDAO implements IFormRuleDAO
         daoUtil.setInt( nIndex++, formRule.getNbMaxAppointmentsPerUser( ) );
         daoUtil.setInt( nIndex++, formRule.getNbDaysForMaxAppointmentsPerUser( ) );
         daoUtil.setBoolean( nIndex++, formRule.getBoOverbooking( ) );
+        daoUtil.setInt( nIndex++, formRule.getNbAdmissionsPerSecond( ) );
+        daoUtil.setInt( nIndex++, formRule.getNbMaxConcurrentRequests( ) );
         daoUtil.setInt( nIndex++, formRule.getIdForm( ) );
         if ( !isInsert )
         {
@@ -67,6 +67,17 @@ public interface ISlotDAO
      */
     void update( Slot slot, Plugin plugin );
 
+    /**
+     * Update the dates, the opening and the capacity of a slot with a single update. The remaining places are shifted by the change of capacity in database, so
+     * that the places taken meanwhile are kept
+     *
+     * @param slot
+     *            the reference of the Slot
+     * @param plugin
+     *            the plugin
+     */
+    void updateDefinition( Slot slot, Plugin plugin );
+
     /**
      * Delete a appointment from the table
      * 
@@ -207,14 +218,6 @@ public interface ISlotDAO
      */
     void updatePotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot, Plugin plugin );
 
-    /**
-     * update the availabilities metrics
-     * 
-     * @param plugin
-     *            the plugin
-     */
-    void resetPotentialRemainingPlaces( Plugin plugin );
-
     /**
      * Return the specific slot dates from the form
      * 
@@ -226,4 +229,77 @@ public interface ISlotDAO
      */
     List<LocalDate> findSpecificSlotDates( int nIdForm, Plugin plugin );
 
+    /**
+     * Take places on a slot with a single conditional update. The places are taken only if the slot is not over and, when the capacity is checked, if the
+     * slot still has enough remaining places
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @param nbMaxPotentialBookedSeats
+     *            the number of places potentially held on the slot by the user (given back to the potential remaining places)
+     * @param bCheckCapacity
+     *            true if the remaining places and the max capacity of the slot must be checked
+     * @param dateTimeNow
+     *            the current date time
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated (0 if the places could not be taken)
+     */
+    int takePlaces( int nIdSlot, int nbPlaces, int nbMaxPotentialBookedSeats, boolean bCheckCapacity, LocalDateTime dateTimeNow, Plugin plugin );
+
+    /**
+     * Give back the places of a moved appointment to a slot with a single update. The new remaining places take in account the capacity of the slot, in case
+     * of the slot was over booked
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to give back
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated
+     */
+    int releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin );
+
+    /**
+     * Give back held places to the potential remaining places of a slot with a single update, without exceeding the remaining places of the slot
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to give back
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated
+     */
+    int addPotentialRemainingPlaces( int nIdSlot, int nbPlaces, Plugin plugin );
+
+    /**
+     * Take again the places of a reactivated appointment on a slot with a single update, without checking the capacity of the slot
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated
+     */
+    int retakePlaces( int nIdSlot, int nbPlaces, Plugin plugin );
+
+    /**
+     * Remove held places from the potential remaining places of a slot with a single update
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated
+     */
+    int removePotentialRemainingPlaces( int nIdSlot, int nbPlaces, Plugin plugin );
+
 }
@@ -55,7 +55,7 @@ public final class SlotDAO implements ISlotDAO
     private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_slot (starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SQL_QUERY_UPDATE = "UPDATE appointment_slot SET starting_date_time = ?, ending_date_time = ?, is_open = ?, is_specific = ?, max_capacity = ?, nb_remaining_places = ?, nb_potential_remaining_places = ?, nb_places_taken = ?, id_form = ? WHERE id_slot = ?";
     private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE = "UPDATE appointment_slot SET nb_potential_remaining_places = ? WHERE id_slot = ?";
-    private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE_IF_SHUTDOWN = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_remaining_places WHERE nb_potential_remaining_places < nb_remaining_places ";
+    private static final String SQL_QUERY_ADD_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( nb_potential_remaining_places + ?, nb_remaining_places ) WHERE id_slot = ?";
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_slot WHERE id_slot = ?";
     private static final String SQL_QUERY_DELETE_BY_ID_FORM = "DELETE FROM appointment_slot WHERE id_form = ?";
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_slot, starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form ";
@@ -77,6 +77,19 @@ public final class SlotDAO implements ISlotDAO
 
     private static final String SQL_QUERY_SELECT_SLOT_WITH_APPOINTMNT_BY_ID_FORM_AND_DATE_RANGE = "SELECT distinct slot.id_slot, slot.starting_date_time, slot.ending_date_time, slot.is_open, slot.is_specific, slot.max_capacity, slot.nb_remaining_places, slot.nb_potential_remaining_places, slot.nb_places_taken, slot.id_form  from appointment_slot slot JOIN appointment_appointment_slot appt_slot on ( slot.id_slot = appt_slot.id_slot ) WHERE slot.id_form = ? AND slot.starting_date_time >= ? AND slot.ending_date_time <= ? ";
     private static final String SQL_QUERY_SELECT_SPECIFIC_DATE_SLOT = "SELECT distinct DATE( starting_date_time) as date_value from appointment_slot where is_specific = 1 and id_form = ? ";
+    // The columns are assigned in this order because some databases (MySQL) evaluate the SET clause from left to right with the already updated values
+    private static final String SQL_QUERY_UPDATE_TAKE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = CASE WHEN nb_potential_remaining_places + ? < nb_remaining_places - ? THEN nb_potential_remaining_places + ? ELSE nb_remaining_places - ? END, "
+            + " nb_remaining_places = nb_remaining_places - ?, nb_places_taken = nb_places_taken + ? WHERE id_slot = ? AND ending_date_time >= ?";
+    private static final String SQL_QUERY_UPDATE_TAKE_PLACES_IF_AVAILABLE = SQL_QUERY_UPDATE_TAKE_PLACES
+            + " AND nb_remaining_places >= ? AND nb_places_taken + ? <= max_capacity";
+    private static final String SQL_QUERY_UPDATE_RELEASE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( max_capacity, nb_remaining_places + ?, nb_potential_remaining_places + ?, max_capacity - nb_places_taken + ? ), "
+            + " nb_remaining_places = LEAST( max_capacity, nb_remaining_places + ?, max_capacity - nb_places_taken + ? ), nb_places_taken = nb_places_taken - ? WHERE id_slot = ?";
+    private static final String SQL_QUERY_UPDATE_RETAKE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_potential_remaining_places - ?, nb_remaining_places = nb_remaining_places - ?, nb_places_taken = nb_places_taken + ? WHERE id_slot = ?";
+    private static final String SQL_QUERY_REMOVE_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_potential_remaining_places - ? WHERE id_slot = ?";
+    // The max capacity is assigned last so that the remaining places are shifted by the difference with the previous capacity (MySQL evaluates the SET
+    // clause from left to right)
+    private static final String SQL_QUERY_UPDATE_DEFINITION = "UPDATE appointment_slot SET starting_date_time = ?, ending_date_time = ?, is_open = ?, is_specific = ?, "
+            + " nb_remaining_places = nb_remaining_places + ? - max_capacity, nb_potential_remaining_places = nb_potential_remaining_places + ? - max_capacity, max_capacity = ?, id_form = ? WHERE id_slot = ?";
 
     @Override
     public void insert( Slot slot, Plugin plugin )
@@ -100,6 +113,25 @@ public final class SlotDAO implements ISlotDAO
         }
     }
 
+    @Override
+    public void updateDefinition( Slot slot, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_DEFINITION, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setTimestamp( nIndex++, slot.getStartingTimestampDate( ) );
+            daoUtil.setTimestamp( nIndex++, slot.getEndingTimestampDate( ) );
+            daoUtil.setBoolean( nIndex++, slot.getIsOpen( ) );
+            daoUtil.setBoolean( nIndex++, slot.getIsSpecific( ) );
+            daoUtil.setInt( nIndex++, slot.getMaxCapacity( ) );
+            daoUtil.setInt( nIndex++, slot.getMaxCapacity( ) );
+            daoUtil.setInt( nIndex++, slot.getMaxCapacity( ) );
+            daoUtil.setInt( nIndex++, slot.getIdForm( ) );
+            daoUtil.setInt( nIndex, slot.getIdSlot( ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
     @Override
     public void delete( int nIdSlot, Plugin plugin )
     {
@@ -348,15 +380,6 @@ public final class SlotDAO implements ISlotDAO
         return daoUtil;
     }
 
-    @Override
-    public void resetPotentialRemainingPlaces( Plugin plugin )
-    {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE_IF_SHUTDOWN, plugin ) )
-        {
-            daoUtil.executeUpdate( );
-        }
-    }
-
     @Override
     public List<LocalDate> findSpecificSlotDates( int nIdForm, Plugin plugin )
     {
@@ -372,4 +395,81 @@ public final class SlotDAO implements ISlotDAO
         }
         return listDate;
     }
+
+    @Override
+    public int takePlaces( int nIdSlot, int nbPlaces, int nbMaxPotentialBookedSeats, boolean bCheckCapacity, LocalDateTime dateTimeNow, Plugin plugin )
+    {
+        String strQuery = bCheckCapacity ? SQL_QUERY_UPDATE_TAKE_PLACES_IF_AVAILABLE : SQL_QUERY_UPDATE_TAKE_PLACES;
+        int nPotentialPlacesDelta = nbMaxPotentialBookedSeats - nbPlaces;
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nPotentialPlacesDelta );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nPotentialPlacesDelta );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nIdSlot );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( dateTimeNow ) );
+            if ( bCheckCapacity )
+            {
+                daoUtil.setInt( nIndex++, nbPlaces );
+                daoUtil.setInt( nIndex, nbPlaces );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_RELEASE_PLACES, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex, nIdSlot );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int addPotentialRemainingPlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ADD_POTENTIAL_REMAINING_PLACES, plugin ) )
+        {
+            daoUtil.setInt( 1, nbPlaces );
+            daoUtil.setInt( 2, nIdSlot );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int retakePlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_RETAKE_PLACES, plugin ) )
+        {
+            daoUtil.setInt( 1, nbPlaces );
+            daoUtil.setInt( 2, nbPlaces );
+            daoUtil.setInt( 3, nbPlaces );
+            daoUtil.setInt( 4, nIdSlot );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int removePotentialRemainingPlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REMOVE_POTENTIAL_REMAINING_PLACES, plugin ) )
+        {
+            daoUtil.setInt( 1, nbPlaces );
+            daoUtil.setInt( 2, nIdSlot );
+            return daoUtil.executeUpdate( );
+        }
+    }
 }
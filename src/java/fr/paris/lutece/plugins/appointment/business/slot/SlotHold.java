@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Places of a slot held for a user while he fills the appointment form. The held places are taken from the potential remaining places of the slot until the
+ * hold is released or expires
+ */
+public class SlotHold implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 3185927408516633217L;
+    // Variables declarations
+    private String _strToken;
+    private int _nIdSlot;
+    private int _nNbPlaces;
+    private LocalDateTime _dateExpiry;
+
+    /**
+     * Returns the token of the hold
+     * 
+     * @return The token
+     */
+    public String getToken( )
+    {
+        return _strToken;
+    }
+
+    /**
+     * Sets the token of the hold
+     * 
+     * @param strToken
+     *            The token
+     */
+    public void setToken( String strToken )
+    {
+        _strToken = strToken;
+    }
+
+    /**
+     * Returns the IdSlot
+     * 
+     * @return The IdSlot
+     */
+    public int getIdSlot( )
+    {
+        return _nIdSlot;
+    }
+
+    /**
+     * Sets the IdSlot
+     * 
+     * @param nIdSlot
+     *            The IdSlot
+     */
+    public void setIdSlot( int nIdSlot )
+    {
+        _nIdSlot = nIdSlot;
+    }
+
+    /**
+     * Returns the number of places held
+     * 
+     * @return The number of places
+     */
+    public int getNbPlaces( )
+    {
+        return _nNbPlaces;
+    }
+
+    /**
+     * Sets the number of places held
+     * 
+     * @param nNbPlaces
+     *            The number of places
+     */
+    public void setNbPlaces( int nNbPlaces )
+    {
+        _nNbPlaces = nNbPlaces;
+    }
+
+    /**
+     * Returns the expiry date of the hold
+     * 
+     * @return The expiry date
+     */
+    public LocalDateTime getDateExpiry( )
+    {
+        return _dateExpiry;
+    }
+
+    /**
+     * Sets the expiry date of the hold
+     * 
+     * @param dateExpiry
+     *            The expiry date
+     */
+    public void setDateExpiry( LocalDateTime dateExpiry )
+    {
+        _dateExpiry = dateExpiry;
+    }
+}
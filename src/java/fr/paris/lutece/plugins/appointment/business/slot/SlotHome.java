@@ -89,6 +89,21 @@ public final class SlotHome
         return slot;
     }
 
+    /**
+     * Update the dates, the opening and the capacity of the Slot which is specified in parameter. The remaining places stored are shifted by the change of
+     * capacity, the places taken are not overwritten
+     * 
+     * @param slot
+     *            The instance of the Slot which contains the data to store
+     * @return The instance of the Slot which has been updated
+     */
+    public static Slot updateDefinition( Slot slot )
+    {
+        _dao.updateDefinition( slot, _plugin );
+
+        return slot;
+    }
+
     /**
      * Delete the Slot whose identifier is specified in parameter
      * 
@@ -249,19 +264,6 @@ public final class SlotHome
 
     }
 
-    /**
-     * Reset Potential Remaining Places
-     * 
-     * @param nbPotentialRemainingPlaces
-     * @param nIdSlot
-     */
-    public static void resetPotentialRemainingPlaces( )
-    {
-
-        _dao.resetPotentialRemainingPlaces( _plugin );
-
-    }
-
     /**
      * Return the specific slot dates from the form
      * 
@@ -277,4 +279,77 @@ public final class SlotHome
         return _dao.findSpecificSlotDates( nIdForm, _plugin );
     }
 
+    /**
+     * Take places on a slot in one conditional update: the database decides if the places can be taken
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @param nbMaxPotentialBookedSeats
+     *            the number of places potentially held on the slot by the user
+     * @param bCheckCapacity
+     *            true if the remaining places must be checked (false in case of over booking)
+     * @return true if the places have been taken, false if the slot is full, over or does not exist
+     */
+    public static boolean takePlaces( int nIdSlot, int nbPlaces, int nbMaxPotentialBookedSeats, boolean bCheckCapacity )
+    {
+        return _dao.takePlaces( nIdSlot, nbPlaces, nbMaxPotentialBookedSeats, bCheckCapacity, LocalDateTime.now( ), _plugin ) == 1;
+    }
+
+    /**
+     * Give back the places of a moved appointment to a slot in one update
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to give back
+     * @return true if the slot has been updated
+     */
+    public static boolean releasePlaces( int nIdSlot, int nbPlaces )
+    {
+        return _dao.releasePlaces( nIdSlot, nbPlaces, _plugin ) == 1;
+    }
+
+    /**
+     * Give back held places to the potential remaining places of a slot in one update
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to give back
+     */
+    public static void addPotentialRemainingPlaces( int nIdSlot, int nbPlaces )
+    {
+        _dao.addPotentialRemainingPlaces( nIdSlot, nbPlaces, _plugin );
+    }
+
+    /**
+     * Take again the places of a reactivated appointment on a slot in one update
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @return true if the slot has been updated
+     */
+    public static boolean retakePlaces( int nIdSlot, int nbPlaces )
+    {
+        return _dao.retakePlaces( nIdSlot, nbPlaces, _plugin ) == 1;
+    }
+
+    /**
+     * Remove held places from the potential remaining places of a slot in one update
+     *
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @return true if the slot has been updated
+     */
+    public static boolean removePotentialRemainingPlaces( int nIdSlot, int nbPlaces )
+    {
+        return _dao.removePotentialRemainingPlaces( nIdSlot, nbPlaces, _plugin ) == 1;
+    }
+
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception thrown when the locks of the slots of an appointment could not be taken before the deadline. The slots are not full: the booking can be retried
+ */
+public class SlotLockContendedException extends RuntimeException
+{
+
+    private static final long serialVersionUID = -3390120963467712014L;
+
+    private final List<Integer> _listIdSlot;
+
+    /**
+     * Constructor
+     *
+     * @param strMessage
+     *            The error message
+     * @param listIdSlot
+     *            the ids of the slots whose locks could not be taken
+     */
+    public SlotLockContendedException( String strMessage, List<Integer> listIdSlot )
+    {
+
+        super( strMessage );
+        _listIdSlot = listIdSlot;
+    }
+
+    /**
+     * Get the ids of the slots whose locks could not be taken
+     * 
+     * @return the ids of the slots
+     */
+    public List<Integer> getListIdSlot( )
+    {
+        return Collections.unmodifiableList( _listIdSlot );
+    }
+}
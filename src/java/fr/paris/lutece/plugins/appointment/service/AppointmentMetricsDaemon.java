@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionControlService;
+import fr.paris.lutece.plugins.appointment.service.availability.AvailabilityGridService;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+
+/**
+ * Daemon reporting the metrics of the plugin: the wait times and the contentions of the locks on the slots and the forms, to size the number of stripes of
+ * the lock provider, the activity of the booking queues, the depth and the admission rate of the waiting rooms of the forms, the use of the availability
+ * grids and the hit ratios of the caches of the configuration of the forms, of the rendered lists of forms and of the timelines of week definitions
+ */
+public class AppointmentMetricsDaemon extends Daemon
+{
+
+    @Override
+    public void run( )
+    {
+        StringBuilder sbLogs = new StringBuilder( );
+        sbLogs.append( "Lock wait metrics: " ).append( SlotSafeService.getLockWaitMetrics( ) );
+        sbLogs.append( "\nSlot stripes: " ).append( formatContentions( SlotSafeService.getSlotStripeContentions( ) ) );
+        sbLogs.append( "\nForm stripes: " ).append( formatContentions( SlotSafeService.getFormStripeContentions( ) ) );
+        sbLogs.append( "\nBooking queues: " ).append( SlotBookingQueueService.getNbClaims( ) ).append( " claims in " )
+                .append( SlotBookingQueueService.getNbBatches( ) ).append( " batches, " ).append( SlotBookingQueueService.getNbRejected( ) )
+                .append( " rejected" );
+        sbLogs.append( "\nWaiting rooms: " ).append( AdmissionControlService.getMetrics( ) );
+        sbLogs.append( "\nAvailability grids: " ).append( AvailabilityGridService.getMetrics( ) );
+        sbLogs.append( "\nForm configurations: " ).append( FormConfigCacheService.getMetrics( ) );
+        sbLogs.append( "\nForm lists: " ).append( FormListCacheService.getMetrics( ) );
+        sbLogs.append( "\nWeek definition timelines: " ).append( WeekDefinitionTimelineCacheService.getMetrics( ) );
+        setLastRunLogs( sbLogs.toString( ) );
+    }
+
+    /**
+     * Format the contentions of the stripes of a lock provider
+     * 
+     * @param contentions
+     *            the number of contentions by index of stripe
+     * @return the total number of contentions and the most contended stripe
+     */
+    private static String formatContentions( long [ ] contentions )
+    {
+        long lTotal = 0;
+        int nMaxIndex = 0;
+        for ( int nIndex = 0; nIndex < contentions.length; nIndex++ )
+        {
+            lTotal += contentions [nIndex];
+            if ( contentions [nIndex] > contentions [nMaxIndex] )
+            {
+                nMaxIndex = nIndex;
+            }
+        }
+        if ( lTotal == 0 )
+        {
+            return contentions.length + " stripes, no contention";
+        }
+        return contentions.length + " stripes, " + lTotal + " contentions, most contended stripe " + nMaxIndex + " with " + contentions [nMaxIndex];
+    }
+
+}
@@ -49,6 +49,7 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
+import fr.paris.lutece.plugins.appointment.business.appointment.PendingWorkflowHome;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.user.User;
@@ -452,6 +453,7 @@ public final class AppointmentService
      */
     private static void deleteAppointment( Appointment appointment )
     {
+        PendingWorkflowHome.delete( appointment.getIdAppointment( ) );
         AppointmentHome.delete( appointment.getIdAppointment( ) );
     }
 
@@ -33,7 +33,6 @@
  */
 package fr.paris.lutece.plugins.appointment.service;
 
-import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.portal.service.init.ShutdownService;
 
 public class AppointmentShutdownService implements ShutdownService
@@ -54,9 +53,11 @@ public class AppointmentShutdownService implements ShutdownService
     @Override
     public void process( )
     {
-        AppointmentUtilities.shutdownSecheduledExecutor( );
+        // The holds on the slots are kept in database, they are released by the SlotHoldDaemon once expired
+        SlotHoldService.shutdown( );
+        SlotBookingQueueService.shutdown( );
+        SlotSafeService.shutdown( );
         AppointmentExecutorService.INSTANCE.shutdown( );
-        SlotHome.resetPotentialRemainingPlaces( );
 
     }
 
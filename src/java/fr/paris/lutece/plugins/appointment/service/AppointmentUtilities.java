@@ -49,11 +49,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -70,8 +65,9 @@ import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
 import fr.paris.lutece.plugins.appointment.business.user.User;
-import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLock;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
@@ -119,10 +115,6 @@ public final class AppointmentUtilities
     public static final String PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT = "appointment.edit.expired.time";
 
     public static final int THIRTY_MINUTES = 30;
-    // We don't need to instantiate an ScheduledExecutorService with the removeOnCancel=true because we are using non-periodic and short time tasks.
-    // The getTask call removes the task from the queue.
-    private static final ScheduledExecutorService _secheduledExecutor = Executors
-            .newSingleThreadScheduledExecutor( r -> new Thread( r, "Lutece-AppointmentSecheduledExecutor-thread" ) );
 
     // CONSTANTS
     // Name of the phone number's generic attribute bean
@@ -643,7 +635,7 @@ public final class AppointmentUtilities
     }
 
     /**
-     * Attempts to cancel execution of the task.
+     * Remove the hold of the session on a slot, once its places have been taken by the appointment
      *
      * @param request
      *            the request
@@ -653,23 +645,31 @@ public final class AppointmentUtilities
 
     public static void cancelTaskTimer( HttpServletRequest request, int idSlot )
     {
-        ScheduledFuture<Slot> task = (ScheduledFuture) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
-        if ( task != null )
+        String strToken = (String) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
+        if ( strToken != null )
         {
-            if ( !task.isDone( ) )
-                task.cancel( false );
+            SlotHoldService.removeHold( strToken );
             request.getSession( ).removeAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
         }
     }
 
+    /**
+     * Check if the hold of the session on a slot has expired
+     *
+     * @param request
+     *            the request
+     * @param idSlot
+     *            the id Slot
+     * @return true if the hold has expired
+     */
     public static boolean isEditSlotTaskExpiredTime( HttpServletRequest request, int idSlot )
     {
-        ScheduledFuture<Slot> task = (ScheduledFuture) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
-        return ( task != null && task.isDone( ) );
+        String strToken = (String) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
+        return ( strToken != null && SlotHoldService.isExpired( strToken ) );
     }
 
     /**
-     * Create a timer on a slot
+     * Hold places on a slot for the session, while the user fills the form. The token of the hold is kept in the session
      *
      * @param slot
      *            the slot
@@ -677,11 +677,11 @@ public final class AppointmentUtilities
      *            the appointment
      * @param maxPeoplePerAppointment
      *            the max people per appointment
-     * @return the ScheduledFuture
+     * @return the hold, null if there is no place to hold on the slot
      */
-    public static ScheduledFuture<Slot> putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
+    public static SlotHold putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
     {
-        Lock lock = SlotSafeService.getLockOnSlot( nIdSlot );
+        ISlotLock lock = SlotSafeService.getLockOnSlot( nIdSlot );
         lock.lock( );
         try
         {
@@ -694,13 +694,14 @@ public final class AppointmentUtilities
             if ( slot.getNbPotentialRemainingPlaces( ) > 0 )
             {
 
-                ScheduledFuture<Slot> scheduledFuture = _secheduledExecutor.schedule( new SlotEditTask( slot.getIdSlot( ), nbPotentialPlacesTaken ),
-                        AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ), TimeUnit.MINUTES );
+                // The hold is stored before the places are taken: if the node stops in between, releasing the hold can not exceed the remaining places
+                SlotHold slotHold = SlotHoldService.createHold( slot.getIdSlot( ), nbPotentialPlacesTaken,
+                        AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ) );
                 appointmentDTO.setNbMaxPotentialBookedSeats( nNewNbMaxPotentialBookedSeats );
                 SlotSafeService.decrementPotentialRemainingPlaces( nbPotentialPlacesTaken, slot.getIdSlot( ) );
 
-                request.getSession( ).setAttribute( SESSION_TASK_TIMER_SLOT + slot.getIdSlot( ), scheduledFuture );
-                return scheduledFuture;
+                request.getSession( ).setAttribute( SESSION_TASK_TIMER_SLOT + slot.getIdSlot( ), slotHold.getToken( ) );
+                return slotHold;
             }
             appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
         }
@@ -1214,27 +1215,14 @@ public final class AppointmentUtilities
     }
 
     /**
-     * The following method shuts down the _executorService in two phases, first by calling shutdown to reject incoming tasks, and then calling shutdownNow, if
-     * necessary, to cancel any lingering tasks:
+     * Shut down the executor of the holds on the slots
+     * 
+     * @deprecated the holds are stored in database and released by the SlotHoldDaemon, there is no executor to shut down
      */
+    @Deprecated
     public static void shutdownSecheduledExecutor( )
     {
-        _secheduledExecutor.shutdown( );
-        try
-        {
-            if ( !_secheduledExecutor.awaitTermination( 60, TimeUnit.SECONDS ) )
-            {
-                _secheduledExecutor.shutdownNow( );
-            }
-        }
-        catch( InterruptedException e )
-        {
-            // (Re-)Cancel if current thread also interrupted
-            AppLogService.error( e.getMessage( ), e );
-            _secheduledExecutor.shutdownNow( );
-            Thread.currentThread().interrupt();
-        }
-
+        // The holds survive the shutdown
     }
     /**
      * Format the date of the appointment taken
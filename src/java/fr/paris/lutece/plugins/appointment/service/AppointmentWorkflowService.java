@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.PendingWorkflow;
+import fr.paris.lutece.plugins.appointment.business.appointment.PendingWorkflowHome;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.admin.AdminUserService;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.workflow.WorkflowService;
+
+/**
+ * Service processing the workflow of the appointments once they are saved. The workflow is processed out of the transaction and the locks of the booking: if
+ * it fails, the appointment is kept and its workflow is marked as pending, to be processed again by the daemon.
+ * <p>
+ * The daemon has no request: the workflow is processed again with the locale of the request that saved the appointment. The action of a report is not
+ * deferred, because its tasks read the appointment before the report in the request, which can not be rebuilt once the appointment has been moved. If it
+ * fails, its pending workflow is kept for the administrators but never processed again.
+ * </p>
+ */
+public final class AppointmentWorkflowService
+{
+    // Properties
+    private static final String PROPERTY_WORKFLOW_MAX_ATTEMPTS = "appointment.booking.workflow.maxAttempts";
+    private static final String PROPERTY_WORKFLOW_RETRY_DELAY = "appointment.booking.workflow.retryDelay";
+
+    private static final int DEFAULT_WORKFLOW_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_WORKFLOW_RETRY_DELAY = 300;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentWorkflowService( )
+    {
+    }
+
+    /**
+     * Process the workflow of an appointment that has been saved. If the workflow fails, it is marked as pending. The failed action of a report is not
+     * processed again
+     * 
+     * @param appointment
+     *            the appointment
+     * @param request
+     *            the request
+     * @param locale
+     *            the locale
+     * @param nIdForm
+     *            the id of the form
+     * @param isReport
+     *            true if it is a postponement of appointment
+     * @return true if the workflow has been processed, false if it is pending
+     */
+    public static boolean processWorkflow( Appointment appointment, HttpServletRequest request, Locale locale, int nIdForm, boolean isReport )
+    {
+        AdminUser adminUser = ( request != null ) ? AdminUserService.getAdminUser( request ) : null;
+        try
+        {
+            doProcessWorkflow( appointment, request, locale, nIdForm, isReport, adminUser );
+            return true;
+        }
+        catch( Exception e )
+        {
+            PendingWorkflow pendingWorkflow = new PendingWorkflow( );
+            pendingWorkflow.setIdAppointment( appointment.getIdAppointment( ) );
+            pendingWorkflow.setIdForm( nIdForm );
+            pendingWorkflow.setIsReport( isReport );
+            pendingWorkflow.setIdAdminUser( ( adminUser != null ) ? adminUser.getUserId( ) : 0 );
+            pendingWorkflow.setLocale( locale );
+            if ( isReport && appointment.getIdActionReported( ) != 0 )
+            {
+                // The action needs the appointment before the report, only available in this request: it stays pending without being retried
+                AppLogService.error( "Error processing the action of the report of the appointment " + appointment.getIdAppointment( )
+                        + ", it will not be processed again", e );
+                pendingWorkflow.setNbAttempts( getMaxAttempts( ) );
+            }
+            else
+            {
+                AppLogService.error( "Error processing the workflow of the appointment " + appointment.getIdAppointment( ) + ", it will be processed again",
+                        e );
+                pendingWorkflow.setNbAttempts( 1 );
+            }
+            pendingWorkflow.setDateLastAttempt( LocalDateTime.now( ) );
+            pendingWorkflow.setLastError( e.getMessage( ) );
+            PendingWorkflowHome.save( pendingWorkflow );
+            return false;
+        }
+    }
+
+    /**
+     * Returns the pending workflow of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @return the pending workflow, null if the workflow of the appointment has been processed
+     */
+    public static PendingWorkflow findPendingWorkflow( int nIdAppointment )
+    {
+        return PendingWorkflowHome.findByIdAppointment( nIdAppointment );
+    }
+
+    /**
+     * Returns the ids of the appointments of a form whose workflow has not been processed yet
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the ids of the appointments
+     */
+    public static List<Integer> findIdAppointmentsWithPendingWorkflow( int nIdForm )
+    {
+        return PendingWorkflowHome.findIdAppointmentsByIdForm( nIdForm );
+    }
+
+    /**
+     * Process again the pending workflows. Each workflow is claimed before being processed, so that a single node processes it. The workflow state of the
+     * appointment is initialized with the locale of the request that saved it, the action of a report is never processed again. A workflow that fails too
+     * many times is no longer processed, and stays pending
+     * 
+     * @return the logs of the processing
+     */
+    public static String processPendingWorkflows( )
+    {
+        int nMaxAttempts = getMaxAttempts( );
+        int nRetryDelay = AppPropertiesService.getPropertyInt( PROPERTY_WORKFLOW_RETRY_DELAY, DEFAULT_WORKFLOW_RETRY_DELAY );
+        int nbProcessed = 0;
+        int nbFailed = 0;
+        for ( PendingWorkflow pendingWorkflow : PendingWorkflowHome.findToRetry( nMaxAttempts, LocalDateTime.now( ).minusSeconds( nRetryDelay ) ) )
+        {
+            if ( !PendingWorkflowHome.claim( pendingWorkflow ) )
+            {
+                // Claimed by another node
+                continue;
+            }
+            try
+            {
+                Appointment appointment = AppointmentService.findAppointmentById( pendingWorkflow.getIdAppointment( ) );
+                if ( appointment != null )
+                {
+                    Locale locale = ( pendingWorkflow.getLocale( ) != null ) ? pendingWorkflow.getLocale( ) : I18nService.getDefaultLocale( );
+                    doProcessWorkflow( appointment, null, locale, pendingWorkflow.getIdForm( ), false, null );
+                }
+                PendingWorkflowHome.delete( pendingWorkflow.getIdAppointment( ) );
+                nbProcessed++;
+            }
+            catch( Exception e )
+            {
+                nbFailed++;
+                // The attempt has been counted by the claim
+                pendingWorkflow.setLastError( e.getMessage( ) );
+                PendingWorkflowHome.save( pendingWorkflow );
+                if ( pendingWorkflow.getNbAttempts( ) >= nMaxAttempts )
+                {
+                    AppLogService.error( "The workflow of the appointment " + pendingWorkflow.getIdAppointment( ) + " has failed " + nMaxAttempts
+                            + " times, it will no longer be processed", e );
+                }
+            }
+        }
+        return "Pending workflows processed: " + nbProcessed + ", failed: " + nbFailed;
+    }
+
+    /**
+     * Get the number of attempts after which a pending workflow is no longer processed
+     * 
+     * @return the maximum number of attempts
+     */
+    private static int getMaxAttempts( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_WORKFLOW_MAX_ATTEMPTS, DEFAULT_WORKFLOW_MAX_ATTEMPTS );
+    }
+
+    /**
+     * Initialize the workflow state of an appointment, and process the action of the report
+     * 
+     * @param appointment
+     *            the appointment
+     * @param request
+     *            the request
+     * @param locale
+     *            the locale
+     * @param nIdForm
+     *            the id appointment form
+     * @param isReport
+     *            true if it is a postponement of appointment
+     * @param adminUser
+     *            the administrator processing the action, null if the action is automatic
+     */
+    private static void doProcessWorkflow( Appointment appointment, HttpServletRequest request, Locale locale, int nIdForm, boolean isReport,
+            AdminUser adminUser )
+    {
+        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+        if ( form.getIdWorkflow( ) > 0 )
+        {
+            WorkflowService.getInstance( ).getState( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ),
+                    form.getIdForm( ) );
+
+            if ( isReport && appointment.getIdActionReported( ) != 0 )
+            {
+                WorkflowService.getInstance( ).doProcessAction( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE,
+                        appointment.getIdActionReported( ), form.getIdForm( ), request, locale, adminUser == null, adminUser );
+            }
+        }
+    }
+}
@@ -54,6 +54,7 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDay;
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDayHome;
+import fr.paris.lutece.plugins.appointment.service.availability.AvailabilityGridService;
 
 /**
  * Service class for the closing day
@@ -170,6 +171,7 @@ public final class ClosingDayService
         closingDay.setIdForm( nIdForm );
         closingDay.setDateOfClosingDay( closingDate );
         ClosingDayHome.create( closingDay );
+        AvailabilityGridService.invalidate( nIdForm, closingDate, closingDate );
     }
 
     /**
@@ -181,6 +183,7 @@ public final class ClosingDayService
     public static void saveClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.create( closingDay );
+        AvailabilityGridService.invalidate( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
@@ -192,6 +195,7 @@ public final class ClosingDayService
     public static void removeClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.delete( closingDay.getIdClosingDay( ) );
+        AvailabilityGridService.invalidate( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Set of closing days held in a bitset of epoch days, from the first closing day
+ */
+public final class ClosingDaySet
+{
+    private final BitSet _bitSet = new BitSet( );
+    private final long _lFirstEpochDay;
+
+    /**
+     * Constructor
+     * 
+     * @param listDateOfClosingDay
+     *            the dates of the closing days
+     */
+    public ClosingDaySet( Collection<LocalDate> listDateOfClosingDay )
+    {
+        long lFirstEpochDay = Long.MAX_VALUE;
+        for ( LocalDate date : listDateOfClosingDay )
+        {
+            lFirstEpochDay = Math.min( lFirstEpochDay, date.toEpochDay( ) );
+        }
+        _lFirstEpochDay = lFirstEpochDay;
+        for ( LocalDate date : listDateOfClosingDay )
+        {
+            _bitSet.set( (int) ( date.toEpochDay( ) - lFirstEpochDay ) );
+        }
+    }
+
+    /**
+     * Check if a date is a closing day
+     * 
+     * @param date
+     *            the date
+     * @return true if the date is a closing day
+     */
+    public boolean contains( LocalDate date )
+    {
+        long lIndex = date.toEpochDay( ) - _lFirstEpochDay;
+        return lIndex >= 0 && lIndex <= Integer.MAX_VALUE && _bitSet.get( (int) lIndex );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+
+/**
+ * Reservation rule compiled for the generation of the slots: its working days are indexed by day of week, and compiled on their first use. Not thread safe,
+ * it is used by one generation
+ */
+public final class CompiledReservationRule
+{
+    private final ReservationRule _reservationRule;
+    // Indexed by the value of the day of week (1 to 7)
+    private final WorkingDay [ ] _workingDays = new WorkingDay [ 8];
+    private final CompiledWorkingDay [ ] _compiledWorkingDays = new CompiledWorkingDay [ 8];
+    private final LocalTime _minStartingTime;
+    private final LocalTime _maxEndingTime;
+
+    /**
+     * Constructor
+     * 
+     * @param reservationRule
+     *            the reservation rule with its working days and their time slots
+     */
+    public CompiledReservationRule( ReservationRule reservationRule )
+    {
+        _reservationRule = reservationRule;
+        for ( WorkingDay workingDay : reservationRule.getListWorkingDay( ) )
+        {
+            int nDayOfWeek = workingDay.getDayOfWeek( );
+            if ( nDayOfWeek > 0 && nDayOfWeek < _workingDays.length && _workingDays [nDayOfWeek] == null )
+            {
+                _workingDays [nDayOfWeek] = workingDay;
+            }
+        }
+        _minStartingTime = WorkingDayService.getMinStartingTimeOfAListOfWorkingDay( reservationRule.getListWorkingDay( ) );
+        _maxEndingTime = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( reservationRule.getListWorkingDay( ) );
+    }
+
+    /**
+     * Get the reservation rule
+     * 
+     * @return the reservation rule
+     */
+    public ReservationRule getReservationRule( )
+    {
+        return _reservationRule;
+    }
+
+    /**
+     * Get the working day of a day of week
+     * 
+     * @param dayOfWeek
+     *            the day of week
+     * @return the compiled working day, null if the day of week is not a working day
+     */
+    public CompiledWorkingDay getWorkingDay( DayOfWeek dayOfWeek )
+    {
+        int nDayOfWeek = dayOfWeek.getValue( );
+        if ( _compiledWorkingDays [nDayOfWeek] == null && _workingDays [nDayOfWeek] != null )
+        {
+            _compiledWorkingDays [nDayOfWeek] = new CompiledWorkingDay( _workingDays [nDayOfWeek] );
+        }
+        return _compiledWorkingDays [nDayOfWeek];
+    }
+
+    /**
+     * Get the min starting time of all the working days
+     * 
+     * @return the min starting time
+     */
+    public LocalTime getMinStartingTime( )
+    {
+        return _minStartingTime;
+    }
+
+    /**
+     * Get the max ending time of the working days
+     * 
+     * @return the max ending time
+     */
+    public LocalTime getMaxEndingTime( )
+    {
+        return _maxEndingTime;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+
+/**
+ * Working day compiled for the generation of the slots: the time slots are indexed by their starting minute of the day, and the min starting time and the
+ * max ending time are computed once
+ */
+public final class CompiledWorkingDay
+{
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final WorkingDay _workingDay;
+    private final TimeSlot [ ] _timeSlots;
+    // 1 + the index of the first time slot starting at each minute of the day, 0 if there is none
+    private final int [ ] _indexByMinute = new int [ MINUTES_PER_DAY];
+    private final LocalTime _minStartingTime;
+    private final LocalTime _maxEndingTime;
+
+    /**
+     * Constructor
+     * 
+     * @param workingDay
+     *            the working day with its time slots
+     */
+    public CompiledWorkingDay( WorkingDay workingDay )
+    {
+        _workingDay = workingDay;
+        List<TimeSlot> listTimeSlot = workingDay.getListTimeSlot( );
+        _timeSlots = listTimeSlot.toArray( new TimeSlot [ listTimeSlot.size( )] );
+        LocalTime minStartingTime = null;
+        LocalTime maxEndingTime = null;
+        for ( int nIndex = _timeSlots.length - 1; nIndex >= 0; nIndex-- )
+        {
+            TimeSlot timeSlot = _timeSlots [nIndex];
+            // Going backward, the first time slot of the list starting at a minute wins
+            _indexByMinute [toMinuteOfDay( timeSlot.getStartingTime( ) )] = nIndex + 1;
+            if ( minStartingTime == null || timeSlot.getStartingTime( ).isBefore( minStartingTime ) )
+            {
+                minStartingTime = timeSlot.getStartingTime( );
+            }
+            if ( maxEndingTime == null || timeSlot.getEndingTime( ).isAfter( maxEndingTime ) )
+            {
+                maxEndingTime = timeSlot.getEndingTime( );
+            }
+        }
+        _minStartingTime = minStartingTime;
+        _maxEndingTime = maxEndingTime;
+    }
+
+    /**
+     * Get the working day
+     * 
+     * @return the working day
+     */
+    public WorkingDay getWorkingDay( )
+    {
+        return _workingDay;
+    }
+
+    /**
+     * Get the min starting time of the time slots of the working day
+     * 
+     * @return the min starting time, null if the working day has no time slot
+     */
+    public LocalTime getMinStartingTime( )
+    {
+        return _minStartingTime;
+    }
+
+    /**
+     * Get the max ending time of the time slots of the working day
+     * 
+     * @return the max ending time, null if the working day has no time slot
+     */
+    public LocalTime getMaxEndingTime( )
+    {
+        return _maxEndingTime;
+    }
+
+    /**
+     * Get the time slot starting at a given time
+     * 
+     * @param startingTime
+     *            the starting time
+     * @return the first time slot of the working day starting at this time, null if there is none
+     */
+    public TimeSlot getTimeSlot( LocalTime startingTime )
+    {
+        int nIndex = _indexByMinute [toMinuteOfDay( startingTime )];
+        if ( nIndex == 0 )
+        {
+            // No time slot starts during this minute
+            return null;
+        }
+        if ( _timeSlots [nIndex - 1].getStartingTime( ).equals( startingTime ) )
+        {
+            return _timeSlots [nIndex - 1];
+        }
+        // Several time slots start during this minute, at different seconds
+        for ( TimeSlot timeSlot : _timeSlots )
+        {
+            if ( startingTime.equals( timeSlot.getStartingTime( ) ) )
+            {
+                return timeSlot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the minute of the day of a time
+     * 
+     * @param time
+     *            the time
+     * @return the minute of the day
+     */
+    private static int toMinuteOfDay( LocalTime time )
+    {
+        return time.getHour( ) * 60 + time.getMinute( );
+    }
+}
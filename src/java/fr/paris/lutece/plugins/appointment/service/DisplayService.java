@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.appointment.service;
 import fr.paris.lutece.plugins.appointment.business.display.Display;
 import fr.paris.lutece.plugins.appointment.business.display.DisplayHome;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.image.ImageResource;
 
 /**
  * Service class for the display
@@ -116,6 +117,11 @@ public final class DisplayService
     {
         Display display = DisplayService.findDisplayWithFormId( nIdForm );
         fillInDisplayWithAppointmentForm( display, appointmentForm, nIdForm );
+        if ( isIconNotLoaded( display.getIcon( ) ) )
+        {
+            // The icon has not been changed, the stored one is written back
+            display.setIcon( findIconWithFormId( nIdForm ) );
+        }
         DisplayHome.update( display );
         return display;
     }
@@ -132,4 +138,28 @@ public final class DisplayService
         return DisplayHome.findByIdForm( nIdForm );
     }
 
+    /**
+     * Find the icon of the form, with its content
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return the icon of the form, null if the form has no display
+     */
+    public static ImageResource findIconWithFormId( int nIdForm )
+    {
+        return DisplayHome.findIconByIdForm( nIdForm );
+    }
+
+    /**
+     * Check if an icon has been read with the display, that is to say with its mime type but without its content
+     * 
+     * @param icon
+     *            the icon
+     * @return true if the content of the icon has not been loaded
+     */
+    private static boolean isIconNotLoaded( ImageResource icon )
+    {
+        return icon != null && icon.getImage( ) == null && icon.getMimeType( ) != null;
+    }
+
 }
@@ -762,6 +762,28 @@ public final class EntryService extends RemovalListenerService implements Serial
         return EntryHome.getEntryList( filter );
     }
 
+    /**
+     * Find the ids of the first level entries of a form displayed in front office, from the configuration snapshot of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the ids of the entries, in their order
+     */
+    public static List<Integer> findListIdEntryFront( int nIdForm )
+    {
+        FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+        if ( snapshot != null )
+        {
+            return snapshot.getListIdEntryFront( );
+        }
+        List<Integer> listIdEntry = new ArrayList<>( );
+        for ( Entry entry : getFilter( nIdForm, true ) )
+        {
+            listIdEntry.add( entry.getIdEntry( ) );
+        }
+        return listIdEntry;
+    }
+
     /**
      * Create a new Entry element with a specific EntryType
      * 
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Cache of the configuration snapshots of the forms, read by the calendar, the form and the booking of the front office instead of loading the configuration
+ * of the form on each request. The snapshot of a form is removed by the form and week definition listeners and by the save actions of the back office, which
+ * increment the configuration version of the form in the database. The versions are read at a regular interval to remove the snapshots changed by the other
+ * nodes. The least recently used snapshot is removed when the cache is full
+ */
+public final class FormConfigCacheService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "appointment.formConfigCache.enabled";
+    private static final String PROPERTY_MAX_SIZE = "appointment.formConfigCache.maxSize";
+    private static final String PROPERTY_POLL_INTERVAL = "appointment.formConfigCache.pollInterval";
+
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, 500 );
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_POLL_INTERVAL, 10 ) );
+
+    private static final Map<Integer, CachedSnapshot> _mapSnapshots = new ConcurrentHashMap<>( );
+    private static final AtomicLong _lLastPollTime = new AtomicLong( System.currentTimeMillis( ) );
+    private static final AtomicLong _nbInvalidations = new AtomicLong( );
+    private static final AtomicLong _nbHits = new AtomicLong( );
+    private static final AtomicLong _nbMisses = new AtomicLong( );
+    private static final AtomicLong _nbEvictions = new AtomicLong( );
+    private static final AtomicLong _nbStale = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormConfigCacheService( )
+    {
+    }
+
+    /**
+     * Get the configuration snapshot of a form, loaded from the database if it is not in the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the snapshot, null if the cache is disabled or if the form does not exist
+     */
+    public static FormConfigSnapshot getSnapshot( int nIdForm )
+    {
+        if ( !ENABLED )
+        {
+            return null;
+        }
+        pollConfigVersions( );
+        CachedSnapshot cachedSnapshot = _mapSnapshots.get( nIdForm );
+        if ( cachedSnapshot != null )
+        {
+            _nbHits.incrementAndGet( );
+            cachedSnapshot.setLastAccessTime( System.currentTimeMillis( ) );
+            return cachedSnapshot.getSnapshot( );
+        }
+        _nbMisses.incrementAndGet( );
+        // The version is read before the configuration: a change made during the loading makes the snapshot stale on the next poll
+        long lInvalidations = _nbInvalidations.get( );
+        int nConfigVersion = FormHome.findConfigVersion( nIdForm );
+        if ( nConfigVersion < 0 )
+        {
+            return null;
+        }
+        FormConfigSnapshot snapshot = FormConfigSnapshot.load( nIdForm, nConfigVersion );
+        if ( snapshot != null && lInvalidations == _nbInvalidations.get( ) )
+        {
+            _mapSnapshots.put( nIdForm, new CachedSnapshot( snapshot ) );
+            if ( _mapSnapshots.size( ) > MAX_SIZE )
+            {
+                evictLeastRecentlyUsed( );
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Invalidate the configuration snapshot of a form, on this node and, through the configuration version of the form, on the other nodes
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _nbInvalidations.incrementAndGet( );
+        _mapSnapshots.remove( nIdForm );
+        FormHome.incrementConfigVersion( nIdForm );
+    }
+
+    /**
+     * Get the metrics of the cache
+     * 
+     * @return the number of snapshots, the hit ratio and the number of snapshots removed
+     */
+    public static String getMetrics( )
+    {
+        long lHits = _nbHits.get( );
+        long lRequests = lHits + _nbMisses.get( );
+        long lHitRatio = ( lRequests > 0 ) ? ( ( 100 * lHits ) / lRequests ) : 0;
+        return _mapSnapshots.size( ) + " forms, " + lHits + " hits on " + lRequests + " requests (" + lHitRatio + "%), " + _nbInvalidations.get( )
+                + " invalidations, " + _nbStale.get( ) + " changed by other nodes, " + _nbEvictions.get( ) + " evictions";
+    }
+
+    /**
+     * Make the poll interval elapsed, so that the configuration versions are read on the next access to the cache
+     */
+    static void expirePollInterval( )
+    {
+        _lLastPollTime.set( 0 );
+    }
+
+    /**
+     * Read the configuration versions of the forms if the poll interval has elapsed, and remove the snapshots whose version has changed
+     */
+    private static void pollConfigVersions( )
+    {
+        long lLastPollTime = _lLastPollTime.get( );
+        long lNow = System.currentTimeMillis( );
+        if ( lNow - lLastPollTime < POLL_INTERVAL || !_lLastPollTime.compareAndSet( lLastPollTime, lNow ) || _mapSnapshots.isEmpty( ) )
+        {
+            return;
+        }
+        Map<Integer, Integer> mapConfigVersions = FormHome.findAllConfigVersions( );
+        _mapSnapshots.entrySet( ).removeIf( entry -> {
+            Integer nConfigVersion = mapConfigVersions.get( entry.getKey( ) );
+            boolean bStale = nConfigVersion == null || nConfigVersion != entry.getValue( ).getSnapshot( ).getConfigVersion( );
+            if ( bStale )
+            {
+                _nbStale.incrementAndGet( );
+            }
+            return bStale;
+        } );
+    }
+
+    /**
+     * Remove the least recently used snapshot of the cache
+     */
+    private static void evictLeastRecentlyUsed( )
+    {
+        Integer nIdFormToEvict = null;
+        long lMinAccessTime = Long.MAX_VALUE;
+        for ( Map.Entry<Integer, CachedSnapshot> entry : _mapSnapshots.entrySet( ) )
+        {
+            if ( entry.getValue( ).getLastAccessTime( ) < lMinAccessTime )
+            {
+                lMinAccessTime = entry.getValue( ).getLastAccessTime( );
+                nIdFormToEvict = entry.getKey( );
+            }
+        }
+        if ( nIdFormToEvict != null && _mapSnapshots.remove( nIdFormToEvict ) != null )
+        {
+            _nbEvictions.incrementAndGet( );
+        }
+    }
+
+    /**
+     * A snapshot of the cache with its last access time
+     */
+    private static final class CachedSnapshot
+    {
+        private final FormConfigSnapshot _snapshot;
+        private volatile long _lLastAccessTime;
+
+        /**
+         * Constructor
+         * 
+         * @param snapshot
+         *            the snapshot
+         */
+        CachedSnapshot( FormConfigSnapshot snapshot )
+        {
+            _snapshot = snapshot;
+            _lLastAccessTime = System.currentTimeMillis( );
+        }
+
+        /**
+         * Get the snapshot
+         * 
+         * @return the snapshot
+         */
+        FormConfigSnapshot getSnapshot( )
+        {
+            return _snapshot;
+        }
+
+        /**
+         * Get the last access time of the snapshot
+         * 
+         * @return the last access time in milliseconds
+         */
+        long getLastAccessTime( )
+        {
+            return _lLastAccessTime;
+        }
+
+        /**
+         * Set the last access time of the snapshot
+         * 
+         * @param lLastAccessTime
+         *            the last access time in milliseconds
+         */
+        void setLastAccessTime( long lLastAccessTime )
+        {
+            _lLastAccessTime = lLastAccessTime;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessageHome;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+
+/**
+ * Immutable snapshot of the configuration of a form: the form, its display, localization, form rule and messages, its reservation rules with their working
+ * days and time slots, and its first level entries displayed in front office. The objects of the snapshot are shared by all the requests: the callers get
+ * copies of them
+ */
+public final class FormConfigSnapshot
+{
+    private final int _nConfigVersion;
+    private final Form _form;
+    private final Display _display;
+    private final Localization _localization;
+    private final FormRule _formRule;
+    private final FormMessage _formMessage;
+    private final Map<Integer, ReservationRule> _mapReservationRule;
+    private final List<Integer> _listIdEntryFront;
+
+    /**
+     * Constructor
+     * 
+     * @param nConfigVersion
+     *            the configuration version of the form when the snapshot has been loaded
+     * @param form
+     *            the form
+     * @param display
+     *            the display of the form
+     * @param localization
+     *            the localization of the form
+     * @param formRule
+     *            the form rule of the form
+     * @param formMessage
+     *            the messages of the form
+     * @param listReservationRule
+     *            the reservation rules of the form, with their working days and time slots
+     * @param listIdEntryFront
+     *            the ids of the first level entries of the form displayed in front office, in their order
+     */
+    private FormConfigSnapshot( int nConfigVersion, Form form, Display display, Localization localization, FormRule formRule, FormMessage formMessage,
+            List<ReservationRule> listReservationRule, List<Integer> listIdEntryFront )
+    {
+        _nConfigVersion = nConfigVersion;
+        _form = form;
+        _display = display;
+        _localization = localization;
+        _formRule = formRule;
+        _formMessage = formMessage;
+        Map<Integer, ReservationRule> mapReservationRule = new HashMap<>( );
+        for ( ReservationRule reservationRule : listReservationRule )
+        {
+            mapReservationRule.put( reservationRule.getIdReservationRule( ), reservationRule );
+        }
+        _mapReservationRule = Collections.unmodifiableMap( mapReservationRule );
+        _listIdEntryFront = Collections.unmodifiableList( new ArrayList<>( listIdEntryFront ) );
+    }
+
+    /**
+     * Load the snapshot of the configuration of a form from the database
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nConfigVersion
+     *            the configuration version of the form, read before the loading
+     * @return the snapshot, null if the form does not exist
+     */
+    public static FormConfigSnapshot load( int nIdForm, int nConfigVersion )
+    {
+        Form form = FormHome.findByPrimaryKey( nIdForm );
+        if ( form == null )
+        {
+            return null;
+        }
+        List<Integer> listIdEntryFront = new ArrayList<>( );
+        for ( Entry entry : EntryService.getFilter( nIdForm, true ) )
+        {
+            listIdEntryFront.add( entry.getIdEntry( ) );
+        }
+        return new FormConfigSnapshot( nConfigVersion, form, DisplayService.findDisplayWithFormId( nIdForm ),
+                LocalizationService.findLocalizationWithFormId( nIdForm ), FormRuleService.findFormRuleWithFormId( nIdForm ),
+                FormMessageHome.findByIdForm( nIdForm ), ReservationRuleService.findListReservationRule( nIdForm ), listIdEntryFront );
+    }
+
+    /**
+     * Get the configuration version of the form when the snapshot has been loaded
+     * 
+     * @return the configuration version
+     */
+    public int getConfigVersion( )
+    {
+        return _nConfigVersion;
+    }
+
+    /**
+     * Get a copy of the form
+     * 
+     * @return the form
+     */
+    public Form getForm( )
+    {
+        return SerializationUtils.clone( _form );
+    }
+
+    /**
+     * Get a copy of the messages of the form
+     * 
+     * @return the messages of the form, null if the form has no messages
+     */
+    public FormMessage getFormMessage( )
+    {
+        return ( _formMessage != null ) ? SerializationUtils.clone( _formMessage ) : null;
+    }
+
+    /**
+     * Get a copy of a reservation rule of the form, with its working days and time slots
+     * 
+     * @param nIdReservationRule
+     *            the id of the reservation rule
+     * @return the reservation rule, null if the form has no reservation rule with this id
+     */
+    public ReservationRule getReservationRule( int nIdReservationRule )
+    {
+        ReservationRule reservationRule = _mapReservationRule.get( nIdReservationRule );
+        return ( reservationRule != null ) ? SerializationUtils.clone( reservationRule ) : null;
+    }
+
+    /**
+     * Get the ids of the first level entries of the form displayed in front office, in their order
+     * 
+     * @return the unmodifiable list of the ids of the entries
+     */
+    public List<Integer> getListIdEntryFront( )
+    {
+        return _listIdEntryFront;
+    }
+
+    /**
+     * Get the form shared by the requests, only to be read
+     * 
+     * @return the form
+     */
+    Form getSharedForm( )
+    {
+        return _form;
+    }
+
+    /**
+     * Get the display of the form shared by the requests, only to be read
+     * 
+     * @return the display, null if the form has no display
+     */
+    Display getSharedDisplay( )
+    {
+        return _display;
+    }
+
+    /**
+     * Get the localization of the form shared by the requests, only to be read
+     * 
+     * @return the localization, null if the form has no localization
+     */
+    Localization getSharedLocalization( )
+    {
+        return _localization;
+    }
+
+    /**
+     * Get the form rule of the form shared by the requests, only to be read
+     * 
+     * @return the form rule, null if the form has no form rule
+     */
+    FormRule getSharedFormRule( )
+    {
+        return _formRule;
+    }
+}
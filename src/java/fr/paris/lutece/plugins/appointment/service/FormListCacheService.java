@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Cache of the rendered list of the forms of the front office (xpage and form list portlet), by locale and title of the portlet. A rendered list is valid
+ * for the forms version it has been rendered with and for the day of its rendering, as the forms are filtered on their starting validity date. The forms
+ * version is incremented by the form listener on this node, and when the configuration versions of the forms read at a regular interval have changed, to
+ * get the forms created, changed or removed by the other nodes
+ */
+public final class FormListCacheService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "appointment.formListCache.enabled";
+    private static final String PROPERTY_MAX_SIZE = "appointment.formListCache.maxSize";
+    private static final String PROPERTY_POLL_INTERVAL = "appointment.formListCache.pollInterval";
+
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final int MAX_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, 50 );
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_POLL_INTERVAL, 10 ) );
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private static final Map<String, RenderedFormList> _mapRenderedFormLists = new ConcurrentHashMap<>( );
+    private static final AtomicLong _lFormsVersion = new AtomicLong( );
+    private static final AtomicLong _lLastPollTime = new AtomicLong( );
+    private static final AtomicLong _nbHits = new AtomicLong( );
+    private static final AtomicLong _nbRequests = new AtomicLong( );
+    private static volatile Map<Integer, Integer> _mapConfigVersions;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormListCacheService( )
+    {
+    }
+
+    /**
+     * Build the key of a rendered list of forms. The list can only be cached if the model holds nothing else than texts (the title of the portlet) and empty
+     * collections (the messages of the xpage)
+     * 
+     * @param locale
+     *            the locale
+     * @param model
+     *            the model of the template
+     * @return the key, null if the cache is disabled or if the list can not be cached
+     */
+    public static String buildKey( Locale locale, Map<String, Object> model )
+    {
+        if ( !ENABLED )
+        {
+            return null;
+        }
+        StringBuilder sbKey = new StringBuilder( String.valueOf( locale ) );
+        for ( Map.Entry<String, Object> entry : new TreeMap<>( model ).entrySet( ) )
+        {
+            Object value = entry.getValue( );
+            if ( value instanceof String )
+            {
+                sbKey.append( KEY_SEPARATOR ).append( entry.getKey( ) ).append( '=' ).append( value );
+            }
+            else
+                if ( !( value instanceof Collection && ( (Collection<?>) value ).isEmpty( ) ) )
+                {
+                    return null;
+                }
+        }
+        return sbKey.toString( );
+    }
+
+    /**
+     * Get the current forms version, after reading the configuration versions of the forms if the poll interval has elapsed
+     * 
+     * @return the forms version
+     */
+    public static long getFormsVersion( )
+    {
+        long lLastPollTime = _lLastPollTime.get( );
+        long lNow = System.currentTimeMillis( );
+        if ( lNow - lLastPollTime >= POLL_INTERVAL && _lLastPollTime.compareAndSet( lLastPollTime, lNow ) )
+        {
+            Map<Integer, Integer> mapConfigVersions = FormHome.findAllConfigVersions( );
+            if ( !mapConfigVersions.equals( _mapConfigVersions ) )
+            {
+                _mapConfigVersions = mapConfigVersions;
+                _lFormsVersion.incrementAndGet( );
+            }
+        }
+        return _lFormsVersion.get( );
+    }
+
+    /**
+     * Increment the forms version on this node, when a form has been created, changed or removed
+     */
+    public static void invalidate( )
+    {
+        _lFormsVersion.incrementAndGet( );
+    }
+
+    /**
+     * Get a rendered list of forms
+     * 
+     * @param strKey
+     *            the key of the list
+     * @param lFormsVersion
+     *            the current forms version
+     * @param date
+     *            the current day
+     * @return the HTML of the list, null if it is not in the cache or if it has been rendered with another forms version or on another day
+     */
+    public static String getHtml( String strKey, long lFormsVersion, LocalDate date )
+    {
+        _nbRequests.incrementAndGet( );
+        RenderedFormList renderedFormList = _mapRenderedFormLists.get( strKey );
+        if ( renderedFormList != null && renderedFormList._lFormsVersion == lFormsVersion && renderedFormList._date.equals( date ) )
+        {
+            _nbHits.incrementAndGet( );
+            return renderedFormList._strHtml;
+        }
+        return null;
+    }
+
+    /**
+     * Put a rendered list of forms in the cache. The cache is cleared when it is full: its keys are the locales and the titles of the portlets
+     * 
+     * @param strKey
+     *            the key of the list
+     * @param lFormsVersion
+     *            the forms version read before the rendering
+     * @param date
+     *            the day read before the rendering
+     * @param strHtml
+     *            the HTML of the list
+     */
+    public static void putHtml( String strKey, long lFormsVersion, LocalDate date, String strHtml )
+    {
+        if ( _mapRenderedFormLists.size( ) >= MAX_SIZE && !_mapRenderedFormLists.containsKey( strKey ) )
+        {
+            _mapRenderedFormLists.clear( );
+        }
+        _mapRenderedFormLists.put( strKey, new RenderedFormList( lFormsVersion, date, strHtml ) );
+    }
+
+    /**
+     * Get the metrics of the cache
+     * 
+     * @return the number of rendered lists and the hit ratio
+     */
+    public static String getMetrics( )
+    {
+        long lHits = _nbHits.get( );
+        long lRequests = _nbRequests.get( );
+        long lHitRatio = ( lRequests > 0 ) ? ( ( 100 * lHits ) / lRequests ) : 0;
+        return _mapRenderedFormLists.size( ) + " lists, " + lHits + " hits on " + lRequests + " requests (" + lHitRatio + "%), forms version "
+                + _lFormsVersion.get( );
+    }
+
+    /**
+     * A rendered list of forms with the forms version and the day of its rendering
+     */
+    private static final class RenderedFormList
+    {
+        private final long _lFormsVersion;
+        private final LocalDate _date;
+        private final String _strHtml;
+
+        /**
+         * Constructor
+         * 
+         * @param lFormsVersion
+         *            the forms version
+         * @param date
+         *            the day of the rendering
+         * @param strHtml
+         *            the HTML
+         */
+        RenderedFormList( long lFormsVersion, LocalDate date, String strHtml )
+        {
+            _lFormsVersion = lFormsVersion;
+            _date = date;
+            _strHtml = strHtml;
+        }
+    }
+}
@@ -140,6 +140,11 @@ public final class FormMessageService
      */
     public static FormMessage findFormMessageByIdForm( int nIdForm )
     {
+        FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+        if ( snapshot != null )
+        {
+            return snapshot.getFormMessage( );
+        }
         return FormMessageHome.findByIdForm( nIdForm );
     }
 
@@ -152,6 +157,7 @@ public final class FormMessageService
     public static void updateFormMessage( FormMessage formMessage )
     {
         FormMessageHome.update( formMessage );
+        FormConfigCacheService.invalidate( formMessage.getIdForm( ) );
     }
 
 }
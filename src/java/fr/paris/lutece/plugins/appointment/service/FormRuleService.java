@@ -73,6 +73,8 @@ public final class FormRuleService
         formRule.setNbMaxAppointmentsPerUser( appointmentForm.getNbMaxAppointmentsPerUser( ) );
         formRule.setNbDaysForMaxAppointmentsPerUser( appointmentForm.getNbDaysForMaxAppointmentsPerUser( ) );
         formRule.setBoOverbooking( appointmentForm.getBoOverbooking( ) );
+        formRule.setNbAdmissionsPerSecond( appointmentForm.getNbAdmissionsPerSecond( ) );
+        formRule.setNbMaxConcurrentRequests( appointmentForm.getNbMaxConcurrentRequests( ) );
         formRule.setIdForm( nIdForm );
     }
 
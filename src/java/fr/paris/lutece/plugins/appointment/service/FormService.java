@@ -36,8 +36,11 @@ package fr.paris.lutece.plugins.appointment.service;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.WeekFields;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -110,6 +113,8 @@ public final class FormService
         appointmentForm.setIsActive( Boolean.FALSE );
         appointmentForm.setDateStartValidity( null );
         appointmentForm.setDateEndValidity( null );
+        // The display of the form is read without the content of the icon
+        appointmentForm.setIcon( DisplayService.findIconWithFormId( nIdForm ) );
         // Save it
         Form form = FormService.createForm( appointmentForm );
         int nIdNewForm = form.getIdForm( );
@@ -175,6 +180,7 @@ public final class FormService
                 }
             }
         }
+        WeekDefinitionTimelineCacheService.invalidate( nIdNewForm );
 
         // Copy the messages of the original form and add them to the copy
         FormMessage formMessage = FormMessageService.findFormMessageByIdForm( nIdForm );
@@ -393,7 +399,15 @@ public final class FormService
         ReservationRule reservationRule = null;
         if ( nIdReservationRule > 0 )
         {
-            reservationRule = ReservationRuleService.findReservationRuleById( nIdReservationRule );
+            FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+            if ( snapshot != null )
+            {
+                reservationRule = snapshot.getReservationRule( nIdReservationRule );
+            }
+            if ( reservationRule == null )
+            {
+                reservationRule = ReservationRuleService.findReservationRuleById( nIdReservationRule );
+            }
         }
         return buildAppointmentForm( nIdForm, reservationRule );
     }
@@ -414,7 +428,7 @@ public final class FormService
         LocalDate dateOfApply = LocalDate.now( );
         if ( reservationRule == null )
         {
-            reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfApply );
+            reservationRule = findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfApply );
         }
 
         if ( reservationRule != null )
@@ -436,6 +450,24 @@ public final class FormService
     public static AppointmentFormDTO buildAppointmentFormWithoutReservationRule( int nIdForm )
     {
         AppointmentFormDTO appointmentForm = new AppointmentFormDTO( );
+        FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+        if ( snapshot != null )
+        {
+            fillAppointmentFormWithFormPart( appointmentForm, snapshot.getSharedForm( ) );
+            if ( snapshot.getSharedDisplay( ) != null )
+            {
+                fillAppointmentFormWithDisplayPart( appointmentForm, snapshot.getSharedDisplay( ) );
+            }
+            if ( snapshot.getSharedLocalization( ) != null )
+            {
+                fillAppointmentFormWithLocalizationPart( appointmentForm, snapshot.getSharedLocalization( ) );
+            }
+            if ( snapshot.getSharedFormRule( ) != null )
+            {
+                fillAppointmentFormWithFormRulePart( appointmentForm, snapshot.getSharedFormRule( ) );
+            }
+            return appointmentForm;
+        }
         Form form = FormService.findFormLightByPrimaryKey( nIdForm );
         fillAppointmentFormWithFormPart( appointmentForm, form );
         Display display = DisplayService.findDisplayWithFormId( form.getIdForm( ) );
@@ -457,6 +489,32 @@ public final class FormService
         return appointmentForm;
     }
 
+    /**
+     * Find the reservation rule of a form closest to a date, with its working days and time slots taken from the configuration snapshot of the form
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param dateOfApply
+     *            the date
+     * @return the reservation rule to apply at this date, null if there is none
+     */
+    private static ReservationRule findReservationRuleByIdFormAndClosestToDateOfApply( int nIdForm, LocalDate dateOfApply )
+    {
+        ReservationRule reservationRule = ReservationRuleHome.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfApply );
+        if ( reservationRule == null )
+        {
+            return null;
+        }
+        FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+        ReservationRule reservationRuleOfSnapshot = ( snapshot != null ) ? snapshot.getReservationRule( reservationRule.getIdReservationRule( ) ) : null;
+        if ( reservationRuleOfSnapshot != null )
+        {
+            return reservationRuleOfSnapshot;
+        }
+        reservationRule.setListWorkingDay( WorkingDayService.findListWorkingDayByWeekDefinitionRule( reservationRule.getIdReservationRule( ) ) );
+        return reservationRule;
+    }
+
     /**
      * Fill the appointmentForm DTO with the Reservation Rule
      * 
@@ -532,6 +590,8 @@ public final class FormService
         appointmentForm.setNbMaxAppointmentsPerUser( formRule.getNbMaxAppointmentsPerUser( ) );
         appointmentForm.setNbDaysForMaxAppointmentsPerUser( formRule.getNbDaysForMaxAppointmentsPerUser( ) );
         appointmentForm.setBoOverbooking( formRule.getBoOverbooking( ) );
+        appointmentForm.setNbAdmissionsPerSecond( formRule.getNbAdmissionsPerSecond( ) );
+        appointmentForm.setNbMaxConcurrentRequests( formRule.getNbMaxConcurrentRequests( ) );
     }
 
     /**
@@ -654,6 +714,7 @@ public final class FormService
     public static Form updateForm( Form form )
     {
         Form formUpdated = FormHome.update( form );
+        FormConfigCacheService.invalidate( formUpdated.getIdForm( ) );
         FormListenerManager.notifyListenersFormChange( formUpdated.getIdForm( ) );
         return formUpdated;
     }
@@ -713,10 +774,11 @@ public final class FormService
 
             SlotHome.deleteByIdForm( nIdForm );
 
+            Map<Integer, List<WorkingDay>> mapListWorkingDay = WorkingDayService.findMapListWorkingDayByIdForm( nIdForm );
             for ( ReservationRule rule : ReservationRuleHome.findByIdForm( nIdForm ) )
             {
 
-                List<WorkingDay> listWorkingDay = WorkingDayService.findListWorkingDayByWeekDefinitionRule( rule.getIdReservationRule( ) );
+                List<WorkingDay> listWorkingDay = mapListWorkingDay.getOrDefault( rule.getIdReservationRule( ), new ArrayList<>( ) );
                 for ( WorkingDay workingDay : listWorkingDay )
                 {
 
@@ -739,6 +801,8 @@ public final class FormService
 
             TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
 
+            FormConfigCacheService.invalidate( nIdForm );
+            WeekDefinitionTimelineCacheService.invalidate( nIdForm );
             FormListenerManager.notifyListenersFormRemoval( nIdForm );
             AppointmentListenerManager.notifyListenersAppointmentFormRemoval( nIdForm );
 
@@ -794,6 +858,48 @@ public final class FormService
         return FormHome.findByPrimaryKey( nIdForm );
     }
 
+    /**
+     * Get the first day of the display of the calendar of a form: today, or the starting validity date of the form if it is later
+     * 
+     * @param startingValidityDate
+     *            the starting validity date of the form
+     * @return the first day of the display
+     */
+    public static LocalDate getStartingDateOfDisplay( LocalDate startingValidityDate )
+    {
+        LocalDate startingDateOfDisplay = LocalDate.now( );
+        if ( startingValidityDate != null && startingValidityDate.isAfter( startingDateOfDisplay ) )
+        {
+            startingDateOfDisplay = startingValidityDate;
+        }
+        return startingDateOfDisplay;
+    }
+
+    /**
+     * Get the last day of the display of the calendar of a form: the sunday of the last week to display, counting the week of the first day of the display,
+     * or the ending validity date of the form if it is earlier
+     * 
+     * @param startingDateOfDisplay
+     *            the first day of the display
+     * @param nNbWeeksToDisplay
+     *            the number of weeks to display
+     * @param endingValidityDate
+     *            the ending validity date of the form, may be null
+     * @param locale
+     *            the locale, giving the first day of the week
+     * @return the last day of the display
+     */
+    public static LocalDate getEndingDateOfDisplay( LocalDate startingDateOfDisplay, int nNbWeeksToDisplay, LocalDate endingValidityDate, Locale locale )
+    {
+        LocalDate endingDateOfDisplay = startingDateOfDisplay.with( WeekFields.of( locale ).dayOfWeek( ), DayOfWeek.SUNDAY.getValue( ) )
+                .plusWeeks( (long) nNbWeeksToDisplay - 1 );
+        if ( endingValidityDate != null && endingDateOfDisplay.isAfter( endingValidityDate ) )
+        {
+            endingDateOfDisplay = endingValidityDate;
+        }
+        return endingDateOfDisplay;
+    }
+
     /**
      * Find forms by the title
      * 
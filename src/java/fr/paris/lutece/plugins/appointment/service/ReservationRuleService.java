@@ -115,6 +115,7 @@ public final class ReservationRuleService
             WorkingDayService.generateWorkingDayAndListTimeSlot( reservationRule.getIdReservationRule( ), dayOfWeek, startingTime, endingTime, nDuration,
                     nMaxCapacity );
         }
+        FormConfigCacheService.invalidate( nIdForm );
         return reservationRule.getIdReservationRule( );
     }
 
@@ -149,6 +150,7 @@ public final class ReservationRuleService
                     }
                 }
                 TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+                FormConfigCacheService.invalidate( reservationRule.getIdForm( ) );
                 return reservationRule.getIdReservationRule( );
             }
             catch( RuntimeException e )
@@ -191,6 +193,7 @@ public final class ReservationRuleService
             WorkingDayService.generateWorkingDayAndListTimeSlot( reservationRule.getIdReservationRule( ), dayOfWeek, startingHour, endingHour, nDuration,
                     nMaxCapacity );
         }
+        FormConfigCacheService.invalidate( nIdForm );
         List<WeekDefinition> listWeek = WeekDefinitionService.findByReservationRule( appointmentForm.getIdReservationRule( ) );
         if ( CollectionUtils.isNotEmpty( listWeek ) )
         {
@@ -218,6 +221,7 @@ public final class ReservationRuleService
 
             }
             ReservationRuleHome.delete( rule.getIdReservationRule( ) );
+            FormConfigCacheService.invalidate( rule.getIdForm( ) );
         }
     }
 
@@ -366,13 +370,17 @@ public final class ReservationRuleService
 
         Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
         List<ReservationRule> listReservationRule = ReservationRuleHome.findByIdForm( nIdForm );
+        Map<Integer, List<WorkingDay>> mapListWorkingDay = WorkingDayService.findMapListWorkingDayByIdForm( nIdForm );
+        for ( ReservationRule reservationRule : listReservationRule )
+        {
+            reservationRule.setListWorkingDay( mapListWorkingDay.getOrDefault( reservationRule.getIdReservationRule( ), new ArrayList<>( ) ) );
+        }
         for ( WeekDefinition weekDefinition : listWeekDefinition )
         {
             ReservationRule reservationRule = listReservationRule.stream( ).filter( p -> p.getIdReservationRule( ) == weekDefinition.getIdReservationRule( ) )
                     .findAny( ).orElse( null );
             if ( reservationRule != null )
             {
-                reservationRule.setListWorkingDay( WorkingDayService.findListWorkingDayByWeekDefinitionRule( reservationRule.getIdReservationRule( ) ) );
                 mapReservationRule.put( weekDefinition, reservationRule );
             }
 
@@ -391,9 +399,10 @@ public final class ReservationRuleService
     {
 
         List<ReservationRule> listReservationRule = ReservationRuleHome.findByIdForm( nIdForm );
+        Map<Integer, List<WorkingDay>> mapListWorkingDay = WorkingDayService.findMapListWorkingDayByIdForm( nIdForm );
         for ( ReservationRule reservationRule : listReservationRule )
         {
-            reservationRule.setListWorkingDay( WorkingDayService.findListWorkingDayByWeekDefinitionRule( reservationRule.getIdReservationRule( ) ) );
+            reservationRule.setListWorkingDay( mapListWorkingDay.getOrDefault( reservationRule.getIdReservationRule( ), new ArrayList<>( ) ) );
         }
         return listReservationRule;
     }
@@ -411,12 +420,12 @@ public final class ReservationRuleService
     {
 
         List<ReservationRule> listReservationRule = new ArrayList<>( );
+        Map<Integer, List<WorkingDay>> mapListWorkingDay = WorkingDayService.findMapListWorkingDayByIdForm( nIdForm );
         for ( ReservationRule reservationRule : ReservationRuleHome.findByIdForm( nIdForm ) )
         {
             if ( listWeekDefinition.stream( ).anyMatch( p -> p.getIdReservationRule( ) == reservationRule.getIdReservationRule( ) ) )
             {
-
-                reservationRule.setListWorkingDay( WorkingDayService.findListWorkingDayByWeekDefinitionRule( reservationRule.getIdReservationRule( ) ) );
+                reservationRule.setListWorkingDay( mapListWorkingDay.getOrDefault( reservationRule.getIdReservationRule( ), new ArrayList<>( ) ) );
                 listReservationRule.add( reservationRule );
             }
         }
@@ -0,0 +1,627 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.exception.SlotLockContendedException;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Booking mode for the flash crowds: instead of competing for the lock of a slot, the bookings on a slot are put in a queue drained by a single writer. The
+ * writer claims the places of a batch of bookings with one conditional update of the slot, then completes each booking with success or "full". The other
+ * nodes are not aware of the queue: the conditional update keeps the slot consistent with their bookings, a failed update only reloads the slot. The writer
+ * does not take the lock of the slot: all the writers of the places of the slots update them with deltas, so the slot read by the writer is only used to
+ * size the batch, never written back
+ */
+public final class SlotBookingQueueService
+{
+    // Properties
+    private static final String PROPERTY_QUEUE_ENABLED = "appointment.booking.queue.enabled";
+    private static final String PROPERTY_QUEUE_DEPTH = "appointment.booking.queue.depth";
+    private static final String PROPERTY_QUEUE_BATCH_SIZE = "appointment.booking.queue.batchSize";
+    private static final String PROPERTY_QUEUE_TIMEOUT = "appointment.booking.queue.timeout";
+    private static final String PROPERTY_QUEUE_FULL_DURATION = "appointment.booking.queue.full.duration";
+    private static final String PROPERTY_QUEUE_NB_WRITERS = "appointment.booking.queue.nbWriters";
+
+    private static final int DEFAULT_QUEUE_DEPTH = 500;
+    private static final int DEFAULT_QUEUE_BATCH_SIZE = 50;
+    private static final int DEFAULT_QUEUE_TIMEOUT = 10000;
+    private static final int DEFAULT_QUEUE_FULL_DURATION = 2000;
+    private static final int DEFAULT_QUEUE_NB_WRITERS = 4;
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private static final Map<Integer, SlotQueue> _mapSlotQueue = new ConcurrentHashMap<>( );
+    private static ExecutorService _writerExecutor;
+
+    // Metrics
+    private static final AtomicLong _lNbBatches = new AtomicLong( );
+    private static final AtomicLong _lNbClaims = new AtomicLong( );
+    private static final AtomicLong _lNbRejected = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotBookingQueueService( )
+    {
+    }
+
+    /**
+     * Check if the places of an appointment are claimed through the booking queues. Only the new appointments without over booking are queued, the moves of
+     * appointments and the over bookings are saved with the locks on the slots
+     * 
+     * @param appointmentDTO
+     *            the appointment
+     * @return true if the places are claimed through the booking queues
+     */
+    public static boolean isQueued( AppointmentDTO appointmentDTO )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_QUEUE_ENABLED, false ) && appointmentDTO.getIdAppointment( ) == 0
+                && !appointmentDTO.getOverbookingAllowed( );
+    }
+
+    /**
+     * Claim the places of all the slots of an appointment through the booking queues. If the places of a slot can not be claimed, the places already claimed
+     * on the other slots are given back
+     * 
+     * @param appointmentDTO
+     *            the appointment, with its list of appointment slots built
+     * @return the ids of the slots updated
+     * @throws SlotFullException
+     *             if a slot has not enough places
+     * @throws SlotLockContendedException
+     *             if the queue of a slot is full or the claim has not been processed in time
+     */
+    public static List<Integer> claimPlaces( AppointmentDTO appointmentDTO )
+    {
+        List<AppointmentSlot> listAppointmentSlot = appointmentDTO.getListAppointmentSlot( );
+        List<Integer> listIdSlotClaimed = new ArrayList<>( listAppointmentSlot.size( ) );
+        int nbPlacesClaimed = 0;
+        try
+        {
+            for ( AppointmentSlot appointmentSlot : listAppointmentSlot )
+            {
+                if ( !claimPlaces( appointmentSlot.getIdSlot( ), appointmentSlot.getNbPlaces( ), appointmentDTO.getNbMaxPotentialBookedSeats( ) ) )
+                {
+                    AppLogService.error( "ERROR SLOT FULL, ID SLOT: " + appointmentSlot.getIdSlot( ) );
+                    throw new SlotFullException( "ERROR SLOT FULL " );
+                }
+                listIdSlotClaimed.add( appointmentSlot.getIdSlot( ) );
+                nbPlacesClaimed = nbPlacesClaimed + appointmentSlot.getNbPlaces( );
+            }
+            // this test is for form with the possibility of taking several appointments on the same slot
+            if ( appointmentDTO.getNbBookedSeats( ) > nbPlacesClaimed )
+            {
+                int nbSumRemainingPlaces = nbPlacesClaimed;
+                for ( AppointmentSlot appointmentSlot : listAppointmentSlot )
+                {
+                    nbSumRemainingPlaces = nbSumRemainingPlaces + SlotService.findSlotById( appointmentSlot.getIdSlot( ) ).getNbRemainingPlaces( );
+                }
+                if ( appointmentDTO.getNbBookedSeats( ) > nbSumRemainingPlaces )
+                {
+                    AppLogService.error( "ERROR SLOT FULL" );
+                    throw new SlotFullException( "ERROR SLOT FULL" );
+                }
+            }
+        }
+        catch( RuntimeException e )
+        {
+            releasePlaces( appointmentDTO, listIdSlotClaimed );
+            throw e;
+        }
+        return listIdSlotClaimed;
+    }
+
+    /**
+     * Give back the places claimed for an appointment that could not be saved
+     * 
+     * @param appointmentDTO
+     *            the appointment
+     * @param listIdSlotClaimed
+     *            the ids of the slots whose places have been claimed
+     */
+    public static void releasePlaces( AppointmentDTO appointmentDTO, List<Integer> listIdSlotClaimed )
+    {
+        for ( AppointmentSlot appointmentSlot : appointmentDTO.getListAppointmentSlot( ) )
+        {
+            if ( listIdSlotClaimed.contains( appointmentSlot.getIdSlot( ) ) )
+            {
+                SlotHome.releasePlaces( appointmentSlot.getIdSlot( ), appointmentSlot.getNbPlaces( ) );
+                markAvailable( appointmentSlot.getIdSlot( ) );
+            }
+        }
+    }
+
+    /**
+     * Claim places on a slot through its booking queue, and wait for the writer of the queue
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to claim
+     * @param nbPotentialPlaces
+     *            the number of places potentially held on the slot by the user
+     * @return true if the places have been claimed, false if the slot is full
+     * @throws SlotLockContendedException
+     *             if the queue of the slot is full or the claim has not been processed in time
+     */
+    public static boolean claimPlaces( int nIdSlot, int nbPlaces, int nbPotentialPlaces )
+    {
+        SlotQueue slotQueue = _mapSlotQueue.computeIfAbsent( nIdSlot, SlotQueue::new );
+        if ( slotQueue.isKnownFull( nbPlaces ) )
+        {
+            // Fast reject, without waiting in the queue
+            _lNbRejected.incrementAndGet( );
+            return false;
+        }
+        BookingClaim claim = new BookingClaim( nbPlaces, nbPotentialPlaces );
+        if ( !slotQueue.offer( claim ) )
+        {
+            _lNbRejected.incrementAndGet( );
+            throw new SlotLockContendedException( "ERROR SLOT QUEUE FULL", Collections.singletonList( nIdSlot ) );
+        }
+        try
+        {
+            return claim.getResult( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_TIMEOUT, DEFAULT_QUEUE_TIMEOUT ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new SlotLockContendedException( "ERROR SLOT QUEUE INTERRUPTED", Collections.singletonList( nIdSlot ) );
+        }
+        catch( TimeoutException e )
+        {
+            throw new SlotLockContendedException( "ERROR SLOT QUEUE TIMEOUT", Collections.singletonList( nIdSlot ) );
+        }
+    }
+
+    /**
+     * Forget that a slot is full, after places have been given back to it
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void markAvailable( int nIdSlot )
+    {
+        SlotQueue slotQueue = _mapSlotQueue.get( nIdSlot );
+        if ( slotQueue != null )
+        {
+            slotQueue.setFullUntil( 0 );
+        }
+    }
+
+    /**
+     * Get the number of batches claimed by the writers
+     * 
+     * @return the number of batches
+     */
+    public static long getNbBatches( )
+    {
+        return _lNbBatches.get( );
+    }
+
+    /**
+     * Get the number of claims processed by the writers
+     * 
+     * @return the number of claims
+     */
+    public static long getNbClaims( )
+    {
+        return _lNbClaims.get( );
+    }
+
+    /**
+     * Get the number of claims rejected without waiting, because the slot was full or its queue was full
+     * 
+     * @return the number of claims rejected
+     */
+    public static long getNbRejected( )
+    {
+        return _lNbRejected.get( );
+    }
+
+    /**
+     * Remove the queues of the slots that are idle
+     */
+    public static void cleanQueues( )
+    {
+        _mapSlotQueue.values( ).removeIf( SlotQueue::isIdle );
+    }
+
+    /**
+     * Stop the writers of the queues
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _writerExecutor != null )
+        {
+            _writerExecutor.shutdown( );
+            _writerExecutor = null;
+        }
+    }
+
+    /**
+     * Get the executor running the writers of the queues
+     * 
+     * @return the executor
+     */
+    private static synchronized ExecutorService getWriterExecutor( )
+    {
+        if ( _writerExecutor == null )
+        {
+            _writerExecutor = Executors.newFixedThreadPool( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_NB_WRITERS, DEFAULT_QUEUE_NB_WRITERS ),
+                    new CustomizableThreadFactory( "Lutece-AppointmentBookingQueue-thread-" ) );
+        }
+        return _writerExecutor;
+    }
+
+    /**
+     * Claim of places on a slot, completed by the writer of the queue of the slot
+     */
+    private static final class BookingClaim
+    {
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_PROCESSING = 1;
+        private static final int STATE_CANCELLED = 2;
+
+        private final int _nbPlaces;
+        private final int _nbPotentialPlaces;
+        private final AtomicInteger _nState = new AtomicInteger( STATE_PENDING );
+        private final CompletableFuture<Boolean> _result = new CompletableFuture<>( );
+
+        /**
+         * Constructor
+         * 
+         * @param nbPlaces
+         *            the number of places to claim
+         * @param nbPotentialPlaces
+         *            the number of places potentially held by the user
+         */
+        BookingClaim( int nbPlaces, int nbPotentialPlaces )
+        {
+            _nbPlaces = nbPlaces;
+            _nbPotentialPlaces = nbPotentialPlaces;
+        }
+
+        /**
+         * Take the claim for a batch of the writer
+         * 
+         * @return false if the claim has been cancelled by its caller
+         */
+        boolean startProcessing( )
+        {
+            return _nState.compareAndSet( STATE_PENDING, STATE_PROCESSING );
+        }
+
+        /**
+         * Complete the claim
+         * 
+         * @param bClaimed
+         *            true if the places have been claimed
+         * @return false if the caller has stopped waiting for the claim
+         */
+        boolean complete( boolean bClaimed )
+        {
+            return _result.complete( bClaimed );
+        }
+
+        /**
+         * Complete the claim with an error
+         * 
+         * @param throwable
+         *            the error
+         */
+        void completeExceptionally( Throwable throwable )
+        {
+            _result.completeExceptionally( throwable );
+        }
+
+        /**
+         * Wait for the result of the claim. A claim not yet taken by the writer is cancelled after the timeout, a claim being processed is waited for once
+         * more. If it is still not processed, the caller stops waiting and the writer gives back the places it claims afterwards
+         * 
+         * @param nTimeout
+         *            the timeout in milliseconds
+         * @return true if the places have been claimed
+         * @throws InterruptedException
+         *             if the thread is interrupted
+         * @throws TimeoutException
+         *             if the claim has been cancelled
+         */
+        boolean getResult( int nTimeout ) throws InterruptedException, TimeoutException
+        {
+            try
+            {
+                try
+                {
+                    return _result.get( nTimeout, TimeUnit.MILLISECONDS );
+                }
+                catch( TimeoutException e )
+                {
+                    if ( _nState.compareAndSet( STATE_PENDING, STATE_CANCELLED ) )
+                    {
+                        throw e;
+                    }
+                    try
+                    {
+                        return _result.get( nTimeout, TimeUnit.MILLISECONDS );
+                    }
+                    catch( TimeoutException e2 )
+                    {
+                        if ( _result.completeExceptionally( e2 ) )
+                        {
+                            throw e2;
+                        }
+                        // Completed by the writer in the meantime
+                        return _result.get( );
+                    }
+                }
+            }
+            catch( ExecutionException e )
+            {
+                if ( e.getCause( ) instanceof RuntimeException )
+                {
+                    throw (RuntimeException) e.getCause( );
+                }
+                throw new SlotFullException( e.getMessage( ), e );
+            }
+        }
+    }
+
+    /**
+     * Queue of the claims on a slot. At most one writer drains the queue at a time
+     */
+    private static final class SlotQueue
+    {
+        private final int _nIdSlot;
+        private final BlockingQueue<BookingClaim> _queue;
+        private final AtomicBoolean _bDraining = new AtomicBoolean( );
+        private volatile long _lFullUntil;
+
+        /**
+         * Constructor
+         * 
+         * @param nIdSlot
+         *            the id of the slot
+         */
+        SlotQueue( int nIdSlot )
+        {
+            _nIdSlot = nIdSlot;
+            _queue = new ArrayBlockingQueue<>( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_DEPTH, DEFAULT_QUEUE_DEPTH ) );
+        }
+
+        /**
+         * Check if the slot was found full by the writer recently
+         * 
+         * @param nbPlaces
+         *            the number of places to claim
+         * @return true if the slot is known as full
+         */
+        boolean isKnownFull( int nbPlaces )
+        {
+            return nbPlaces > 0 && _lFullUntil > System.currentTimeMillis( );
+        }
+
+        /**
+         * Set the time until which the slot is known as full
+         * 
+         * @param lFullUntil
+         *            the time in milliseconds
+         */
+        void setFullUntil( long lFullUntil )
+        {
+            _lFullUntil = lFullUntil;
+        }
+
+        /**
+         * Check if the queue is idle
+         * 
+         * @return true if no claim is waiting and no writer is running
+         */
+        boolean isIdle( )
+        {
+            return _queue.isEmpty( ) && !_bDraining.get( );
+        }
+
+        /**
+         * Add a claim to the queue, and start the writer if it is not running
+         * 
+         * @param claim
+         *            the claim
+         * @return false if the queue is full
+         */
+        boolean offer( BookingClaim claim )
+        {
+            if ( !_queue.offer( claim ) )
+            {
+                return false;
+            }
+            scheduleWriter( );
+            return true;
+        }
+
+        /**
+         * Start the writer if it is not running
+         */
+        private void scheduleWriter( )
+        {
+            if ( _bDraining.compareAndSet( false, true ) )
+            {
+                getWriterExecutor( ).execute( this::drain );
+            }
+        }
+
+        /**
+         * Writer of the queue: claim the places of the waiting claims by batches until the queue is empty
+         */
+        private void drain( )
+        {
+            int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_BATCH_SIZE, DEFAULT_QUEUE_BATCH_SIZE );
+            List<BookingClaim> listBatch = new ArrayList<>( nBatchSize );
+            try
+            {
+                while ( _queue.drainTo( listBatch, nBatchSize ) > 0 )
+                {
+                    processBatch( listBatch );
+                    listBatch.clear( );
+                }
+            }
+            catch( Throwable e )
+            {
+                AppLogService.error( "Error claiming the places of the slot " + _nIdSlot, e );
+                for ( BookingClaim claim : listBatch )
+                {
+                    claim.completeExceptionally( e );
+                }
+            }
+            finally
+            {
+                _bDraining.set( false );
+            }
+            // A claim offered after the last drain and before the end of the writer
+            if ( !_queue.isEmpty( ) )
+            {
+                scheduleWriter( );
+            }
+        }
+
+        /**
+         * Claim the places of a batch of claims with one update of the slot. The claims are served in their order of arrival, as long as the slot has enough
+         * places
+         * 
+         * @param listBatch
+         *            the claims
+         */
+        private void processBatch( List<BookingClaim> listBatch )
+        {
+            List<BookingClaim> listPending = new ArrayList<>( listBatch.size( ) );
+            for ( BookingClaim claim : listBatch )
+            {
+                if ( claim.startProcessing( ) )
+                {
+                    listPending.add( claim );
+                }
+            }
+            _lNbBatches.incrementAndGet( );
+            _lNbClaims.addAndGet( listPending.size( ) );
+            boolean bFull = false;
+            for ( int nAttempt = 0; nAttempt < MAX_CLAIM_ATTEMPTS && !bFull && !listPending.isEmpty( ); nAttempt++ )
+            {
+                Slot slot = SlotHome.findByPrimaryKey( _nIdSlot );
+                if ( slot == null || slot.getEndingDateTime( ).isBefore( LocalDateTime.now( ) ) )
+                {
+                    bFull = true;
+                    break;
+                }
+                int nbAvailablePlaces = Math.min( slot.getNbRemainingPlaces( ), slot.getMaxCapacity( ) - slot.getNbPlacesTaken( ) );
+                List<BookingClaim> listAccepted = new ArrayList<>( listPending.size( ) );
+                int nbPlaces = 0;
+                int nbPotentialPlaces = 0;
+                for ( BookingClaim claim : listPending )
+                {
+                    if ( nbPlaces + claim._nbPlaces <= nbAvailablePlaces )
+                    {
+                        listAccepted.add( claim );
+                        nbPlaces = nbPlaces + claim._nbPlaces;
+                        nbPotentialPlaces = nbPotentialPlaces + claim._nbPotentialPlaces;
+                    }
+                }
+                if ( listAccepted.isEmpty( ) )
+                {
+                    bFull = true;
+                }
+                else
+                    if ( SlotHome.takePlaces( _nIdSlot, nbPlaces, nbPotentialPlaces, true ) )
+                    {
+                        int nbPlacesAbandoned = 0;
+                        for ( BookingClaim claim : listAccepted )
+                        {
+                            if ( !claim.complete( true ) )
+                            {
+                                nbPlacesAbandoned = nbPlacesAbandoned + claim._nbPlaces;
+                            }
+                        }
+                        if ( nbPlacesAbandoned > 0 )
+                        {
+                            // The callers stopped waiting, their places are given back
+                            SlotHome.releasePlaces( _nIdSlot, nbPlacesAbandoned );
+                        }
+                        listPending.removeAll( listAccepted );
+                        // The claims left did not fit in the places of the slot
+                        bFull = !listPending.isEmpty( ) || ( nbPlaces == nbAvailablePlaces && nbPlacesAbandoned == 0 );
+                    }
+                // Else the slot has been updated by a booking of another node, the slot is loaded again
+            }
+            if ( bFull )
+            {
+                _lFullUntil = System.currentTimeMillis( ) + AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_FULL_DURATION, DEFAULT_QUEUE_FULL_DURATION );
+            }
+            for ( BookingClaim claim : listPending )
+            {
+                if ( bFull )
+                {
+                    claim.complete( false );
+                }
+                else
+                {
+                    claim.completeExceptionally( new SlotLockContendedException( "ERROR SLOT UPDATED CONCURRENTLY", Collections.singletonList( _nIdSlot ) ) );
+                }
+            }
+        }
+    }
+}
@@ -35,6 +35,9 @@ package fr.paris.lutece.plugins.appointment.service;
 
 import fr.paris.lutece.portal.service.daemon.Daemon;
 
+/**
+ * Daemon sweeping the structures kept in memory for each slot: the idle booking queues of the slots are removed
+ */
 public class SlotDaemon extends Daemon
 {
 
@@ -43,6 +46,7 @@ public class SlotDaemon extends Daemon
     {
 
         SlotSafeService.cleanSlotlist( );
+        SlotBookingQueueService.cleanQueues( );
 
     }
 
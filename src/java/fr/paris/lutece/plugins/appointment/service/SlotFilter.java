@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+
+/**
+ * Filter of the slots applied during their generation, so that the slots rejected are never built: slots starting after a date time, open slots, slots with
+ * enough remaining or potential remaining places, slots on some days of the week. A filter without any criteria accepts all the slots
+ */
+public final class SlotFilter
+{
+    private LocalDateTime _minStartingDateTime;
+    private boolean _bOpenOnly;
+    private int _nMinRemainingPlaces;
+    private int _nMinPotentialRemainingPlaces;
+    private Set<DayOfWeek> _setDaysOfWeek;
+
+    /**
+     * Get the filter of the available slots: the open slots starting after a date time with enough potential remaining places
+     * 
+     * @param from
+     *            the date time after which the slots must start
+     * @param nNbPlaces
+     *            the number of places needed on the slots (at least one)
+     * @return the filter
+     */
+    public static SlotFilter available( LocalDateTime from, int nNbPlaces )
+    {
+        SlotFilter filter = new SlotFilter( );
+        filter.setMinStartingDateTime( from );
+        filter.setOpenOnly( true );
+        filter.setMinPotentialRemainingPlaces( Math.max( 1, nNbPlaces ) );
+        return filter;
+    }
+
+    /**
+     * Get the filter of the slots displayed by the calendar of the front office: the slots too close to be booked are not displayed, nor the slots without
+     * enough places to change the date of an appointment. The calendar templates of the available slots only display the open slots with remaining places,
+     * on the open days of the form for the template of the open days
+     * 
+     * @param strTemplateTitle
+     *            the title of the calendar template of the form
+     * @param from
+     *            the date time after which the slots must start
+     * @param appointmentToMove
+     *            the appointment whose date is changed, null for a new appointment
+     * @param setOpenDays
+     *            the values of the open days of the week of the form (1 for Monday to 7 for Sunday)
+     * @return the filter
+     */
+    public static SlotFilter forCalendarTemplate( String strTemplateTitle, LocalDateTime from, AppointmentDTO appointmentToMove, Set<Integer> setOpenDays )
+    {
+        SlotFilter filter = new SlotFilter( );
+        filter.setMinStartingDateTime( from );
+        if ( appointmentToMove != null )
+        {
+            filter.setOpenOnly( true );
+            filter.setMinPotentialRemainingPlaces( appointmentToMove.getNbBookedSeats( ) );
+        }
+        if ( CalendarTemplate.FREE_SLOTS.equals( strTemplateTitle ) || CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS.equals( strTemplateTitle ) )
+        {
+            filter.setOpenOnly( true );
+            filter.setMinRemainingPlaces( 1 );
+        }
+        if ( CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS.equals( strTemplateTitle ) )
+        {
+            filter.setDaysOfWeek( setOpenDays );
+        }
+        return filter;
+    }
+
+    /**
+     * Get the date time after which the slots must start
+     * 
+     * @return the date time, null if there is no limit
+     */
+    public LocalDateTime getMinStartingDateTime( )
+    {
+        return _minStartingDateTime;
+    }
+
+    /**
+     * Set the date time after which the slots must start
+     * 
+     * @param minStartingDateTime
+     *            the date time (excluded), null for no limit
+     */
+    public void setMinStartingDateTime( LocalDateTime minStartingDateTime )
+    {
+        _minStartingDateTime = minStartingDateTime;
+    }
+
+    /**
+     * Check if only the open slots are accepted
+     * 
+     * @return true if only the open slots are accepted
+     */
+    public boolean isOpenOnly( )
+    {
+        return _bOpenOnly;
+    }
+
+    /**
+     * Set if only the open slots are accepted
+     * 
+     * @param bOpenOnly
+     *            true to accept only the open slots
+     */
+    public void setOpenOnly( boolean bOpenOnly )
+    {
+        _bOpenOnly = bOpenOnly;
+    }
+
+    /**
+     * Get the minimum number of remaining places of the slots
+     * 
+     * @return the minimum number of remaining places
+     */
+    public int getMinRemainingPlaces( )
+    {
+        return _nMinRemainingPlaces;
+    }
+
+    /**
+     * Set the minimum number of remaining places of the slots
+     * 
+     * @param nMinRemainingPlaces
+     *            the minimum number of remaining places, 0 for no limit
+     */
+    public void setMinRemainingPlaces( int nMinRemainingPlaces )
+    {
+        _nMinRemainingPlaces = nMinRemainingPlaces;
+    }
+
+    /**
+     * Get the minimum number of potential remaining places of the slots
+     * 
+     * @return the minimum number of potential remaining places
+     */
+    public int getMinPotentialRemainingPlaces( )
+    {
+        return _nMinPotentialRemainingPlaces;
+    }
+
+    /**
+     * Set the minimum number of potential remaining places of the slots
+     * 
+     * @param nMinPotentialRemainingPlaces
+     *            the minimum number of potential remaining places, 0 for no limit
+     */
+    public void setMinPotentialRemainingPlaces( int nMinPotentialRemainingPlaces )
+    {
+        _nMinPotentialRemainingPlaces = nMinPotentialRemainingPlaces;
+    }
+
+    /**
+     * Set the days of the week of the slots
+     * 
+     * @param setDayOfWeekValues
+     *            the values of the days of the week (1 for Monday to 7 for Sunday), null for all the days
+     */
+    public void setDaysOfWeek( Set<Integer> setDayOfWeekValues )
+    {
+        if ( setDayOfWeekValues == null )
+        {
+            _setDaysOfWeek = null;
+            return;
+        }
+        _setDaysOfWeek = EnumSet.noneOf( DayOfWeek.class );
+        for ( Integer nDayOfWeek : setDayOfWeekValues )
+        {
+            _setDaysOfWeek.add( DayOfWeek.of( nDayOfWeek ) );
+        }
+    }
+
+    /**
+     * Check if a day can have accepted slots: a day of the week accepted, not before the day of the minimum starting date time
+     * 
+     * @param date
+     *            the day
+     * @return false if no slot of this day can be accepted
+     */
+    public boolean acceptDay( LocalDate date )
+    {
+        if ( _setDaysOfWeek != null && !_setDaysOfWeek.contains( date.getDayOfWeek( ) ) )
+        {
+            return false;
+        }
+        return _minStartingDateTime == null || !date.isBefore( _minStartingDateTime.toLocalDate( ) );
+    }
+
+    /**
+     * Check if the state of a slot is accepted, whatever its date
+     * 
+     * @param bIsOpen
+     *            true if the slot is open
+     * @param nRemainingPlaces
+     *            the remaining places of the slot
+     * @param nPotentialRemainingPlaces
+     *            the potential remaining places of the slot
+     * @return true if the state of the slot is accepted
+     */
+    public boolean acceptPlaces( boolean bIsOpen, int nRemainingPlaces, int nPotentialRemainingPlaces )
+    {
+        return ( bIsOpen || !_bOpenOnly ) && nRemainingPlaces >= _nMinRemainingPlaces && nPotentialRemainingPlaces >= _nMinPotentialRemainingPlaces;
+    }
+
+    /**
+     * Check if a slot, not built yet, is accepted
+     * 
+     * @param startingDateTime
+     *            the starting date time of the slot
+     * @param bIsOpen
+     *            true if the slot is open
+     * @param nRemainingPlaces
+     *            the remaining places of the slot
+     * @param nPotentialRemainingPlaces
+     *            the potential remaining places of the slot
+     * @return true if the slot is accepted
+     */
+    public boolean accept( LocalDateTime startingDateTime, boolean bIsOpen, int nRemainingPlaces, int nPotentialRemainingPlaces )
+    {
+        if ( _minStartingDateTime != null && !startingDateTime.isAfter( _minStartingDateTime ) )
+        {
+            return false;
+        }
+        if ( _setDaysOfWeek != null && !_setDaysOfWeek.contains( startingDateTime.getDayOfWeek( ) ) )
+        {
+            return false;
+        }
+        return acceptPlaces( bIsOpen, nRemainingPlaces, nPotentialRemainingPlaces );
+    }
+
+    /**
+     * Check if a slot is accepted
+     * 
+     * @param slot
+     *            the slot
+     * @return true if the slot is accepted
+     */
+    public boolean accept( Slot slot )
+    {
+        return accept( slot.getStartingDateTime( ), slot.getIsOpen( ), slot.getNbRemainingPlaces( ), slot.getNbPotentialRemainingPlaces( ) );
+    }
+}
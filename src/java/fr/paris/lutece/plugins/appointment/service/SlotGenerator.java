@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Period;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+
+/**
+ * Lazy generator of the slots of a form on a period: the slots are built day by day with all the rules (open hours ...) to apply, when they are consumed.
+ * The slots of the database and the closing days are loaded by windows of days, so a long period is generated with a bounded memory and a consumer can stop
+ * at any time (findFirst, limit ...). A filter can be given so that the slots rejected are never built and the days without any accepted slot are not loaded.
+ * Not thread safe
+ */
+public final class SlotGenerator implements Iterator<Slot>
+{
+    // Number of days of slots and closing days loaded from the database at once
+    private static final int NB_DAYS_BY_WINDOW = 31;
+
+    private final int _nIdForm;
+    private final WeekDefinitionTimeline _timeline;
+    private final LocalDate _endingDate;
+    // Grouper of the slots, null if the slots are not grouped
+    private final SlotGrouper _grouper;
+    // Filter of the slots, null if all the slots are kept
+    private SlotFilter _filter;
+    // The reservation rules are compiled once, on their first day
+    private final Map<ReservationRule, CompiledReservationRule> _mapCompiledRule = new IdentityHashMap<>( );
+    private final Deque<Slot> _dequeSlotOfDay = new ArrayDeque<>( );
+    private final List<Slot> _listSlotOfDay = new ArrayList<>( );
+    private LocalDate _nextDate;
+    private LocalDate _endingDateOfWindow;
+    private ClosingDaySet _closingDays;
+    private Map<LocalDateTime, Slot> _mapSlot;
+    private int _nNbDaysByWindow = NB_DAYS_BY_WINDOW;
+    private boolean _bGrowingWindows;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param nNbPlaces
+     *            the number of places to take (the slots are grouped to offer this number of places if greater than 0)
+     * @param bAllOpenSlot
+     *            group the slots with all the open slots
+     */
+    private SlotGenerator( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate, int nNbPlaces,
+            boolean bAllOpenSlot )
+    {
+        _nIdForm = nIdForm;
+        _timeline = WeekDefinitionTimeline.of( mapReservationRule );
+        _endingDate = endingDate;
+        _grouper = ( nNbPlaces > 0 ) ? new SlotGrouper( nNbPlaces, bAllOpenSlot, LocalDateTime.now( ) ) : null;
+        // Need to check if this date is not before the form date creation
+        final LocalDate firstDateOfReservationRule = _timeline.getFirstWeekDefinition( ).getDateOfApply( );
+        _nextDate = startingDate;
+        if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
+        {
+            _nextDate = firstDateOfReservationRule;
+        }
+    }
+
+    /**
+     * Get the generator of all the slots of a period
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the generator
+     */
+    public static SlotGenerator of( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
+    {
+        return new SlotGenerator( nIdForm, mapReservationRule, startingDate, endingDate, 0, false );
+    }
+
+    /**
+     * Get the generator of the slots of a period, grouped to offer a number of places
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param nNbPlaces
+     *            the number of places to take
+     * @param bAllOpenSlot
+     *            group the slots with all the open slots
+     * @return the generator
+     */
+    public static SlotGenerator of( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate,
+            int nNbPlaces, boolean bAllOpenSlot )
+    {
+        return new SlotGenerator( nIdForm, mapReservationRule, startingDate, endingDate, nNbPlaces, bAllOpenSlot );
+    }
+
+    /**
+     * Load the first window of the database with only one day, then double the size of the windows up to their normal size. Used by the searches that
+     * usually stop on the first days of the period
+     * 
+     * @return this generator
+     */
+    public SlotGenerator withGrowingWindows( )
+    {
+        _nNbDaysByWindow = 1;
+        _bGrowingWindows = true;
+        return this;
+    }
+
+    /**
+     * Keep only the slots accepted by a filter. The slots rejected are not built, except the slots to group that are all needed to build the grouped slots:
+     * then the filter applies to the grouped slots
+     * 
+     * @param filter
+     *            the filter, null to keep all the slots
+     * @return this generator
+     */
+    public SlotGenerator withFilter( SlotFilter filter )
+    {
+        _filter = filter;
+        if ( _grouper == null && filter != null && filter.getMinStartingDateTime( ) != null )
+        {
+            LocalDate minDate = filter.getMinStartingDateTime( ).toLocalDate( );
+            if ( _nextDate.isBefore( minDate ) )
+            {
+                _nextDate = minDate;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the next day to generate
+     * 
+     * @return the next day
+     */
+    LocalDate getNextDate( )
+    {
+        return _nextDate;
+    }
+
+    /**
+     * Get a sequential and ordered stream on the slots of this generator
+     * 
+     * @return the stream of the slots
+     */
+    public Stream<Slot> stream( )
+    {
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( this, Spliterator.ORDERED | Spliterator.NONNULL ), false );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext( )
+    {
+        while ( _dequeSlotOfDay.isEmpty( ) && !_nextDate.isAfter( _endingDate ) )
+        {
+            if ( _grouper != null || _filter == null || _filter.acceptDay( _nextDate ) )
+            {
+                if ( _endingDateOfWindow == null || _nextDate.isAfter( _endingDateOfWindow ) )
+                {
+                    loadWindow( _nextDate );
+                }
+                if ( _grouper != null )
+                {
+                    buildGroupedSlotsOfDay( _nextDate );
+                }
+                else
+                {
+                    buildSlotsOfDay( _nextDate );
+                }
+            }
+            _nextDate = _nextDate.plusDays( 1 );
+        }
+        return !_dequeSlotOfDay.isEmpty( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slot next( )
+    {
+        if ( !hasNext( ) )
+        {
+            throw new NoSuchElementException( );
+        }
+        return _dequeSlotOfDay.poll( );
+    }
+
+    /**
+     * Load the closing days and the slots of the database of the window starting at the given date
+     * 
+     * @param startingDate
+     *            the first day of the window
+     */
+    private void loadWindow( LocalDate startingDate )
+    {
+        _endingDateOfWindow = startingDate.plusDays( _nNbDaysByWindow - 1L );
+        if ( _bGrowingWindows )
+        {
+            _nNbDaysByWindow = Math.min( _nNbDaysByWindow * 2, NB_DAYS_BY_WINDOW );
+        }
+        if ( _endingDateOfWindow.isAfter( _endingDate ) )
+        {
+            _endingDateOfWindow = _endingDate;
+        }
+        _closingDays = new ClosingDaySet( ClosingDayService.findListDateOfClosingDayByIdFormAndDateRange( _nIdForm, startingDate, _endingDateOfWindow ) );
+        _mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( _nIdForm, startingDate.atStartOfDay( ),
+                _endingDateOfWindow.atTime( LocalTime.MAX ) );
+    }
+
+    /**
+     * Get the compiled reservation rule of the week definition applied on the given date
+     * 
+     * @param date
+     *            the date
+     * @return the compiled reservation rule, null if there is no reservation rule on this date
+     */
+    private CompiledReservationRule getCompiledRule( LocalDate date )
+    {
+        ReservationRule reservationRuleToApply = _timeline.getReservationRule( date );
+        return ( reservationRuleToApply == null ) ? null : _mapCompiledRule.computeIfAbsent( reservationRuleToApply, CompiledReservationRule::new );
+    }
+
+    /**
+     * Build all the slots of a day
+     * 
+     * @param dateTemp
+     *            the day
+     */
+    private void buildSlotsOfDay( LocalDate dateTemp )
+    {
+        CompiledReservationRule compiledRule = getCompiledRule( dateTemp );
+        if ( compiledRule == null )
+        {
+            return;
+        }
+        ReservationRule reservationRuleToApply = compiledRule.getReservationRule( );
+        int nMaxCapacity = reservationRuleToApply.getMaxCapacityPerSlot( );
+        // Get the working day of the day of week of the date
+        DayOfWeek dayOfWeek = dateTemp.getDayOfWeek( );
+        CompiledWorkingDay workingDay = compiledRule.getWorkingDay( dayOfWeek );
+        LocalTime minTimeForThisDay;
+        LocalTime maxTimeForThisDay;
+        LocalTime timeTemp;
+        LocalDateTime dateTimeTemp;
+        Slot slotToAdd;
+        TimeSlot timeSlot;
+        if ( workingDay != null )
+        {
+            minTimeForThisDay = workingDay.getMinStartingTime( );
+            maxTimeForThisDay = workingDay.getMaxEndingTime( );
+            // Check if this day is a closing day
+            if ( _closingDays.contains( dateTemp ) )
+            {
+                addSlot( dateTemp.atTime( minTimeForThisDay ), dateTemp, maxTimeForThisDay, nMaxCapacity, false );
+            }
+            else
+            {
+                timeTemp = minTimeForThisDay;
+                // For each slot of this day
+                while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+                {
+                    // Get the LocalDateTime
+                    dateTimeTemp = dateTemp.atTime( timeTemp );
+                    // Search if there is a slot for this datetime
+                    slotToAdd = _mapSlot.get( dateTimeTemp );
+                    if ( slotToAdd != null )
+                    {
+                        timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+                        addSlot( slotToAdd );
+                    }
+                    else
+                    {
+                        // Search the timeslot
+                        timeSlot = workingDay.getTimeSlot( timeTemp );
+                        if ( timeSlot != null )
+                        {
+                            timeTemp = timeSlot.getEndingTime( );
+                            addSlot( dateTimeTemp, dateTemp, timeTemp, timeSlot.getMaxCapacity( ), timeSlot.getIsOpen( ) );
+                        }
+                        else
+                        {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        else
+        {
+            // This is not a working day
+            // We build all the slots closed for this day
+            minTimeForThisDay = compiledRule.getMinStartingTime( );
+            maxTimeForThisDay = compiledRule.getMaxEndingTime( );
+            int nDuration = reservationRuleToApply.getDurationAppointments( );
+            if ( minTimeForThisDay != null && maxTimeForThisDay != null )
+            {
+                timeTemp = minTimeForThisDay;
+                // For each slot of this day
+                while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+                {
+                    // Get the LocalDateTime
+                    dateTimeTemp = dateTemp.atTime( timeTemp );
+                    // Search if there is a slot for this datetime
+                    slotToAdd = _mapSlot.get( dateTimeTemp );
+                    if ( slotToAdd != null )
+                    {
+                        timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+                        addSlot( slotToAdd );
+                    }
+                    else
+                    {
+                        timeTemp = timeTemp.plusMinutes( nDuration );
+                        if ( timeTemp.isAfter( maxTimeForThisDay ) )
+                        {
+                            timeTemp = maxTimeForThisDay;
+                        }
+                        addSlot( dateTimeTemp, dateTemp, timeTemp, nMaxCapacity, false );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the slots of a day grouped to offer the number of places to take
+     * 
+     * @param dateTemp
+     *            the day
+     */
+    private void buildGroupedSlotsOfDay( LocalDate dateTemp )
+    {
+        CompiledReservationRule compiledRule = getCompiledRule( dateTemp );
+        if ( compiledRule == null )
+        {
+            return;
+        }
+        // Get the working day of the day of week of the date
+        CompiledWorkingDay workingDay = compiledRule.getWorkingDay( dateTemp.getDayOfWeek( ) );
+        // Check if this day is a closing day
+        if ( workingDay == null || _closingDays.contains( dateTemp ) )
+        {
+            return;
+        }
+        LocalTime maxTimeForThisDay = workingDay.getMaxEndingTime( );
+        LocalTime timeTemp = workingDay.getMinStartingTime( );
+        LocalDateTime dateTimeTemp;
+        Slot slotToAdd;
+        TimeSlot timeSlot;
+        _listSlotOfDay.clear( );
+        // For each slot of this day
+        while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+        {
+            // Get the LocalDateTime
+            dateTimeTemp = dateTemp.atTime( timeTemp );
+            // Search if there is a slot for this datetime
+            slotToAdd = _mapSlot.get( dateTimeTemp );
+            if ( slotToAdd != null )
+            {
+                timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+            }
+            else
+            {
+                // Search the timeslot
+                timeSlot = workingDay.getTimeSlot( timeTemp );
+                if ( timeSlot == null )
+                {
+                    break;
+                }
+                timeTemp = timeSlot.getEndingTime( );
+                int nMaxCapacityToPut = timeSlot.getMaxCapacity( );
+                slotToAdd = SlotService.buildSlot( _nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacityToPut, nMaxCapacityToPut,
+                        nMaxCapacityToPut, 0, timeSlot.getIsOpen( ), Boolean.FALSE );
+            }
+            _listSlotOfDay.add( slotToAdd );
+        }
+        _grouper.group( _listSlotOfDay, _dequeSlotOfDay );
+        if ( _filter != null )
+        {
+            _dequeSlotOfDay.removeIf( slot -> !_filter.accept( slot ) );
+        }
+    }
+
+    /**
+     * Add a slot of the database to the slots of the day, if it is accepted by the filter
+     * 
+     * @param slot
+     *            the slot
+     */
+    private void addSlot( Slot slot )
+    {
+        if ( _filter == null || _filter.accept( slot ) )
+        {
+            _dequeSlotOfDay.add( slot );
+        }
+    }
+
+    /**
+     * Build a slot from the rules and add it to the slots of the day, if it is accepted by the filter. A slot rejected is not built
+     * 
+     * @param startingDateTime
+     *            the starting date time of the slot
+     * @param date
+     *            the day of the slot
+     * @param endingTime
+     *            the ending time of the slot
+     * @param nMaxCapacity
+     *            the capacity of the slot
+     * @param bIsOpen
+     *            true if the slot is open
+     */
+    private void addSlot( LocalDateTime startingDateTime, LocalDate date, LocalTime endingTime, int nMaxCapacity, boolean bIsOpen )
+    {
+        if ( _filter == null || _filter.accept( startingDateTime, bIsOpen, nMaxCapacity, nMaxCapacity ) )
+        {
+            _dequeSlotOfDay.add( SlotService.buildSlot( _nIdForm, new Period( startingDateTime, date.atTime( endingTime ) ), nMaxCapacity, nMaxCapacity,
+                    nMaxCapacity, 0, bIsOpen, false ) );
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+
+/**
+ * Grouping of the consecutive slots of a day for the appointments on several slots: each window of consecutive available slots offering the number of places
+ * to take gives a grouped slot. The windows are found in one pass, over arrays of the availability of the slots of the day. The full flag of a grouped slot
+ * also takes the full slots counted since the previous grouped slot (of the previous runs and days), as the calendar always did. Not thread safe
+ */
+public final class SlotGrouper
+{
+    private final int _nNbPlaces;
+    private final boolean _bAllOpenSlot;
+    private final LocalDateTime _dateTimeNow;
+    private boolean [ ] _available = new boolean [ 0];
+    private boolean [ ] _full = new boolean [ 0];
+    // Full slots counted since the last grouped slot
+    private boolean _bCarryFull;
+
+    /**
+     * Constructor
+     * 
+     * @param nNbPlaces
+     *            the number of places to take (number of consecutive slots of a group)
+     * @param bAllOpenSlot
+     *            group all the open slots, even the full ones
+     * @param dateTimeNow
+     *            the current date time, the passed slots are not available
+     */
+    public SlotGrouper( int nNbPlaces, boolean bAllOpenSlot, LocalDateTime dateTimeNow )
+    {
+        _nNbPlaces = nNbPlaces;
+        _bAllOpenSlot = bAllOpenSlot;
+        _dateTimeNow = dateTimeNow;
+    }
+
+    /**
+     * Group the consecutive slots of a day
+     * 
+     * @param listSlotOfDay
+     *            the consecutive slots of the day, in order
+     * @param listGroupedSlot
+     *            the collection receiving the grouped slots, in order
+     */
+    public void group( List<Slot> listSlotOfDay, Collection<Slot> listGroupedSlot )
+    {
+        int nbSlots = listSlotOfDay.size( );
+        if ( _available.length < nbSlots )
+        {
+            _available = new boolean [ nbSlots];
+            _full = new boolean [ nbSlots];
+        }
+        for ( int i = 0; i < nbSlots; i++ )
+        {
+            Slot slot = listSlotOfDay.get( i );
+            _available [i] = isAvailable( slot );
+            _full [i] = slot.getNbPotentialRemainingPlaces( ) <= 0;
+        }
+        int nStartOfRun = -1;
+        for ( int i = 0; i <= nbSlots; i++ )
+        {
+            if ( i < nbSlots && _available [i] )
+            {
+                if ( nStartOfRun < 0 )
+                {
+                    nStartOfRun = i;
+                }
+            }
+            else
+                if ( nStartOfRun >= 0 )
+                {
+                    groupRun( listSlotOfDay, nStartOfRun, i, listGroupedSlot );
+                    nStartOfRun = -1;
+                }
+        }
+    }
+
+    /**
+     * Build the grouped slots of a run of available slots with a sliding window
+     * 
+     * @param listSlotOfDay
+     *            the slots of the day
+     * @param nStart
+     *            the index of the first slot of the run
+     * @param nEnd
+     *            the index after the last slot of the run
+     * @param listGroupedSlot
+     *            the collection receiving the grouped slots
+     */
+    private void groupRun( List<Slot> listSlotOfDay, int nStart, int nEnd, Collection<Slot> listGroupedSlot )
+    {
+        if ( nEnd - nStart < _nNbPlaces )
+        {
+            for ( int i = nStart; i < nEnd; i++ )
+            {
+                _bCarryFull |= _full [i];
+            }
+            return;
+        }
+        int nbFullInWindow = 0;
+        for ( int i = nStart; i < nEnd; i++ )
+        {
+            if ( _full [i] )
+            {
+                nbFullInWindow++;
+            }
+            int nFirst = i - _nNbPlaces + 1;
+            if ( nFirst > nStart && _full [nFirst - 1] )
+            {
+                nbFullInWindow--;
+            }
+            if ( nFirst >= nStart )
+            {
+                listGroupedSlot.add( buildGroupedSlot( listSlotOfDay.get( nFirst ), listSlotOfDay.get( i ), _bCarryFull || nbFullInWindow > 0 ) );
+                _bCarryFull = false;
+            }
+        }
+        // The slots after the first one of the last window are counted again after it
+        for ( int i = nEnd - _nNbPlaces + 1; i < nEnd; i++ )
+        {
+            _bCarryFull |= _full [i];
+        }
+    }
+
+    /**
+     * Check if a slot can be part of a group
+     * 
+     * @param slot
+     *            the slot
+     * @return true if the slot is open, not passed and, unless all the open slots are grouped, not full
+     */
+    private boolean isAvailable( Slot slot )
+    {
+        return slot.getIsOpen( ) && !slot.getEndingDateTime( ).isBefore( _dateTimeNow ) && ( _bAllOpenSlot || slot.getNbPotentialRemainingPlaces( ) > 0 );
+    }
+
+    /**
+     * Build a grouped slot
+     * 
+     * @param firstSlot
+     *            the first slot of the group
+     * @param lastSlot
+     *            the last slot of the group
+     * @param bFull
+     *            true if the group is tagged as full
+     * @return the grouped slot
+     */
+    private Slot buildGroupedSlot( Slot firstSlot, Slot lastSlot, boolean bFull )
+    {
+        Slot slot = new Slot( );
+        slot.setStartingDateTime( firstSlot.getStartingDateTime( ) );
+        slot.setEndingDateTime( lastSlot.getEndingDateTime( ) );
+        slot.setIsOpen( true );
+        slot.setNbPotentialRemainingPlaces( _nNbPlaces );
+        slot.setNbRemainingPlaces( _nNbPlaces );
+        slot.setDate( lastSlot.getDate( ) );
+        slot.setIdForm( lastSlot.getIdForm( ) );
+        slot.setIsFull( bFull ? 1 : 0 );
+        return slot;
+    }
+}
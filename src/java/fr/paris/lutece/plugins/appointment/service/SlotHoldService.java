@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHoldHome;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotHoldTimingWheel;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotLockAcquisition;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Service managing the places held on the slots while the users fill the appointment form. The holds are stored in database with their expiry date, so they
+ * survive a restart and are shared by all the nodes: the expired holds are released by batches, whichever node created them. The holds created by this node
+ * are also scheduled in a timing wheel, which releases them at the tick of their expiry: all the holds expiring in the same tick are released together
+ */
+public final class SlotHoldService
+{
+    // Properties
+    private static final String PROPERTY_RELEASE_BATCH_SIZE = "appointment.slotHold.release.batchSize";
+
+    private static final String PROPERTY_TICK_DURATION = "appointment.slotHold.tick.duration";
+
+    private static final int DEFAULT_RELEASE_BATCH_SIZE = 500;
+    private static final int DEFAULT_TICK_DURATION = 1000;
+
+    private static SlotHoldTimingWheel _timingWheel;
+    private static ScheduledExecutorService _tickExecutor;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotHoldService( )
+    {
+    }
+
+    /**
+     * Create a hold on a slot. The places held must be taken from the potential remaining places of the slot by the caller
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @param nExpiryMinutes
+     *            the duration of the hold in minutes
+     * @return the hold
+     */
+    public static SlotHold createHold( int nIdSlot, int nbPlaces, int nExpiryMinutes )
+    {
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setToken( UUID.randomUUID( ).toString( ) );
+        slotHold.setIdSlot( nIdSlot );
+        slotHold.setNbPlaces( nbPlaces );
+        slotHold.setDateExpiry( LocalDateTime.now( ).plusMinutes( nExpiryMinutes ) );
+        SlotHoldHome.create( slotHold );
+        getTimingWheel( ).schedule( new SlotEditTask( slotHold ), toMillis( slotHold.getDateExpiry( ) ) );
+        return slotHold;
+    }
+
+    /**
+     * Check if a hold has expired
+     * 
+     * @param strToken
+     *            the token of the hold
+     * @return true if the hold has expired or has been released
+     */
+    public static boolean isExpired( String strToken )
+    {
+        SlotHold slotHold = SlotHoldHome.findByToken( strToken );
+        return slotHold == null || slotHold.getDateExpiry( ).isBefore( LocalDateTime.now( ) );
+    }
+
+    /**
+     * Remove a hold whose places have been taken by an appointment. The places are not given back to the slot
+     * 
+     * @param strToken
+     *            the token of the hold
+     */
+    public static void removeHold( String strToken )
+    {
+        getTimingWheel( ).cancel( strToken );
+        SlotHoldHome.delete( strToken );
+    }
+
+    /**
+     * Release the holds of the timing wheel expired since the last tick. The holds are released together, with one update and one notification per slot
+     */
+    public static void expireHolds( )
+    {
+        SlotHoldTimingWheel timingWheel = getTimingWheel( );
+        List<SlotEditTask> listTask = timingWheel.advance( System.currentTimeMillis( ) );
+        if ( listTask.isEmpty( ) )
+        {
+            return;
+        }
+        List<SlotHold> listSlotHold = new ArrayList<>( listTask.size( ) );
+        for ( SlotEditTask task : listTask )
+        {
+            listSlotHold.add( task.getSlotHold( ) );
+        }
+        try
+        {
+            if ( releaseHolds( listSlotHold ) < 0 )
+            {
+                // The slots are locked by bookings, the holds are released by the next tick
+                for ( SlotEditTask task : listTask )
+                {
+                    timingWheel.schedule( task, System.currentTimeMillis( ) );
+                }
+            }
+        }
+        catch( Exception e )
+        {
+            // The holds are still in database, they are released by the SlotHoldDaemon
+            AppLogService.error( "Error releasing the expired slot holds", e );
+        }
+    }
+
+    /**
+     * Stop the ticks of the timing wheel. The holds not expired are kept in database, they are released by the SlotHoldDaemon
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _tickExecutor != null )
+        {
+            _tickExecutor.shutdownNow( );
+            _tickExecutor = null;
+        }
+    }
+
+    /**
+     * Get the timing wheel of the holds, and start its ticks on the first call
+     * 
+     * @return the timing wheel
+     */
+    private static synchronized SlotHoldTimingWheel getTimingWheel( )
+    {
+        if ( _timingWheel == null )
+        {
+            int nTickDuration = AppPropertiesService.getPropertyInt( PROPERTY_TICK_DURATION, DEFAULT_TICK_DURATION );
+            _timingWheel = new SlotHoldTimingWheel( nTickDuration, System.currentTimeMillis( ) );
+            _tickExecutor = Executors.newSingleThreadScheduledExecutor( new CustomizableThreadFactory( "Lutece-AppointmentSlotHold-thread-" ) );
+            _tickExecutor.scheduleWithFixedDelay( SlotHoldService::expireHolds, nTickDuration, nTickDuration, TimeUnit.MILLISECONDS );
+        }
+        return _timingWheel;
+    }
+
+    /**
+     * Convert a date time to milliseconds
+     * 
+     * @param dateTime
+     *            the date time
+     * @return the number of milliseconds since the epoch
+     */
+    private static long toMillis( LocalDateTime dateTime )
+    {
+        return dateTime.atZone( ZoneId.systemDefault( ) ).toInstant( ).toEpochMilli( );
+    }
+
+    /**
+     * Release all the holds that have expired, by batches
+     * 
+     * @return the number of holds released
+     */
+    public static int releaseExpiredHolds( )
+    {
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_RELEASE_BATCH_SIZE, DEFAULT_RELEASE_BATCH_SIZE );
+        int nbReleased = 0;
+        List<SlotHold> listSlotHold;
+        do
+        {
+            listSlotHold = SlotHoldHome.findExpired( LocalDateTime.now( ), nBatchSize );
+            int nbReleasedInBatch = releaseHolds( listSlotHold );
+            if ( nbReleasedInBatch < 0 )
+            {
+                // The slots are locked by bookings, the holds will be released by the next run
+                break;
+            }
+            nbReleased += nbReleasedInBatch;
+        }
+        while ( listSlotHold.size( ) == nBatchSize );
+        return nbReleased;
+    }
+
+    /**
+     * Release holds and give back their places to the potential remaining places of the slots. The places of all the holds of a slot are given back with one
+     * update, and each slot is notified once
+     * 
+     * @param listSlotHold
+     *            the holds to release
+     * @return the number of holds released, -1 if the locks of the slots could not be taken
+     */
+    public static int releaseHolds( Collection<SlotHold> listSlotHold )
+    {
+        if ( listSlotHold.isEmpty( ) )
+        {
+            return 0;
+        }
+        Map<Integer, Integer> mapPlacesBySlot = new TreeMap<>( );
+        for ( SlotHold slotHold : listSlotHold )
+        {
+            mapPlacesBySlot.merge( slotHold.getIdSlot( ), slotHold.getNbPlaces( ), Integer::sum );
+        }
+        SlotLockAcquisition slotLocks = null;
+        int nbReleased = 0;
+        // The locks are taken in the transaction, so that the locks in database are taken on the connection of the transaction
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        try
+        {
+            slotLocks = SlotSafeService.lockSlots( mapPlacesBySlot.keySet( ) );
+            if ( !slotLocks.isAcquired( ) )
+            {
+                TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+                AppLogService.info( "Slot holds not released, slots locked: " + slotLocks.getListIdSlotContended( ) );
+                return -1;
+            }
+            // Only the holds deleted here give back their places: a hold removed in the meantime (by another node or by a booking) is skipped
+            mapPlacesBySlot.clear( );
+            for ( SlotHold slotHold : listSlotHold )
+            {
+                if ( SlotHoldHome.delete( slotHold.getToken( ) ) )
+                {
+                    mapPlacesBySlot.merge( slotHold.getIdSlot( ), slotHold.getNbPlaces( ), Integer::sum );
+                    nbReleased++;
+                }
+            }
+            for ( Map.Entry<Integer, Integer> entry : mapPlacesBySlot.entrySet( ) )
+            {
+                SlotHome.addPotentialRemainingPlaces( entry.getKey( ), entry.getValue( ) );
+            }
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+        }
+        catch( InterruptedException e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            Thread.currentThread( ).interrupt( );
+            return -1;
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            throw new AppException( "Error releasing the slot holds " + e.getMessage( ), e );
+        }
+        finally
+        {
+            if ( slotLocks != null )
+            {
+                slotLocks.release( );
+            }
+        }
+        for ( int nIdSlot : mapPlacesBySlot.keySet( ) )
+        {
+            SlotListenerManager.notifyListenersSlotChange( nIdSlot );
+        }
+        return nbReleased;
+    }
+}
@@ -38,27 +38,23 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.collections.CollectionUtils;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
-import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
@@ -70,24 +66,34 @@ import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.exception.AppointmentSavedException;
 import fr.paris.lutece.plugins.appointment.exception.SlotEditTaskExpiredTimeException;
 import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.exception.SlotLockContendedException;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLock;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLockProvider;
+import fr.paris.lutece.plugins.appointment.service.lock.LockWaitMetrics;
+import fr.paris.lutece.plugins.appointment.service.lock.MemorySlotLockProvider;
 import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotLockAcquisition;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
-import fr.paris.lutece.portal.business.user.AdminUser;
-import fr.paris.lutece.portal.service.admin.AdminUserService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.portal.service.workflow.WorkflowService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.web.l10n.LocaleService;
 import fr.paris.lutece.util.sql.TransactionManager;
 
 public final class SlotSafeService
 {
 
-    private static final ConcurrentMap<Integer, Lock> _listSlot = new ConcurrentHashMap<>( );
-    private static final ConcurrentMap<Integer, Object> _lockFormId = new ConcurrentHashMap<>( );
+    // Properties
+    private static final String PROPERTY_ATOMIC_BOOKING = "appointment.booking.atomic.enabled";
+    private static final String PROPERTY_SLOT_LOCK_TIMEOUT = "appointment.booking.lock.timeout";
+
+    private static final int DEFAULT_SLOT_LOCK_TIMEOUT = 3000;
+
+    private static final ISlotLockProvider _lockProvider = SpringContextService.getBean( "appointment.slotLockProvider" );
 
     /**
      * Private constructor - this class does not need to be instantiated
@@ -100,11 +106,22 @@ public final class SlotSafeService
      * Get the slot in memory
      * 
      * @return Map of slot
+     * @deprecated the locks are striped by id of slot and are no longer kept by slot, the map is always empty
      */
+    @Deprecated
     public static Map<Integer, Lock> getListSlotInMemory( )
     {
+        return Collections.emptyMap( );
+    }
 
-        return _listSlot;
+    /**
+     * Get the metrics of the time waited for the locks on the slots and the forms
+     * 
+     * @return the metrics
+     */
+    public static LockWaitMetrics getLockWaitMetrics( )
+    {
+        return _lockProvider.getLockWaitMetrics( );
     }
 
     /**
@@ -114,14 +131,13 @@ public final class SlotSafeService
      *            the Id Slot
      * @return return the lock
      */
-    public static Lock getLockOnSlot( int nIdSlot )
+    public static ISlotLock getLockOnSlot( int nIdSlot )
     {
         if ( nIdSlot == 0 )
         {
-            return new ReentrantLock( );
+            return MemorySlotLockProvider.createUnsharedLock( );
         }
-        _listSlot.putIfAbsent( nIdSlot, new ReentrantLock( ) );
-        return _listSlot.get( nIdSlot );
+        return _lockProvider.getLockOnSlot( nIdSlot );
     }
 
     /**
@@ -129,11 +145,12 @@ public final class SlotSafeService
      * 
      * @param nIdSlot
      *            the Id Slot
+     * @deprecated the locks are striped by id of slot and are no longer kept by slot, there is nothing to remove
      */
+    @Deprecated
     public static void removeSlotInMemory( int nIdSlot )
     {
-
-        _listSlot.remove( nIdSlot );
+        // The lock of the slot is the lock of its stripe
     }
 
     /**
@@ -143,10 +160,9 @@ public final class SlotSafeService
      *            Id from
      * @return return lock
      */
-    private static Object getLockOnForm( int nIdform )
+    private static ISlotLock getLockOnForm( int nIdform )
     {
-        _lockFormId.putIfAbsent( nIdform, new Object( ) );
-        return _lockFormId.get( nIdform );
+        return _lockProvider.getLockOnForm( nIdform );
     }
 
     /**
@@ -157,8 +173,9 @@ public final class SlotSafeService
      */
     public static Slot createSlot( Slot slot )
     {
-        Object formLock = getLockOnForm( slot.getIdForm( ) );
-        synchronized( formLock )
+        ISlotLock formLock = getLockOnForm( slot.getIdForm( ) );
+        formLock.lock( );
+        try
         {
             Slot slotSaved = null;
             HashMap<LocalDateTime, Slot> slotInDbMap = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( slot.getIdForm( ),
@@ -177,6 +194,10 @@ public final class SlotSafeService
             return slotSaved;
 
         }
+        finally
+        {
+            formLock.unlock( );
+        }
     }
 
     /**
@@ -199,8 +220,7 @@ public final class SlotSafeService
         int index = 0;
         List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
         Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
-        List<Slot> listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startindDateTime.toLocalDate( ), endingDateTime.toLocalDate( ) );
-        listSlot = listSlot.stream( )
+        List<Slot> listSlot = SlotService.streamSlot( nIdForm, mapReservationRule, startindDateTime.toLocalDate( ), endingDateTime.toLocalDate( ) )
                 .filter( slt -> slt.getEndingDateTime( ).isBefore( endingDateTime ) && slt.getEndingDateTime( ).isAfter( startindDateTime ) )
                 .collect( Collectors.toList( ) );
         for ( Slot slot : listSlot )
@@ -240,7 +260,7 @@ public final class SlotSafeService
         {
             editSlot = slot;
         }
-        Lock lock = getLockOnSlot( editSlot.getIdSlot( ) );
+        ISlotLock lock = getLockOnSlot( editSlot.getIdSlot( ) );
         lock.lock( );
         try
         {
@@ -265,35 +285,23 @@ public final class SlotSafeService
      * 
      * @param task
      *            the task timer
+     * @return the slot updated, null if it does not exist
+     * @deprecated the holds are released by the timing wheel of the {@link SlotHoldService}; the places are given back with a single update in database
      */
+    @Deprecated
     public static Slot incrementPotentialRemainingPlaces( SlotEditTask task )
     {
-        Lock lock = getLockOnSlot( task.getIdSlot( ) );
-        Slot slot;
-        lock.lock( );
-        try
-        {
-            slot = SlotService.findSlotById( task.getIdSlot( ) );
-            if ( slot != null )
-            {
-
-                int nNewPotentialRemainingPlaces = Math.min( slot.getNbPotentialRemainingPlaces( ) + task.getNbPlacesTaken( ), slot.getNbRemainingPlaces( ) );
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                SlotHome.updatePotentialRemainingPlaces( nNewPotentialRemainingPlaces, slot.getIdSlot( ) );
-                SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
-
-            }
-        }
-        finally
+        SlotHome.addPotentialRemainingPlaces( task.getIdSlot( ), task.getNbPlacesTaken( ) );
+        Slot slot = SlotService.findSlotById( task.getIdSlot( ) );
+        if ( slot != null )
         {
-            lock.unlock( );
-
+            SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
         }
         return slot;
     }
 
     /**
-     * Update potential remaining places
+     * Update potential remaining places. The places are removed with a single update in database, so no lock is needed
      * 
      * @param nbPotentialRemainingPlaces
      *            the nbPotentialRemainingPlaces
@@ -302,28 +310,10 @@ public final class SlotSafeService
      */
     public static void decrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot )
     {
-
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
+        if ( SlotHome.removePotentialRemainingPlaces( nIdSlot, nbPotentialRemainingPlaces ) )
         {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                int nNewPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( ) - nbPotentialRemainingPlaces;
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                SlotHome.updatePotentialRemainingPlaces( nNewPotentialRemainingPlaces, nIdSlot );
-                SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
-
-            }
-
-        }
-        finally
-        {
-
-            lock.unlock( );
+            SlotListenerManager.notifyListenersSlotChange( nIdSlot );
         }
-
     }
 
     /**
@@ -337,7 +327,7 @@ public final class SlotSafeService
     {
         Locale locale = null;
         User user = appointmentDTO.getUser( );
-        List<Lock> listLock = new ArrayList<>( );
+        SlotLockAcquisition slotLocks = null;
         // change date appointment
         boolean isReport = appointmentDTO.getIdAppointment( ) != 0;
         if ( appointmentDTO.getIsSaved( ) )
@@ -355,54 +345,97 @@ public final class SlotSafeService
             }
         }
         AppointmentService.buildListAppointmentSlot( appointmentDTO );
+        Appointment appointment;
+        Set<Integer> listSlotUpdated;
+        // Flash crowd mode: the places are claimed by the writers of the slot queues before the transaction, and given back if the appointment is not saved
+        List<Integer> listSlotClaimed = null;
+        if ( SlotBookingQueueService.isQueued( appointmentDTO ) )
+        {
+            listSlotClaimed = SlotBookingQueueService.claimPlaces( appointmentDTO );
+        }
+        // Phase 1: claim the places and persist the appointment, the locks on the slots are held for this short transaction only
         TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
         try
         {
-            Set<Integer> listSlotUpdated = saveSlots( appointmentDTO, listLock, request );
             if ( !isReport )
             {
                 user = UserService.saveUser( appointmentDTO );
             }
-            // Create or update the appointment
-            Appointment appointment = AppointmentService.buildAndCreateAppointment( appointmentDTO, user );
-            if ( !isReport && CollectionUtils.isNotEmpty( appointmentDTO.getListResponse( ) ) )
+            List<Response> listResponse = isReport ? Collections.emptyList( ) : appointmentDTO.getListResponse( );
+            if ( CollectionUtils.isNotEmpty( listResponse ) )
             {
-                for ( Response response : appointmentDTO.getListResponse( ) )
+                for ( Response response : listResponse )
                 {
                     ResponseHome.create( response );
-                    AppointmentResponseService.insertAppointmentResponse( appointment.getIdAppointment( ), response.getIdResponse( ) );
                 }
             }
-            processeActionWorkflow( appointment, request, locale, appointmentDTO.getIdForm( ), isReport );
-            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
-            appointmentDTO.setIdAppointment( appointment.getIdAppointment( ) );
-            appointmentDTO.setIsSaved( true );
-            notifyListner( appointment, listSlotUpdated, isReport, locale );
-            if ( request != null )
+            if ( listSlotClaimed != null )
             {
-                for ( AppointmentSlot apptSlot : appointmentDTO.getListAppointmentSlot( ) )
+                listSlotUpdated = new HashSet<>( listSlotClaimed );
+            }
+            else
+                if ( isAtomicBookingEnabled( ) )
                 {
-                    AppointmentUtilities.cancelTaskTimer( request, apptSlot.getIdSlot( ) );
+                    listSlotUpdated = saveSlotsWithAtomicUpdates( appointmentDTO, request );
+                }
+                else
+                {
+                    slotLocks = acquireSlotLocks( appointmentDTO );
+                    if ( !slotLocks.isAcquired( ) )
+                    {
+                        AppLogService.info( "SLOTS LOCKED BY ANOTHER BOOKING, ID SLOTS: " + slotLocks.getListIdSlotContended( ) );
+                        throw new SlotLockContendedException( "ERROR SLOT LOCKED", slotLocks.getListIdSlotContended( ) );
+                    }
+                    listSlotUpdated = saveSlots( appointmentDTO, request );
+                }
+            // Create or update the appointment
+            appointment = AppointmentService.buildAndCreateAppointment( appointmentDTO, user );
+            if ( CollectionUtils.isNotEmpty( listResponse ) )
+            {
+                for ( Response response : listResponse )
+                {
+                    AppointmentResponseService.insertAppointmentResponse( appointment.getIdAppointment( ), response.getIdResponse( ) );
                 }
             }
-            appointmentDTO.setReference(appointment.getReference( ));
-            appointmentDTO.setUser( user );
-            return appointment.getIdAppointment( );
-
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+        }
+        catch( SlotLockContendedException e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            throw e;
         }
         catch( Exception e )
         {
             TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            if ( listSlotClaimed != null )
+            {
+                SlotBookingQueueService.releasePlaces( appointmentDTO, listSlotClaimed );
+            }
             AppLogService.error( "Error Save appointment " + e.getMessage( ), e );
             throw new SlotFullException( e.getMessage( ), e );
         }
         finally
         {
-            for ( Lock lock : listLock )
+            if ( slotLocks != null )
+            {
+                slotLocks.release( );
+            }
+        }
+        appointmentDTO.setIdAppointment( appointment.getIdAppointment( ) );
+        appointmentDTO.setIsSaved( true );
+        appointmentDTO.setReference( appointment.getReference( ) );
+        appointmentDTO.setUser( user );
+        if ( request != null )
+        {
+            for ( AppointmentSlot apptSlot : appointmentDTO.getListAppointmentSlot( ) )
             {
-                lock.unlock( );
+                AppointmentUtilities.cancelTaskTimer( request, apptSlot.getIdSlot( ) );
             }
         }
+        // Phase 2: the appointment is saved, a failure of the workflow leaves it pending for the daemon
+        AppointmentWorkflowService.processWorkflow( appointment, request, locale, appointmentDTO.getIdForm( ), isReport );
+        notifyListner( appointment, listSlotUpdated, isReport, locale );
+        return appointment.getIdAppointment( );
     }
 
     /**
@@ -440,42 +473,10 @@ public final class SlotSafeService
         }
     }
 
-    /**
-     * Process Action workflow
-     * 
-     * @param appointment
-     *            the appointment
-     * @param request
-     *            the request
-     * @param locale
-     *            the locale
-     * @param nIdFom
-     *            the id appointment form
-     * @param isReport
-     *            true if it is a postponement of appointment
-     */
-    private static void processeActionWorkflow( Appointment appointment, HttpServletRequest request, Locale locale, int nIdFom, boolean isReport )
-    {
-
-        Form form = FormService.findFormLightByPrimaryKey( nIdFom );
-        if ( form.getIdWorkflow( ) > 0 )
-        {
-            WorkflowService.getInstance( ).getState( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE, form.getIdWorkflow( ),
-                    form.getIdForm( ) );
-
-            if ( isReport && appointment.getIdActionReported( ) != 0 )
-            {
-                AdminUser adminUser = ( request != null ) ? AdminUserService.getAdminUser( request ) : null;
-                WorkflowService.getInstance( ).doProcessAction( appointment.getIdAppointment( ), Appointment.APPOINTMENT_RESOURCE_TYPE,
-                        appointment.getIdActionReported( ), form.getIdForm( ), request, locale, adminUser == null, adminUser );
-
-            }
-        }
-    }
-
     /**
      * Set the new number of remaining places (and potential) when an appointment is deleted or cancelled This new value must take in account the capacity of
-     * the slot, in case of the slot was already over booked
+     * the slot, in case of the slot was already over booked. The places are given back with a single update in database, so that a booking taking places on
+     * the slot at the same time is not overwritten
      * 
      * @param nbPlaces
      *            the nb places taken of the appointment that we want to delete (or cancel, or move)
@@ -484,50 +485,12 @@ public final class SlotSafeService
      */
     static void updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( int nbPlaces, int nIdSlot )
     {
-        // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
-        {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                int nMaxCapacity = slot.getMaxCapacity( );
-                // The old remaining places of the slot (before we delete or cancel or move the
-                // appointment
-                int nOldRemainingPlaces = slot.getNbRemainingPlaces( );
-                int nOldPotentialRemaningPlaces = slot.getNbPotentialRemainingPlaces( );
-                int nOldPlacesTaken = slot.getNbPlacesTaken( );
-                int nNewPlacesTaken = nOldPlacesTaken - nbPlaces;
-                // The new value of the remaining places of the slot is the minimal
-                // value between :
-                // - the minimal value between the potentially new max capacity and the old remaining places plus the number of places released by the
-                // appointment
-                // - and the capacity of the slot minus the new places taken on the slot
-                int nNewRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldRemainingPlaces + nbPlaces ), ( nMaxCapacity - nNewPlacesTaken ) );
-
-                int nNewPotentialRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldPotentialRemaningPlaces + nbPlaces ),
-                        ( nMaxCapacity - nNewPlacesTaken ) );
-
-                slot.setNbRemainingPlaces( nNewRemainingPlaces );
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                slot.setNbPlacestaken( nNewPlacesTaken );
-                SlotHome.update( slot );
-            }
-        }
-        finally
-        {
-
-            lock.unlock( );
-        }
-
+        SlotHome.releasePlaces( nIdSlot, nbPlaces );
     }
 
     /**
-     * Set the new number of remaining places (and potential) when an appointment is reactivated(not reserved to reserved) This new value must take in account
-     * the capacity of the slot, in case of the slot was already over booked
+     * Set the new number of remaining places (and potential) when an appointment is reactivated(not reserved to reserved). The places are taken again with a
+     * single update in database, without checking the capacity of the slot (the slot may be over booked)
      * 
      * @param nbPlaces
      *            the nb places taken of the appointment on the slot
@@ -536,27 +499,7 @@ public final class SlotSafeService
      */
     static void updateRemaningPlacesWithAppointmentReactivated( int nbPlaces, int nIdSlot )
     {
-        // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
-        {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                slot.setNbRemainingPlaces( slot.getNbRemainingPlaces( ) - nbPlaces );
-                slot.setNbPotentialRemainingPlaces( slot.getNbPotentialRemainingPlaces( ) - nbPlaces );
-                slot.setNbPlacestaken( slot.getNbPlacesTaken( ) + nbPlaces );
-                SlotHome.update( slot );
-            }
-        }
-        finally
-        {
-
-            lock.unlock( );
-        }
-
+        SlotHome.retakePlaces( nIdSlot, nbPlaces );
     }
 
     /**
@@ -844,7 +787,7 @@ public final class SlotSafeService
         if ( workingDay != null )
         {
             endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
-            listTimeSlot = TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
+            listTimeSlot = workingDay.getListTimeSlot( );
         }
         else
         {
@@ -943,14 +886,15 @@ public final class SlotSafeService
     }
 
     /**
-     * Update a slot
+     * Update a slot. Only the dates, the opening and the capacity of the slot are written: the remaining places are shifted in database by the change of
+     * capacity, so that the places taken by the bookings since the slot was read are kept
      * 
      * @param slot
      *            the slot updated
      */
     public static Slot updateSlot( Slot slot )
     {
-        Slot slotToReturn = SlotHome.update( slot );
+        Slot slotToReturn = SlotHome.updateDefinition( slot );
         SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
         return slotToReturn;
 
@@ -973,40 +917,122 @@ public final class SlotSafeService
         }
     }
 
+    /**
+     * Stop the threads of the lock provider
+     */
+    public static void shutdown( )
+    {
+        _lockProvider.shutdown( );
+    }
+
     /**
      * Clean slotlist
+     * 
+     * @deprecated the number of locks is bounded by the number of stripes, there is nothing to clean
      */
+    @Deprecated
     public static void cleanSlotlist( )
     {
+        // The locks are striped
+    }
+
+    /**
+     * Get the number of times a thread had to wait for the lock of each stripe of slots
+     * 
+     * @return the number of contentions by index of stripe
+     */
+    public static long [ ] getSlotStripeContentions( )
+    {
+        return _lockProvider.getSlotStripeContentions( );
+    }
+
+    /**
+     * Get the number of times a thread had to wait for the lock of each stripe of forms
+     * 
+     * @return the number of contentions by index of stripe
+     */
+    public static long [ ] getFormStripeContentions( )
+    {
+        return _lockProvider.getFormStripeContentions( );
+    }
 
-        Iterator<Integer> it = _listSlot.keySet( ).iterator( );
-        int idSlot;
-        while ( it.hasNext( ) )
+    /**
+     * Take the locks of several slots, in a global order against a single deadline
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @return the acquisition of the locks, contended if a lock could not be taken in time
+     * @throws InterruptedException
+     */
+    public static SlotLockAcquisition lockSlots( Collection<Integer> listIdSlot ) throws InterruptedException
+    {
+        return SlotLockAcquisition.acquire( _lockProvider, listIdSlot,
+                AppPropertiesService.getPropertyInt( PROPERTY_SLOT_LOCK_TIMEOUT, DEFAULT_SLOT_LOCK_TIMEOUT ), TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Take the locks of the slots of an appointment, and of the slots it is moved from in case of a report. The locks are taken in a global order against a
+     * single deadline, so that two reports swapping their slots can not deadlock
+     * 
+     * @param appointmentDTO
+     *            the appointmentDTO
+     * @return the acquisition of the locks, contended if a lock could not be taken in time
+     * @throws InterruptedException
+     */
+    private static SlotLockAcquisition acquireSlotLocks( AppointmentDTO appointmentDTO ) throws InterruptedException
+    {
+        Set<Integer> setIdSlot = new HashSet<>( );
+        for ( AppointmentSlot appSlot : appointmentDTO.getListAppointmentSlot( ) )
+        {
+            setIdSlot.add( appSlot.getIdSlot( ) );
+        }
+        Set<Integer> setIdOldSlot = findIdSlotsOfAppointment( appointmentDTO.getIdAppointment( ) );
+        setIdSlot.addAll( setIdOldSlot );
+        SlotLockAcquisition slotLocks = lockSlots( setIdSlot );
+        // The appointment may have been moved to other slots while waiting for the locks
+        if ( slotLocks.isAcquired( ) && !setIdOldSlot.equals( findIdSlotsOfAppointment( appointmentDTO.getIdAppointment( ) ) ) )
         {
+            slotLocks.release( );
+            return SlotLockAcquisition.contended( new ArrayList<>( setIdOldSlot ) );
+        }
+        return slotLocks;
+    }
 
-            idSlot = it.next( );
-            Slot slot = SlotService.findSlotById( idSlot );
-            if ( slot == null || slot.getStartingDateTime( ).isBefore( LocalDateTime.now( ) ) || slot.getMaxCapacity( ) <= slot.getNbPlacesTaken( ) )
+    /**
+     * Find the ids of the slots of an appointment
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment (0 for a new appointment)
+     * @return the ids of the slots
+     */
+    private static Set<Integer> findIdSlotsOfAppointment( int nIdAppointment )
+    {
+        Set<Integer> setIdSlot = new HashSet<>( );
+        if ( nIdAppointment != 0 )
+        {
+            Appointment appointment = AppointmentService.findAppointmentById( nIdAppointment );
+            if ( appointment != null )
             {
-                _listSlot.remove( idSlot );
+                for ( AppointmentSlot appSlot : appointment.getListAppointmentSlot( ) )
+                {
+                    setIdSlot.add( appSlot.getIdSlot( ) );
+                }
             }
-
         }
+        return setIdSlot;
     }
 
     /**
-     * Save and update slots
+     * Save and update slots. The locks of the slots must be held by the caller
      * 
      * @param appointmentDTO
      *            the appointmentDTO
      * @return list id slot updated
-     * @throws InterruptedException
      */
-    private static Set<Integer> saveSlots( AppointmentDTO appointmentDTO, List<Lock> listLock, HttpServletRequest request ) throws InterruptedException, CloneNotSupportedException
+    private static Set<Integer> saveSlots( AppointmentDTO appointmentDTO, HttpServletRequest request ) throws CloneNotSupportedException
     {
         Appointment oldAppointment = null;
         List<Slot> listOldSlot = new ArrayList<>( );
-        List<Slot> listSlotToUpdate = new ArrayList<>( );
         int nbSumRemainingPlaces = 0;
         // if it's an update for modification of the date of the appointment
         if ( appointmentDTO.getIdAppointment( ) != 0 )
@@ -1019,15 +1045,6 @@ public final class SlotSafeService
             // Need to update the old slot
             for ( AppointmentSlot appointmentSlot : oldAppointment.getListAppointmentSlot( ) )
             {
-                Lock lock = getLockOnSlot( appointmentSlot.getIdSlot( ) );
-                if ( lock.tryLock( 3, TimeUnit.SECONDS ) )
-                {
-                    listLock.add( lock );
-                }
-                else
-                {
-                    throw new SlotFullException( "ERROR SLOT LOCKED" );
-                }
                 Slot slt = SlotService.findSlotById( appointmentSlot.getIdSlot( ) );
                 oldAppointment.addSlot( slt.clone( ) );
                 slt = updateRemaningPlacesWithAppointmentMoved( appointmentSlot.getNbPlaces( ), slt );
@@ -1049,15 +1066,6 @@ public final class SlotSafeService
             }
             else
             {
-                Lock lock = getLockOnSlot( appSlot.getIdSlot( ) );
-                if ( lock.tryLock( 3, TimeUnit.SECONDS ) )
-                {
-                    listLock.add( lock );
-                }
-                else
-                {
-                    throw new SlotFullException( "ERROR SLOT LOCKED" );
-                }
                 slt = SlotService.findSlotById( appSlot.getIdSlot( ) );
             }
             if ( slt == null || ( ( appSlot.getNbPlaces( ) > slt.getNbRemainingPlaces( ) && !appointmentDTO.getOverbookingAllowed( ) )
@@ -1070,7 +1078,6 @@ public final class SlotSafeService
             nbSumRemainingPlaces = nbSumRemainingPlaces + slt.getNbRemainingPlaces( );
             // Update of the remaining places of the slot and appointmentDTO if over booking Allowed
             updateRemaningPlacesAndappointmentDTO( appSlot.getNbPlaces( ), slt, appointmentDTO );
-            listSlotToUpdate.add( slt );
         }
         // this test is for form with the possibility of taking several appointments on the same slot
         if ( appointmentDTO.getNbBookedSeats( ) > nbSumRemainingPlaces && !appointmentDTO.getOverbookingAllowed( ) )
@@ -1078,25 +1085,125 @@ public final class SlotSafeService
             AppLogService.error( "ERROR SLOT FULL" );
             throw new SlotFullException( "ERROR SLOT FULL" );
         }
-        listSlotToUpdate.addAll( listOldSlot );
-        return updateListSlots( listSlotToUpdate );
+        return updateListSlots( oldAppointment, appointmentDTO );
+
+    }
+
+    /**
+     * Check if the places of the slots are taken with conditional updates in database instead of the locks on the slots
+     * 
+     * @return true if the atomic booking is enabled
+     */
+    private static boolean isAtomicBookingEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ATOMIC_BOOKING, false );
+    }
 
+    /**
+     * Save and update slots without any lock in memory: the places of each slot are taken with one conditional update, the database row lock held until the
+     * end of the transaction protects the slot against concurrent bookings (on this node or on another one). The other writers of the places of the slots
+     * (cancellations, reactivations, holds, edits of the capacity) also update them with deltas in database, so none of them overwrites the places taken here
+     * 
+     * @param appointmentDTO
+     *            the appointmentDTO
+     * @param request
+     *            the request
+     * @return list id slot updated
+     * @throws CloneNotSupportedException
+     */
+    private static Set<Integer> saveSlotsWithAtomicUpdates( AppointmentDTO appointmentDTO, HttpServletRequest request ) throws CloneNotSupportedException
+    {
+        Set<Integer> listSlotUpdated = new HashSet<>( );
+        // if it's an update for modification of the date of the appointment
+        if ( appointmentDTO.getIdAppointment( ) != 0 )
+        {
+            Appointment oldAppointment = AppointmentService.findAppointmentById( appointmentDTO.getIdAppointment( ) );
+            if ( oldAppointment.getIsCancelled( ) )
+            {
+                throw new SlotFullException( "ERROR APPOINTMENT CANCELLED " );
+            }
+            // Give back the places of the old slots
+            for ( AppointmentSlot appointmentSlot : oldAppointment.getListAppointmentSlot( ) )
+            {
+                Slot slt = SlotService.findSlotById( appointmentSlot.getIdSlot( ) );
+                oldAppointment.addSlot( slt.clone( ) );
+                SlotHome.releasePlaces( appointmentSlot.getIdSlot( ), appointmentSlot.getNbPlaces( ) );
+                listSlotUpdated.add( appointmentSlot.getIdSlot( ) );
+            }
+            if ( request != null )
+            {
+                request.setAttribute( AppointmentUtilities.OLD_APPOINTMENT_DTO, AppointmentUtilities.buildAppointmentDTO( oldAppointment ) );
+            }
+        }
+        int nbPlacesTaken = 0;
+        for ( AppointmentSlot appSlot : appointmentDTO.getListAppointmentSlot( ) )
+        {
+            boolean bPlacesTaken = SlotHome.takePlaces( appSlot.getIdSlot( ), appSlot.getNbPlaces( ), appointmentDTO.getNbMaxPotentialBookedSeats( ), true );
+            if ( !bPlacesTaken && appointmentDTO.getOverbookingAllowed( ) )
+            {
+                bPlacesTaken = SlotHome.takePlaces( appSlot.getIdSlot( ), appSlot.getNbPlaces( ), appointmentDTO.getNbMaxPotentialBookedSeats( ), false );
+                if ( bPlacesTaken )
+                {
+                    appointmentDTO.setIsSurbooked( true );
+                }
+            }
+            if ( !bPlacesTaken )
+            {
+                AppLogService.error( "ERROR SLOT FULL, ID SLOT: " + appSlot.getIdSlot( ) );
+                throw new SlotFullException( "ERROR SLOT FULL " );
+            }
+            nbPlacesTaken = nbPlacesTaken + appSlot.getNbPlaces( );
+            listSlotUpdated.add( appSlot.getIdSlot( ) );
+        }
+        // this test is for form with the possibility of taking several appointments on the same slot
+        // it is already guaranteed by the conditional updates unless more seats are booked than the places taken on the slots
+        if ( appointmentDTO.getNbBookedSeats( ) > nbPlacesTaken && !appointmentDTO.getOverbookingAllowed( ) )
+        {
+            int nbSumRemainingPlaces = nbPlacesTaken;
+            for ( AppointmentSlot appSlot : appointmentDTO.getListAppointmentSlot( ) )
+            {
+                nbSumRemainingPlaces = nbSumRemainingPlaces + SlotService.findSlotById( appSlot.getIdSlot( ) ).getNbRemainingPlaces( );
+            }
+            if ( appointmentDTO.getNbBookedSeats( ) > nbSumRemainingPlaces )
+            {
+                AppLogService.error( "ERROR SLOT FULL" );
+                throw new SlotFullException( "ERROR SLOT FULL" );
+            }
+        }
+        return listSlotUpdated;
     }
 
     /**
-     * Update slots passed in the parmaters
+     * Update the slots of an appointment checked by saveSlots: the places of the old slots are given back, then the places of the new slots are taken, each
+     * with a single update in database. The slots are not written with the values computed in memory, so that the writers which do not hold the locks of the
+     * slots (cancellations, holds, edits of the capacity) are not overwritten
      * 
-     * @param listSlotToUpdate
-     *            the list of slot to update
+     * @param oldAppointment
+     *            the appointment before its date is changed, null for a new appointment
+     * @param appointmentDTO
+     *            the appointmentDTO
      * @return ids list slot Updated
      */
-    private static Set<Integer> updateListSlots( List<Slot> listSlotToUpdate )
+    private static Set<Integer> updateListSlots( Appointment oldAppointment, AppointmentDTO appointmentDTO )
     {
         Set<Integer> listSlot = new HashSet<>( );
-        for ( Slot slot : listSlotToUpdate )
+        if ( oldAppointment != null )
+        {
+            for ( AppointmentSlot appointmentSlot : oldAppointment.getListAppointmentSlot( ) )
+            {
+                SlotHome.releasePlaces( appointmentSlot.getIdSlot( ), appointmentSlot.getNbPlaces( ) );
+                listSlot.add( appointmentSlot.getIdSlot( ) );
+            }
+        }
+        for ( AppointmentSlot appSlot : appointmentDTO.getListAppointmentSlot( ) )
         {
-            SlotHome.update( slot );
-            listSlot.add( slot.getIdSlot( ) );
+            // The capacity has already been checked, the update fails only if the slot has ended meanwhile
+            if ( !SlotHome.takePlaces( appSlot.getIdSlot( ), appSlot.getNbPlaces( ), appointmentDTO.getNbMaxPotentialBookedSeats( ), false ) )
+            {
+                AppLogService.error( "ERROR SLOT FULL, ID SLOT: " + appSlot.getIdSlot( ) );
+                throw new SlotFullException( "ERROR SLOT FULL " );
+            }
+            listSlot.add( appSlot.getIdSlot( ) );
         }
         return listSlot;
     }
@@ -40,9 +40,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections.CollectionUtils;
 
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
@@ -51,6 +54,7 @@ import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.portal.service.i18n.I18nService;
 
 /**
  * Service class of a slot
@@ -293,6 +297,142 @@ public final class SlotService
         }
     }
 
+    /**
+     * Build the slots for a period accepted by a filter, grouped to offer the number of places to take if it is greater than 0. The slots rejected by the
+     * filter are not built, and the days without any accepted slot are not loaded
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param nNbPlaces
+     *            the number of place to take
+     * @param filter
+     *            the filter of the slots, null to keep all the slots
+     * @return list of the slots built
+     */
+    public static List<Slot> buildListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate,
+            int nNbPlaces, SlotFilter filter )
+    {
+        return SlotGenerator.of( nIdForm, mapReservationRule, startingDate, endingDate, Math.max( 0, nNbPlaces ), false ).withFilter( filter ).stream( )
+                .collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Stream all the slot for a period with all the rules (open hours ...) to apply on each day, for each slot. The slots are built day by day when they are
+     * consumed, so the stream can be short-circuited (findFirst, limit ...) without building the whole period
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the ordered stream of the slots
+     */
+    public static Stream<Slot> streamSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
+    {
+        return streamSlot( nIdForm, mapReservationRule, startingDate, endingDate, 0, false );
+    }
+
+    /**
+     * Stream the slots for a period, grouped to offer the number of places to take if it is greater than 0. The slots are built day by day when they are
+     * consumed
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param nNbPlaces
+     *            the number of place to take
+     * @param bAllOpenSlot
+     *            build slots with the all open slot
+     * @return the ordered stream of the slots
+     */
+    public static Stream<Slot> streamSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate,
+            int nNbPlaces, boolean bAllOpenSlot )
+    {
+        if ( nNbPlaces < 1 )
+        {
+            return CalendarBuilder.streamSlot( nIdForm, mapReservationRule, startingDate, endingDate );
+        }
+        else
+        {
+            return CalendarBuilder.streamSlot( nIdForm, mapReservationRule, startingDate, endingDate, nNbPlaces, bAllOpenSlot );
+        }
+    }
+
+    /**
+     * Find the first available slot of a form: the first open slot starting after the given date time with enough potential remaining places. The search is
+     * limited to the display of the calendar of the form (its number of weeks to display and its validity dates). The days are built one after the other and
+     * the search stops on the first available slot
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param from
+     *            the date time after which the slot must start
+     * @param nNbPlaces
+     *            the number of places needed on the slot
+     * @return the first available slot, null if there is none
+     */
+    public static Slot findFirstAvailableSlot( int nIdForm, LocalDateTime from, int nNbPlaces )
+    {
+        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+        Display display = DisplayService.findDisplayWithFormId( nIdForm );
+        if ( form == null || display == null || form.getStartingValidityDate( ) == null )
+        {
+            return null;
+        }
+        LocalDate startingDateOfDisplay = FormService.getStartingDateOfDisplay( form.getStartingValidityDate( ) );
+        LocalDate endingDate = FormService.getEndingDateOfDisplay( startingDateOfDisplay, display.getNbWeeksToDisplay( ), form.getEndingValidityDate( ),
+                I18nService.getDefaultLocale( ) );
+        LocalDate startingDate = from.toLocalDate( ).isBefore( startingDateOfDisplay ) ? startingDateOfDisplay : from.toLocalDate( );
+        if ( endingDate.isBefore( startingDate ) )
+        {
+            return null;
+        }
+        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findWeekDefinitionByDateOfApply( nIdForm, startingDate, endingDate );
+        if ( CollectionUtils.isEmpty( listWeekDefinition ) )
+        {
+            return null;
+        }
+        Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
+        LocalDateTime startingDateTime = startingDate.isAfter( from.toLocalDate( ) ) ? startingDate.atStartOfDay( ) : from;
+        return findFirstAvailableSlot( nIdForm, mapReservationRule, startingDateTime, endingDate, nNbPlaces );
+    }
+
+    /**
+     * Find the first available slot of a form on a period: the first open slot starting after the given date time with enough potential remaining places
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param from
+     *            the date time after which the slot must start
+     * @param endingDate
+     *            the last day of the search
+     * @param nNbPlaces
+     *            the number of places needed on the slot
+     * @return the first available slot, null if there is none
+     */
+    public static Slot findFirstAvailableSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDateTime from,
+            LocalDate endingDate, int nNbPlaces )
+    {
+        return SlotGenerator.of( nIdForm, mapReservationRule, from.toLocalDate( ), endingDate ).withGrowingWindows( )
+                .withFilter( SlotFilter.available( from, nNbPlaces ) ).stream( ).findFirst( ).orElse( null );
+    }
+
     /**
      * Build a slot with all its values
      * 
@@ -343,7 +483,7 @@ public final class SlotService
         List<TimeSlot> listTimeSlot = null;
         if ( workingDay != null )
         {
-            listTimeSlot = TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
+            listTimeSlot = workingDay.getListTimeSlot( );
         }
         return isSpecificSlot( slot, workingDay, listTimeSlot, reservationRule.getMaxCapacityPerSlot( ) );
     }
@@ -482,7 +622,6 @@ public final class SlotService
 
         for ( Slot slotToDelete : listSlotToDelete )
         {
-            SlotSafeService.removeSlotInMemory( slotToDelete.getIdSlot( ) );
             SlotHome.delete( slotToDelete.getIdSlot( ) );
             SlotListenerManager.notifyListenersSlotRemoval( slotToDelete );
         }
@@ -498,7 +637,6 @@ public final class SlotService
     public static void deleteSlot( Slot slot )
     {
         int nIdSlot = slot.getIdSlot( );
-        SlotSafeService.removeSlotInMemory( nIdSlot );
         SlotHome.delete( nIdSlot );
         SlotListenerManager.notifyListenersSlotRemoval( slot );
     }
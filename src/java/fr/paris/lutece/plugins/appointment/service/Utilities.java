@@ -100,7 +100,9 @@ public final class Utilities
      * @param dateToSearch
      *            the date to search
      * @return the closest week in past
+     * @deprecated use {@link WeekDefinitionTimeline#getWeekDefinition(LocalDate)}, which does not scan all the weeks
      */
+    @Deprecated
     public static WeekDefinition getClosestWeekDefinitionInPast( List<WeekDefinition> listWeek, LocalDate dateToSearch )
     {
         return listWeek.stream( )
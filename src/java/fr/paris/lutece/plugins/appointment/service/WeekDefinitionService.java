@@ -36,18 +36,18 @@ package fr.paris.lutece.plugins.appointment.service;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.commons.collections.CollectionUtils;
-
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinitionHome;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -84,6 +84,7 @@ public final class WeekDefinitionService
         WeekDefinition weekDefinition = new WeekDefinition( );
         fillInWeekDefinition( weekDefinition, nIdReservationRule, dateOfApply, endingDateOfApply );
         WeekDefinitionHome.create( weekDefinition );
+        invalidateTimelineOfReservationRule( nIdReservationRule );
         // WeekDefinitionManagerListener.notifyListenersWeekDefinitionAssigned( weekDefinition.getIdWeekDefinition( ) );
         return weekDefinition;
     }
@@ -97,6 +98,7 @@ public final class WeekDefinitionService
     public static void removeWeekDefinition( WeekDefinition weekDefinition )
     {
         WeekDefinitionHome.delete( weekDefinition.getIdWeekDefinition( ) );
+        invalidateTimelineOfReservationRule( weekDefinition.getIdReservationRule( ) );
         WeekDefinitionManagerListener.notifyListenersWeekDefinitionUnassigned( weekDefinition );
     }
 
@@ -110,6 +112,7 @@ public final class WeekDefinitionService
     public static WeekDefinition saveWeekDefinition( WeekDefinition weekDefinition )
     {
         WeekDefinitionHome.create( weekDefinition );
+        invalidateTimelineOfReservationRule( weekDefinition.getIdReservationRule( ) );
         WeekDefinitionManagerListener.notifyListenersWeekDefinitionAssigned( weekDefinition );
         return weekDefinition;
     }
@@ -140,8 +143,7 @@ public final class WeekDefinitionService
      */
     public static List<WeekDefinition> findListWeekDefinition( int nIdForm )
     {
-        return WeekDefinitionHome.findByIdForm( nIdForm );
-
+        return copyOf( WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getWeekDefinitions( ) );
     }
 
     /**
@@ -157,14 +159,8 @@ public final class WeekDefinitionService
      */
     public static List<WeekDefinition> findWeekDefinitionByDateOfApply( int nIdForm, LocalDate startingDate, LocalDate endingDate )
     {
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
-        // Filter on the list of week definition on the starting date and the ending date of display
-        listWeekDefinition = listWeekDefinition.stream( )
-                .filter( w -> ( w.getEndingDateOfApply( ).isEqual( startingDate ) || w.getEndingDateOfApply( ).isAfter( startingDate ) )
-                        && ( w.getDateOfApply( ).isBefore( endingDate ) || w.getDateOfApply( ).isEqual( endingDate ) ) )
-                .collect( Collectors.toList( ) );
-
-        return listWeekDefinition;
+        // The week definitions overlapping the period of display
+        return copyOf( WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getWeekDefinitions( startingDate, endingDate ) );
     }
 
     /**
@@ -178,37 +174,8 @@ public final class WeekDefinitionService
      */
     public static WeekDefinition findWeekDefinitionByIdFormAndClosestToDateOfApply( int nIdForm, LocalDate dateOfApply )
     {
-        // Get all the week definitions
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionHome.findByIdForm( nIdForm );
-        List<LocalDate> listDate = new ArrayList<>( );
-        for ( WeekDefinition weekDefinition : listWeekDefinition )
-        {
-            listDate.add( weekDefinition.getDateOfApply( ) );
-        }
-        // Try to get the closest date in past of the date of apply
-        LocalDate closestDate = Utilities.getClosestDateInPast( listDate, dateOfApply );
-        WeekDefinition weekDefinition = null;
-        // If there is no closest date in past
-        if ( closestDate == null )
-        {
-            // if the list of week definitions is not null
-            if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-            {
-                // Get the next week definition in the future
-                weekDefinition = listWeekDefinition.stream( ).min( ( w1, w2 ) -> w1.getDateOfApply( ).compareTo( w2.getDateOfApply( ) ) ).orElse( null );
-            }
-        }
-        else
-        {
-            // There is a closest date in past
-            if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-            {
-                // Get the corresponding week definition
-                weekDefinition = listWeekDefinition.stream( ).filter( x -> closestDate.isEqual( x.getDateOfApply( ) ) ).findAny( ).orElse( null );
-            }
-        }
-
-        return weekDefinition;
+        // Get the week definition with the closest date of apply in past, or the next one in the future if there is none
+        return copyOf( WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getClosestWeekDefinition( dateOfApply ) );
     }
 
     /**
@@ -222,7 +189,8 @@ public final class WeekDefinitionService
      */
     public static WeekDefinition findWeekDefinitionByIdFormAndDateOfApply( int nIdForm, LocalDate dateOfApply )
     {
-        return WeekDefinitionHome.findByIdFormAndDateOfApply( nIdForm, dateOfApply );
+        WeekDefinition weekDefinition = WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getWeekDefinition( dateOfApply );
+        return ( weekDefinition != null && weekDefinition.getDateOfApply( ).isEqual( dateOfApply ) ) ? copyOf( weekDefinition ) : null;
     }
 
     /**
@@ -236,17 +204,8 @@ public final class WeekDefinitionService
      */
     public static WeekDefinition findNextWeekDefinition( int nIdForm, LocalDate previousDateOfApply )
     {
-        WeekDefinition nextWeekDefinition = new WeekDefinition( );
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionHome.findByIdForm( nIdForm );
-        if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-        {
-            listWeekDefinition = listWeekDefinition.stream( ).filter( x -> x.getDateOfApply( ).isAfter( previousDateOfApply ) ).collect( Collectors.toList( ) );
-            if ( CollectionUtils.isNotEmpty( listWeekDefinition ) )
-            {
-                nextWeekDefinition = listWeekDefinition.stream( ).min( ( w1, w2 ) -> w1.getDateOfApply( ).compareTo( w2.getDateOfApply( ) ) ).orElse( null );
-            }
-        }
-        return nextWeekDefinition;
+        WeekDefinition nextWeekDefinition = WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getNextWeekDefinition( previousDateOfApply );
+        return ( nextWeekDefinition != null ) ? copyOf( nextWeekDefinition ) : new WeekDefinition( );
     }
 
     /**
@@ -283,8 +242,7 @@ public final class WeekDefinitionService
     public static ReferenceList findAllDateOfWeekDefinition( int nIdForm )
     {
         ReferenceList listDate = new ReferenceList( );
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionHome.findByIdForm( nIdForm );
-        for ( WeekDefinition weekDefinition : listWeekDefinition )
+        for ( WeekDefinition weekDefinition : WeekDefinitionTimelineCacheService.getTimeline( nIdForm ).getWeekDefinitions( ) )
         {
             listDate.addItem( weekDefinition.getIdWeekDefinition( ), weekDefinition.getDateOfApply( ).format( Utilities.getFormatter( ) ) );
         }
@@ -301,8 +259,7 @@ public final class WeekDefinitionService
     public static HashMap<LocalDate, WeekDefinition> findAllWeekDefinition( int nIdForm )
     {
         HashMap<LocalDate, WeekDefinition> mapWeekDefinition = new HashMap<>( );
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionHome.findByIdForm( nIdForm );
-        for ( WeekDefinition weekDefinition : listWeekDefinition )
+        for ( WeekDefinition weekDefinition : findListWeekDefinition( nIdForm ) )
         {
             mapWeekDefinition.put( weekDefinition.getDateOfApply( ), weekDefinition );
         }
@@ -472,7 +429,9 @@ public final class WeekDefinitionService
 
         LocalDate startingDate = newWeek.getDateOfApply( );
         LocalDate endingDate = newWeek.getEndingDateOfApply( );
-        List<WeekDefinition> listWeek = WeekDefinitionService.findListWeekDefinition( nIdForm );
+        // The weeks overlapping the new week: the ones inside it are removed, the other ones are cut. They are read from the database, not from the cached
+        // timeline which may miss a change made by another node
+        List<WeekDefinition> listWeek = WeekDefinitionTimeline.of( WeekDefinitionHome.findByIdForm( nIdForm ) ).getWeekDefinitions( startingDate, endingDate );
 
         List<WeekDefinition> listWeekToRemove = listWeek.stream( )
                 .filter( week -> ( week.getDateOfApply( ).isAfter( startingDate ) || week.getDateOfApply( ).isEqual( startingDate ) )
@@ -480,13 +439,6 @@ public final class WeekDefinitionService
                 .collect( Collectors.toList( ) );
 
         listWeek.removeAll( listWeekToRemove );
-        listWeek = listWeek.stream( )
-                .filter( p -> ( ( p.getDateOfApply( ).isBefore( startingDate ) || p.getDateOfApply( ).isEqual( startingDate ) )
-                        && p.getEndingDateOfApply( ).isAfter( startingDate ) || p.getEndingDateOfApply( ).isEqual( startingDate ) )
-                        || ( p.getDateOfApply( ).isBefore( endingDate ) || p.getDateOfApply( ).isEqual( endingDate ) )
-                                && p.getEndingDateOfApply( ).isAfter( endingDate )
-                        || p.getEndingDateOfApply( ).isEqual( endingDate ) )
-                .collect( Collectors.toList( ) );
         List<WeekDefinition> buildListWeekToEdit = new ArrayList<>( );
 
         for ( WeekDefinition week : listWeek )
@@ -554,6 +506,7 @@ public final class WeekDefinitionService
                 WeekDefinitionHome.create( week );
             }
             TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            WeekDefinitionTimelineCacheService.rebuild( nIdForm );
             // WeekDefinitionManagerListener.notifyListenersListWeekDefinitionChanged( nIdForm, listWeekToEdit );
         }
         catch( Exception e )
@@ -565,4 +518,57 @@ public final class WeekDefinitionService
         }
     }
 
+    /**
+     * Remove the timeline of the week definitions of the form of a reservation rule
+     * 
+     * @param nIdReservationRule
+     *            the id of the reservation rule
+     */
+    private static void invalidateTimelineOfReservationRule( int nIdReservationRule )
+    {
+        ReservationRule reservationRule = ReservationRuleHome.findByPrimaryKey( nIdReservationRule );
+        if ( reservationRule != null )
+        {
+            WeekDefinitionTimelineCacheService.invalidate( reservationRule.getIdForm( ) );
+        }
+    }
+
+    /**
+     * Copy a week definition of a timeline, which must not be modified
+     * 
+     * @param weekDefinition
+     *            the week definition
+     * @return the copy, null if the week definition is null
+     */
+    private static WeekDefinition copyOf( WeekDefinition weekDefinition )
+    {
+        if ( weekDefinition == null )
+        {
+            return null;
+        }
+        WeekDefinition copy = new WeekDefinition( );
+        copy.setIdWeekDefinition( weekDefinition.getIdWeekDefinition( ) );
+        copy.setIdReservationRule( weekDefinition.getIdReservationRule( ) );
+        copy.setDateOfApply( weekDefinition.getDateOfApply( ) );
+        copy.setEndingDateOfApply( weekDefinition.getEndingDateOfApply( ) );
+        return copy;
+    }
+
+    /**
+     * Copy the week definitions of a timeline, which must not be modified
+     * 
+     * @param listWeekDefinition
+     *            the week definitions
+     * @return a new list of copies
+     */
+    private static List<WeekDefinition> copyOf( Collection<WeekDefinition> listWeekDefinition )
+    {
+        List<WeekDefinition> listCopy = new ArrayList<>( listWeekDefinition.size( ) );
+        for ( WeekDefinition weekDefinition : listWeekDefinition )
+        {
+            listCopy.add( copyOf( weekDefinition ) );
+        }
+        return listCopy;
+    }
+
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+
+/**
+ * Immutable timeline of the week definitions of a form, sorted by date of apply. The week definition (and its reservation rule) of a date is found with a
+ * floor lookup instead of a scan of all the week definitions. The week definitions of a form do not overlap. The week definitions of the timeline may be shared
+ * and must not be modified
+ */
+public final class WeekDefinitionTimeline
+{
+    private final NavigableMap<LocalDate, WeekDefinition> _mapWeekDefinition;
+    private final Map<LocalDate, ReservationRule> _mapReservationRule;
+
+    /**
+     * Constructor
+     * 
+     * @param mapWeekDefinition
+     *            the week definitions by date of apply
+     * @param mapReservationRule
+     *            the reservation rules by date of apply of their week definition
+     */
+    private WeekDefinitionTimeline( NavigableMap<LocalDate, WeekDefinition> mapWeekDefinition, Map<LocalDate, ReservationRule> mapReservationRule )
+    {
+        _mapWeekDefinition = Collections.unmodifiableNavigableMap( mapWeekDefinition );
+        _mapReservationRule = Collections.unmodifiableMap( mapReservationRule );
+    }
+
+    /**
+     * Build the timeline of week definitions and their reservation rules
+     * 
+     * @param mapReservationRule
+     *            the reservation rules of the week definitions
+     * @return the timeline
+     */
+    public static WeekDefinitionTimeline of( Map<WeekDefinition, ReservationRule> mapReservationRule )
+    {
+        NavigableMap<LocalDate, WeekDefinition> mapWeekDefinition = new TreeMap<>( );
+        Map<LocalDate, ReservationRule> mapRuleByDate = new TreeMap<>( );
+        for ( Entry<WeekDefinition, ReservationRule> entry : mapReservationRule.entrySet( ) )
+        {
+            if ( mapWeekDefinition.putIfAbsent( entry.getKey( ).getDateOfApply( ), entry.getKey( ) ) == null && entry.getValue( ) != null )
+            {
+                mapRuleByDate.put( entry.getKey( ).getDateOfApply( ), entry.getValue( ) );
+            }
+        }
+        return new WeekDefinitionTimeline( mapWeekDefinition, mapRuleByDate );
+    }
+
+    /**
+     * Build the timeline of week definitions, without their reservation rules
+     * 
+     * @param listWeekDefinition
+     *            the week definitions
+     * @return the timeline
+     */
+    public static WeekDefinitionTimeline of( Collection<WeekDefinition> listWeekDefinition )
+    {
+        NavigableMap<LocalDate, WeekDefinition> mapWeekDefinition = new TreeMap<>( );
+        for ( WeekDefinition weekDefinition : listWeekDefinition )
+        {
+            mapWeekDefinition.putIfAbsent( weekDefinition.getDateOfApply( ), weekDefinition );
+        }
+        return new WeekDefinitionTimeline( mapWeekDefinition, Collections.emptyMap( ) );
+    }
+
+    /**
+     * Check if the timeline has no week definition
+     * 
+     * @return true if there is no week definition
+     */
+    public boolean isEmpty( )
+    {
+        return _mapWeekDefinition.isEmpty( );
+    }
+
+    /**
+     * Get the week definition applied on a date
+     * 
+     * @param date
+     *            the date
+     * @return the week definition whose period contains the date, null if there is none
+     */
+    public WeekDefinition getWeekDefinition( LocalDate date )
+    {
+        Entry<LocalDate, WeekDefinition> entry = _mapWeekDefinition.floorEntry( date );
+        if ( entry == null || entry.getValue( ).getEndingDateOfApply( ).isBefore( date ) )
+        {
+            return null;
+        }
+        return entry.getValue( );
+    }
+
+    /**
+     * Get the reservation rule applied on a date
+     * 
+     * @param date
+     *            the date
+     * @return the reservation rule of the week definition whose period contains the date, null if there is none
+     */
+    public ReservationRule getReservationRule( LocalDate date )
+    {
+        WeekDefinition weekDefinition = getWeekDefinition( date );
+        return ( weekDefinition == null ) ? null : _mapReservationRule.get( weekDefinition.getDateOfApply( ) );
+    }
+
+    /**
+     * Get the week definition with the closest date of apply in the past of a date, whatever its ending date. If there is none, the first week definition
+     * 
+     * @param date
+     *            the date
+     * @return the closest week definition, null if the timeline is empty
+     */
+    public WeekDefinition getClosestWeekDefinition( LocalDate date )
+    {
+        Entry<LocalDate, WeekDefinition> entry = _mapWeekDefinition.floorEntry( date );
+        if ( entry == null )
+        {
+            entry = _mapWeekDefinition.firstEntry( );
+        }
+        return ( entry == null ) ? null : entry.getValue( );
+    }
+
+    /**
+     * Get the first week definition
+     * 
+     * @return the week definition with the smallest date of apply, null if the timeline is empty
+     */
+    public WeekDefinition getFirstWeekDefinition( )
+    {
+        return isEmpty( ) ? null : _mapWeekDefinition.firstEntry( ).getValue( );
+    }
+
+    /**
+     * Get the first week definition whose date of apply is after a date
+     * 
+     * @param date
+     *            the date
+     * @return the next week definition, null if there is none
+     */
+    public WeekDefinition getNextWeekDefinition( LocalDate date )
+    {
+        Entry<LocalDate, WeekDefinition> entry = _mapWeekDefinition.higherEntry( date );
+        return ( entry == null ) ? null : entry.getValue( );
+    }
+
+    /**
+     * Get all the week definitions
+     * 
+     * @return the week definitions, sorted by date of apply
+     */
+    public Collection<WeekDefinition> getWeekDefinitions( )
+    {
+        return _mapWeekDefinition.values( );
+    }
+
+    /**
+     * Get the week definitions whose period overlaps a period
+     * 
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the week definitions, sorted by date of apply
+     */
+    public List<WeekDefinition> getWeekDefinitions( LocalDate startingDate, LocalDate endingDate )
+    {
+        List<WeekDefinition> listWeekDefinition = new ArrayList<>( );
+        LocalDate fromDate = _mapWeekDefinition.floorKey( startingDate );
+        NavigableMap<LocalDate, WeekDefinition> mapCandidates = ( fromDate == null ) ? _mapWeekDefinition : _mapWeekDefinition.tailMap( fromDate, true );
+        for ( WeekDefinition weekDefinition : mapCandidates.headMap( endingDate, true ).values( ) )
+        {
+            if ( !weekDefinition.getEndingDateOfApply( ).isBefore( startingDate ) )
+            {
+                listWeekDefinition.add( weekDefinition );
+            }
+        }
+        return listWeekDefinition;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinitionHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Cache of the timelines of the week definitions of the forms, shared by the front office, the back office and the services, so that the week definitions
+ * of a form are read once instead of on each lookup. The timeline of a form is built again when the assignment of a week is committed, and removed by the
+ * week definition and form listeners. The configuration versions of the forms are read at a regular interval to remove the timelines changed by the other
+ * nodes
+ */
+public final class WeekDefinitionTimelineCacheService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "appointment.weekDefinitionTimelineCache.enabled";
+    private static final String PROPERTY_POLL_INTERVAL = "appointment.weekDefinitionTimelineCache.pollInterval";
+
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final long POLL_INTERVAL = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_POLL_INTERVAL, 10 ) );
+
+    private static final Map<Integer, CachedTimeline> _mapTimelines = new ConcurrentHashMap<>( );
+    private static final AtomicLong _lLastPollTime = new AtomicLong( System.currentTimeMillis( ) );
+    private static final AtomicLong _nbInvalidations = new AtomicLong( );
+    private static final AtomicLong _nbHits = new AtomicLong( );
+    private static final AtomicLong _nbMisses = new AtomicLong( );
+    private static final AtomicLong _nbStale = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private WeekDefinitionTimelineCacheService( )
+    {
+    }
+
+    /**
+     * Get the timeline of the week definitions of a form, loaded from the database if it is not in the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the timeline, whose week definitions must not be modified
+     */
+    public static WeekDefinitionTimeline getTimeline( int nIdForm )
+    {
+        if ( !ENABLED )
+        {
+            return WeekDefinitionTimeline.of( WeekDefinitionHome.findByIdForm( nIdForm ) );
+        }
+        pollConfigVersions( );
+        CachedTimeline cachedTimeline = _mapTimelines.get( nIdForm );
+        if ( cachedTimeline != null )
+        {
+            _nbHits.incrementAndGet( );
+            return cachedTimeline.getTimeline( );
+        }
+        _nbMisses.incrementAndGet( );
+        return load( nIdForm, _nbInvalidations.get( ) );
+    }
+
+    /**
+     * Build again the timeline of a form, after a change of its week definitions has been committed. The new timeline replaces the previous one at once
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void rebuild( int nIdForm )
+    {
+        if ( ENABLED )
+        {
+            // The timelines being loaded meanwhile are not kept
+            load( nIdForm, _nbInvalidations.incrementAndGet( ) );
+        }
+    }
+
+    /**
+     * Remove the timeline of a form from the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _nbInvalidations.incrementAndGet( );
+        _mapTimelines.remove( nIdForm );
+    }
+
+    /**
+     * Get the metrics of the cache
+     * 
+     * @return the number of timelines and the hit ratio
+     */
+    public static String getMetrics( )
+    {
+        long lHits = _nbHits.get( );
+        long lRequests = lHits + _nbMisses.get( );
+        long lHitRatio = ( lRequests > 0 ) ? ( ( 100 * lHits ) / lRequests ) : 0;
+        return _mapTimelines.size( ) + " forms, " + lHits + " hits on " + lRequests + " requests (" + lHitRatio + "%), " + _nbInvalidations.get( )
+                + " invalidations, " + _nbStale.get( ) + " changed by other nodes";
+    }
+
+    /**
+     * Load the timeline of a form and put it in the cache if no timeline has been invalidated since a given count of invalidations
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param lInvalidations
+     *            the count of invalidations read before the loading
+     * @return the timeline
+     */
+    private static WeekDefinitionTimeline load( int nIdForm, long lInvalidations )
+    {
+        // The version is read before the week definitions: a change made during the loading makes the timeline stale on the next poll
+        int nConfigVersion = FormHome.findConfigVersion( nIdForm );
+        WeekDefinitionTimeline timeline = WeekDefinitionTimeline.of( WeekDefinitionHome.findByIdForm( nIdForm ) );
+        if ( nConfigVersion >= 0 && lInvalidations == _nbInvalidations.get( ) )
+        {
+            _mapTimelines.put( nIdForm, new CachedTimeline( timeline, nConfigVersion ) );
+        }
+        return timeline;
+    }
+
+    /**
+     * Read the configuration versions of the forms if the poll interval has elapsed, and remove the timelines whose version has changed
+     */
+    private static void pollConfigVersions( )
+    {
+        long lLastPollTime = _lLastPollTime.get( );
+        long lNow = System.currentTimeMillis( );
+        if ( lNow - lLastPollTime < POLL_INTERVAL || !_lLastPollTime.compareAndSet( lLastPollTime, lNow ) || _mapTimelines.isEmpty( ) )
+        {
+            return;
+        }
+        Map<Integer, Integer> mapConfigVersions = FormHome.findAllConfigVersions( );
+        _mapTimelines.entrySet( ).removeIf( entry -> {
+            Integer nConfigVersion = mapConfigVersions.get( entry.getKey( ) );
+            boolean bStale = nConfigVersion == null || nConfigVersion != entry.getValue( ).getConfigVersion( );
+            if ( bStale )
+            {
+                _nbStale.incrementAndGet( );
+            }
+            return bStale;
+        } );
+    }
+
+    /**
+     * A timeline of the cache with the configuration version of its form
+     */
+    private static final class CachedTimeline
+    {
+        private final WeekDefinitionTimeline _timeline;
+        private final int _nConfigVersion;
+
+        /**
+         * Constructor
+         * 
+         * @param timeline
+         *            the timeline
+         * @param nConfigVersion
+         *            the configuration version of the form read before the timeline
+         */
+        CachedTimeline( WeekDefinitionTimeline timeline, int nConfigVersion )
+        {
+            _timeline = timeline;
+            _nConfigVersion = nConfigVersion;
+        }
+
+        /**
+         * Get the timeline
+         * 
+         * @return the timeline
+         */
+        WeekDefinitionTimeline getTimeline( )
+        {
+            return _timeline;
+        }
+
+        /**
+         * Get the configuration version of the form
+         * 
+         * @return the configuration version
+         */
+        int getConfigVersion( )
+        {
+            return _nConfigVersion;
+        }
+    }
+}
@@ -39,8 +39,10 @@ import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlotHome;
@@ -168,12 +170,24 @@ public final class WorkingDayService
      */
     public static List<WorkingDay> findListWorkingDayByWeekDefinitionRule( int nIdWeekDefinitionRule )
     {
-        List<WorkingDay> listWorkingDay = WorkingDayHome.findByIdReservationRule( nIdWeekDefinitionRule );
-        for ( WorkingDay workingDay : listWorkingDay )
+        return WorkingDayHome.findByIdReservationRuleWithListTimeSlot( nIdWeekDefinitionRule );
+    }
+
+    /**
+     * Find the working days, with their time slots, of all the reservation rules of a form
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @return a map with the reservation rule Id in key and the list of the working days of the rule in value
+     */
+    public static Map<Integer, List<WorkingDay>> findMapListWorkingDayByIdForm( int nIdForm )
+    {
+        Map<Integer, List<WorkingDay>> mapListWorkingDay = new HashMap<>( );
+        for ( WorkingDay workingDay : WorkingDayHome.findByIdFormWithListTimeSlot( nIdForm ) )
         {
-            workingDay.setListTimeSlot( TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) ) );
+            mapListWorkingDay.computeIfAbsent( workingDay.getIdReservationRule( ), k -> new ArrayList<>( ) ).add( workingDay );
         }
-        return listWorkingDay;
+        return mapListWorkingDay;
     }
 
     /**
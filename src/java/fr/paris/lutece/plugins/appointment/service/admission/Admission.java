@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+/**
+ * Result of the admission of a request on a form. An admitted request must be closed once processed, to free its place for the other requests
+ */
+public final class Admission implements AutoCloseable
+{
+    private static final Admission ADMITTED_WITHOUT_CONTROL = new Admission( null, true, 0, 0 );
+
+    private final FormAdmissionController _controller;
+    private final boolean _bAdmitted;
+    private final long _lPosition;
+    private final long _lEstimatedWait;
+    private boolean _bClosed;
+
+    /**
+     * Constructor
+     * 
+     * @param controller
+     *            the controller of the form, null if the form is not controlled
+     * @param bAdmitted
+     *            true if the request is admitted
+     * @param lPosition
+     *            the position in the waiting room
+     * @param lEstimatedWait
+     *            the estimated wait in seconds
+     */
+    private Admission( FormAdmissionController controller, boolean bAdmitted, long lPosition, long lEstimatedWait )
+    {
+        _controller = controller;
+        _bAdmitted = bAdmitted;
+        _lPosition = lPosition;
+        _lEstimatedWait = lEstimatedWait;
+    }
+
+    /**
+     * Build the admission of a request on a form without control
+     * 
+     * @return the admission
+     */
+    static Admission admittedWithoutControl( )
+    {
+        return ADMITTED_WITHOUT_CONTROL;
+    }
+
+    /**
+     * Build the admission of a request processed under the control of a form
+     * 
+     * @param controller
+     *            the controller of the form, the request has entered it
+     * @return the admission
+     */
+    static Admission admitted( FormAdmissionController controller )
+    {
+        return new Admission( controller, true, 0, 0 );
+    }
+
+    /**
+     * Build the admission of a request that must wait
+     * 
+     * @param lPosition
+     *            the position in the waiting room, 0 if the ticket is admitted but too many requests are processed
+     * @param lEstimatedWait
+     *            the estimated wait in seconds
+     * @return the admission
+     */
+    static Admission waiting( long lPosition, long lEstimatedWait )
+    {
+        return new Admission( null, false, lPosition, lEstimatedWait );
+    }
+
+    /**
+     * Check if the request is admitted
+     * 
+     * @return true if the request can be processed
+     */
+    public boolean isAdmitted( )
+    {
+        return _bAdmitted;
+    }
+
+    /**
+     * Get the position in the waiting room
+     * 
+     * @return the number of users to admit before, 0 if the request only waits for a place among the requests processed
+     */
+    public long getPosition( )
+    {
+        return _lPosition;
+    }
+
+    /**
+     * Get the estimated wait before the admission
+     * 
+     * @return the estimated wait in seconds
+     */
+    public long getEstimatedWait( )
+    {
+        return _lEstimatedWait;
+    }
+
+    /**
+     * Free the place of the request among the requests processed
+     */
+    @Override
+    public synchronized void close( )
+    {
+        if ( _controller != null && !_bClosed )
+        {
+            _bClosed = true;
+            _controller.exit( );
+        }
+    }
+}
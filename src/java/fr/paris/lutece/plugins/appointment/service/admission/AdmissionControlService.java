@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRuleHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Admission control of the requests of the front office on the calendar and the booking of the forms. Each form with an admission rate or a maximum number
+ * of concurrent requests has its own waiting room: the users are given a signed ticket, kept in their session, and are admitted in the order of their
+ * tickets. The ticket is only read from the session, so that it can not be passed to another client to share a place in the queue.
+ * <p>
+ * The waiting rooms are kept in the memory of each node: the admission rate and the maximum number of concurrent requests of a form apply to each node, and
+ * the sessions must be sticky. The tickets are numbered by the node that issued them, so a user moved to another node does not keep their place in the queue.
+ * </p>
+ */
+public final class AdmissionControlService
+{
+    // Properties
+    private static final String PROPERTY_TICKET_VALIDITY = "appointment.admission.ticket.validity";
+
+    private static final int DEFAULT_TICKET_VALIDITY = 1800;
+    private static final String SESSION_ATTRIBUTE_TICKET = "appointment.admission.ticket.";
+
+    private static final Map<Integer, FormAdmissionController> _mapControllers = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AdmissionControlService( )
+    {
+    }
+
+    /**
+     * Admit a request on a form. The admission must be closed once the request is processed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param request
+     *            the request
+     * @return the admission
+     */
+    public static Admission admit( int nIdForm, HttpServletRequest request )
+    {
+        FormAdmissionController controller = getController( nIdForm );
+        if ( !controller.isLimited( ) )
+        {
+            return Admission.admittedWithoutControl( );
+        }
+        AdmissionTicket ticket = getTicket( nIdForm, request );
+        if ( ticket == null || ticket.getIssueTime( ) < controller.getCreationTime( ) )
+        {
+            ticket = new AdmissionTicket( nIdForm, controller.issueTicket( ), System.currentTimeMillis( ) );
+            request.getSession( ).setAttribute( SESSION_ATTRIBUTE_TICKET + nIdForm, ticket.sign( ) );
+        }
+        long lPosition = controller.getPosition( ticket.getNumber( ) );
+        if ( lPosition > 0 )
+        {
+            return Admission.waiting( lPosition, controller.getEstimatedWait( lPosition ) );
+        }
+        if ( !controller.enter( ) )
+        {
+            // The ticket is admitted, but too many requests are processed
+            return Admission.waiting( 0, 1 );
+        }
+        return Admission.admitted( controller );
+    }
+
+    /**
+     * Get the signed ticket of the user on a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param request
+     *            the request
+     * @return the signed ticket, null if the user has no ticket
+     */
+    public static String getSignedTicket( int nIdForm, HttpServletRequest request )
+    {
+        HttpSession session = request.getSession( false );
+        return session != null ? (String) session.getAttribute( SESSION_ATTRIBUTE_TICKET + nIdForm ) : null;
+    }
+
+    /**
+     * Update the limits of a form, after its modification
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void refreshLimits( int nIdForm )
+    {
+        FormAdmissionController controller = _mapControllers.get( nIdForm );
+        if ( controller != null )
+        {
+            FormRule formRule = FormRuleHome.findByIdForm( nIdForm );
+            if ( formRule == null )
+            {
+                _mapControllers.remove( nIdForm );
+            }
+            else
+            {
+                controller.setLimits( formRule.getNbAdmissionsPerSecond( ), formRule.getNbMaxConcurrentRequests( ) );
+            }
+        }
+    }
+
+    /**
+     * Remove the waiting room of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void removeController( int nIdForm )
+    {
+        _mapControllers.remove( nIdForm );
+    }
+
+    /**
+     * Get the metrics of the waiting rooms: depth and admission rate of the forms with admission control
+     * 
+     * @return the metrics
+     */
+    public static String getMetrics( )
+    {
+        StringBuilder sbMetrics = new StringBuilder( );
+        for ( FormAdmissionController controller : _mapControllers.values( ) )
+        {
+            if ( controller.isLimited( ) )
+            {
+                sbMetrics.append( "\n  form " ).append( controller.getIdForm( ) ).append( ": " ).append( controller.getQueueDepth( ) ).append( " waiting, " )
+                        .append( String.format( "%.1f", controller.getAdmitRate( ) ) ).append( " admitted/s, " ).append( controller.getNbActiveRequests( ) )
+                        .append( " processed, " ).append( controller.getNbAdmitted( ) ).append( " admitted since start" );
+            }
+        }
+        return sbMetrics.length( ) == 0 ? "no form with admission control" : sbMetrics.toString( );
+    }
+
+    /**
+     * Get the controller of a form, created with the limits of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the controller
+     */
+    private static FormAdmissionController getController( int nIdForm )
+    {
+        return _mapControllers.computeIfAbsent( nIdForm, nId -> {
+            FormRule formRule = FormRuleHome.findByIdForm( nId );
+            return formRule == null ? new FormAdmissionController( nId, 0, 0 )
+                    : new FormAdmissionController( nId, formRule.getNbAdmissionsPerSecond( ), formRule.getNbMaxConcurrentRequests( ) );
+        } );
+    }
+
+    /**
+     * Get the valid ticket of the user on a form, from the session
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param request
+     *            the request
+     * @return the ticket, null if the user has no valid ticket
+     */
+    private static AdmissionTicket getTicket( int nIdForm, HttpServletRequest request )
+    {
+        AdmissionTicket ticket = AdmissionTicket.parse( getSignedTicket( nIdForm, request ) );
+        long lValidity = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_TICKET_VALIDITY, DEFAULT_TICKET_VALIDITY ) );
+        if ( ticket == null || ticket.getIdForm( ) != nIdForm || ticket.getIssueTime( ) + lValidity < System.currentTimeMillis( ) )
+        {
+            return null;
+        }
+        return ticket;
+    }
+}
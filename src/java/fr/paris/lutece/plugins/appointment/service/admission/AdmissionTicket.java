@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Ticket of the waiting room of a form, signed so that it can not be forged to jump the queue. The ticket is written as
+ * <code>idForm.number.issueTime.signature</code>
+ */
+public final class AdmissionTicket
+{
+    // Properties
+    private static final String PROPERTY_TICKET_KEY = "appointment.admission.ticket.key";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = ".";
+    private static final int NB_PARTS = 4;
+    private static final byte [ ] KEY = buildKey( );
+
+    private final int _nIdForm;
+    private final long _lNumber;
+    private final long _lIssueTime;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param lNumber
+     *            the number of the ticket in the waiting room
+     * @param lIssueTime
+     *            the time the ticket has been issued in milliseconds
+     */
+    public AdmissionTicket( int nIdForm, long lNumber, long lIssueTime )
+    {
+        _nIdForm = nIdForm;
+        _lNumber = lNumber;
+        _lIssueTime = lIssueTime;
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the number of the ticket in the waiting room
+     * 
+     * @return the number
+     */
+    public long getNumber( )
+    {
+        return _lNumber;
+    }
+
+    /**
+     * Get the time the ticket has been issued
+     * 
+     * @return the time in milliseconds
+     */
+    public long getIssueTime( )
+    {
+        return _lIssueTime;
+    }
+
+    /**
+     * Write the signed ticket
+     * 
+     * @return the ticket and its signature
+     */
+    public String sign( )
+    {
+        String strPayload = _nIdForm + SEPARATOR + _lNumber + SEPARATOR + _lIssueTime;
+        return strPayload + SEPARATOR + computeSignature( strPayload );
+    }
+
+    /**
+     * Read a signed ticket
+     * 
+     * @param strSignedTicket
+     *            the ticket and its signature
+     * @return the ticket, null if the ticket is malformed or its signature is wrong
+     */
+    public static AdmissionTicket parse( String strSignedTicket )
+    {
+        if ( StringUtils.isEmpty( strSignedTicket ) )
+        {
+            return null;
+        }
+        String [ ] parts = StringUtils.split( strSignedTicket, SEPARATOR );
+        if ( parts.length != NB_PARTS )
+        {
+            return null;
+        }
+        String strPayload = parts [0] + SEPARATOR + parts [1] + SEPARATOR + parts [2];
+        byte [ ] expectedSignature = computeSignature( strPayload ).getBytes( StandardCharsets.UTF_8 );
+        if ( !MessageDigest.isEqual( expectedSignature, parts [3].getBytes( StandardCharsets.UTF_8 ) ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new AdmissionTicket( Integer.parseInt( parts [0] ), Long.parseLong( parts [1] ), Long.parseLong( parts [2] ) );
+        }
+        catch( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Compute the signature of a payload
+     * 
+     * @param strPayload
+     *            the payload
+     * @return the signature, encoded in base 64
+     */
+    private static String computeSignature( String strPayload )
+    {
+        try
+        {
+            Mac mac = Mac.getInstance( ALGORITHM );
+            mac.init( new SecretKeySpec( KEY, ALGORITHM ) );
+            return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( mac.doFinal( strPayload.getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new AppException( "Error signing the admission ticket", e );
+        }
+    }
+
+    /**
+     * Build the key of the signatures: the key of the configuration, shared by the nodes, or a random key for this node
+     * 
+     * @return the key
+     */
+    private static byte [ ] buildKey( )
+    {
+        String strKey = AppPropertiesService.getProperty( PROPERTY_TICKET_KEY );
+        if ( StringUtils.isNotEmpty( strKey ) )
+        {
+            return strKey.getBytes( StandardCharsets.UTF_8 );
+        }
+        byte [ ] key = new byte [ 32];
+        new SecureRandom( ).nextBytes( key );
+        return key;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission controller of a form. The requests are given a ticket number in a FIFO virtual waiting room, and the head of the waiting room is moved forward
+ * by a token bucket refilled at the admission rate of the form. The admitted requests are also limited by the number of requests processed at the same time
+ */
+public final class FormAdmissionController
+{
+    private static final long RATE_WINDOW = TimeUnit.SECONDS.toNanos( 10 );
+
+    private final int _nIdForm;
+    private final long _lCreationTime;
+    private int _nAdmissionsPerSecond;
+    private int _nMaxConcurrentRequests;
+
+    // Token bucket
+    private double _dTokens;
+    private long _lLastRefill;
+
+    // Waiting room: the tickets up to the head are admitted
+    private long _lLastTicket;
+    private long _lHeadTicket;
+
+    private int _nActiveRequests;
+
+    // Metrics
+    private long _lNbAdmitted;
+    private long _lRateWindowStart;
+    private long _lNbAdmittedInWindow;
+    private double _dAdmitRate;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nAdmissionsPerSecond
+     *            the number of admissions per second (0 for no limit)
+     * @param nMaxConcurrentRequests
+     *            the number of requests processed at the same time (0 for no limit)
+     */
+    public FormAdmissionController( int nIdForm, int nAdmissionsPerSecond, int nMaxConcurrentRequests )
+    {
+        _nIdForm = nIdForm;
+        _lCreationTime = System.currentTimeMillis( );
+        _lLastRefill = System.nanoTime( );
+        _lRateWindowStart = _lLastRefill;
+        setLimits( nAdmissionsPerSecond, nMaxConcurrentRequests );
+        _dTokens = getBurst( );
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the time the waiting room has been created: the tickets issued before belong to a previous waiting room
+     * 
+     * @return the time in milliseconds
+     */
+    public long getCreationTime( )
+    {
+        return _lCreationTime;
+    }
+
+    /**
+     * Change the limits of the form. The tickets already issued keep their place in the waiting room
+     * 
+     * @param nAdmissionsPerSecond
+     *            the number of admissions per second (0 for no limit)
+     * @param nMaxConcurrentRequests
+     *            the number of requests processed at the same time (0 for no limit)
+     */
+    public synchronized void setLimits( int nAdmissionsPerSecond, int nMaxConcurrentRequests )
+    {
+        _nAdmissionsPerSecond = Math.max( 0, nAdmissionsPerSecond );
+        _nMaxConcurrentRequests = Math.max( 0, nMaxConcurrentRequests );
+        _dTokens = Math.min( _dTokens, getBurst( ) );
+    }
+
+    /**
+     * Check if the form has limits
+     * 
+     * @return true if the requests on the form are controlled
+     */
+    public synchronized boolean isLimited( )
+    {
+        return _nAdmissionsPerSecond > 0 || _nMaxConcurrentRequests > 0;
+    }
+
+    /**
+     * Issue a new ticket at the end of the waiting room
+     * 
+     * @return the number of the ticket
+     */
+    public synchronized long issueTicket( )
+    {
+        _lLastTicket++;
+        refill( );
+        return _lLastTicket;
+    }
+
+    /**
+     * Get the position of a ticket in the waiting room
+     * 
+     * @param lTicket
+     *            the number of the ticket
+     * @return the number of tickets to admit before this one, 0 if the ticket is admitted
+     */
+    public synchronized long getPosition( long lTicket )
+    {
+        refill( );
+        return Math.max( 0, lTicket - _lHeadTicket );
+    }
+
+    /**
+     * Get the estimated time before the admission of a position of the waiting room
+     * 
+     * @param lPosition
+     *            the position in the waiting room
+     * @return the estimated time in seconds
+     */
+    public synchronized long getEstimatedWait( long lPosition )
+    {
+        if ( lPosition <= 0 || _nAdmissionsPerSecond == 0 )
+        {
+            return 0;
+        }
+        return ( lPosition + _nAdmissionsPerSecond - 1 ) / _nAdmissionsPerSecond;
+    }
+
+    /**
+     * Start the processing of an admitted request, if the number of requests processed at the same time allows it
+     * 
+     * @return true if the request can be processed, and must be ended with {@link #exit()}
+     */
+    public synchronized boolean enter( )
+    {
+        if ( _nMaxConcurrentRequests > 0 && _nActiveRequests >= _nMaxConcurrentRequests )
+        {
+            return false;
+        }
+        _nActiveRequests++;
+        return true;
+    }
+
+    /**
+     * End the processing of a request
+     */
+    public synchronized void exit( )
+    {
+        if ( _nActiveRequests > 0 )
+        {
+            _nActiveRequests--;
+        }
+    }
+
+    /**
+     * Get the number of tickets waiting in the waiting room
+     * 
+     * @return the depth of the waiting room
+     */
+    public synchronized long getQueueDepth( )
+    {
+        refill( );
+        return _lLastTicket - _lHeadTicket;
+    }
+
+    /**
+     * Get the number of requests processed at the moment
+     * 
+     * @return the number of requests
+     */
+    public synchronized int getNbActiveRequests( )
+    {
+        return _nActiveRequests;
+    }
+
+    /**
+     * Get the number of tickets admitted since the start
+     * 
+     * @return the number of tickets
+     */
+    public synchronized long getNbAdmitted( )
+    {
+        return _lNbAdmitted;
+    }
+
+    /**
+     * Get the admission rate measured on the last complete window of 10 seconds
+     * 
+     * @return the number of tickets admitted per second
+     */
+    public synchronized double getAdmitRate( )
+    {
+        refill( );
+        return _dAdmitRate;
+    }
+
+    /**
+     * Refill the token bucket with the time elapsed, and move the head of the waiting room forward with the tokens
+     */
+    private void refill( )
+    {
+        long lNow = System.nanoTime( );
+        if ( _nAdmissionsPerSecond == 0 )
+        {
+            // No admission rate: every ticket is admitted
+            admit( _lLastTicket - _lHeadTicket );
+        }
+        else
+        {
+            double dElapsedSeconds = ( lNow - _lLastRefill ) / (double) TimeUnit.SECONDS.toNanos( 1 );
+            _dTokens = Math.min( getBurst( ), _dTokens + dElapsedSeconds * _nAdmissionsPerSecond );
+            long lNbAdmissions = Math.min( (long) _dTokens, _lLastTicket - _lHeadTicket );
+            _dTokens -= lNbAdmissions;
+            admit( lNbAdmissions );
+        }
+        _lLastRefill = lNow;
+        if ( lNow - _lRateWindowStart >= RATE_WINDOW )
+        {
+            _dAdmitRate = _lNbAdmittedInWindow * (double) TimeUnit.SECONDS.toNanos( 1 ) / ( lNow - _lRateWindowStart );
+            _lNbAdmittedInWindow = 0;
+            _lRateWindowStart = lNow;
+        }
+    }
+
+    /**
+     * Admit tickets from the head of the waiting room
+     * 
+     * @param lNbAdmissions
+     *            the number of tickets to admit
+     */
+    private void admit( long lNbAdmissions )
+    {
+        _lHeadTicket += lNbAdmissions;
+        _lNbAdmitted += lNbAdmissions;
+        _lNbAdmittedInWindow += lNbAdmissions;
+    }
+
+    /**
+     * Get the capacity of the token bucket: one second of admissions
+     * 
+     * @return the capacity
+     */
+    private int getBurst( )
+    {
+        return Math.max( 1, _nAdmissionsPerSecond );
+    }
+}
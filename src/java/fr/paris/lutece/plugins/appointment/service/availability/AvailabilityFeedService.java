@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Availability feed of the calendar of the front office: the slots of a form for a period, in JSON, with a strong ETag so that the clients can revalidate
+ * the feed without building the slots again. The ETag changes with the availability version of the form on this node, and at least after a maximum age to
+ * get the changes made by the other nodes and the slots becoming too close to be booked
+ */
+public final class AvailabilityFeedService
+{
+    // Properties
+    private static final String PROPERTY_MAX_AGE = "appointment.availabilityFeed.maxAge";
+
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis( Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_AGE, 60 ) ) );
+
+    // JSON
+    private static final String JSON_ID_FORM = "idForm";
+    private static final String JSON_STARTING_DATE = "startingDate";
+    private static final String JSON_ENDING_DATE = "endingDate";
+    private static final String JSON_NEXT_STARTING_DATE = "nextStartingDate";
+    private static final String JSON_NB_PLACES_TO_TAKE = "nbPlacesToTake";
+    private static final String JSON_SLOTS = "slots";
+    private static final String JSON_ID_SLOT = "idSlot";
+    private static final String JSON_STARTING_DATE_TIME = "startingDateTime";
+    private static final String JSON_ENDING_DATE_TIME = "endingDateTime";
+    private static final String JSON_IS_OPEN = "isOpen";
+    private static final String JSON_MAX_CAPACITY = "maxCapacity";
+    private static final String JSON_NB_REMAINING_PLACES = "nbRemainingPlaces";
+    private static final String JSON_NB_POTENTIAL_REMAINING_PLACES = "nbPotentialRemainingPlaces";
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final String SEPARATOR = ":";
+    private static final String QUOTE = "\"";
+    // The versions of the forms are counted by node since its start
+    private static final String INSTANCE_ID = UUID.randomUUID( ).toString( );
+    private static final ObjectMapper MAPPER = new ObjectMapper( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilityFeedService( )
+    {
+    }
+
+    /**
+     * Get the strong ETag of the feed of a form for a period
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbPlaces
+     *            the number of places to take, 0 for the slots one by one
+     * @return the ETag, with its quotes
+     */
+    public static String getETag( int nIdForm, LocalDate startingDate, LocalDate endingDate, int nNbPlaces )
+    {
+        String strKey = INSTANCE_ID + SEPARATOR + nIdForm + SEPARATOR + AvailabilityGridService.getVersion( nIdForm ) + SEPARATOR
+                + System.currentTimeMillis( ) / MAX_AGE + SEPARATOR + startingDate + SEPARATOR + endingDate + SEPARATOR + nNbPlaces;
+        try
+        {
+            byte [ ] digest = MessageDigest.getInstance( ALGORITHM ).digest( strKey.getBytes( StandardCharsets.UTF_8 ) );
+            return QUOTE + Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( digest ) + QUOTE;
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Find the slots of a form for a period, as the calendar of the front office: the slots that can not be booked anymore because of the minimum time
+     * before an appointment are removed
+     * 
+     * @param form
+     *            the form
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbPlaces
+     *            the number of places to take, 0 for the slots one by one
+     * @return the slots, sorted by starting date time
+     */
+    public static List<Slot> findListSlot( AppointmentFormDTO form, LocalDate startingDate, LocalDate endingDate, int nNbPlaces )
+    {
+        int nIdForm = form.getIdForm( );
+        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findWeekDefinitionByDateOfApply( nIdForm, startingDate, endingDate );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
+        SlotFilter filter = new SlotFilter( );
+        filter.setMinStartingDateTime( LocalDateTime.now( ).plusHours( form.getMinTimeBeforeAppointment( ) ) );
+        if ( form.getIsMultislotAppointment( ) && nNbPlaces > 0 )
+        {
+            return SlotService.buildListSlot( nIdForm, mapReservationRule, startingDate, endingDate, nNbPlaces, filter );
+        }
+        return AvailabilityGridService.findListSlot( nIdForm, mapReservationRule, startingDate, endingDate, filter );
+    }
+
+    /**
+     * Write the feed of a form for a period in JSON
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nextStartingDate
+     *            the first day of the next period, null if the period is the last one displayed
+     * @param nNbPlaces
+     *            the number of places to take, 0 for the slots one by one
+     * @param listSlot
+     *            the slots of the period
+     * @return the JSON feed
+     */
+    public static String toJson( int nIdForm, LocalDate startingDate, LocalDate endingDate, LocalDate nextStartingDate, int nNbPlaces, List<Slot> listSlot )
+    {
+        ObjectNode feed = MAPPER.createObjectNode( );
+        feed.put( JSON_ID_FORM, nIdForm );
+        feed.put( JSON_STARTING_DATE, startingDate.toString( ) );
+        feed.put( JSON_ENDING_DATE, endingDate.toString( ) );
+        feed.put( JSON_NEXT_STARTING_DATE, ( nextStartingDate != null ) ? nextStartingDate.toString( ) : null );
+        feed.put( JSON_NB_PLACES_TO_TAKE, nNbPlaces );
+        ArrayNode slots = feed.putArray( JSON_SLOTS );
+        for ( Slot slot : listSlot )
+        {
+            ObjectNode node = slots.addObject( );
+            node.put( JSON_ID_SLOT, slot.getIdSlot( ) );
+            node.put( JSON_STARTING_DATE_TIME, slot.getStartingDateTime( ).toString( ) );
+            node.put( JSON_ENDING_DATE_TIME, slot.getEndingDateTime( ).toString( ) );
+            node.put( JSON_IS_OPEN, slot.getIsOpen( ) );
+            node.put( JSON_MAX_CAPACITY, slot.getMaxCapacity( ) );
+            node.put( JSON_NB_REMAINING_PLACES, slot.getNbRemainingPlaces( ) );
+            node.put( JSON_NB_POTENTIAL_REMAINING_PLACES, slot.getNbPotentialRemainingPlaces( ) );
+        }
+        try
+        {
+            return MAPPER.writeValueAsString( feed );
+        }
+        catch( JsonProcessingException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+
+/**
+ * Availability grid of a form: the slots (built from the rules and persisted) of each day of the display horizon, indexed by the offset of the day from the
+ * starting date of the grid. A day not built yet, invalidated or too old has no slots. The slots of a day are stored packed and never modified once stored,
+ * a change replaces the packed slots of the day
+ */
+public final class AvailabilityGrid
+{
+    private final int _nIdForm;
+    private final LocalDate _startingDate;
+    private final PackedSlots [ ] _days;
+    private final long [ ] _buildTimes;
+    private long _lVersion;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the first day of the grid
+     * @param nbDays
+     *            the number of days of the grid
+     */
+    public AvailabilityGrid( int nIdForm, LocalDate startingDate, int nbDays )
+    {
+        _nIdForm = nIdForm;
+        _startingDate = startingDate;
+        _days = new PackedSlots [ nbDays];
+        _buildTimes = new long [ nbDays];
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the first day of the grid
+     * 
+     * @return the first day
+     */
+    public LocalDate getStartingDate( )
+    {
+        return _startingDate;
+    }
+
+    /**
+     * Get the last day of the grid
+     * 
+     * @return the last day
+     */
+    public LocalDate getEndingDate( )
+    {
+        return _startingDate.plusDays( (long) _days.length - 1 );
+    }
+
+    /**
+     * Check if a period is inside the grid
+     * 
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @return true if all the days of the period are in the grid
+     */
+    public boolean covers( LocalDate startingDate, LocalDate endingDate )
+    {
+        return !startingDate.isBefore( _startingDate ) && !endingDate.isAfter( getEndingDate( ) );
+    }
+
+    /**
+     * Get the version of the grid, incremented on each change. Days built from the database are stored only if the grid did not change during the build
+     * 
+     * @return the version
+     */
+    public synchronized long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Get the slots of a day
+     * 
+     * @param date
+     *            the day
+     * @param lMinBuildTime
+     *            the days built before this time are considered as too old
+     * @return the packed slots of the day, null if the day is not in the grid, not built or too old
+     */
+    public synchronized PackedSlots getDay( LocalDate date, long lMinBuildTime )
+    {
+        int nIndex = indexOf( date );
+        if ( nIndex < 0 || _days [nIndex] == null || _buildTimes [nIndex] < lMinBuildTime )
+        {
+            return null;
+        }
+        return _days [nIndex];
+    }
+
+    /**
+     * Store the slots of a period built from the database
+     * 
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param listSlot
+     *            the slots of the period, sorted by starting date time
+     * @param lVersion
+     *            the version of the grid when the build started
+     * @param lBuildTime
+     *            the time of the build
+     * @return true if the days have been stored, false if the grid changed during the build
+     */
+    public synchronized boolean putDays( LocalDate startingDate, LocalDate endingDate, List<Slot> listSlot, long lVersion, long lBuildTime )
+    {
+        if ( lVersion != _lVersion )
+        {
+            return false;
+        }
+        List<List<Slot>> listDays = new ArrayList<>( );
+        for ( LocalDate date = startingDate; !date.isAfter( endingDate ); date = date.plusDays( 1 ) )
+        {
+            listDays.add( new ArrayList<>( ) );
+        }
+        for ( Slot slot : listSlot )
+        {
+            int nDay = (int) ChronoUnit.DAYS.between( startingDate, slot.getStartingDateTime( ).toLocalDate( ) );
+            if ( nDay >= 0 && nDay < listDays.size( ) )
+            {
+                listDays.get( nDay ).add( slot );
+            }
+        }
+        for ( int nDay = 0; nDay < listDays.size( ); nDay++ )
+        {
+            int nIndex = indexOf( startingDate.plusDays( nDay ) );
+            if ( nIndex >= 0 )
+            {
+                // A day that can not be packed is left out of the grid, it will be built on each read
+                _days [nIndex] = PackedSlots.of( listDays.get( nDay ) );
+                _buildTimes [nIndex] = lBuildTime;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace a slot in the grid by its new version. If the slot does not match a slot of its day (new bounds), the day is invalidated
+     * 
+     * @param slot
+     *            the new version of the slot
+     */
+    public synchronized void updateSlot( Slot slot )
+    {
+        _lVersion++;
+        int nIndex = indexOf( slot.getStartingDateTime( ).toLocalDate( ) );
+        if ( nIndex < 0 || _days [nIndex] == null )
+        {
+            return;
+        }
+        PackedSlots day = _days [nIndex];
+        int nSlot = day.indexOf( slot.getStartingDateTime( ), slot.getEndingDateTime( ) );
+        _days [nIndex] = ( nSlot < 0 ) ? null : day.with( nSlot, slot );
+    }
+
+    /**
+     * Invalidate the days of a period, they will be built again on the next read
+     * 
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     */
+    public synchronized void invalidate( LocalDate startingDate, LocalDate endingDate )
+    {
+        _lVersion++;
+        int nFirst = (int) Math.max( 0, ChronoUnit.DAYS.between( _startingDate, startingDate ) );
+        int nLast = (int) Math.min( _days.length - 1L, ChronoUnit.DAYS.between( _startingDate, endingDate ) );
+        for ( int nIndex = nFirst; nIndex <= nLast; nIndex++ )
+        {
+            _days [nIndex] = null;
+        }
+    }
+
+    /**
+     * Get the number of days built in the grid
+     * 
+     * @return the number of days built
+     */
+    public synchronized int getNbDaysBuilt( )
+    {
+        int nbDays = 0;
+        for ( PackedSlots day : _days )
+        {
+            if ( day != null )
+            {
+                nbDays++;
+            }
+        }
+        return nbDays;
+    }
+
+    /**
+     * Get the index of a day in the grid
+     * 
+     * @param date
+     *            the day
+     * @return the index of the day, -1 if the day is not in the grid
+     */
+    private int indexOf( LocalDate date )
+    {
+        long lIndex = ChronoUnit.DAYS.between( _startingDate, date );
+        return ( lIndex < 0 || lIndex >= _days.length ) ? -1 : (int) lIndex;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.service.listeners.IFormListener;
+import fr.paris.lutece.plugins.appointment.service.listeners.ISlotListener;
+import fr.paris.lutece.plugins.appointment.service.listeners.IWeekDefinitionListener;
+
+/**
+ * Listener keeping the availability grids of the forms up to date: the changed slots are replaced in the grids, the days of the changed weeks are
+ * invalidated. The availability summaries of the changed forms are removed
+ */
+public class AvailabilityGridListener implements ISlotListener, IWeekDefinitionListener, IFormListener
+{
+
+    @Override
+    public void notifySlotChange( int nIdSlot )
+    {
+        updateSlot( nIdSlot );
+    }
+
+    @Override
+    public void notifySlotCreation( int nIdSlot )
+    {
+        updateSlot( nIdSlot );
+    }
+
+    @Override
+    public void notifySlotRemoval( Slot slot )
+    {
+        AvailabilityGridService.invalidate( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ), slot.getStartingDateTime( ).toLocalDate( ) );
+    }
+
+    @Override
+    public void notifySlotEndingTimeHasChanged( int nIdSlot, int nIdFom, LocalDateTime endingDateTime )
+    {
+        AvailabilityGridService.invalidate( nIdFom, endingDateTime.toLocalDate( ), endingDateTime.toLocalDate( ) );
+    }
+
+    @Override
+    public void notifyWeekAssigned( WeekDefinition weekDefinition )
+    {
+        invalidateWeek( weekDefinition );
+    }
+
+    @Override
+    public void notifyWeekUnassigned( WeekDefinition weekDefinition )
+    {
+        invalidateWeek( weekDefinition );
+    }
+
+    @Override
+    public void notifyListWeeksChanged( int nIdForm, List<WeekDefinition> listWeek )
+    {
+        for ( WeekDefinition weekDefinition : listWeek )
+        {
+            AvailabilityGridService.invalidate( nIdForm, weekDefinition.getDateOfApply( ), weekDefinition.getEndingDateOfApply( ) );
+        }
+    }
+
+    @Override
+    public void notifyFormChange( int nIdForm )
+    {
+        AvailabilityGridService.removeGrid( nIdForm );
+    }
+
+    @Override
+    public void notifyFormCreation( int nIdForm )
+    {
+        // The grid is created on the first view of the calendar
+    }
+
+    @Override
+    public void notifyFormRemoval( int nIdForm )
+    {
+        AvailabilityGridService.removeGrid( nIdForm );
+    }
+
+    /**
+     * Replace a slot in the grid of its form by its version of the database, and remove the availability summary of the form
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    private static void updateSlot( int nIdSlot )
+    {
+        if ( AvailabilityGridService.isEmpty( ) && EarliestAvailabilityService.isEmpty( ) )
+        {
+            return;
+        }
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        if ( slot != null )
+        {
+            EarliestAvailabilityService.invalidate( slot );
+            AvailabilityGridService.updateSlot( slot );
+        }
+    }
+
+    /**
+     * Invalidate the days of a week definition in the grid of its form
+     * 
+     * @param weekDefinition
+     *            the week definition
+     */
+    private static void invalidateWeek( WeekDefinition weekDefinition )
+    {
+        ReservationRule reservationRule = ReservationRuleHome.findByPrimaryKey( weekDefinition.getIdReservationRule( ) );
+        if ( reservationRule != null )
+        {
+            AvailabilityGridService.invalidate( reservationRule.getIdForm( ), weekDefinition.getDateOfApply( ), weekDefinition.getEndingDateOfApply( ) );
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Availability grids of the forms, read by the calendar of the front office instead of building all the slots of the display horizon on each view. The
+ * grids are kept up to date by the slot, week definition and form listeners of this node. A day is built again after a maximum age, to get the changes made
+ * by the other nodes
+ */
+public final class AvailabilityGridService
+{
+    // Properties
+    private static final String PROPERTY_ENABLED = "appointment.availabilityGrid.enabled";
+    private static final String PROPERTY_HORIZON = "appointment.availabilityGrid.horizon";
+    private static final String PROPERTY_MAX_AGE = "appointment.availabilityGrid.maxAge";
+
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final int HORIZON = AppPropertiesService.getPropertyInt( PROPERTY_HORIZON, 366 );
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_MAX_AGE, 60 ) );
+
+    private static final Map<Integer, AvailabilityGrid> _mapGrids = new ConcurrentHashMap<>( );
+    private static final Map<Integer, AtomicLong> _mapVersions = new ConcurrentHashMap<>( );
+    private static final AtomicLong _nbDaysRead = new AtomicLong( );
+    private static final AtomicLong _nbDaysBuilt = new AtomicLong( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilityGridService( )
+    {
+    }
+
+    /**
+     * Get all the slots of a form for a period, from the availability grid of the form. The days missing in the grid are built with the rules and the slots of
+     * the database, and stored in the grid
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param mapReservationRule
+     *            the reservation rules of the week definitions of the period
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @return the slots of the period, that can be modified by the caller
+     */
+    public static List<Slot> findListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate,
+            LocalDate endingDate )
+    {
+        return findListSlot( nIdForm, mapReservationRule, startingDate, endingDate, null );
+    }
+
+    /**
+     * Get the slots of a form for a period accepted by a filter, from the availability grid of the form. The days missing in the grid are built with the rules
+     * and the slots of the database, and stored in the grid. The slots of the grid rejected by the filter are not built
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param mapReservationRule
+     *            the reservation rules of the week definitions of the period
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param filter
+     *            the filter of the slots, null to keep all the slots
+     * @return the slots of the period accepted by the filter, that can be modified by the caller
+     */
+    public static List<Slot> findListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate,
+            LocalDate endingDate, SlotFilter filter )
+    {
+        LocalDate startingDateToRead = startingDate;
+        if ( filter != null && filter.getMinStartingDateTime( ) != null && startingDate.isBefore( filter.getMinStartingDateTime( ).toLocalDate( ) ) )
+        {
+            startingDateToRead = filter.getMinStartingDateTime( ).toLocalDate( );
+        }
+        if ( !ENABLED || mapReservationRule.isEmpty( ) || startingDateToRead.isAfter( endingDate ) )
+        {
+            return SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateToRead, endingDate, 0, filter );
+        }
+        AvailabilityGrid grid = getGrid( nIdForm );
+        if ( !grid.covers( startingDateToRead, endingDate ) )
+        {
+            return SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateToRead, endingDate, 0, filter );
+        }
+        long lMinBuildTime = System.currentTimeMillis( ) - MAX_AGE;
+        List<Slot> listSlot = new ArrayList<>( );
+        LocalDate date = startingDateToRead;
+        while ( !date.isAfter( endingDate ) )
+        {
+            PackedSlots day = grid.getDay( date, lMinBuildTime );
+            if ( day != null )
+            {
+                _nbDaysRead.incrementAndGet( );
+                if ( filter == null || filter.acceptDay( date ) )
+                {
+                    for ( int nSlot = 0; nSlot < day.size( ); nSlot++ )
+                    {
+                        if ( filter == null || day.accept( nSlot, filter ) )
+                        {
+                            listSlot.add( day.toSlot( nSlot, nIdForm ) );
+                        }
+                    }
+                }
+                date = date.plusDays( 1 );
+            }
+            else
+            {
+                // Build all the following days missing in the grid at once
+                LocalDate endingDateToBuild = date;
+                while ( endingDateToBuild.isBefore( endingDate ) && grid.getDay( endingDateToBuild.plusDays( 1 ), lMinBuildTime ) == null )
+                {
+                    endingDateToBuild = endingDateToBuild.plusDays( 1 );
+                }
+                long lVersion = grid.getVersion( );
+                long lBuildTime = System.currentTimeMillis( );
+                List<Slot> listSlotBuilt = SlotService.buildListSlot( nIdForm, mapReservationRule, date, endingDateToBuild );
+                grid.putDays( date, endingDateToBuild, listSlotBuilt, lVersion, lBuildTime );
+                _nbDaysBuilt.addAndGet( endingDateToBuild.toEpochDay( ) - date.toEpochDay( ) + 1 );
+                for ( Slot slot : listSlotBuilt )
+                {
+                    if ( filter == null || filter.accept( slot ) )
+                    {
+                        listSlot.add( slot );
+                    }
+                }
+                date = endingDateToBuild.plusDays( 1 );
+            }
+        }
+        return listSlot;
+    }
+
+    /**
+     * Update a slot in the availability grid of its form
+     * 
+     * @param slot
+     *            the new version of the slot
+     */
+    public static void updateSlot( Slot slot )
+    {
+        incrementVersion( slot.getIdForm( ) );
+        AvailabilityGrid grid = _mapGrids.get( slot.getIdForm( ) );
+        if ( grid != null )
+        {
+            grid.updateSlot( slot );
+        }
+    }
+
+    /**
+     * Invalidate the days of a period in the availability grid of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     */
+    public static void invalidate( int nIdForm, LocalDate startingDate, LocalDate endingDate )
+    {
+        incrementVersion( nIdForm );
+        EarliestAvailabilityService.invalidate( nIdForm );
+        AvailabilityGrid grid = _mapGrids.get( nIdForm );
+        if ( grid != null )
+        {
+            grid.invalidate( startingDate, endingDate );
+        }
+    }
+
+    /**
+     * Remove the availability grid of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void removeGrid( int nIdForm )
+    {
+        incrementVersion( nIdForm );
+        EarliestAvailabilityService.invalidate( nIdForm );
+        _mapGrids.remove( nIdForm );
+    }
+
+    /**
+     * Get the availability version of a form, incremented on each change of its slots, rules or configuration made on this node. The version of a form is
+     * kept once read, so that the changes are counted from then on
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the version
+     */
+    public static long getVersion( int nIdForm )
+    {
+        return _mapVersions.computeIfAbsent( nIdForm, id -> new AtomicLong( ) ).get( );
+    }
+
+    /**
+     * Check if there is at least one availability grid or version
+     * 
+     * @return true if no form has an availability grid or a version
+     */
+    public static boolean isEmpty( )
+    {
+        return _mapGrids.isEmpty( ) && _mapVersions.isEmpty( );
+    }
+
+    /**
+     * Get the metrics of the availability grids
+     * 
+     * @return the number of grids, of days built and of days read from the grids
+     */
+    public static String getMetrics( )
+    {
+        int nbDaysInGrids = 0;
+        for ( AvailabilityGrid grid : _mapGrids.values( ) )
+        {
+            nbDaysInGrids += grid.getNbDaysBuilt( );
+        }
+        return _mapGrids.size( ) + " forms, " + nbDaysInGrids + " days in memory, " + _nbDaysRead.get( ) + " days read, " + _nbDaysBuilt.get( )
+                + " days built";
+    }
+
+    /**
+     * Increment the availability version of a form, if it has been read
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    private static void incrementVersion( int nIdForm )
+    {
+        AtomicLong version = _mapVersions.get( nIdForm );
+        if ( version != null )
+        {
+            version.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Get the availability grid of a form, starting today. The grid of a previous day is replaced
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the availability grid
+     */
+    private static AvailabilityGrid getGrid( int nIdForm )
+    {
+        LocalDate today = LocalDate.now( );
+        return _mapGrids.compute( nIdForm, ( id, grid ) -> ( grid == null || grid.getStartingDate( ).isBefore( today ) ) ? new AvailabilityGrid( id, today,
+                HORIZON ) : grid );
+    }
+}
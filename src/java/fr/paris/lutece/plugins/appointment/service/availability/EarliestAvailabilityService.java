@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections.CollectionUtils;
+
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.localization.LocalizationHome;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.DisplayService;
+import fr.paris.lutece.plugins.appointment.service.FormRuleService;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
+import fr.paris.lutece.plugins.appointment.service.SlotGenerator;
+import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Search of the earliest available slots across the active forms, optionally of a category and near a point. Each form has a summary (its localization, its
+ * min time before an appointment and its first available slot) kept in memory. The forms are merged on their next available slot: the slots of a form after
+ * its first one are only built if the form is picked by the merge
+ */
+public final class EarliestAvailabilityService
+{
+    // Properties
+    private static final String PROPERTY_MAX_AGE = "appointment.earliestAvailability.maxAge";
+    private static final String PROPERTY_MAX_RESULTS = "appointment.earliestAvailability.maxResults";
+
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_MAX_AGE, 60 ) );
+    private static final int MAX_RESULTS = AppPropertiesService.getPropertyInt( PROPERTY_MAX_RESULTS, 50 );
+
+    // Mean radius of the earth in kilometers
+    private static final double EARTH_RADIUS = 6371.0;
+
+    private static final Map<Integer, FormSummary> _mapSummaries = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private EarliestAvailabilityService( )
+    {
+    }
+
+    /**
+     * Find the earliest available slots across the active forms
+     * 
+     * @param nIdCategory
+     *            the id of the category of the forms, null for all the forms
+     * @param dLatitude
+     *            the latitude of the point of the search, null for no point
+     * @param dLongitude
+     *            the longitude of the point of the search, null for no point
+     * @param dRadius
+     *            the maximum distance in kilometers of the forms from the point, null for no limit
+     * @param nNbSlots
+     *            the number of slots to find (limited by the property appointment.earliestAvailability.maxResults)
+     * @return the available slots ordered by their starting date time
+     */
+    public static List<EarliestSlot> findEarliestSlots( Integer nIdCategory, Double dLatitude, Double dLongitude, Double dRadius, int nNbSlots )
+    {
+        int nNbSlotsToFind = Math.min( nNbSlots, MAX_RESULTS );
+        List<EarliestSlot> listEarliestSlot = new ArrayList<>( );
+        if ( nNbSlotsToFind < 1 )
+        {
+            return listEarliestSlot;
+        }
+        List<Form> listForm = ( nIdCategory != null ) ? FormHome.findByCategory( nIdCategory ) : FormHome.findActiveForms( );
+        PriorityQueue<FormCursor> queue = new PriorityQueue<>( Comparator.comparing( ( FormCursor cursor ) -> cursor.getHead( ).getStartingDateTime( ) ) );
+        LocalDateTime now = LocalDateTime.now( );
+        for ( Form form : listForm )
+        {
+            if ( !isOpen( form, now.toLocalDate( ) ) )
+            {
+                continue;
+            }
+            FormSummary summary = getSummary( form, now );
+            Double dDistance = getDistance( summary.getLocalization( ), dLatitude, dLongitude );
+            if ( summary.getFirstSlot( ) != null && ( dRadius == null || ( dDistance != null && dDistance <= dRadius ) ) )
+            {
+                queue.add( new FormCursor( form, summary, dDistance ) );
+            }
+        }
+        while ( listEarliestSlot.size( ) < nNbSlotsToFind && !queue.isEmpty( ) )
+        {
+            FormCursor cursor = queue.poll( );
+            listEarliestSlot.add( new EarliestSlot( cursor.getForm( ), cursor.getSummary( ).getLocalization( ), cursor.getHead( ), cursor.getDistance( ) ) );
+            if ( cursor.advance( ) )
+            {
+                queue.add( cursor );
+            }
+        }
+        return listEarliestSlot;
+    }
+
+    /**
+     * Remove the summary of a form, to compute it again on the next search
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _mapSummaries.remove( nIdForm );
+    }
+
+    /**
+     * Remove the summary of the form of a changed slot if the change can modify its first available slot: a slot after the first available slot of the form
+     * can not become the first one
+     * 
+     * @param slot
+     *            the changed slot
+     */
+    public static void invalidate( Slot slot )
+    {
+        _mapSummaries.computeIfPresent( slot.getIdForm( ), ( id, summary ) -> ( summary.getFirstSlot( ) != null
+                && slot.getStartingDateTime( ).isAfter( summary.getFirstSlot( ).getStartingDateTime( ) ) ) ? summary : null );
+    }
+
+    /**
+     * Check if there is at least one summary
+     * 
+     * @return true if no form has an availability summary
+     */
+    public static boolean isEmpty( )
+    {
+        return _mapSummaries.isEmpty( );
+    }
+
+    /**
+     * Compute the distance between two points with the haversine formula
+     * 
+     * @param dLatitude1
+     *            the latitude of the first point
+     * @param dLongitude1
+     *            the longitude of the first point
+     * @param dLatitude2
+     *            the latitude of the second point
+     * @param dLongitude2
+     *            the longitude of the second point
+     * @return the distance in kilometers
+     */
+    public static double computeDistance( double dLatitude1, double dLongitude1, double dLatitude2, double dLongitude2 )
+    {
+        double dDeltaLatitude = Math.toRadians( dLatitude2 - dLatitude1 );
+        double dDeltaLongitude = Math.toRadians( dLongitude2 - dLongitude1 );
+        double dA = Math.sin( dDeltaLatitude / 2 ) * Math.sin( dDeltaLatitude / 2 ) + Math.cos( Math.toRadians( dLatitude1 ) )
+                * Math.cos( Math.toRadians( dLatitude2 ) ) * Math.sin( dDeltaLongitude / 2 ) * Math.sin( dDeltaLongitude / 2 );
+        return 2 * EARTH_RADIUS * Math.atan2( Math.sqrt( dA ), Math.sqrt( 1 - dA ) );
+    }
+
+    /**
+     * Get the distance of a localization from a point
+     * 
+     * @param localization
+     *            the localization, may be null
+     * @param dLatitude
+     *            the latitude of the point, may be null
+     * @param dLongitude
+     *            the longitude of the point, may be null
+     * @return the distance in kilometers, null if the point or the coordinates of the localization are missing
+     */
+    private static Double getDistance( Localization localization, Double dLatitude, Double dLongitude )
+    {
+        if ( localization == null || localization.getLatitude( ) == null || localization.getLongitude( ) == null || dLatitude == null || dLongitude == null )
+        {
+            return null;
+        }
+        return computeDistance( dLatitude, dLongitude, localization.getLatitude( ), localization.getLongitude( ) );
+    }
+
+    /**
+     * Check if a form is active and valid on a day
+     * 
+     * @param form
+     *            the form
+     * @param date
+     *            the day
+     * @return true if the appointments can be taken on the form
+     */
+    private static boolean isOpen( Form form, LocalDate date )
+    {
+        return form.getIsActive( ) && form.getStartingValidityDate( ) != null && !form.getStartingValidityDate( ).isAfter( date )
+                && ( form.getEndingValidityDate( ) == null || !form.getEndingValidityDate( ).isBefore( date ) );
+    }
+
+    /**
+     * Get the summary of a form, computed again if it is too old or if its first available slot is now too close
+     * 
+     * @param form
+     *            the form
+     * @param now
+     *            the current date time
+     * @return the summary of the form
+     */
+    private static FormSummary getSummary( Form form, LocalDateTime now )
+    {
+        FormSummary summary = _mapSummaries.get( form.getIdForm( ) );
+        if ( summary == null || summary.getComputeTime( ) < System.currentTimeMillis( ) - MAX_AGE
+                || ( summary.getFirstSlot( ) != null && !summary.getFirstSlot( ).getStartingDateTime( ).isAfter( summary.getFrom( now ) ) ) )
+        {
+            long lComputeTime = System.currentTimeMillis( );
+            FormRule formRule = FormRuleService.findFormRuleWithFormId( form.getIdForm( ) );
+            summary = new FormSummary( LocalizationHome.findByIdForm( form.getIdForm( ) ), ( formRule != null ) ? formRule.getMinTimeBeforeAppointment( ) : 0,
+                    lComputeTime );
+            Iterator<Slot> iterator = findAvailableSlots( form, summary.getFrom( now ) );
+            summary.setFirstSlot( iterator.hasNext( ) ? iterator.next( ) : null );
+            _mapSummaries.put( form.getIdForm( ), summary );
+        }
+        return summary;
+    }
+
+    /**
+     * Get the available slots of a form starting after a date time, built when they are consumed. The slots are searched until the end of the display of the
+     * calendar of the form, as computed by the calendar and the availability feed
+     * 
+     * @param form
+     *            the form
+     * @param from
+     *            the date time after which the slots must start
+     * @return the iterator on the available slots, in order
+     */
+    private static Iterator<Slot> findAvailableSlots( Form form, LocalDateTime from )
+    {
+        Display display = DisplayService.findDisplayWithFormId( form.getIdForm( ) );
+        if ( display == null || form.getStartingValidityDate( ) == null )
+        {
+            return new ArrayList<Slot>( ).iterator( );
+        }
+        LocalDate startingDateOfDisplay = FormService.getStartingDateOfDisplay( form.getStartingValidityDate( ) );
+        LocalDate endingDate = FormService.getEndingDateOfDisplay( startingDateOfDisplay, display.getNbWeeksToDisplay( ), form.getEndingValidityDate( ),
+                I18nService.getDefaultLocale( ) );
+        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( form.getIdForm( ) );
+        if ( CollectionUtils.isEmpty( listWeekDefinition ) || endingDate.isBefore( from.toLocalDate( ) ) )
+        {
+            return new ArrayList<Slot>( ).iterator( );
+        }
+        Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( form.getIdForm( ), listWeekDefinition );
+        return SlotGenerator.of( form.getIdForm( ), mapReservationRule, from.toLocalDate( ), endingDate ).withGrowingWindows( )
+                .withFilter( SlotFilter.available( from, 1 ) ).stream( ).iterator( );
+    }
+
+    /**
+     * Summary of the availability of a form
+     */
+    private static final class FormSummary
+    {
+        private final Localization _localization;
+        private final int _nMinTimeBeforeAppointment;
+        private final long _lComputeTime;
+        private Slot _firstSlot;
+
+        FormSummary( Localization localization, int nMinTimeBeforeAppointment, long lComputeTime )
+        {
+            _localization = localization;
+            _nMinTimeBeforeAppointment = nMinTimeBeforeAppointment;
+            _lComputeTime = lComputeTime;
+        }
+
+        Localization getLocalization( )
+        {
+            return _localization;
+        }
+
+        long getComputeTime( )
+        {
+            return _lComputeTime;
+        }
+
+        LocalDateTime getFrom( LocalDateTime now )
+        {
+            return now.plusHours( _nMinTimeBeforeAppointment );
+        }
+
+        Slot getFirstSlot( )
+        {
+            return _firstSlot;
+        }
+
+        void setFirstSlot( Slot firstSlot )
+        {
+            _firstSlot = firstSlot;
+        }
+    }
+
+    /**
+     * Cursor of the merge on the available slots of a form. It starts on the first available slot of the summary, the following slots are built on the
+     * first advance
+     */
+    private static final class FormCursor
+    {
+        private final Form _form;
+        private final FormSummary _summary;
+        private final Double _dDistance;
+        private Slot _head;
+        private Iterator<Slot> _iterator;
+
+        FormCursor( Form form, FormSummary summary, Double dDistance )
+        {
+            _form = form;
+            _summary = summary;
+            _dDistance = dDistance;
+            _head = summary.getFirstSlot( );
+        }
+
+        Form getForm( )
+        {
+            return _form;
+        }
+
+        FormSummary getSummary( )
+        {
+            return _summary;
+        }
+
+        Double getDistance( )
+        {
+            return _dDistance;
+        }
+
+        Slot getHead( )
+        {
+            return _head;
+        }
+
+        /**
+         * Move to the next available slot of the form
+         * 
+         * @return false if there is no more available slot
+         */
+        boolean advance( )
+        {
+            if ( _iterator == null )
+            {
+                _iterator = findAvailableSlots( _form, _head.getStartingDateTime( ) );
+            }
+            _head = _iterator.hasNext( ) ? _iterator.next( ) : null;
+            return _head != null;
+        }
+    }
+}
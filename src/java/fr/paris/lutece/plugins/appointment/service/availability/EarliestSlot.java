@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.io.Serializable;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+
+/**
+ * Available slot found by a search across the forms, with its form, the localization of the form and its distance from the point of the search
+ */
+public final class EarliestSlot implements Serializable
+{
+    private static final long serialVersionUID = -3163358476614658207L;
+
+    private final Form _form;
+    private final Localization _localization;
+    private final Slot _slot;
+    private final Double _dDistance;
+
+    /**
+     * Constructor
+     * 
+     * @param form
+     *            the form of the slot
+     * @param localization
+     *            the localization of the form, may be null
+     * @param slot
+     *            the available slot
+     * @param dDistance
+     *            the distance in kilometers of the form from the point of the search, null if there is no point or no coordinates
+     */
+    public EarliestSlot( Form form, Localization localization, Slot slot, Double dDistance )
+    {
+        _form = form;
+        _localization = localization;
+        _slot = slot;
+        _dDistance = dDistance;
+    }
+
+    /**
+     * Get the form of the slot
+     * 
+     * @return the form
+     */
+    public Form getForm( )
+    {
+        return _form;
+    }
+
+    /**
+     * Get the localization of the form
+     * 
+     * @return the localization, may be null
+     */
+    public Localization getLocalization( )
+    {
+        return _localization;
+    }
+
+    /**
+     * Get the available slot
+     * 
+     * @return the slot
+     */
+    public Slot getSlot( )
+    {
+        return _slot;
+    }
+
+    /**
+     * Get the distance of the form from the point of the search
+     * 
+     * @return the distance in kilometers, null if unknown
+     */
+    public Double getDistance( )
+    {
+        return _dDistance;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
+
+/**
+ * Compact representation of the slots of a day: each slot is stored as a fixed number of ints in a single array (starting minute since the epoch, duration in
+ * minutes, id, capacities and a bitfield of flags), instead of a Slot bean with its date and time objects. The slot beans are built only on read. An instance
+ * is never modified, a change returns a new instance
+ */
+public final class PackedSlots
+{
+    private static final int START = 0;
+    private static final int DURATION = 1;
+    private static final int ID_SLOT = 2;
+    private static final int MAX_CAPACITY = 3;
+    private static final int REMAINING_PLACES = 4;
+    private static final int POTENTIAL_REMAINING_PLACES = 5;
+    private static final int PLACES_TAKEN = 6;
+    private static final int FLAGS = 7;
+    private static final int STRIDE = 8;
+
+    private static final int FLAG_OPEN = 1;
+    private static final int FLAG_SPECIFIC = 1 << 1;
+    private static final int FLAG_PASSED = 1 << 2;
+    private static final int FLAG_FULL = 1 << 3;
+
+    private static final PackedSlots EMPTY = new PackedSlots( new int [ 0] );
+
+    private final int [ ] _data;
+
+    /**
+     * Constructor
+     * 
+     * @param data
+     *            the packed slots
+     */
+    private PackedSlots( int [ ] data )
+    {
+        _data = data;
+    }
+
+    /**
+     * Pack a list of slots
+     * 
+     * @param listSlot
+     *            the slots
+     * @return the packed slots, null if a slot can not be packed (bounds not on an exact minute)
+     */
+    public static PackedSlots of( List<Slot> listSlot )
+    {
+        if ( listSlot.isEmpty( ) )
+        {
+            return EMPTY;
+        }
+        int [ ] data = new int [ listSlot.size( ) * STRIDE];
+        for ( int i = 0; i < listSlot.size( ); i++ )
+        {
+            if ( !pack( listSlot.get( i ), data, i * STRIDE ) )
+            {
+                return null;
+            }
+        }
+        return new PackedSlots( data );
+    }
+
+    /**
+     * Get the number of slots
+     * 
+     * @return the number of slots
+     */
+    public int size( )
+    {
+        return _data.length / STRIDE;
+    }
+
+    /**
+     * Get the starting date time of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return the starting date time
+     */
+    public LocalDateTime getStartingDateTime( int nIndex )
+    {
+        return toDateTime( _data [nIndex * STRIDE + START] );
+    }
+
+    /**
+     * Get the potential remaining places of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return the potential remaining places
+     */
+    public int getNbPotentialRemainingPlaces( int nIndex )
+    {
+        return _data [nIndex * STRIDE + POTENTIAL_REMAINING_PLACES];
+    }
+
+    /**
+     * Check if a slot is open
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return true if the slot is open
+     */
+    public boolean isOpen( int nIndex )
+    {
+        return ( _data [nIndex * STRIDE + FLAGS] & FLAG_OPEN ) != 0;
+    }
+
+    /**
+     * Check if a slot is accepted by a filter, without building it. The days of the week of the filter are not checked, the day is checked once for all its
+     * slots
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @param filter
+     *            the filter
+     * @return true if the slot is accepted
+     */
+    public boolean accept( int nIndex, SlotFilter filter )
+    {
+        int nOffset = nIndex * STRIDE;
+        LocalDateTime minStartingDateTime = filter.getMinStartingDateTime( );
+        // The slots start on an exact minute
+        if ( minStartingDateTime != null && _data [nOffset + START] * 60L <= minStartingDateTime.toEpochSecond( ZoneOffset.UTC ) )
+        {
+            return false;
+        }
+        return filter.acceptPlaces( ( _data [nOffset + FLAGS] & FLAG_OPEN ) != 0, _data [nOffset + REMAINING_PLACES],
+                _data [nOffset + POTENTIAL_REMAINING_PLACES] );
+    }
+
+    /**
+     * Find a slot by its bounds
+     * 
+     * @param startingDateTime
+     *            the starting date time of the slot
+     * @param endingDateTime
+     *            the ending date time of the slot
+     * @return the index of the slot, -1 if there is no slot with these bounds
+     */
+    public int indexOf( LocalDateTime startingDateTime, LocalDateTime endingDateTime )
+    {
+        if ( !isOnMinute( startingDateTime ) || !isOnMinute( endingDateTime ) )
+        {
+            return -1;
+        }
+        long lStart = toEpochMinute( startingDateTime );
+        long lDuration = toEpochMinute( endingDateTime ) - lStart;
+        for ( int nOffset = 0; nOffset < _data.length; nOffset += STRIDE )
+        {
+            if ( _data [nOffset + START] == lStart && _data [nOffset + DURATION] == lDuration )
+            {
+                return nOffset / STRIDE;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace a slot
+     * 
+     * @param nIndex
+     *            the index of the slot to replace
+     * @param slot
+     *            the new version of the slot
+     * @return the new packed slots, null if the slot can not be packed
+     */
+    public PackedSlots with( int nIndex, Slot slot )
+    {
+        int [ ] data = _data.clone( );
+        return pack( slot, data, nIndex * STRIDE ) ? new PackedSlots( data ) : null;
+    }
+
+    /**
+     * Build the bean of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @param nIdForm
+     *            the id of the form of the slot
+     * @return the slot
+     */
+    public Slot toSlot( int nIndex, int nIdForm )
+    {
+        int nOffset = nIndex * STRIDE;
+        int nFlags = _data [nOffset + FLAGS];
+        LocalDateTime startingDateTime = toDateTime( _data [nOffset + START] );
+        LocalDateTime endingDateTime = startingDateTime.plusMinutes( _data [nOffset + DURATION] );
+        Slot slot = new Slot( );
+        slot.setIdSlot( _data [nOffset + ID_SLOT] );
+        slot.setIdForm( nIdForm );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( endingDateTime );
+        slot.setDate( startingDateTime.toLocalDate( ) );
+        slot.setStartingTime( startingDateTime.toLocalTime( ) );
+        slot.setEndingTime( endingDateTime.toLocalTime( ) );
+        slot.setMaxCapacity( _data [nOffset + MAX_CAPACITY] );
+        slot.setNbRemainingPlaces( _data [nOffset + REMAINING_PLACES] );
+        slot.setNbPotentialRemainingPlaces( _data [nOffset + POTENTIAL_REMAINING_PLACES] );
+        slot.setNbPlacestaken( _data [nOffset + PLACES_TAKEN] );
+        slot.setIsOpen( ( nFlags & FLAG_OPEN ) != 0 );
+        slot.setIsSpecific( ( nFlags & FLAG_SPECIFIC ) != 0 );
+        slot.setIsPassed( ( nFlags & FLAG_PASSED ) != 0 );
+        slot.setIsFull( ( nFlags & FLAG_FULL ) != 0 ? 1 : 0 );
+        return slot;
+    }
+
+    /**
+     * Pack a slot
+     * 
+     * @param slot
+     *            the slot
+     * @param data
+     *            the packed slots
+     * @param nOffset
+     *            the offset of the slot in the packed slots
+     * @return false if the slot can not be packed
+     */
+    private static boolean pack( Slot slot, int [ ] data, int nOffset )
+    {
+        LocalDateTime startingDateTime = slot.getStartingDateTime( );
+        LocalDateTime endingDateTime = slot.getEndingDateTime( );
+        if ( startingDateTime == null || endingDateTime == null || !isOnMinute( startingDateTime ) || !isOnMinute( endingDateTime ) )
+        {
+            return false;
+        }
+        long lStart = toEpochMinute( startingDateTime );
+        long lDuration = toEpochMinute( endingDateTime ) - lStart;
+        if ( lStart != (int) lStart || lDuration != (int) lDuration )
+        {
+            return false;
+        }
+        data [nOffset + START] = (int) lStart;
+        data [nOffset + DURATION] = (int) lDuration;
+        data [nOffset + ID_SLOT] = slot.getIdSlot( );
+        data [nOffset + MAX_CAPACITY] = slot.getMaxCapacity( );
+        data [nOffset + REMAINING_PLACES] = slot.getNbRemainingPlaces( );
+        data [nOffset + POTENTIAL_REMAINING_PLACES] = slot.getNbPotentialRemainingPlaces( );
+        data [nOffset + PLACES_TAKEN] = slot.getNbPlacesTaken( );
+        int nFlags = 0;
+        if ( slot.getIsOpen( ) )
+        {
+            nFlags |= FLAG_OPEN;
+        }
+        if ( slot.getIsSpecific( ) )
+        {
+            nFlags |= FLAG_SPECIFIC;
+        }
+        if ( slot.getIsPassed( ) )
+        {
+            nFlags |= FLAG_PASSED;
+        }
+        if ( slot.getIsFull( ) && slot.getNbPotentialRemainingPlaces( ) > 0 )
+        {
+            // Full set explicitly (grouped slots), otherwise it is computed from the potential remaining places
+            nFlags |= FLAG_FULL;
+        }
+        data [nOffset + FLAGS] = nFlags;
+        return true;
+    }
+
+    /**
+     * Check if a date time is on an exact minute
+     * 
+     * @param dateTime
+     *            the date time
+     * @return true if the seconds and nanoseconds are zero
+     */
+    private static boolean isOnMinute( LocalDateTime dateTime )
+    {
+        return dateTime.getSecond( ) == 0 && dateTime.getNano( ) == 0;
+    }
+
+    /**
+     * Get the number of minutes between the epoch and a date time
+     * 
+     * @param dateTime
+     *            the date time
+     * @return the number of minutes
+     */
+    private static long toEpochMinute( LocalDateTime dateTime )
+    {
+        return dateTime.toEpochSecond( ZoneOffset.UTC ) / 60;
+    }
+
+    /**
+     * Get the date time of a number of minutes since the epoch
+     * 
+     * @param nEpochMinute
+     *            the number of minutes
+     * @return the date time
+     */
+    private static LocalDateTime toDateTime( int nEpochMinute )
+    {
+        return LocalDateTime.ofEpochSecond( nEpochMinute * 60L, 0, ZoneOffset.UTC );
+    }
+}
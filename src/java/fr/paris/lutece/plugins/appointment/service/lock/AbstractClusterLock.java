@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+/**
+ * Lock held by one thread of this node and, for the providers shared by several nodes, by this node on the cluster. The lock is reentrant: the cluster lock
+ * is only acquired by the first hold of the thread and released by its last unlock. The time waited for the lock is recorded in the metrics of the provider
+ */
+public abstract class AbstractClusterLock implements ISlotLock
+{
+    private final ReentrantLock _localLock;
+    private final LockWaitMetrics _metrics;
+    private final LongAdder _nbContentions = new LongAdder( );
+
+    /**
+     * Constructor
+     * 
+     * @param metrics
+     *            the metrics of the provider
+     * @param bFair
+     *            true if the lock must be granted to the longest-waiting thread of this node
+     */
+    protected AbstractClusterLock( LockWaitMetrics metrics, boolean bFair )
+    {
+        _localLock = new ReentrantLock( bFair );
+        _metrics = metrics;
+    }
+
+    /**
+     * Acquire the lock on the cluster. Called by the thread holding the local lock
+     * 
+     * @param lTimeoutNanos
+     *            the max time to wait, in nanoseconds (negative to wait with no limit)
+     * @return true if the lock has been acquired
+     */
+    protected abstract boolean acquireClusterLock( long lTimeoutNanos );
+
+    /**
+     * Release the lock on the cluster. Called by the thread holding the local lock
+     */
+    protected abstract void releaseClusterLock( );
+
+    @Override
+    public void lock( )
+    {
+        long lStart = System.nanoTime( );
+        countContention( );
+        _localLock.lock( );
+        if ( !acquireOnFirstHold( -1, lStart ) )
+        {
+            throw new AppException( "Unable to acquire the lock" );
+        }
+    }
+
+    @Override
+    public boolean tryLock( )
+    {
+        long lStart = System.nanoTime( );
+        if ( !_localLock.tryLock( ) )
+        {
+            _nbContentions.increment( );
+            _metrics.record( System.nanoTime( ) - lStart, false );
+            return false;
+        }
+        return acquireOnFirstHold( 0, lStart );
+    }
+
+    @Override
+    public boolean tryLock( long lTime, TimeUnit unit ) throws InterruptedException
+    {
+        long lStart = System.nanoTime( );
+        countContention( );
+        if ( !_localLock.tryLock( lTime, unit ) )
+        {
+            _metrics.record( System.nanoTime( ) - lStart, false );
+            return false;
+        }
+        long lRemainingNanos = Math.max( 0, unit.toNanos( lTime ) - ( System.nanoTime( ) - lStart ) );
+        return acquireOnFirstHold( lRemainingNanos, lStart );
+    }
+
+    @Override
+    public void unlock( )
+    {
+        if ( _localLock.getHoldCount( ) == 1 )
+        {
+            try
+            {
+                releaseClusterLock( );
+            }
+            finally
+            {
+                _localLock.unlock( );
+            }
+        }
+        else
+        {
+            _localLock.unlock( );
+        }
+    }
+
+    /**
+     * Get the number of times a thread of this node had to wait for the lock
+     * 
+     * @return the number of contentions
+     */
+    public long getNbContentions( )
+    {
+        return _nbContentions.sum( );
+    }
+
+    /**
+     * Count a contention if the local lock is held by another thread. The lock is not tried first, so that a fair lock stays fair
+     */
+    private void countContention( )
+    {
+        if ( _localLock.isLocked( ) && !_localLock.isHeldByCurrentThread( ) )
+        {
+            _nbContentions.increment( );
+        }
+    }
+
+    /**
+     * Acquire the cluster lock if the current thread has just taken the local lock for the first time. The local lock is released if the cluster lock can
+     * not be acquired
+     * 
+     * @param lTimeoutNanos
+     *            the max time to wait, in nanoseconds (negative to wait with no limit)
+     * @param lStart
+     *            the time the thread started to wait, in nanoseconds
+     * @return true if the lock is held
+     */
+    private boolean acquireOnFirstHold( long lTimeoutNanos, long lStart )
+    {
+        if ( _localLock.getHoldCount( ) > 1 )
+        {
+            return true;
+        }
+        boolean bAcquired = false;
+        try
+        {
+            bAcquired = acquireClusterLock( lTimeoutNanos );
+        }
+        finally
+        {
+            if ( !bAcquired )
+            {
+                _localLock.unlock( );
+            }
+            _metrics.record( System.nanoTime( ) - lStart, bAcquired );
+        }
+        return bAcquired;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import fr.paris.lutece.plugins.appointment.business.lock.ILockDAO;
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.sql.MultiPluginTransaction;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Base class of the lock providers shared by several nodes through the database. The locks use the connections of the pool of the plugin, or the connection
+ * of the transaction of the plugin in progress in the thread
+ */
+public abstract class AbstractDatabaseSlotLockProvider extends AbstractSlotLockProvider
+{
+    private final ILockDAO _dao = SpringContextService.getBean( "appointment.lockDAO" );
+
+    /**
+     * Get the lock DAO
+     * 
+     * @return the lock DAO
+     */
+    protected ILockDAO getLockDAO( )
+    {
+        return _dao;
+    }
+
+    /**
+     * Get a connection of the pool of the plugin, in auto commit mode
+     * 
+     * @return the connection
+     */
+    protected Connection getConnection( )
+    {
+        Connection connection = getConnectionService( ).getConnection( );
+        try
+        {
+            connection.setAutoCommit( true );
+        }
+        catch( SQLException e )
+        {
+            getConnectionService( ).freeConnection( connection );
+            throw new AppException( e.getMessage( ), e );
+        }
+        return connection;
+    }
+
+    /**
+     * Get the connection of the transaction of the plugin in progress in the current thread
+     * 
+     * @return the connection, null if no transaction is in progress
+     */
+    protected Connection getTransactionConnection( )
+    {
+        MultiPluginTransaction transaction = TransactionManager.getCurrentTransaction( AppointmentPlugin.getPlugin( ) );
+        return ( transaction != null ) ? transaction.getConnection( ) : null;
+    }
+
+    /**
+     * Give back a connection to the pool of the plugin. The pending transaction of the connection is rolled back
+     * 
+     * @param connection
+     *            the connection
+     */
+    protected void freeConnection( Connection connection )
+    {
+        try
+        {
+            if ( !connection.getAutoCommit( ) )
+            {
+                connection.rollback( );
+                connection.setAutoCommit( true );
+            }
+        }
+        catch( SQLException e )
+        {
+            AppLogService.error( "Error while releasing a lock connection " + e.getMessage( ), e );
+        }
+        finally
+        {
+            getConnectionService( ).freeConnection( connection );
+        }
+    }
+
+    /**
+     * Get the connection service of the plugin
+     * 
+     * @return the connection service
+     */
+    private static PluginConnectionService getConnectionService( )
+    {
+        return AppointmentPlugin.getPlugin( ).getConnectionService( );
+    }
+}
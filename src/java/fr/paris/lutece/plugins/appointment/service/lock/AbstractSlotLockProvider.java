@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Lock provider striped by id of slot and by id of form. The number of stripes is fixed, so the memory used by the locks is bounded and no lock is created
+ * when a lock is requested: the slots (or the forms) whose ids fall in the same stripe share the same lock
+ */
+public abstract class AbstractSlotLockProvider implements ISlotLockProvider
+{
+    private static final String PREFIX_LOCK_KEY_SLOT = "slot_";
+    private static final String PREFIX_LOCK_KEY_FORM = "form_";
+    private static final int DEFAULT_NB_SLOT_STRIPES = 1024;
+    private static final int DEFAULT_NB_FORM_STRIPES = 64;
+
+    private final LockWaitMetrics _metrics = new LockWaitMetrics( );
+    private int _nNbSlotStripes = DEFAULT_NB_SLOT_STRIPES;
+    private int _nNbFormStripes = DEFAULT_NB_FORM_STRIPES;
+    private boolean _bFair;
+    private volatile AbstractClusterLock [ ] _slotStripes;
+    private volatile AbstractClusterLock [ ] _formStripes;
+
+    /**
+     * Create a lock
+     * 
+     * @param strLockKey
+     *            the key of the lock, unique for all the stripes of the slots and the forms
+     * @param metrics
+     *            the metrics of the provider
+     * @param bFair
+     *            true if the lock must be granted to the longest-waiting thread of this node
+     * @return the lock
+     */
+    protected abstract AbstractClusterLock createLock( String strLockKey, LockWaitMetrics metrics, boolean bFair );
+
+    /**
+     * Set the number of stripes of the slot locks. When the locks are shared by several nodes, all the nodes must have the same number of stripes
+     * 
+     * @param nNbSlotStripes
+     *            the number of stripes
+     */
+    public void setNbSlotStripes( int nNbSlotStripes )
+    {
+        _nNbSlotStripes = nNbSlotStripes;
+    }
+
+    /**
+     * Set the number of stripes of the form locks. When the locks are shared by several nodes, all the nodes must have the same number of stripes
+     * 
+     * @param nNbFormStripes
+     *            the number of stripes
+     */
+    public void setNbFormStripes( int nNbFormStripes )
+    {
+        _nNbFormStripes = nNbFormStripes;
+    }
+
+    /**
+     * Set the fairness of the locks
+     * 
+     * @param bFair
+     *            true if the locks must be granted to the longest-waiting thread of this node
+     */
+    public void setFair( boolean bFair )
+    {
+        _bFair = bFair;
+    }
+
+    @Override
+    public ISlotLock getLockOnSlot( int nIdSlot )
+    {
+        AbstractClusterLock [ ] stripes = getSlotStripes( );
+        return stripes [Math.floorMod( nIdSlot, stripes.length )];
+    }
+
+    @Override
+    public List<ISlotLock> getLocksOnSlots( Collection<Integer> listIdSlot )
+    {
+        AbstractClusterLock [ ] stripes = getSlotStripes( );
+        // The locks are ordered by index of stripe, and the slots of the same stripe share one lock
+        TreeSet<Integer> setIndex = new TreeSet<>( );
+        for ( int nIdSlot : listIdSlot )
+        {
+            setIndex.add( Math.floorMod( nIdSlot, stripes.length ) );
+        }
+        List<ISlotLock> listLock = new ArrayList<>( setIndex.size( ) );
+        for ( int nIndex : setIndex )
+        {
+            listLock.add( stripes [nIndex] );
+        }
+        return listLock;
+    }
+
+    @Override
+    public ISlotLock getLockOnForm( int nIdForm )
+    {
+        AbstractClusterLock [ ] stripes = _formStripes;
+        if ( stripes == null )
+        {
+            stripes = initFormStripes( );
+        }
+        return stripes [Math.floorMod( nIdForm, stripes.length )];
+    }
+
+    @Override
+    public LockWaitMetrics getLockWaitMetrics( )
+    {
+        return _metrics;
+    }
+
+    @Override
+    public long [ ] getSlotStripeContentions( )
+    {
+        return getContentions( _slotStripes );
+    }
+
+    @Override
+    public long [ ] getFormStripeContentions( )
+    {
+        return getContentions( _formStripes );
+    }
+
+    @Override
+    public void shutdown( )
+    {
+        // The locks use no thread
+    }
+
+    /**
+     * Get the stripes of the slot locks
+     * 
+     * @return the stripes
+     */
+    private AbstractClusterLock [ ] getSlotStripes( )
+    {
+        AbstractClusterLock [ ] stripes = _slotStripes;
+        if ( stripes == null )
+        {
+            stripes = initSlotStripes( );
+        }
+        return stripes;
+    }
+
+    /**
+     * Create the stripes of the slot locks, once the provider is configured
+     * 
+     * @return the stripes
+     */
+    private synchronized AbstractClusterLock [ ] initSlotStripes( )
+    {
+        if ( _slotStripes == null )
+        {
+            _slotStripes = createStripes( PREFIX_LOCK_KEY_SLOT, _nNbSlotStripes );
+        }
+        return _slotStripes;
+    }
+
+    /**
+     * Create the stripes of the form locks, once the provider is configured
+     * 
+     * @return the stripes
+     */
+    private synchronized AbstractClusterLock [ ] initFormStripes( )
+    {
+        if ( _formStripes == null )
+        {
+            _formStripes = createStripes( PREFIX_LOCK_KEY_FORM, _nNbFormStripes );
+        }
+        return _formStripes;
+    }
+
+    /**
+     * Create the locks of the stripes
+     * 
+     * @param strPrefixLockKey
+     *            the prefix of the key of the locks
+     * @param nNbStripes
+     *            the number of stripes
+     * @return the stripes
+     */
+    private AbstractClusterLock [ ] createStripes( String strPrefixLockKey, int nNbStripes )
+    {
+        AbstractClusterLock [ ] stripes = new AbstractClusterLock [ Math.max( 1, nNbStripes ) ];
+        for ( int nIndex = 0; nIndex < stripes.length; nIndex++ )
+        {
+            stripes [nIndex] = createLock( strPrefixLockKey + nIndex, _metrics, _bFair );
+        }
+        return stripes;
+    }
+
+    /**
+     * Get the number of contentions of each stripe
+     * 
+     * @param stripes
+     *            the stripes (null if not created yet)
+     * @return the number of contentions by index of stripe
+     */
+    private static long [ ] getContentions( AbstractClusterLock [ ] stripes )
+    {
+        if ( stripes == null )
+        {
+            return new long [ 0 ];
+        }
+        long [ ] contentions = new long [ stripes.length ];
+        for ( int nIndex = 0; nIndex < stripes.length; nIndex++ )
+        {
+            contentions [nIndex] = stripes [nIndex].getNbContentions( );
+        }
+        return contentions;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Lock provider shared by several nodes: a lock is the row of the table appointment_lock locked with a SELECT ... FOR UPDATE. When a transaction of the
+ * plugin is in progress in the thread, the row is locked on the connection of the transaction and stays locked until the end of the transaction, so the
+ * locks taken together in a transaction use no other connection. Otherwise the row is locked on a connection of the pool, in a transaction kept open until
+ * the lock is released. Only one thread per node waits for the row of a lock, the others wait for the lock in memory
+ */
+public class DatabaseSlotLockProvider extends AbstractDatabaseSlotLockProvider
+{
+    // MySQL error code when the time to wait for a row lock has been exceeded
+    private static final int ERROR_CODE_LOCK_WAIT_TIMEOUT = 1205;
+
+    @Override
+    protected AbstractClusterLock createLock( String strLockKey, LockWaitMetrics metrics, boolean bFair )
+    {
+        return new DatabaseLock( strLockKey, metrics, bFair );
+    }
+
+    /**
+     * Lock held with a row lock in database
+     */
+    private final class DatabaseLock extends AbstractClusterLock
+    {
+        private final String _strLockKey;
+        private boolean _bLockRowCreated;
+        private Connection _connection;
+
+        /**
+         * Constructor
+         * 
+         * @param strLockKey
+         *            the key of the lock
+         * @param metrics
+         *            the metrics of the provider
+         * @param bFair
+         *            true if the lock must be fair
+         */
+        DatabaseLock( String strLockKey, LockWaitMetrics metrics, boolean bFair )
+        {
+            super( metrics, bFair );
+            _strLockKey = strLockKey;
+        }
+
+        @Override
+        protected boolean acquireClusterLock( long lTimeoutNanos )
+        {
+            // A query timeout of 0 means no limit, the smallest limit is one second
+            int nTimeoutSeconds = 0;
+            if ( lTimeoutNanos >= 0 )
+            {
+                nTimeoutSeconds = (int) Math.max( 1, TimeUnit.NANOSECONDS.toSeconds( lTimeoutNanos + TimeUnit.SECONDS.toNanos( 1 ) - 1 ) );
+            }
+            Connection transactionConnection = getTransactionConnection( );
+            if ( transactionConnection != null )
+            {
+                // A failed attempt is not retried: it may have aborted the transaction, which must be rolled back by the caller
+                return selectLockInTransaction( transactionConnection, nTimeoutSeconds );
+            }
+            do
+            {
+                if ( selectLockForUpdate( nTimeoutSeconds ) )
+                {
+                    return true;
+                }
+            }
+            while ( lTimeoutNanos < 0 );
+            return false;
+        }
+
+        @Override
+        protected void releaseClusterLock( )
+        {
+            Connection connection = _connection;
+            if ( connection == null )
+            {
+                // The row has been locked on the connection of a transaction, it is released by the end of the transaction
+                return;
+            }
+            _connection = null;
+            try
+            {
+                connection.commit( );
+            }
+            catch( SQLException e )
+            {
+                AppLogService.error( "Error while releasing the lock " + _strLockKey + " " + e.getMessage( ), e );
+            }
+            finally
+            {
+                freeConnection( connection );
+            }
+        }
+
+        /**
+         * Lock the row of the lock on the connection of the current transaction
+         * 
+         * @param transactionConnection
+         *            the connection of the transaction
+         * @param nTimeoutSeconds
+         *            the max time to wait, in seconds (0 for no limit)
+         * @return true if the row is locked, false if the time to wait has been exceeded
+         */
+        private boolean selectLockInTransaction( Connection transactionConnection, int nTimeoutSeconds )
+        {
+            if ( !_bLockRowCreated )
+            {
+                // The row is created out of the transaction, a duplicate key would abort the transaction on some databases
+                Connection connection = getConnection( );
+                try
+                {
+                    getLockDAO( ).insertLockIfNotExists( _strLockKey, connection );
+                }
+                finally
+                {
+                    freeConnection( connection );
+                }
+            }
+            try
+            {
+                _bLockRowCreated = getLockDAO( ).selectLockForUpdate( _strLockKey, nTimeoutSeconds, transactionConnection );
+            }
+            catch( SQLException e )
+            {
+                if ( !isLockWaitTimeout( e ) )
+                {
+                    throw new AppException( e.getMessage( ), e );
+                }
+                return false;
+            }
+            return _bLockRowCreated;
+        }
+
+        /**
+         * Lock the row of the lock on a new connection
+         * 
+         * @param nTimeoutSeconds
+         *            the max time to wait, in seconds (0 for no limit)
+         * @return true if the row is locked, false if the time to wait has been exceeded
+         */
+        private boolean selectLockForUpdate( int nTimeoutSeconds )
+        {
+            Connection connection = getConnection( );
+            boolean bLocked = false;
+            try
+            {
+                if ( !_bLockRowCreated )
+                {
+                    getLockDAO( ).insertLockIfNotExists( _strLockKey, connection );
+                    _bLockRowCreated = true;
+                }
+                connection.setAutoCommit( false );
+                bLocked = getLockDAO( ).selectLockForUpdate( _strLockKey, nTimeoutSeconds, connection );
+                // If the row has been deleted, it will be created again on the next attempt
+                _bLockRowCreated = bLocked;
+            }
+            catch( SQLException e )
+            {
+                if ( !isLockWaitTimeout( e ) )
+                {
+                    throw new AppException( e.getMessage( ), e );
+                }
+            }
+            finally
+            {
+                if ( bLocked )
+                {
+                    _connection = connection;
+                }
+                else
+                {
+                    freeConnection( connection );
+                }
+            }
+            return bLocked;
+        }
+    }
+
+    /**
+     * Check if an exception is due to a lock wait that has exceeded its time limit
+     * 
+     * @param e
+     *            the exception
+     * @return true if the exception is a lock wait timeout
+     */
+    private static boolean isLockWaitTimeout( SQLException e )
+    {
+        return e instanceof SQLTimeoutException || e instanceof SQLTransactionRollbackException || e.getErrorCode( ) == ERROR_CODE_LOCK_WAIT_TIMEOUT;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock of a slot or of a form, given by the lock provider. The lock is reentrant. Unlike {@link java.util.concurrent.locks.Lock}, it has no condition and
+ * its wait can not be interrupted, because a lock shared by several nodes is held in database
+ */
+public interface ISlotLock
+{
+    /**
+     * Acquire the lock, waiting with no limit
+     */
+    void lock( );
+
+    /**
+     * Acquire the lock only if it is free at the time of the call
+     * 
+     * @return true if the lock has been acquired
+     */
+    boolean tryLock( );
+
+    /**
+     * Acquire the lock if it becomes free within the given time
+     * 
+     * @param lTime
+     *            the max time to wait
+     * @param unit
+     *            the unit of the time
+     * @return true if the lock has been acquired
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for the lock of this node
+     */
+    boolean tryLock( long lTime, TimeUnit unit ) throws InterruptedException;
+
+    /**
+     * Release the lock
+     */
+    void unlock( );
+}
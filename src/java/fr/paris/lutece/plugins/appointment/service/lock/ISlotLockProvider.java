@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Provider of the locks taken on the slots (to update their places) and on the forms (to create their slots). The provider used is the bean
+ * appointment.slotLockProvider declared in the context of the plugin
+ */
+public interface ISlotLockProvider
+{
+    /**
+     * Get the lock of a slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @return the lock
+     */
+    ISlotLock getLockOnSlot( int nIdSlot );
+
+    /**
+     * Get the distinct locks of several slots, in the order in which they must be taken. The order is the same for all the threads and all the nodes, so
+     * that two threads taking the locks of overlapping sets of slots can not deadlock
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @return the locks, without duplicate
+     */
+    List<ISlotLock> getLocksOnSlots( Collection<Integer> listIdSlot );
+
+    /**
+     * Get the lock of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the lock
+     */
+    ISlotLock getLockOnForm( int nIdForm );
+
+    /**
+     * Get the metrics of the time waited for the locks
+     * 
+     * @return the metrics
+     */
+    LockWaitMetrics getLockWaitMetrics( );
+
+    /**
+     * Get the number of times a thread had to wait for the lock of each stripe of slots
+     * 
+     * @return the number of contentions by index of stripe
+     */
+    long [ ] getSlotStripeContentions( );
+
+    /**
+     * Get the number of times a thread had to wait for the lock of each stripe of forms
+     * 
+     * @return the number of contentions by index of stripe
+     */
+    long [ ] getFormStripeContentions( );
+
+    /**
+     * Stop the threads of the provider, when the application is shut down
+     */
+    void shutdown( );
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Lock provider shared by several nodes: a lock is a lease of the table appointment_lock_lease, with an expiry date. The leases held are renewed by a thread
+ * of the provider every third of the lease duration, so a lock can be held longer than the lease duration. A lease left by a node that has stopped can be
+ * taken over by another node once it has expired. If a lease could not be renewed in time and has been taken over, the release of the lock fails
+ */
+public class LeaseSlotLockProvider extends AbstractDatabaseSlotLockProvider
+{
+    private static final long DEFAULT_LEASE_DURATION = 30;
+    private static final long MIN_RETRY_DELAY_MILLIS = 10;
+    private static final long MAX_RETRY_DELAY_MILLIS = 200;
+    private static final long MIN_RENEWAL_PERIOD_MILLIS = 100;
+
+    private final Set<LeaseLock> _setLeaseHeld = ConcurrentHashMap.newKeySet( );
+    private long _lLeaseDuration = DEFAULT_LEASE_DURATION;
+    private ScheduledExecutorService _renewalExecutor;
+
+    /**
+     * Set the duration of a lease
+     * 
+     * @param lLeaseDuration
+     *            the duration of a lease, in seconds
+     */
+    public void setLeaseDuration( long lLeaseDuration )
+    {
+        _lLeaseDuration = lLeaseDuration;
+    }
+
+    /**
+     * Get the duration of a lease
+     * 
+     * @return the duration of a lease, in seconds
+     */
+    public long getLeaseDuration( )
+    {
+        return _lLeaseDuration;
+    }
+
+    @Override
+    protected AbstractClusterLock createLock( String strLockKey, LockWaitMetrics metrics, boolean bFair )
+    {
+        return new LeaseLock( strLockKey, metrics, bFair );
+    }
+
+    /**
+     * Stop the renewal of the leases
+     */
+    @Override
+    public synchronized void shutdown( )
+    {
+        if ( _renewalExecutor != null )
+        {
+            _renewalExecutor.shutdownNow( );
+            _renewalExecutor = null;
+        }
+    }
+
+    /**
+     * Start the renewal of the leases held, on the first lease taken
+     */
+    private synchronized void startRenewal( )
+    {
+        if ( _renewalExecutor == null )
+        {
+            long lPeriodMillis = Math.max( MIN_RENEWAL_PERIOD_MILLIS, TimeUnit.SECONDS.toMillis( _lLeaseDuration ) / 3 );
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory( "Lutece-AppointmentLockLease-thread-" );
+            threadFactory.setDaemon( true );
+            _renewalExecutor = Executors.newSingleThreadScheduledExecutor( threadFactory );
+            _renewalExecutor.scheduleWithFixedDelay( this::renewLeases, lPeriodMillis, lPeriodMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Renew all the leases held by this node, on a single connection
+     */
+    private void renewLeases( )
+    {
+        if ( _setLeaseHeld.isEmpty( ) )
+        {
+            return;
+        }
+        Connection connection = getConnection( );
+        try
+        {
+            LocalDateTime dateNow = LocalDateTime.now( );
+            LocalDateTime dateExpiry = dateNow.plusSeconds( _lLeaseDuration );
+            for ( LeaseLock lock : _setLeaseHeld )
+            {
+                lock.renewLease( dateNow, dateExpiry, connection );
+            }
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error while renewing the lock leases " + e.getMessage( ), e );
+        }
+        finally
+        {
+            freeConnection( connection );
+        }
+    }
+
+    /**
+     * Lock held with a lease in database
+     */
+    private final class LeaseLock extends AbstractClusterLock
+    {
+        private final String _strLockKey;
+        private volatile String _strOwner;
+
+        /**
+         * Constructor
+         * 
+         * @param strLockKey
+         *            the key of the lock
+         * @param metrics
+         *            the metrics of the provider
+         * @param bFair
+         *            true if the lock must be fair
+         */
+        LeaseLock( String strLockKey, LockWaitMetrics metrics, boolean bFair )
+        {
+            super( metrics, bFair );
+            _strLockKey = strLockKey;
+        }
+
+        @Override
+        protected boolean acquireClusterLock( long lTimeoutNanos )
+        {
+            long lDeadline = System.nanoTime( ) + lTimeoutNanos;
+            long lRetryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+            String strOwner = UUID.randomUUID( ).toString( );
+            while ( !takeLease( strOwner ) )
+            {
+                long lRemainingNanos = lDeadline - System.nanoTime( );
+                if ( lTimeoutNanos >= 0 && lRemainingNanos <= 0 )
+                {
+                    return false;
+                }
+                try
+                {
+                    long lDelayMillis = lTimeoutNanos < 0 ? lRetryDelayMillis : Math.min( lRetryDelayMillis, TimeUnit.NANOSECONDS.toMillis( lRemainingNanos ) + 1 );
+                    Thread.sleep( lDelayMillis );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    return false;
+                }
+                lRetryDelayMillis = Math.min( lRetryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS );
+            }
+            _strOwner = strOwner;
+            _setLeaseHeld.add( this );
+            startRenewal( );
+            return true;
+        }
+
+        @Override
+        protected void releaseClusterLock( )
+        {
+            _setLeaseHeld.remove( this );
+            String strOwner = _strOwner;
+            _strOwner = null;
+            boolean bDeleted;
+            Connection connection = getConnection( );
+            try
+            {
+                bDeleted = getLockDAO( ).deleteLease( _strLockKey, strOwner, connection );
+            }
+            finally
+            {
+                freeConnection( connection );
+            }
+            if ( !bDeleted )
+            {
+                throw new AppException( "The lease of the lock " + _strLockKey + " has expired and has been taken over before the lock was released" );
+            }
+        }
+
+        /**
+         * Extend the lease of the lock, if it is still held
+         * 
+         * @param dateNow
+         *            the current date
+         * @param dateExpiry
+         *            the new expiry date of the lease
+         * @param connection
+         *            the connection
+         */
+        private void renewLease( LocalDateTime dateNow, LocalDateTime dateExpiry, Connection connection )
+        {
+            String strOwner = _strOwner;
+            if ( strOwner != null && !getLockDAO( ).renewLease( _strLockKey, strOwner, dateNow, dateExpiry, connection ) && _strOwner != null )
+            {
+                AppLogService.error( "The lease of the lock " + _strLockKey + " has expired before its renewal" );
+            }
+        }
+
+        /**
+         * Try to take the lease of the lock
+         * 
+         * @param strOwner
+         *            the owner of the lease
+         * @return true if the lease has been taken
+         */
+        private boolean takeLease( String strOwner )
+        {
+            Connection connection = getConnection( );
+            try
+            {
+                LocalDateTime dateNow = LocalDateTime.now( );
+                return getLockDAO( ).takeLease( _strLockKey, strOwner, dateNow, dateNow.plusSeconds( _lLeaseDuration ), connection );
+            }
+            finally
+            {
+                freeConnection( connection );
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the time waited to get the locks of a lock provider
+ */
+public final class LockWaitMetrics
+{
+    private final LongAdder _nbAcquisitions = new LongAdder( );
+    private final LongAdder _nbFailures = new LongAdder( );
+    private final LongAdder _lTotalWaitNanos = new LongAdder( );
+    private final AtomicLong _lMaxWaitNanos = new AtomicLong( );
+
+    /**
+     * Record a lock acquisition attempt
+     * 
+     * @param lWaitNanos
+     *            the time waited, in nanoseconds
+     * @param bAcquired
+     *            true if the lock has been acquired, false if the attempt has timed out
+     */
+    public void record( long lWaitNanos, boolean bAcquired )
+    {
+        if ( bAcquired )
+        {
+            _nbAcquisitions.increment( );
+        }
+        else
+        {
+            _nbFailures.increment( );
+        }
+        _lTotalWaitNanos.add( lWaitNanos );
+        _lMaxWaitNanos.accumulateAndGet( lWaitNanos, Math::max );
+    }
+
+    /**
+     * Get the number of locks acquired
+     * 
+     * @return the number of locks acquired
+     */
+    public long getNbAcquisitions( )
+    {
+        return _nbAcquisitions.sum( );
+    }
+
+    /**
+     * Get the number of attempts that have timed out
+     * 
+     * @return the number of failures
+     */
+    public long getNbFailures( )
+    {
+        return _nbFailures.sum( );
+    }
+
+    /**
+     * Get the average time waited for a lock, in milliseconds
+     * 
+     * @return the average wait time
+     */
+    public double getAverageWaitMillis( )
+    {
+        long lNbAttempts = getNbAcquisitions( ) + getNbFailures( );
+        if ( lNbAttempts == 0 )
+        {
+            return 0;
+        }
+        return (double) _lTotalWaitNanos.sum( ) / lNbAttempts / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+    /**
+     * Get the longest time waited for a lock, in milliseconds
+     * 
+     * @return the max wait time
+     */
+    public long getMaxWaitMillis( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _lMaxWaitNanos.get( ) );
+    }
+
+    @Override
+    public String toString( )
+    {
+        return String.format( "acquisitions=%d, failures=%d, averageWait=%.3fms, maxWait=%dms", getNbAcquisitions( ), getNbFailures( ), getAverageWaitMillis( ),
+                getMaxWaitMillis( ) );
+    }
+}
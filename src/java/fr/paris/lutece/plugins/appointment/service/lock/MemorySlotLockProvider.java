@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+/**
+ * Lock provider for a single node: the locks are only held in memory
+ */
+public class MemorySlotLockProvider extends AbstractSlotLockProvider
+{
+    @Override
+    protected AbstractClusterLock createLock( String strLockKey, LockWaitMetrics metrics, boolean bFair )
+    {
+        return new MemoryLock( metrics, bFair );
+    }
+
+    /**
+     * Create a lock in memory that is not shared with any slot, for a slot that is not created yet
+     * 
+     * @return the lock
+     */
+    public static ISlotLock createUnsharedLock( )
+    {
+        return new MemoryLock( new LockWaitMetrics( ), false );
+    }
+
+    /**
+     * Lock held in memory only
+     */
+    private static final class MemoryLock extends AbstractClusterLock
+    {
+        /**
+         * Constructor
+         * 
+         * @param metrics
+         *            the metrics of the provider
+         * @param bFair
+         *            true if the lock must be fair
+         */
+        MemoryLock( LockWaitMetrics metrics, boolean bFair )
+        {
+            super( metrics, bFair );
+        }
+
+        @Override
+        protected boolean acquireClusterLock( long lTimeoutNanos )
+        {
+            return true;
+        }
+
+        @Override
+        protected void releaseClusterLock( )
+        {
+            // Nothing to release
+        }
+    }
+}
@@ -36,10 +36,12 @@ package fr.paris.lutece.plugins.appointment.service.lock;
 import java.util.concurrent.Callable;
 
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
 import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
 
 /**
- * Timer Task for a slot (Manage a lock the time the user fill the form
+ * Expiry task of a hold on a slot (Manage the places held the time the user fill the form). The task is an entry of the timing wheel: it is linked in the
+ * bucket of its expiry tick, so that it can be scheduled and cancelled in constant time
  * 
  * @author Laurent Payen
  *
@@ -48,26 +50,66 @@ public final class SlotEditTask implements Callable<Slot>
 {
 
     /**
-     * Potentially number of places taken
+     * The hold on the slot on which the user is taking an appointment
      */
-    private int _nbPlacesTaken;
+    private final SlotHold _slotHold;
+
+    // Position of the task in the timing wheel
+    private long _lDeadlineTick;
+    private int _nLevel;
+    private int _nIndex;
+    private SlotEditTask _previous;
+    private SlotEditTask _next;
 
     /**
-     * Id of the slot on which the user is taking an appointment
+     * Constructor
+     * 
+     * @param slotHold
+     *            the hold on the slot
      */
-    private int _idSlot;
+    public SlotEditTask( SlotHold slotHold )
+    {
+        _slotHold = slotHold;
+    }
 
+    /**
+     * Constructor
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlacesTaken
+     *            the number of places potentially taken
+     * @deprecated the task is the expiry of a hold, use {@link #SlotEditTask(SlotHold)}
+     */
+    @Deprecated
     public SlotEditTask( int nIdSlot, int nbPlacesTaken )
     {
-        _idSlot = nIdSlot;
-        _nbPlacesTaken = nbPlacesTaken;
+        _slotHold = new SlotHold( );
+        _slotHold.setIdSlot( nIdSlot );
+        _slotHold.setNbPlaces( nbPlacesTaken );
     }
 
+    /**
+     * Give back the places held to the slot
+     * 
+     * @return the slot updated
+     * @deprecated the holds are released by the timing wheel of the SlotHoldService
+     */
+    @Deprecated
     @Override
     public Slot call( )
     {
         return SlotSafeService.incrementPotentialRemainingPlaces( this );
+    }
 
+    /**
+     * Get the hold on the slot
+     * 
+     * @return the hold
+     */
+    public SlotHold getSlotHold( )
+    {
+        return _slotHold;
     }
 
     /**
@@ -77,17 +119,20 @@ public final class SlotEditTask implements Callable<Slot>
      */
     public int getNbPlacesTaken( )
     {
-        return _nbPlacesTaken;
+        return _slotHold.getNbPlaces( );
     }
 
     /**
      * Set the number of places potentially taken
      * 
      * @param nbPlacesTaken
+     *            the number of places
+     * @deprecated the places are those of the hold, use {@link SlotHold#setNbPlaces(int)}
      */
+    @Deprecated
     public void setNbPlacesTaken( int nbPlacesTaken )
     {
-        this._nbPlacesTaken = nbPlacesTaken;
+        _slotHold.setNbPlaces( nbPlacesTaken );
     }
 
     /**
@@ -97,7 +142,7 @@ public final class SlotEditTask implements Callable<Slot>
      */
     public int getIdSlot( )
     {
-        return _idSlot;
+        return _slotHold.getIdSlot( );
     }
 
     /**
@@ -105,9 +150,118 @@ public final class SlotEditTask implements Callable<Slot>
      * 
      * @param nIdSlot
      *            the id of the slot
+     * @deprecated the slot is the one of the hold, use {@link SlotHold#setIdSlot(int)}
      */
+    @Deprecated
     public void setIdSlot( int nIdSlot )
     {
-        this._idSlot = nIdSlot;
+        _slotHold.setIdSlot( nIdSlot );
+    }
+
+    /**
+     * Get the token of the hold
+     * 
+     * @return the token
+     */
+    public String getToken( )
+    {
+        return _slotHold.getToken( );
+    }
+
+    /**
+     * Get the tick at which the task expires
+     * 
+     * @return the tick
+     */
+    long getDeadlineTick( )
+    {
+        return _lDeadlineTick;
+    }
+
+    /**
+     * Set the tick at which the task expires
+     * 
+     * @param lDeadlineTick
+     *            the tick
+     */
+    void setDeadlineTick( long lDeadlineTick )
+    {
+        _lDeadlineTick = lDeadlineTick;
+    }
+
+    /**
+     * Get the level of the wheel holding the task
+     * 
+     * @return the level
+     */
+    int getLevel( )
+    {
+        return _nLevel;
+    }
+
+    /**
+     * Get the index of the bucket holding the task in its level
+     * 
+     * @return the index
+     */
+    int getIndex( )
+    {
+        return _nIndex;
+    }
+
+    /**
+     * Set the bucket holding the task
+     * 
+     * @param nLevel
+     *            the level of the wheel
+     * @param nIndex
+     *            the index of the bucket in the level
+     */
+    void setBucket( int nLevel, int nIndex )
+    {
+        _nLevel = nLevel;
+        _nIndex = nIndex;
+    }
+
+    /**
+     * Get the previous task of the bucket
+     * 
+     * @return the previous task, null if the task is the first one
+     */
+    SlotEditTask getPrevious( )
+    {
+        return _previous;
+    }
+
+    /**
+     * Set the previous task of the bucket
+     * 
+     * @param previous
+     *            the previous task
+     */
+    void setPrevious( SlotEditTask previous )
+    {
+        _previous = previous;
+    }
+
+    /**
+     * Get the next task of the bucket
+     * 
+     * @return the next task, null if the task is the last one
+     */
+    SlotEditTask getNext( )
+    {
+        return _next;
+    }
+
+    /**
+     * Set the next task of the bucket
+     * 
+     * @param next
+     *            the next task
+     */
+    void setNext( SlotEditTask next )
+    {
+        _next = next;
     }
 }
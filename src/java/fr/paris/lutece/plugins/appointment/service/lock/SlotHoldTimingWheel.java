@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel holding the expiry tasks of the slot holds. A task is scheduled and cancelled in constant time: it is linked in the bucket of
+ * the level matching its delay, and moved down to the lower levels when the wheel reaches the range of its expiry tick. All the tasks expiring in the same
+ * tick are returned together by {@link #advance(long)}, so that they can be released with one update per slot
+ */
+public final class SlotHoldTimingWheel
+{
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int NB_LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = ( 1L << ( WHEEL_BITS * NB_LEVELS ) ) - 1;
+
+    private final long _lTickDuration;
+    private final long _lStartTime;
+    private final SlotEditTask [ ] [ ] _buckets = new SlotEditTask [ NB_LEVELS] [WHEEL_SIZE];
+    private final Map<String, SlotEditTask> _mapTasks = new HashMap<>( );
+    private long _lCurrentTick;
+
+    /**
+     * Constructor
+     * 
+     * @param lTickDuration
+     *            the duration of a tick in milliseconds
+     * @param lStartTime
+     *            the time of the tick 0 in milliseconds
+     */
+    public SlotHoldTimingWheel( long lTickDuration, long lStartTime )
+    {
+        if ( lTickDuration <= 0 )
+        {
+            throw new IllegalArgumentException( "The tick duration must be positive" );
+        }
+        _lTickDuration = lTickDuration;
+        _lStartTime = lStartTime;
+    }
+
+    /**
+     * Schedule a task. A task already scheduled with the same token is replaced
+     * 
+     * @param task
+     *            the task
+     * @param lExpiryTime
+     *            the expiry time of the task in milliseconds
+     */
+    public synchronized void schedule( SlotEditTask task, long lExpiryTime )
+    {
+        cancel( task.getToken( ) );
+        // A task always expires after the current tick, which has already been processed
+        long lDeadlineTick = Math.max( toTick( lExpiryTime ), _lCurrentTick + 1 );
+        task.setDeadlineTick( lDeadlineTick );
+        insert( task );
+        _mapTasks.put( task.getToken( ), task );
+    }
+
+    /**
+     * Cancel a task
+     * 
+     * @param strToken
+     *            the token of the hold of the task
+     * @return the task cancelled, null if no task is scheduled with this token
+     */
+    public synchronized SlotEditTask cancel( String strToken )
+    {
+        SlotEditTask task = _mapTasks.remove( strToken );
+        if ( task != null )
+        {
+            unlink( task );
+        }
+        return task;
+    }
+
+    /**
+     * Advance the wheel up to the given time
+     * 
+     * @param lNow
+     *            the current time in milliseconds
+     * @return the tasks expired since the last advance
+     */
+    public synchronized List<SlotEditTask> advance( long lNow )
+    {
+        List<SlotEditTask> listExpired = new ArrayList<>( );
+        long lTargetTick = toTick( lNow );
+        while ( _lCurrentTick < lTargetTick )
+        {
+            _lCurrentTick++;
+            cascade( );
+            int nIndex = (int) ( _lCurrentTick & WHEEL_MASK );
+            SlotEditTask task = _buckets [0] [nIndex];
+            _buckets [0] [nIndex] = null;
+            while ( task != null )
+            {
+                SlotEditTask next = task.getNext( );
+                task.setPrevious( null );
+                task.setNext( null );
+                _mapTasks.remove( task.getToken( ) );
+                listExpired.add( task );
+                task = next;
+            }
+        }
+        return listExpired;
+    }
+
+    /**
+     * Get the number of tasks scheduled
+     * 
+     * @return the number of tasks
+     */
+    public synchronized int size( )
+    {
+        return _mapTasks.size( );
+    }
+
+    /**
+     * Move down the tasks of the upper levels whose bucket is reached by the current tick
+     */
+    private void cascade( )
+    {
+        // Find the highest level whose range starts at the current tick, then empty its bucket and the buckets of the levels below, top down
+        int nLevel = 0;
+        while ( nLevel < NB_LEVELS - 1 && ( _lCurrentTick & ( ( 1L << ( WHEEL_BITS * ( nLevel + 1 ) ) ) - 1 ) ) == 0 )
+        {
+            nLevel++;
+        }
+        for ( int nCurrentLevel = nLevel; nCurrentLevel > 0; nCurrentLevel-- )
+        {
+            int nIndex = (int) ( ( _lCurrentTick >>> ( WHEEL_BITS * nCurrentLevel ) ) & WHEEL_MASK );
+            SlotEditTask task = _buckets [nCurrentLevel] [nIndex];
+            _buckets [nCurrentLevel] [nIndex] = null;
+            while ( task != null )
+            {
+                SlotEditTask next = task.getNext( );
+                task.setPrevious( null );
+                task.setNext( null );
+                insert( task );
+                task = next;
+            }
+        }
+    }
+
+    /**
+     * Link a task in the bucket matching its expiry tick
+     * 
+     * @param task
+     *            the task
+     */
+    private void insert( SlotEditTask task )
+    {
+        long lDelay = task.getDeadlineTick( ) - _lCurrentTick;
+        long lTick = task.getDeadlineTick( );
+        if ( lDelay > MAX_DELAY_TICKS )
+        {
+            // Beyond the range of the wheel: parked at the farthest tick, it is inserted again when it is cascaded
+            lTick = _lCurrentTick + MAX_DELAY_TICKS;
+        }
+        int nLevel = 0;
+        while ( nLevel < NB_LEVELS - 1 && ( lTick >>> ( WHEEL_BITS * ( nLevel + 1 ) ) ) != ( _lCurrentTick >>> ( WHEEL_BITS * ( nLevel + 1 ) ) ) )
+        {
+            nLevel++;
+        }
+        int nIndex = (int) ( ( lTick >>> ( WHEEL_BITS * nLevel ) ) & WHEEL_MASK );
+        task.setBucket( nLevel, nIndex );
+        SlotEditTask head = _buckets [nLevel] [nIndex];
+        task.setPrevious( null );
+        task.setNext( head );
+        if ( head != null )
+        {
+            head.setPrevious( task );
+        }
+        _buckets [nLevel] [nIndex] = task;
+    }
+
+    /**
+     * Unlink a task from its bucket
+     * 
+     * @param task
+     *            the task
+     */
+    private void unlink( SlotEditTask task )
+    {
+        SlotEditTask previous = task.getPrevious( );
+        SlotEditTask next = task.getNext( );
+        if ( previous != null )
+        {
+            previous.setNext( next );
+        }
+        else
+        {
+            _buckets [task.getLevel( )] [task.getIndex( )] = next;
+        }
+        if ( next != null )
+        {
+            next.setPrevious( previous );
+        }
+        task.setPrevious( null );
+        task.setNext( null );
+    }
+
+    /**
+     * Convert a time to a tick, rounded up so that a task never expires before its time
+     * 
+     * @param lTime
+     *            the time in milliseconds
+     * @return the tick
+     */
+    private long toTick( long lTime )
+    {
+        long lElapsed = lTime - _lStartTime;
+        if ( lElapsed <= 0 )
+        {
+            return 0;
+        }
+        return ( lElapsed + _lTickDuration - 1 ) / _lTickDuration;
+    }
+}
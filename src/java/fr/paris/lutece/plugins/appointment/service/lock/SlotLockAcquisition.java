@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locks of several slots taken together. The locks are taken in the global order given by the provider against a single deadline, and all the locks taken
+ * are released if one of them can not be taken in time: the acquisition is then contended, not failed
+ */
+public final class SlotLockAcquisition
+{
+    private final List<ISlotLock> _listLockHeld;
+    private final List<Integer> _listIdSlotContended;
+
+    /**
+     * Constructor
+     * 
+     * @param listLockHeld
+     *            the locks held
+     * @param listIdSlotContended
+     *            the ids of the slots whose lock could not be taken
+     */
+    private SlotLockAcquisition( List<ISlotLock> listLockHeld, List<Integer> listIdSlotContended )
+    {
+        _listLockHeld = listLockHeld;
+        _listIdSlotContended = listIdSlotContended;
+    }
+
+    /**
+     * Take the locks of several slots
+     * 
+     * @param provider
+     *            the lock provider
+     * @param listIdSlot
+     *            the ids of the slots
+     * @param lTimeout
+     *            the maximum time to wait for all the locks
+     * @param unit
+     *            the unit of the timeout
+     * @return the acquisition, contended if a lock could not be taken before the deadline
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting, the locks already taken are released
+     */
+    public static SlotLockAcquisition acquire( ISlotLockProvider provider, Collection<Integer> listIdSlot, long lTimeout, TimeUnit unit )
+            throws InterruptedException
+    {
+        long lDeadline = System.nanoTime( ) + unit.toNanos( lTimeout );
+        List<ISlotLock> listLockHeld = new ArrayList<>( );
+        try
+        {
+            for ( ISlotLock lock : provider.getLocksOnSlots( listIdSlot ) )
+            {
+                if ( !lock.tryLock( lDeadline - System.nanoTime( ), TimeUnit.NANOSECONDS ) )
+                {
+                    unlock( listLockHeld );
+                    List<Integer> listIdSlotContended = new ArrayList<>( );
+                    for ( int nIdSlot : listIdSlot )
+                    {
+                        if ( provider.getLockOnSlot( nIdSlot ) == lock )
+                        {
+                            listIdSlotContended.add( nIdSlot );
+                        }
+                    }
+                    return contended( listIdSlotContended );
+                }
+                listLockHeld.add( lock );
+            }
+        }
+        catch( InterruptedException | RuntimeException e )
+        {
+            unlock( listLockHeld );
+            throw e;
+        }
+        return new SlotLockAcquisition( listLockHeld, Collections.emptyList( ) );
+    }
+
+    /**
+     * Create a contended acquisition, holding no lock
+     * 
+     * @param listIdSlotContended
+     *            the ids of the slots whose lock could not be taken
+     * @return the acquisition
+     */
+    public static SlotLockAcquisition contended( List<Integer> listIdSlotContended )
+    {
+        return new SlotLockAcquisition( new ArrayList<>( ), listIdSlotContended );
+    }
+
+    /**
+     * Check if all the locks have been taken
+     * 
+     * @return true if all the locks are held, false if the acquisition is contended
+     */
+    public boolean isAcquired( )
+    {
+        return _listIdSlotContended.isEmpty( );
+    }
+
+    /**
+     * Get the ids of the slots whose lock could not be taken
+     * 
+     * @return the ids of the slots, empty if all the locks have been taken
+     */
+    public List<Integer> getListIdSlotContended( )
+    {
+        return Collections.unmodifiableList( _listIdSlotContended );
+    }
+
+    /**
+     * Release all the locks held
+     */
+    public void release( )
+    {
+        unlock( _listLockHeld );
+    }
+
+    /**
+     * Release locks in the reverse order of their acquisition
+     * 
+     * @param listLock
+     *            the locks to release, the list is emptied
+     */
+    private static void unlock( List<ISlotLock> listLock )
+    {
+        for ( int nIndex = listLock.size( ) - 1; nIndex >= 0; nIndex-- )
+        {
+            listLock.remove( nIndex ).unlock( );
+        }
+    }
+}
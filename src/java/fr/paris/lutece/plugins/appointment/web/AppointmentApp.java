@@ -55,7 +55,6 @@ import javax.servlet.http.HttpServletRequest;
 
 import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.service.security.SecurityTokenService;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -63,6 +62,7 @@ import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
+import fr.paris.lutece.plugins.appointment.business.category.CategoryHome;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
@@ -71,25 +71,32 @@ import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.exception.AppointmentSavedException;
 import fr.paris.lutece.plugins.appointment.exception.SlotEditTaskExpiredTimeException;
 import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.exception.SlotLockContendedException;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.FormMessageService;
+import fr.paris.lutece.plugins.appointment.service.FormListCacheService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
 import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.UserService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.plugins.appointment.service.admission.Admission;
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionControlService;
+import fr.paris.lutece.plugins.appointment.service.availability.AvailabilityGridService;
+import fr.paris.lutece.plugins.appointment.service.availability.EarliestAvailabilityService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.upload.AppointmentAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.appointment.web.file.AppointmentFormIconService;
 import fr.paris.lutece.plugins.genericattributes.business.GenericAttributeError;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.service.file.GenericAttributeFileService;
@@ -100,7 +107,6 @@ import fr.paris.lutece.portal.service.accesscontrol.AccessControlService;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.captcha.CaptchaSecurityService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
-import fr.paris.lutece.portal.service.image.ImageResource;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.security.LuteceUser;
 import fr.paris.lutece.portal.service.security.SecurityService;
@@ -164,6 +170,8 @@ public class AppointmentApp extends MVCApplication
     private static final String TEMPLATE_HTML_CODE_NB_PLACES_TO_TAKE_FORM = "skin/plugins/appointment/appointment_nb_places_to_take_form.html";
     private static final String TEMPLATE_TASKS_FORM_WORKFLOW = "skin/plugins/appointment/tasks_form_workflow.html";
     private static final String TEMPLATE_ERROR_APPOINTMENT_REFERENCE = "skin/plugins/appointment/error_appointment_reference.html";
+    private static final String TEMPLATE_WAITING_ROOM = "skin/plugins/appointment/appointment_waiting_room.html";
+    private static final String TEMPLATE_EARLIEST_SLOTS = "skin/plugins/appointment/appointment_earliest_slots.html";
 
     // Views
     public static final String VIEW_APPOINTMENT_FORM = "getViewAppointmentForm";
@@ -176,6 +184,7 @@ public class AppointmentApp extends MVCApplication
     private static final String VIEW_GET_VIEW_CANCEL_APPOINTMENT = "getViewCancelAppointment";
     private static final String VIEW_WORKFLOW_ACTION_FORM = "viewWorkflowActionForm";
     private static final String VIEW_CHANGE_DATE_APPOINTMENT = "viewChangeDateAppointment";
+    private static final String VIEW_EARLIEST_SLOTS = "getViewEarliestSlots";
 
     // Actions
     private static final String ACTION_DO_VALIDATE_FORM = "doValidateForm";
@@ -214,6 +223,11 @@ public class AppointmentApp extends MVCApplication
     private static final String PARAMETER_NB_PLACE_TO_TAKE = "nbPlacesToTake";
     private static final String PARAMETER_ID_ACTION = "id_action";
     private static final String PARAMETER_MODIF_DATE = "modif_date";
+    private static final String PARAMETER_ID_CATEGORY = "id_category";
+    private static final String PARAMETER_LATITUDE = "latitude";
+    private static final String PARAMETER_LONGITUDE = "longitude";
+    private static final String PARAMETER_RADIUS = "radius";
+    private static final String PARAMETER_NB_SLOTS = "nb_slots";
 
     // Mark
     private static final String MARK_MODIFICATION_DATE_APPOINTMENT = "modifDateAppointment";
@@ -245,11 +259,6 @@ public class AppointmentApp extends MVCApplication
     private static final String MARK_BACK_URL = "backUrl";
     private static final String MARK_FROM_URL = "fromUrl";
     private static final String MARK_LIST_RESPONSE_RECAP_DTO = "listResponseRecapDTO";
-    private static final String MARK_DATA = "data";
-    private static final String MARK_BASE_64 = "base64";
-    private static final String MARK_SEMI_COLON = ";";
-    private static final String MARK_COMMA = ",";
-    private static final String MARK_COLON = ":";
     private static final String MARK_ICONS = "icons";
     private static final String MARK_ICON_NULL = "NULL";
     private static final String MARK_ANCHOR = "#";
@@ -259,9 +268,17 @@ public class AppointmentApp extends MVCApplication
     private static final String MARK_TASKS_FORM = "tasks_form";
     private static final String MARK_LOCALE_DATE_TIME = "localeDateTime";
     private static final String MARK_USER_PREFERRED_NAME = "preferred_user_name";
+    private static final String MARK_WAITING_POSITION = "waiting_position";
+    private static final String MARK_WAITING_ESTIMATED_WAIT = "waiting_estimated_wait";
+    private static final String MARK_WAITING_REFRESH_DELAY = "waiting_refresh_delay";
+    private static final String MARK_WAITING_REFRESH_URL = "waiting_refresh_url";
+    private static final String MARK_LIST_CATEGORIES = "list_categories";
+    private static final String MARK_LIST_EARLIEST_SLOTS = "list_earliest_slots";
 
     // Errors
     private static final String ERROR_MESSAGE_SLOT_FULL = "appointment.message.error.slotFull";
+    private static final String ERROR_MESSAGE_SLOT_LOCKED = "appointment.message.error.slotLocked";
+    private static final String ERROR_MESSAGE_APPOINTMENT_BEING_SAVED = "appointment.message.error.appointmentBeingSaved";
     private static final String ERROR_MESSAGE_SLOT_EDIT_TASK_EXPIRED_TIME = "appointment.message.error.appointment.edit.expired.time";
     private static final String ERROR_MESSAGE_CAPTCHA = "portal.admin.message.wrongCaptcha";
     private static final String ERROR_MESSAGE_NB_MIN_DAYS_BETWEEN_TWO_APPOINTMENTS = "appointment.validation.appointment.NbMinDaysBetweenTwoAppointments.error";
@@ -292,38 +309,57 @@ public class AppointmentApp extends MVCApplication
     private static final String AGENDA_DAY = "agendaDay";
     private static final String BASIC_DAY = "basicDay";
     private static final String STEP_3 = "step3";
+    private static final String SESSION_ATTRIBUTE_BOOKING_CONTEXT = "appointment.appointmentApp.bookingContext";
+    private static final int DEFAULT_NB_EARLIEST_SLOTS = 10;
 
     // Local variables
     private transient CaptchaSecurityService _captchaSecurityService;
-    private int _nNbPlacesToTake;
-    private String _strNbPlacesToTakeLength;
-    private AppointmentFormDTO _appointmentForm;
-    private AppointmentDTO _notValidatedAppointment;
-    private AppointmentDTO _validatedAppointment;
+
+    /**
+     * Get the calendar view, once the user is admitted by the waiting room of the form
+     *
+     * @param request
+     * @return the Xpage
+     * @throws AccessDeniedException
+     */
+    @View( VIEW_APPOINTMENT_CALENDAR )
+    public XPage getViewAppointmentCalendar( HttpServletRequest request ) throws AccessDeniedException
+    {
+        int nIdForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
+        try ( Admission admission = AdmissionControlService.admit( nIdForm, request ) )
+        {
+            if ( !admission.isAdmitted( ) )
+            {
+                return getWaitingRoomPage( request, admission, AppPathService.getPortalUrl( ) + "?" + request.getQueryString( ) );
+            }
+            return getViewAppointmentCalendar( request, nIdForm );
+        }
+    }
 
     /**
      * Get the calendar view
      *
      * @param request
+     * @param nIdForm
+     *            the id of the form
      * @return the Xpage
      * @throws AccessDeniedException
      */
     @SuppressWarnings( "unchecked" )
-    @View( VIEW_APPOINTMENT_CALENDAR )
-    public synchronized XPage getViewAppointmentCalendar( HttpServletRequest request ) throws AccessDeniedException
+    private XPage getViewAppointmentCalendar( HttpServletRequest request, int nIdForm ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         Map<String, Object> model = getModel( );
         Locale locale = getLocale( request );
-        _nNbPlacesToTake = 0;
+        context.setNbPlacesToTake( 0 );
 
-        int nIdForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
         String nbPlacesToTake = request.getParameter( PARAMETER_NB_PLACE_TO_TAKE );
         String refAppointment = request.getParameter( PARAMETER_REF_APPOINTMENT );
 
-        _appointmentForm = FormService.buildAppointmentFormWithoutReservationRule( nIdForm );
-        _strNbPlacesToTakeLength = String.valueOf(_appointmentForm.getNbConsecutiveSlots());
+        context.setAppointmentForm( FormService.buildAppointmentFormWithoutReservationRule( nIdForm ) );
+        int nMaxNbPlacesToTake = context.getAppointmentForm( ).getNbConsecutiveSlots( );
         boolean bError = false;
-        if ( !_appointmentForm.getIsActive( ) )
+        if ( !context.getAppointmentForm( ).getIsActive( ) )
         {
             addError( ERROR_MESSAGE_FORM_NOT_ACTIVE, locale );
             bError = true;
@@ -348,30 +384,32 @@ public class AppointmentApp extends MVCApplication
             }
             else
             {
-                _validatedAppointment = appointmentDTO;
-                AppointmentService.addAppointmentResponses( _validatedAppointment );
-                nbPlacesToTake = Integer.toString( _validatedAppointment.getNbBookedSeats( ) );
+                context.setValidatedAppointment( appointmentDTO );
+                AppointmentService.addAppointmentResponses( appointmentDTO );
+                nbPlacesToTake = Integer.toString( appointmentDTO.getNbBookedSeats( ) );
             }
         }
+        // The appointment whose date is changed, if any
+        AppointmentDTO validatedAppointment = context.getValidatedAppointment( );
         LocalDate startingDateOfDisplay = LocalDate.now( );
         // Check if the date of display and the endDateOfDisplay are in the
         // validity date range of the form
         LocalDate startingValidityDate = null;
-        if ( _appointmentForm.getDateStartValidity( ) == null )
+        if ( context.getAppointmentForm( ).getDateStartValidity( ) == null )
         {
             addError( ERROR_MESSAGE_NO_STARTING_VALIDITY_DATE, locale );
             bError = true;
         }
         else
         {
-            startingValidityDate = _appointmentForm.getDateStartValidity( ).toLocalDate( );
+            startingValidityDate = context.getAppointmentForm( ).getDateStartValidity( ).toLocalDate( );
         }
         if ( startingValidityDate != null && startingValidityDate.isAfter( startingDateOfDisplay ) )
         {
             startingDateOfDisplay = startingValidityDate;
         }
         // Get the nb weeks to display
-        int nNbWeeksToDisplay = _appointmentForm.getNbWeeksToDisplay( );
+        int nNbWeeksToDisplay = context.getAppointmentForm( ).getNbWeeksToDisplay( );
         // Calculate the ending date of display with the nb weeks to display
         // since today
         // We calculate the number of weeks including the current week, so it
@@ -384,9 +422,9 @@ public class AppointmentApp extends MVCApplication
         // assign the ending date of display with the ending validity date of
         // the form
         LocalDate endingValidityDate = null;
-        if ( _appointmentForm.getDateEndValidity( ) != null )
+        if ( context.getAppointmentForm( ).getDateEndValidity( ) != null )
         {
-            endingValidityDate = _appointmentForm.getDateEndValidity( ).toLocalDate( );
+            endingValidityDate = context.getAppointmentForm( ).getDateEndValidity( ).toLocalDate( );
             if ( endingDateOfDisplay.isAfter( endingValidityDate ) )
             {
                 endingDateOfDisplay = endingValidityDate;
@@ -417,24 +455,31 @@ public class AppointmentApp extends MVCApplication
 
         List<String> listStrBase0OpenDaysOfWeek = new ArrayList<>(
                 WeekDefinitionService.getSetDaysOfWeekOfAListOfWeekDefinitionForFullCalendar( listReservationRules ) );
+        Set<Integer> setOpenDays = WeekDefinitionService.getOpenDaysOfWeek( listReservationRules );
+        CalendarTemplate calendarTemplate = CalendarTemplateHome.findByPrimaryKey( context.getAppointmentForm( ).getCalendarTemplateId( ) );
         // Build the slots if no errors
         List<Slot> listSlots = new ArrayList<>( );
         if ( !bError )
         {
+            // The slots not displayed are not built: too close to be booked, not enough places to change the date of an appointment, not available
+            // or on a hidden day for the calendar templates of the available slots
+            SlotFilter slotFilter = SlotFilter.forCalendarTemplate( calendarTemplate.getTitle( ),
+                    LocalDateTime.now( ).plusHours( context.getAppointmentForm( ).getMinTimeBeforeAppointment( ) ), validatedAppointment, setOpenDays );
             boolean isNewNbPlacesToTake = ( nbPlacesToTake != null && StringUtils.isNumeric( nbPlacesToTake ) );
-            if ( _appointmentForm.getIsMultislotAppointment( ) && ( _nNbPlacesToTake != 0 || isNewNbPlacesToTake ) )
+            if ( context.getAppointmentForm( ).getIsMultislotAppointment( ) && ( context.getNbPlacesToTake( ) != 0 || isNewNbPlacesToTake ) )
             {
-                _nNbPlacesToTake = isNewNbPlacesToTake ? Integer.parseInt( nbPlacesToTake ) : _nNbPlacesToTake;
-                listSlots = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, _nNbPlacesToTake );
+                context.setNbPlacesToTake( isNewNbPlacesToTake ? Integer.parseInt( nbPlacesToTake ) : context.getNbPlacesToTake( ) );
+                listSlots = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, context.getNbPlacesToTake( ),
+                        slotFilter );
 
             }
             else
             {
-                _nNbPlacesToTake = 0;
-                listSlots = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay );
+                context.setNbPlacesToTake( 0 );
+                listSlots = AvailabilityGridService.findListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, slotFilter );
             }
 
-            if ( _nNbPlacesToTake > Integer.parseInt( _strNbPlacesToTakeLength ) )
+            if ( context.getNbPlacesToTake( ) > nMaxNbPlacesToTake )
             {
             	addError( ERROR_MESSAGE_NB_PLACE_TO_TAKE_TO_BIG, locale );
             }
@@ -451,23 +496,11 @@ public class AppointmentApp extends MVCApplication
             	return accessControlPage;
             }
 
-            // Get the min time from now before a user can take an appointment (in hours)
-            int minTimeBeforeAppointment = _appointmentForm.getMinTimeBeforeAppointment( );
-            LocalDateTime dateTimeBeforeAppointment = LocalDateTime.now( ).plusHours( minTimeBeforeAppointment );
-            // Filter the list of slots
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
-            {
-                listSlots = listSlots.stream( ).filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) ).collect( Collectors.toList( ) );
-            }
-
             // If we change the date of an appointment
-            // filter the list of slot with only the ones that have enough places at
+            // the slots have been filtered with only the ones that have enough places at
             // the moment of the edition
-            if ( _validatedAppointment != null )
+            if ( validatedAppointment != null )
             {
-                int nbBookedSeats = _validatedAppointment.getNbBookedSeats( );
-                listSlots = listSlots.stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) >= nbBookedSeats && s.getIsOpen( ) )
-                        .collect( Collectors.toList( ) );
                 model.put( MARK_MODIFICATION_DATE_APPOINTMENT, true );
                 model.put( PARAMETER_REF_APPOINTMENT, refAppointment );
             }
@@ -476,17 +509,25 @@ public class AppointmentApp extends MVCApplication
                 model.put( MARK_MODIFICATION_DATE_APPOINTMENT, false );
             }
 
-            LocalDate firstDateOfFreeOpenSlot = null;
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
+            // Need to find the first available slot from now (with time)
+            LocalDate firstDateOfFreeOpenSlot;
+            if ( context.getNbPlacesToTake( ) > 0 )
             {
-                // Need to find the first available slot from now (with time)
-                List<Slot> listAvailableSlots = listSlots.stream( ).filter( s -> ( s.getNbPotentialRemainingPlaces( ) > 0 && s.getIsOpen( ) == Boolean.TRUE ) )
-                        .collect( Collectors.toList( ) );
-                if ( CollectionUtils.isNotEmpty( listAvailableSlots ) )
+                // The slots are grouped by consecutive slots and ordered by their starting date time
+                firstDateOfFreeOpenSlot = listSlots.stream( ).filter( s -> ( s.getNbPotentialRemainingPlaces( ) > 0 && s.getIsOpen( ) == Boolean.TRUE ) )
+                        .findFirst( ).map( Slot::getDate ).orElse( null );
+            }
+            else
+            {
+                // The days of the display are built one after the other until the first available slot
+                LocalDateTime from = slotFilter.getMinStartingDateTime( );
+                if ( from.toLocalDate( ).isBefore( startingDateOfDisplay ) )
                 {
-                    firstDateOfFreeOpenSlot = listAvailableSlots.stream( ).min( ( s1, s2 ) -> s1.getStartingDateTime( ).compareTo( s2.getStartingDateTime( ) ) )
-                            .get( ).getDate( );
+                    from = startingDateOfDisplay.atStartOfDay( );
                 }
+                int nNbPlaces = ( validatedAppointment != null ) ? validatedAppointment.getNbBookedSeats( ) : 1;
+                Slot firstAvailableSlot = SlotService.findFirstAvailableSlot( nIdForm, mapReservationRule, from, endingDateOfDisplay, nNbPlaces );
+                firstDateOfFreeOpenSlot = ( firstAvailableSlot != null ) ? firstAvailableSlot.getDate( ) : null;
             }
             if (firstDateOfFreeOpenSlot == null) {
                 if (formMessages != null && StringUtils.isNotEmpty(formMessages.getNoAvailableSlot())) {
@@ -518,7 +559,6 @@ public class AppointmentApp extends MVCApplication
             listInfos.add( message );
         }
 
-        CalendarTemplate calendarTemplate = CalendarTemplateHome.findByPrimaryKey( _appointmentForm.getCalendarTemplateId( ) );
         List<String> listHiddenDays = Stream.of( "0", "1", "2", "3", "4", "5", "6" ).collect( Collectors.toList( ) );
 
         /**
@@ -529,8 +569,7 @@ public class AppointmentApp extends MVCApplication
         switch( calendarTemplate.getTitle( ) )
         {
             case CalendarTemplate.FREE_SLOTS:
-                // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                // Only the available slots have been built
                 listHiddenDays.clear( );
                 dayView = BASIC_DAY;
                 weekView = BASIC_WEEK;
@@ -548,8 +587,7 @@ public class AppointmentApp extends MVCApplication
                 weekView = AGENDA_WEEK;
                 break;
             case CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS:
-                // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                // Only the available slots of the open days have been built
                 // update the list of the days to hide
                 listHiddenDays.removeAll( listStrBase0OpenDaysOfWeek );
                 dayView = BASIC_DAY;
@@ -564,13 +602,12 @@ public class AppointmentApp extends MVCApplication
         }
         // Get the min and max date of the open days (for the week navigation on
         // open days calendar templates)
-        Set<Integer> setOpenDays = WeekDefinitionService.getOpenDaysOfWeek( listReservationRules );
         model.put( PARAMETER_MIN_DATE_OF_OPEN_DAY,
                 LocalDate.now( ).with( DayOfWeek.of( setOpenDays.stream( ).min( Comparator.naturalOrder( ) ).orElse( 1 ) ) ) );
         model.put( PARAMETER_MAX_DATE_OF_OPEN_DAY,
                 endingDateOfDisplay.with( DayOfWeek.of( setOpenDays.stream( ).max( Comparator.naturalOrder( ) ).orElse( 1 ) ) ) );
 
-        model.put( MARK_FORM, _appointmentForm );
+        model.put( MARK_FORM, context.getAppointmentForm( ) );
         model.put( PARAMETER_ID_FORM, nIdForm );
         model.put( MARK_FORM_MESSAGES, formMessages );
         model.put( PARAMETER_ENDING_DATE_OF_DISPLAY, endingDateOfDisplay );
@@ -580,12 +617,12 @@ public class AppointmentApp extends MVCApplication
         model.put( PARAMETER_MIN_TIME, AppointmentUtilities.getMinTimeToDisplay( minStartingTime ) );
         model.put( PARAMETER_MAX_TIME, AppointmentUtilities.getMaxTimeToDisplay( maxEndingTime ) );
         model.put( PARAMETER_MIN_DURATION, LocalTime.MIN.plusMinutes( AppointmentUtilities.THIRTY_MINUTES ) );
-        model.put( MARK_NBPLACESTOTAKE, _nNbPlacesToTake );
+        model.put( MARK_NBPLACESTOTAKE, context.getNbPlacesToTake( ) );
         model.put( PARAMETER_EVENTS, listSlots );
         model.put( PARAMETER_HIDDEN_DAYS, listHiddenDays );
         model.put( PARAMETER_DAY_VIEW, dayView );
         model.put( PARAMETER_WEEK_VIEW, weekView );
-        model.put( MARK_MAX_NBPLACESTOTAKE, Integer.valueOf( _strNbPlacesToTakeLength ) );
+        model.put( MARK_MAX_NBPLACESTOTAKE, nMaxNbPlacesToTake );
         HtmlTemplate templateNbPlacesToTakeForm = AppTemplateService.getTemplate( TEMPLATE_HTML_CODE_NB_PLACES_TO_TAKE_FORM, locale, model );
         model.put( MARK_FORM_NB_PLACES_TO_TAKE_HTML, templateNbPlacesToTakeForm.getHtml( ) );
 
@@ -601,37 +638,39 @@ public class AppointmentApp extends MVCApplication
      * @throws UserNotSignedException
      */
     @View( VIEW_APPOINTMENT_FORM )
-    public synchronized XPage getViewAppointmentForm( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
+    public XPage getViewAppointmentForm( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO validatedAppointment = context.getValidatedAppointment( );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         String strNbPlacesToTake = request.getParameter( PARAMETER_NB_PLACE_TO_TAKE );
         String strModifDateAppointment = request.getParameter( PARAMETER_MODIF_DATE );
 
-        if ( strModifDateAppointment != null && Boolean.parseBoolean( strModifDateAppointment ) && _validatedAppointment != null
-                && _validatedAppointment.getIdAppointment( ) != 0 )
+        if ( strModifDateAppointment != null && Boolean.parseBoolean( strModifDateAppointment ) && validatedAppointment != null
+                && validatedAppointment.getIdAppointment( ) != 0 )
         {
             return getViewChangeDateAppointment( request );
         }
         if ( strNbPlacesToTake != null )
         {
-            _nNbPlacesToTake = Integer.parseInt( strNbPlacesToTake );
+            context.setNbPlacesToTake( Integer.parseInt( strNbPlacesToTake ) );
         }
 
         int nIdForm = Integer.parseInt( strIdForm );
-        if ( _appointmentForm == null || _appointmentForm.getIdForm( ) != nIdForm )
+        if ( context.getAppointmentForm( ) == null || context.getAppointmentForm( ).getIdForm( ) != nIdForm )
         {
-            _appointmentForm = FormService.buildAppointmentFormWithoutReservationRule( nIdForm );
+            context.setAppointmentForm( FormService.buildAppointmentFormWithoutReservationRule( nIdForm ) );
         }
-        if ( !_appointmentForm.getIsActive( ) )
+        if ( !context.getAppointmentForm( ).getIsActive( ) )
         {
             addError( ERROR_MESSAGE_FORM_NOT_ACTIVE, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
         }
-        if(!_appointmentForm.getIsMultislotAppointment())
+        if(!context.getAppointmentForm( ).getIsMultislotAppointment())
         {
-            _nNbPlacesToTake = 0;
+            context.setNbPlacesToTake( 0 );
         }
-        checkMyLuteceAuthentication( _appointmentForm, request );
+        checkMyLuteceAuthentication( context.getAppointmentForm( ), request );
         // Patch needed for authentication after being on the form
         String secondAttempt = request.getParameter( "secondAttempt" );
         boolean bTestSecondAttempt = Boolean.FALSE;
@@ -646,7 +685,7 @@ public class AppointmentApp extends MVCApplication
             LinkedHashMap<String, String> additionalParameters = new LinkedHashMap<>( );
             additionalParameters.put( PARAMETER_ID_FORM, strIdForm );
             additionalParameters.put( PARAMETER_STARTING_DATE_TIME, request.getParameter( PARAMETER_STARTING_DATE_TIME ) );
-            additionalParameters.put( PARAMETER_NB_PLACE_TO_TAKE, Integer.toString( _nNbPlacesToTake ) );
+            additionalParameters.put( PARAMETER_NB_PLACE_TO_TAKE, Integer.toString( context.getNbPlacesToTake( ) ) );
             additionalParameters.put( PARAMETER_ANCHOR, MARK_ANCHOR + anchor );
             return redirect( request, VIEW_APPOINTMENT_FORM, additionalParameters );
 
@@ -664,56 +703,58 @@ public class AppointmentApp extends MVCApplication
         else
         {
 
-            int nNbConsecutiveSlot = ( _nNbPlacesToTake == 0 ) ? 1 : _nNbPlacesToTake;
+            int nNbConsecutiveSlot = ( context.getNbPlacesToTake( ) == 0 ) ? 1 : context.getNbPlacesToTake( );
             LocalDateTime startingDateTime = LocalDateTime.parse( request.getParameter( PARAMETER_STARTING_DATE_TIME ) );
-            if ( !isAuthorizedDate( startingDateTime, getLocale( request ) ) )
+            if ( !isAuthorizedDate( startingDateTime, context.getAppointmentForm( ), getLocale( request ) ) )
             {
 
                 addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
             }
             // Get all the week definitions
             List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
             Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
 
-            listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateTime.toLocalDate( ), startingDateTime.toLocalDate( ) );
-            listSlot = listSlot.stream( ).filter(
+            listSlot = SlotService.streamSlot( nIdForm, mapReservationRule, startingDateTime.toLocalDate( ), startingDateTime.toLocalDate( ) ).filter(
                     s -> ( ( startingDateTime.compareTo( s.getStartingDateTime( ) ) <= 0 ) && ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) )
                     .limit( nNbConsecutiveSlot ).collect( Collectors.toList( ) );
 
             if ( listSlot == null || listSlot.stream( ).noneMatch( slot -> slot.getStartingDateTime( ).isEqual( startingDateTime ) )
-                    || ( _nNbPlacesToTake > 0 && listSlot.size( ) != _nNbPlacesToTake ) || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
+                    || ( context.getNbPlacesToTake( ) > 0 && listSlot.size( ) != context.getNbPlacesToTake( ) )
+                    || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
             }
 
         }
 
-        if ( _notValidatedAppointment == null || _notValidatedAppointment.getIdForm( ) != _appointmentForm.getIdForm( ) )
+        AppointmentDTO appointmentDTO = context.getNotValidatedAppointment( );
+        if ( appointmentDTO == null || appointmentDTO.getIdForm( ) != context.getAppointmentForm( ).getIdForm( ) )
         {
-            if ( _validatedAppointment != null && _validatedAppointment.getIdForm( ) == _appointmentForm.getIdForm( ) )
+            if ( validatedAppointment != null && validatedAppointment.getIdForm( ) == context.getAppointmentForm( ).getIdForm( ) )
             {
 
                 // Try to get the validated appointment in session
                 // (in case the user click on back button in the recap view (or
                 // modification)
-                _notValidatedAppointment = _validatedAppointment;
-                _validatedAppointment = null;
+                appointmentDTO = validatedAppointment;
+                context.setValidatedAppointment( null );
             }
             else
             {
                 // Need to get back the informations the user has entered
-                _notValidatedAppointment = new AppointmentDTO( );
+                appointmentDTO = new AppointmentDTO( );
             }
+            context.setNotValidatedAppointment( appointmentDTO );
         }
         if ( !bModificationForm )
         {
 
             boolean bool = true;
-            _notValidatedAppointment.setIdForm( nIdForm );
-            _notValidatedAppointment.setSlot( null );
-            _notValidatedAppointment.setNbMaxPotentialBookedSeats( 0 );
+            appointmentDTO.setIdForm( nIdForm );
+            appointmentDTO.setSlot( null );
+            appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
             for ( Slot slot : listSlot )
             {
 
@@ -731,30 +772,31 @@ public class AppointmentApp extends MVCApplication
                 // May be the slot is already taken at the same time
                 if ( !bTestSecondAttempt && slot.getNbPotentialRemainingPlaces( ) == 0 )
                 {
-                    _notValidatedAppointment = null;
+                    context.setNotValidatedAppointment( null );
                     addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-                    return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+                    return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
                 }
 
-                _notValidatedAppointment.addSlot( slot );
+                appointmentDTO.addSlot( slot );
 
                 if ( bool )
                 {
-                    _notValidatedAppointment.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
+                    appointmentDTO.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
                     if ( SecurityService.getInstance( ).getRegisteredUser( request ) != null )
                     {
-                        setUserInfo( request, _notValidatedAppointment );
+                        setUserInfo( request, appointmentDTO );
                     }
-                    FormService.fillAppointmentFormWithReservationRulePart( _appointmentForm,
+                    FormService.fillAppointmentFormWithReservationRulePart( context.getAppointmentForm( ),
                             ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) ) );
                     bool = false;
                 }
-                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), _notValidatedAppointment, _appointmentForm.getMaxPeoplePerAppointment( ) );
+                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), appointmentDTO,
+                        context.getAppointmentForm( ).getMaxPeoplePerAppointment( ) );
             }
-            if ( _notValidatedAppointment.getNbMaxPotentialBookedSeats( ) == 0 )
+            if ( appointmentDTO.getNbMaxPotentialBookedSeats( ) == 0 )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
             }
         }
         else
@@ -773,26 +815,25 @@ public class AppointmentApp extends MVCApplication
         Map<String, Object> model = getModel( );
         Locale locale = getLocale( request );
         StringBuilder strBuffer = new StringBuilder( );
-        List<Entry> listEntryFirstLevel = EntryService.getFilter( _appointmentForm.getIdForm( ), true );
-        for ( Entry entry : listEntryFirstLevel )
+        for ( int nIdEntry : EntryService.findListIdEntryFront( context.getAppointmentForm( ).getIdForm( ) ) )
         {
-            EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, true, _notValidatedAppointment );
+            EntryService.getHtmlEntry( model, nIdEntry, strBuffer, locale, true, appointmentDTO );
         }
         FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
 
-        if ( _nNbPlacesToTake != 0 )
+        if ( context.getNbPlacesToTake( ) != 0 )
         {
 
-            _notValidatedAppointment.setNbBookedSeats( _nNbPlacesToTake );
+            appointmentDTO.setNbBookedSeats( context.getNbPlacesToTake( ) );
         }
-        model.put( MARK_APPOINTMENT, _notValidatedAppointment );
-        model.put( MARK_NBPLACESTOTAKE, _nNbPlacesToTake );
-        model.put( PARAMETER_DATE_OF_DISPLAY, _notValidatedAppointment.getSlot( ).get( 0 ).getDate( ) );
-        model.put( MARK_FORM, _appointmentForm );
+        model.put( MARK_APPOINTMENT, appointmentDTO );
+        model.put( MARK_NBPLACESTOTAKE, context.getNbPlacesToTake( ) );
+        model.put( PARAMETER_DATE_OF_DISPLAY, appointmentDTO.getSlot( ).get( 0 ).getDate( ) );
+        model.put( MARK_FORM, context.getAppointmentForm( ) );
         model.put( MARK_FORM_MESSAGES, formMessages );
         model.put( MARK_STR_ENTRY, strBuffer.toString( ) );
         model.put( MARK_LOCALE, locale );
-        model.put( MARK_PLACES, _notValidatedAppointment.getNbMaxPotentialBookedSeats( ) );
+        model.put( MARK_PLACES, appointmentDTO.getNbMaxPotentialBookedSeats( ) );
         model.put( MARK_LIST_ERRORS, AppointmentDTO.getAllErrors( locale ) );
         LuteceUser user = SecurityService.getInstance( ).getRegisteredUser( request );
         if( user != null )
@@ -822,9 +863,9 @@ public class AppointmentApp extends MVCApplication
         model.put( MARK_FORM_HTML, templateForm.getHtml( ) );
         XPage xPage = getXPage( TEMPLATE_APPOINTMENT_FORM, locale, model );
 
-        if ( _appointmentForm.getDisplayTitleFo( ) )
+        if ( context.getAppointmentForm( ).getDisplayTitleFo( ) )
         {
-            xPage.setTitle( _appointmentForm.getTitle( ) );
+            xPage.setTitle( context.getAppointmentForm( ).getTitle( ) );
         }
         return xPage;
     }
@@ -840,21 +881,23 @@ public class AppointmentApp extends MVCApplication
      * @throws AccessDeniedException
      */
     @Action( ACTION_DO_VALIDATE_FORM )
-    public synchronized XPage doValidateForm( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
+    public XPage doValidateForm( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO appointmentDTO = context.getNotValidatedAppointment( );
         // CSRF Token control
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_DO_VALIDATE_FORM ) )
         {
             throw new AccessDeniedException( MESSAGE_ERROR_TOKEN );
         }
-        checkMyLuteceAuthentication( _appointmentForm, request );
+        checkMyLuteceAuthentication( context.getAppointmentForm( ), request );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
-        if ( _notValidatedAppointment == null || _appointmentForm == null || _notValidatedAppointment.getIdForm( ) != _appointmentForm.getIdForm( ) )
+        if ( appointmentDTO == null || context.getAppointmentForm( ) == null || appointmentDTO.getIdForm( ) != context.getAppointmentForm( ).getIdForm( ) )
         {
 
             addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, getLocale( request ) );
-            _notValidatedAppointment = null;
-            _validatedAppointment = null;
+            context.setNotValidatedAppointment( null );
+            context.setValidatedAppointment( null );
             return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
         }
         List<GenericAttributeError> listFormErrors = new ArrayList<>( );
@@ -863,38 +906,38 @@ public class AppointmentApp extends MVCApplication
         String strEmailConfirm = request.getParameter( PARAMETER_EMAIL_CONFIRMATION );
         String strFirstName = request.getParameter( PARAMETER_FIRST_NAME );
         String strLastName = request.getParameter( PARAMETER_LAST_NAME );
-        AppointmentUtilities.checkDateOfTheAppointmentIsNotBeforeNow( _notValidatedAppointment, locale, listFormErrors );
-        AppointmentUtilities.checkEmail( strEmail, strEmailConfirm, _appointmentForm, locale, listFormErrors );
-        int nbBookedSeats = _nNbPlacesToTake;
-        if ( _nNbPlacesToTake == 0 )
+        AppointmentUtilities.checkDateOfTheAppointmentIsNotBeforeNow( appointmentDTO, locale, listFormErrors );
+        AppointmentUtilities.checkEmail( strEmail, strEmailConfirm, context.getAppointmentForm( ), locale, listFormErrors );
+        int nbBookedSeats = context.getNbPlacesToTake( );
+        if ( context.getNbPlacesToTake( ) == 0 )
         {
 
-            nbBookedSeats = AppointmentUtilities.checkAndReturnNbBookedSeats( request.getParameter( PARAMETER_NUMBER_OF_BOOKED_SEATS ), _appointmentForm,
-                    _notValidatedAppointment, locale, listFormErrors );
+            nbBookedSeats = AppointmentUtilities.checkAndReturnNbBookedSeats( request.getParameter( PARAMETER_NUMBER_OF_BOOKED_SEATS ),
+                    context.getAppointmentForm( ), appointmentDTO, locale, listFormErrors );
 
         }
-        AppointmentUtilities.fillAppointmentDTO( _notValidatedAppointment, nbBookedSeats, strEmail, strEmailConfirm, strFirstName, strLastName );
-        AppointmentUtilities.validateFormAndEntries( _notValidatedAppointment, request, listFormErrors, false );
-        AppointmentUtilities.fillInListResponseWithMapResponse( _notValidatedAppointment );
-        AppointmentUtilities.setAppointmentPhoneNumberValuesFromResponse( _notValidatedAppointment );
+        AppointmentUtilities.fillAppointmentDTO( appointmentDTO, nbBookedSeats, strEmail, strEmailConfirm, strFirstName, strLastName );
+        AppointmentUtilities.validateFormAndEntries( appointmentDTO, request, listFormErrors, false );
+        AppointmentUtilities.fillInListResponseWithMapResponse( appointmentDTO );
+        AppointmentUtilities.setAppointmentPhoneNumberValuesFromResponse( appointmentDTO );
 
         boolean bErrors = false;
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbDaysBetweenTwoAppointmentsTaken( _notValidatedAppointment, strEmail, _appointmentForm ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbDaysBetweenTwoAppointmentsTaken( appointmentDTO, strEmail, context.getAppointmentForm( ) ) )
         {
             addError( ERROR_MESSAGE_NB_MIN_DAYS_BETWEEN_TWO_APPOINTMENTS, locale );
             bErrors = true;
         }
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( _notValidatedAppointment, strEmail, _appointmentForm ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( appointmentDTO, strEmail, context.getAppointmentForm( ) ) )
         {
             addError( ERROR_MESSAGE_NB_MAX_APPOINTMENTS_ON_A_PERIOD, locale );
             bErrors = true;
         }
 
         List<AppointmentDTO> listAppointments = new ArrayList<>( );
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbMaxAppointmentsDefinedOnCategory( _notValidatedAppointment, strEmail, _appointmentForm, listAppointments ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbMaxAppointmentsDefinedOnCategory( appointmentDTO, strEmail, context.getAppointmentForm( ), listAppointments ) )
         {
             StringJoiner builder = new StringJoiner( StringUtils.SPACE );
             String lf = System.getProperty( "line.separator" );
@@ -933,8 +976,8 @@ public class AppointmentApp extends MVCApplication
             additionalParameters.put( PARAMETER_ANCHOR, MARK_ANCHOR + STEP_3 );
             return redirect( request, VIEW_APPOINTMENT_FORM, additionalParameters );
         }
-        _validatedAppointment = _notValidatedAppointment;
-        _notValidatedAppointment = null;
+        context.setValidatedAppointment( appointmentDTO );
+        context.setNotValidatedAppointment( null );
         String anchor = request.getParameter( PARAMETER_ANCHOR );
         if ( StringUtils.isNotEmpty( anchor ) )
         {
@@ -959,9 +1002,11 @@ public class AppointmentApp extends MVCApplication
      * @throws AccessDeniedException
      */
     @View( VIEW_DISPLAY_RECAP_APPOINTMENT )
-    public synchronized XPage displayRecapAppointment( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
+    public XPage displayRecapAppointment( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
     {
-        checkMyLuteceAuthentication( _appointmentForm, request );
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO appointmentDTO = context.getValidatedAppointment( );
+        checkMyLuteceAuthentication( context.getAppointmentForm( ), request );
         String anchor = request.getParameter( PARAMETER_ANCHOR );
         String strModifDateAppointment = request.getParameter( PARAMETER_MODIF_DATE );
 
@@ -972,15 +1017,15 @@ public class AppointmentApp extends MVCApplication
             return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, additionalParameters );
         }
 
-        if ( _validatedAppointment == null || _appointmentForm == null || _validatedAppointment.getIdForm( ) != _appointmentForm.getIdForm( ) )
+        if ( appointmentDTO == null || context.getAppointmentForm( ) == null || appointmentDTO.getIdForm( ) != context.getAppointmentForm( ).getIdForm( ) )
         {
             addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, getLocale( request ) );
-            _notValidatedAppointment = null;
-            _validatedAppointment = null;
+            context.setNotValidatedAppointment( null );
+            context.setValidatedAppointment( null );
             return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
         }
         Map<String, Object> model = new HashMap<>( );
-        if ( _appointmentForm.getEnableCaptcha( ) && getCaptchaService( ).isAvailable( ) )
+        if ( context.getAppointmentForm( ).getEnableCaptcha( ) && getCaptchaService( ).isAvailable( ) )
         {
             model.put( MARK_CAPTCHA, getCaptchaService( ).getHtmlCode( ) );
         }
@@ -995,14 +1040,14 @@ public class AppointmentApp extends MVCApplication
             model.put( MARK_MODIFICATION_DATE_APPOINTMENT, Boolean.FALSE );
 
         }
-        model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( _validatedAppointment.getIdForm( ) ) );
+        model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( appointmentDTO.getIdForm( ) ) );
         fillCommons( model );
-        model.put( MARK_APPOINTMENT, _validatedAppointment );
+        model.put( MARK_APPOINTMENT, appointmentDTO );
         Locale locale = getLocale( request );
-        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( _validatedAppointment, request, locale ) );
-        model.put( MARK_FORM, _appointmentForm );
-        model.put( MARK_NBPLACESTOTAKE, _nNbPlacesToTake );
-        model.put( PARAMETER_DATE_OF_DISPLAY, _validatedAppointment.getSlot( ).get( 0 ).getDate( ) );
+        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( appointmentDTO, request, locale ) );
+        model.put( MARK_FORM, context.getAppointmentForm( ) );
+        model.put( MARK_NBPLACESTOTAKE, context.getNbPlacesToTake( ) );
+        model.put( PARAMETER_DATE_OF_DISPLAY, appointmentDTO.getSlot( ).get( 0 ).getDate( ) );
         model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_DO_MAKE_APPOINTMENT ) );
 
         return getXPage( TEMPLATE_APPOINTMENT_FORM_RECAP, locale, model );
@@ -1018,72 +1063,97 @@ public class AppointmentApp extends MVCApplication
      * @throws AccessDeniedException
      */
     @Action( ACTION_DO_MAKE_APPOINTMENT )
-    public synchronized XPage doMakeAppointment( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
+    public XPage doMakeAppointment( HttpServletRequest request ) throws UserNotSignedException, AccessDeniedException
     {
-        checkMyLuteceAuthentication( _appointmentForm, request );
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO appointmentDTO = context.getValidatedAppointment( );
+        checkMyLuteceAuthentication( context.getAppointmentForm( ), request );
         // CSRF Token control
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_DO_MAKE_APPOINTMENT ) )
         {
             throw new AccessDeniedException( MESSAGE_ERROR_TOKEN );
         }
-        if ( _validatedAppointment == null || _appointmentForm == null || _validatedAppointment.getIdForm( ) != _appointmentForm.getIdForm( ) )
+        if ( appointmentDTO == null || context.getAppointmentForm( ) == null || appointmentDTO.getIdForm( ) != context.getAppointmentForm( ).getIdForm( ) )
         {
             addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, getLocale( request ) );
-            _notValidatedAppointment = null;
-            _validatedAppointment = null;
+            context.setNotValidatedAppointment( null );
+            context.setValidatedAppointment( null );
             return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
         }
-        if ( !_appointmentForm.getIsActive( ) )
+        if ( !context.getAppointmentForm( ).getIsActive( ) )
         {
             addError( ERROR_MESSAGE_FORM_NOT_ACTIVE, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, _appointmentForm.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
-                    _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, context.getAppointmentForm( ).getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
+                    context.getNbPlacesToTake( ) );
         }
 
         if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_BACK ) ) )
         {
             LinkedHashMap<String, String> parameters = new LinkedHashMap<>( );
-            parameters.put( PARAMETER_ID_FORM, String.valueOf( _validatedAppointment.getIdForm( ) ) );
+            parameters.put( PARAMETER_ID_FORM, String.valueOf( appointmentDTO.getIdForm( ) ) );
             parameters.put( PARAMETER_IS_MODIFICATION, String.valueOf( Boolean.TRUE ) );
 
             return redirect( request, VIEW_APPOINTMENT_FORM, parameters );
         }
-        if ( _appointmentForm.getEnableCaptcha( ) && getCaptchaService( ).isAvailable( ) && !getCaptchaService( ).validate( request ) )
+        if ( context.getAppointmentForm( ).getEnableCaptcha( ) && getCaptchaService( ).isAvailable( ) && !getCaptchaService( ).validate( request ) )
         {
             addError( ERROR_MESSAGE_CAPTCHA, getLocale( request ) );
-            return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
+            return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, appointmentDTO.getIdForm( ) );
         }
 
+        // A double submit of the form must not save the appointment twice
+        if ( !context.startSaving( ) )
+        {
+            addError( ERROR_MESSAGE_APPOINTMENT_BEING_SAVED, getLocale( request ) );
+            return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, appointmentDTO.getIdForm( ) );
+        }
         int nIdAppointment;
-        try
+        try ( Admission admission = AdmissionControlService.admit( appointmentDTO.getIdForm( ), request ) )
         {
-
-            nIdAppointment = SlotSafeService.saveAppointment( _validatedAppointment, request );
+            if ( !admission.isAdmitted( ) )
+            {
+                UrlItem urlRecap = new UrlItem( AppPathService.getPortalUrl( ) );
+                urlRecap.addParameter( MVCUtils.PARAMETER_PAGE, XPAGE_NAME );
+                urlRecap.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_DISPLAY_RECAP_APPOINTMENT );
+                urlRecap.addParameter( PARAMETER_ID_FORM, appointmentDTO.getIdForm( ) );
+                return getWaitingRoomPage( request, admission, urlRecap.getUrl( ) );
+            }
+            nIdAppointment = SlotSafeService.saveAppointment( appointmentDTO, request );
 
         }
+        catch( SlotLockContendedException e )
+        {
+            // The slots are not full: the user can confirm the appointment again
+            addError( ERROR_MESSAGE_SLOT_LOCKED, getLocale( request ) );
+            return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, appointmentDTO.getIdForm( ) );
+        }
         catch( SlotFullException e )
         {
 
             addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
-                    _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, appointmentDTO.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
+                    context.getNbPlacesToTake( ) );
         }
         catch( SlotEditTaskExpiredTimeException e )
         {
             addError( ERROR_MESSAGE_SLOT_EDIT_TASK_EXPIRED_TIME, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
-                    _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, appointmentDTO.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
+                    context.getNbPlacesToTake( ) );
         }
         catch( AppointmentSavedException e )
         {
-            nIdAppointment = _validatedAppointment.getIdAppointment( );
+            nIdAppointment = appointmentDTO.getIdAppointment( );
             AppLogService.error( "Error Save appointment: " + e.getMessage( ), e );
         }
+        finally
+        {
+            context.endSaving( );
+        }
         AppLogService.info( LogUtilities.buildLog( ACTION_DO_MAKE_APPOINTMENT, Integer.toString( nIdAppointment ), null ) );
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( request.getSession( ) );
-        _nNbPlacesToTake = 0;
-        int nIdForm = _validatedAppointment.getIdForm( );
-       // _validatedAppointment = null;
+        context.setNbPlacesToTake( 0 );
+        int nIdForm = appointmentDTO.getIdForm( );
+       // context.setValidatedAppointment( null );
 
         // Remove the session data of this form
         AccessControlService.getInstance( ).cleanSessionData( request, nIdForm, Form.RESOURCE_TYPE );
@@ -1110,37 +1180,39 @@ public class AppointmentApp extends MVCApplication
      * @return The XPage to display
      */
     @View( VIEW_GET_APPOINTMENT_CREATED )
-    public synchronized XPage getAppointmentCreated( HttpServletRequest request )
+    public XPage getAppointmentCreated( HttpServletRequest request )
     {
-    	if( _validatedAppointment == null )
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO appointmentDTO = context.getValidatedAppointment( );
+    	if( appointmentDTO == null )
     	{
     		return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
     	}
         int nIdForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
         FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
         AppointmentFormDTO form = FormService.buildAppointmentForm( nIdForm, 0 );
-        Slot firstSlot = _validatedAppointment.getSlot().get(0);
+        Slot firstSlot = appointmentDTO.getSlot().get(0);
         Slot lastSlot = firstSlot;
-        if (  _validatedAppointment.getSlot().size( ) > 1 )
+        if (  appointmentDTO.getSlot().size( ) > 1 )
         {
-                    lastSlot = _validatedAppointment.getSlot().get(_validatedAppointment.getSlot().size( ) -1 );
+                    lastSlot = appointmentDTO.getSlot().get(appointmentDTO.getSlot().size( ) -1 );
         }
         String strTimeBegin = firstSlot.getStartingDateTime( ).toLocalTime( ).toString( );
         String strTimeEnd = lastSlot.getEndingDateTime( ).toLocalTime( ).toString( );
-        formMessages.setTextAppointmentCreated( formMessages.getTextAppointmentCreated( ).replace( MARK_REF, _validatedAppointment.getReference( ) )
+        formMessages.setTextAppointmentCreated( formMessages.getTextAppointmentCreated( ).replace( MARK_REF, appointmentDTO.getReference( ) )
                 .replace( MARK_DATE_APP, firstSlot.getStartingDateTime().format( Utilities.getFormatter( ) ) )
                 .replace( MARK_TIME_BEGIN, strTimeBegin ).replace( MARK_TIME_END, strTimeEnd) );
         Map<String, Object> model = new HashMap<>( );
-        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( _validatedAppointment, request, getLocale( request ) ) );
+        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( appointmentDTO, request, getLocale( request ) ) );
         model.put( MARK_DATE_APPOINTMENT, firstSlot.getDate().format( Utilities.getFormatter( ) ) );
         model.put( MARK_STARTING_TIME_APPOINTMENT, firstSlot.getStartingTime( ) );
         model.put( MARK_ENDING_TIME_APPOINTMENT, lastSlot.getEndingTime( ) );
-        model.put( MARK_USER,  _validatedAppointment.getUser( ) );
-        model.put( MARK_PLACES, _validatedAppointment.getNbPlaces( ) );
+        model.put( MARK_USER,  appointmentDTO.getUser( ) );
+        model.put( MARK_PLACES, appointmentDTO.getNbPlaces( ) );
         model.put( MARK_FORM, form );
         model.put( MARK_FORM_MESSAGES, formMessages );
-        _appointmentForm = null;
-        _validatedAppointment = null;
+        context.setAppointmentForm( null );
+        context.setValidatedAppointment( null );
         return getXPage( TEMPLATE_APPOINTMENT_CREATED, getLocale( request ), model );
     }
 
@@ -1155,38 +1227,45 @@ public class AppointmentApp extends MVCApplication
      */
 
     @View( VIEW_CHANGE_DATE_APPOINTMENT )
-    public synchronized XPage getViewChangeDateAppointment( HttpServletRequest request )
+    public XPage getViewChangeDateAppointment( HttpServletRequest request )
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        AppointmentDTO appointmentDTO = context.getValidatedAppointment( );
+        if ( appointmentDTO == null )
+        {
+            return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
+        }
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         LocalDateTime startingDateTime = LocalDateTime.parse( request.getParameter( PARAMETER_STARTING_DATE_TIME ) );
         Locale locale = getLocale( request );
         int nIdForm = Integer.parseInt( strIdForm );
         Form form = FormService.findFormLightByPrimaryKey( nIdForm );
 
-        if ( !form.getIsActive( ) || _validatedAppointment.getStartingDateTime( ).isBefore( LocalDateTime.now( ) )
-                || !isAuthorizedDate( startingDateTime, locale ) )
+        if ( !form.getIsActive( ) || appointmentDTO.getStartingDateTime( ).isBefore( LocalDateTime.now( ) )
+                || !isAuthorizedDate( startingDateTime, context.getAppointmentForm( ), locale ) )
         {
-            _validatedAppointment = null;
+            context.setValidatedAppointment( null );
             addError( ERROR_MESSAGE_FORM_NOT_ACTIVE, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, form.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, form.getIdForm( ), PARAMETER_NB_PLACE_TO_TAKE,
+                    context.getNbPlacesToTake( ) );
         }
-        int nNbConsecutiveSlot = ( _nNbPlacesToTake == 0 ) ? 1 : _nNbPlacesToTake;
+        int nNbConsecutiveSlot = ( context.getNbPlacesToTake( ) == 0 ) ? 1 : context.getNbPlacesToTake( );
         List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
         Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
-        List<Slot> listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateTime.toLocalDate( ), startingDateTime.toLocalDate( ) );
-        listSlot = listSlot.stream( )
+        List<Slot> listSlot = SlotService.streamSlot( nIdForm, mapReservationRule, startingDateTime.toLocalDate( ), startingDateTime.toLocalDate( ) )
                 .filter( s -> ( ( startingDateTime.compareTo( s.getStartingDateTime( ) ) <= 0 ) && ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) )
                 .limit( nNbConsecutiveSlot ).collect( Collectors.toList( ) );
 
-        if ( listSlot == null || ( _nNbPlacesToTake > 0 && listSlot.size( ) != _nNbPlacesToTake ) || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
+        if ( listSlot == null || ( context.getNbPlacesToTake( ) > 0 && listSlot.size( ) != context.getNbPlacesToTake( ) )
+                || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
         {
             addError( ERROR_MESSAGE_SLOT_FULL, getLocale( request ) );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
         }
 
         boolean bool = true;
-        _validatedAppointment.setSlot( null );
-        _validatedAppointment.setNbMaxPotentialBookedSeats( 0 );
+        appointmentDTO.setSlot( null );
+        appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
         for ( Slot slot : listSlot )
         {
 
@@ -1207,28 +1286,28 @@ public class AppointmentApp extends MVCApplication
             if ( slot.getNbPotentialRemainingPlaces( ) <= 0 )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, locale );
-                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+                return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
             }
 
-            _validatedAppointment.addSlot( slot );
+            appointmentDTO.addSlot( slot );
 
             if ( bool )
             {
-                _validatedAppointment.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
+                appointmentDTO.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
                 ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
-                _appointmentForm = FormService.buildAppointmentForm( nIdForm, reservationRule );
+                context.setAppointmentForm( FormService.buildAppointmentForm( nIdForm, reservationRule ) );
                 bool = false;
             }
-            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), _validatedAppointment, _appointmentForm.getMaxPeoplePerAppointment( ) );
+            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), appointmentDTO, context.getAppointmentForm( ).getMaxPeoplePerAppointment( ) );
         }
 
-        if ( _validatedAppointment.getNbMaxPotentialBookedSeats( ) == 0 )
+        if ( appointmentDTO.getNbMaxPotentialBookedSeats( ) == 0 )
         {
             addError( ERROR_MESSAGE_SLOT_FULL, locale );
-            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, _nNbPlacesToTake );
+            return redirect( request, VIEW_APPOINTMENT_CALENDAR, PARAMETER_ID_FORM, nIdForm, PARAMETER_NB_PLACE_TO_TAKE, context.getNbPlacesToTake( ) );
         }
 
-        for ( Response response : _validatedAppointment.getListResponse( ) )
+        for ( Response response : appointmentDTO.getListResponse( ) )
         {
             if ( response.getFile( ) != null )
             {
@@ -1253,11 +1332,12 @@ public class AppointmentApp extends MVCApplication
      * @return the xpage
      */
     @View( value = VIEW_APPOINTMENT_FORM_LIST, defaultView = true )
-    public synchronized XPage getFormList( HttpServletRequest request )
+    public XPage getFormList( HttpServletRequest request )
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         Locale locale = getLocale( request );
-        _appointmentForm = null;
-        _validatedAppointment = null;
+        context.setAppointmentForm( null );
+        context.setValidatedAppointment( null );
         String strHtmlContent = getFormListHtml( locale, getModel( ) );
 
         XPage xPage = getXPage( );
@@ -1265,6 +1345,58 @@ public class AppointmentApp extends MVCApplication
         return xPage;
     }
 
+    /**
+     * Get the view of the earliest available slots across the forms, optionally of a category and near a point
+     *
+     * @param request
+     *            the request
+     * @return the xpage
+     */
+    @View( VIEW_EARLIEST_SLOTS )
+    public XPage getEarliestSlots( HttpServletRequest request )
+    {
+        String strIdCategory = request.getParameter( PARAMETER_ID_CATEGORY );
+        String strNbSlots = request.getParameter( PARAMETER_NB_SLOTS );
+        Integer nIdCategory = StringUtils.isNumeric( strIdCategory ) ? Integer.valueOf( strIdCategory ) : null;
+        int nNbSlots = StringUtils.isNumeric( strNbSlots ) ? Integer.parseInt( strNbSlots ) : DEFAULT_NB_EARLIEST_SLOTS;
+        Double dLatitude = parseDouble( request.getParameter( PARAMETER_LATITUDE ) );
+        Double dLongitude = parseDouble( request.getParameter( PARAMETER_LONGITUDE ) );
+        Double dRadius = parseDouble( request.getParameter( PARAMETER_RADIUS ) );
+
+        Map<String, Object> model = getModel( );
+        model.put( MARK_LIST_CATEGORIES, CategoryHome.findAllCategories( ) );
+        model.put( MARK_LIST_EARLIEST_SLOTS, EarliestAvailabilityService.findEarliestSlots( nIdCategory, dLatitude, dLongitude, dRadius, nNbSlots ) );
+        model.put( PARAMETER_ID_CATEGORY, nIdCategory );
+        model.put( PARAMETER_LATITUDE, dLatitude );
+        model.put( PARAMETER_LONGITUDE, dLongitude );
+        model.put( PARAMETER_RADIUS, dRadius );
+        model.put( PARAMETER_NB_SLOTS, nNbSlots );
+        return getXPage( TEMPLATE_EARLIEST_SLOTS, getLocale( request ), model );
+    }
+
+    /**
+     * Parse a decimal parameter
+     *
+     * @param strValue
+     *            the value of the parameter
+     * @return the decimal value, null if the parameter is empty or not a number
+     */
+    private static Double parseDouble( String strValue )
+    {
+        if ( StringUtils.isBlank( strValue ) )
+        {
+            return null;
+        }
+        try
+        {
+            return Double.valueOf( strValue.trim( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
     /**
      * Get the view for the user who wants to cancel its appointment
      *
@@ -1272,7 +1404,7 @@ public class AppointmentApp extends MVCApplication
      * @return the view
      */
     @View( VIEW_GET_VIEW_CANCEL_APPOINTMENT )
-    public synchronized XPage getViewCancelAppointment( HttpServletRequest request )
+    public XPage getViewCancelAppointment( HttpServletRequest request )
     {
         String refAppointment = request.getParameter( PARAMETER_REF_APPOINTMENT );
         Appointment appointment = null;
@@ -1329,7 +1461,7 @@ public class AppointmentApp extends MVCApplication
      * @return the confirmation view of the appointment cancelled
      */
     @Action( ACTION_DO_CANCEL_APPOINTMENT )
-    public synchronized XPage doCancelAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public XPage doCancelAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         // CSRF Token control
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_DO_CANCEL_APPOINTMENT ) )
@@ -1391,7 +1523,7 @@ public class AppointmentApp extends MVCApplication
      * @return The XPage to display
      */
     @View( VIEW_APPOINTMENT_CANCELED )
-    public synchronized XPage getAppointmentCanceled( HttpServletRequest request )
+    public XPage getAppointmentCanceled( HttpServletRequest request )
     {
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         if ( StringUtils.isNotEmpty( strIdForm ) && StringUtils.isNumeric( strIdForm ) )
@@ -1419,7 +1551,7 @@ public class AppointmentApp extends MVCApplication
      *             If the authentication is enabled and the user has not signed in
      */
     @View( VIEW_GET_MY_APPOINTMENTS )
-    public synchronized XPage getMyAppointments( HttpServletRequest request ) throws UserNotSignedException
+    public XPage getMyAppointments( HttpServletRequest request ) throws UserNotSignedException
     {
         if ( !SecurityService.isAuthenticationEnable( ) )
         {
@@ -1534,37 +1666,43 @@ public class AppointmentApp extends MVCApplication
     public static String getFormListHtml( Locale locale, Map<String, Object> model )
     {
         model = ( model == null ) ? new HashMap<>( ) : model;
+        // The version and the day are read before the rendering, so that a change made meanwhile is not hidden
+        String strCacheKey = FormListCacheService.buildKey( locale, model );
+        long lFormsVersion = FormListCacheService.getFormsVersion( );
+        LocalDate dateOfRendering = LocalDate.now( );
+        if ( strCacheKey != null )
+        {
+            String strHtml = FormListCacheService.getHtml( strCacheKey, lFormsVersion, dateOfRendering );
+            if ( strHtml != null )
+            {
+                return strHtml;
+            }
+        }
         List<AppointmentFormDTO> listAppointmentForm = FormService.buildAllActiveAndDisplayedOnPortletAppointmentForm( );
         // We keep only the active
         if ( CollectionUtils.isNotEmpty( listAppointmentForm ) )
         {
             listAppointmentForm = listAppointmentForm.stream( )
-                    .filter( a -> ( a.getDateStartValidity( ) != null ) && ( a.getDateStartValidity( ).toLocalDate( ).isBefore( LocalDate.now( ) )
-                            || a.getDateStartValidity( ).toLocalDate( ).equals( LocalDate.now( ) ) ) )
+                    .filter( a -> ( a.getDateStartValidity( ) != null ) && ( a.getDateStartValidity( ).toLocalDate( ).isBefore( dateOfRendering )
+                            || a.getDateStartValidity( ).toLocalDate( ).equals( dateOfRendering ) ) )
                     .sorted( ( a1, a2 ) -> a1.getTitle( ).compareTo( a2.getTitle( ) ) ).collect( Collectors.toList( ) );
         }
         List<String> icons = new ArrayList<>( );
         for ( AppointmentFormDTO form : listAppointmentForm )
         {
-            ImageResource img = form.getIcon( );
-            if ( img == null || img.getImage( ) == null || StringUtils.isEmpty( img.getMimeType( ) )
-                    || StringUtils.equals( img.getMimeType( ), MARK_ICON_NULL ) )
-            {
-                icons.add( MARK_ICON_NULL );
-            }
-            else
-            {
-                byte [ ] imgBytesAsBase64 = Base64.encodeBase64( img.getImage( ) );
-                String imgDataAsBase64 = new String( imgBytesAsBase64 );
-                String strMimeType = img.getMimeType( );
-                String imgAsBase64 = MARK_DATA + MARK_COLON + strMimeType + MARK_SEMI_COLON + MARK_BASE_64 + MARK_COMMA + imgDataAsBase64;
-                icons.add( imgAsBase64 );
-            }
+            // The icons are served apart, with an URL cached by the browsers
+            String strIconUrl = AppointmentFormIconService.getInstance( ).getIconUrl( form.getIdForm( ) );
+            icons.add( ( strIconUrl != null ) ? strIconUrl : MARK_ICON_NULL );
         }
         model.put( MARK_ICONS, icons );
         model.put( MARK_FORM_LIST, listAppointmentForm );
         HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_APPOINTMENT_FORM_LIST, locale, model );
-        return template.getHtml( );
+        String strHtml = template.getHtml( );
+        if ( strCacheKey != null )
+        {
+            FormListCacheService.putHtml( strCacheKey, lFormsVersion, dateOfRendering, strHtml );
+        }
+        return strHtml;
     }
 
     /**
@@ -1576,7 +1714,7 @@ public class AppointmentApp extends MVCApplication
      * @return The HTML content to display, or the next URL to redirect the user to
      */
     @View( VIEW_WORKFLOW_ACTION_FORM )
-    public synchronized XPage getWorkflowActionForm( HttpServletRequest request ) throws UserNotSignedException
+    public XPage getWorkflowActionForm( HttpServletRequest request ) throws UserNotSignedException
     {
         String strIdAction = request.getParameter( PARAMETER_ID_ACTION );
         String refAppointment = request.getParameter( PARAMETER_REF_APPOINTMENT );
@@ -1625,7 +1763,7 @@ public class AppointmentApp extends MVCApplication
      * @return The next URL to redirect to
      */
     @Action( ACTION_DO_PROCESS_WORKFLOW_ACTION )
-    public synchronized XPage doProcessWorkflowAction( HttpServletRequest request ) throws UserNotSignedException
+    public XPage doProcessWorkflowAction( HttpServletRequest request ) throws UserNotSignedException
     {
         LuteceUser luteceUser = SecurityService.getInstance( ).getRegisteredUser( request );
         String strIdAction = request.getParameter( PARAMETER_ID_ACTION );
@@ -1728,6 +1866,28 @@ public class AppointmentApp extends MVCApplication
         return _captchaSecurityService;
     }
 
+    /**
+     * Get the page of the waiting room of a form, refreshed until the user is admitted
+     *
+     * @param request
+     *            the request
+     * @param admission
+     *            the admission of the request
+     * @param strRefreshUrl
+     *            the URL to load again
+     * @return the XPage
+     */
+    private XPage getWaitingRoomPage( HttpServletRequest request, Admission admission, String strRefreshUrl )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_WAITING_POSITION, admission.getPosition( ) );
+        model.put( MARK_WAITING_ESTIMATED_WAIT, admission.getEstimatedWait( ) );
+        // Refresh often enough to keep the place, without polling faster than the users are admitted
+        model.put( MARK_WAITING_REFRESH_DELAY, Math.max( 2, Math.min( 30, admission.getEstimatedWait( ) / 2 ) ) );
+        model.put( MARK_WAITING_REFRESH_URL, strRefreshUrl );
+        return getXPage( TEMPLATE_WAITING_ROOM, getLocale( request ), model );
+    }
+
     /**
      * Get the URL
      *
@@ -1869,16 +2029,18 @@ public class AppointmentApp extends MVCApplication
      *
      * @param date
      *            the starting date of slot
+     * @param appointmentForm
+     *            the form
      * @param locale
      *            the locale
      * @return true if the starting date of slot is displayed on FO
      */
-    private boolean isAuthorizedDate( LocalDateTime date, Locale locale )
+    private boolean isAuthorizedDate( LocalDateTime date, AppointmentFormDTO appointmentForm, Locale locale )
     {
         // Get the min time from now before a user can take an appointment (in hours)
-        LocalDateTime startingDateOfDisplay = LocalDateTime.now( ).plusHours( _appointmentForm.getMinTimeBeforeAppointment( ) );
+        LocalDateTime startingDateOfDisplay = LocalDateTime.now( ).plusHours( appointmentForm.getMinTimeBeforeAppointment( ) );
         // validity date range of the form
-        LocalDateTime startingValidityDate = _appointmentForm.getDateStartValidity( ).toLocalDate( ).atStartOfDay( );
+        LocalDateTime startingValidityDate = appointmentForm.getDateStartValidity( ).toLocalDate( ).atStartOfDay( );
         if ( startingValidityDate.isAfter( startingDateOfDisplay ) )
         {
             startingDateOfDisplay = startingValidityDate;
@@ -1886,7 +2048,7 @@ public class AppointmentApp extends MVCApplication
         // Calculate the ending date of display with the nb weeks to display since today
         // We calculate the number of weeks including the current week, so it and will end to the (n) next sunday
         LocalDate endingDateOfDisplay = startingDateOfDisplay.toLocalDate( ).with( WeekFields.of( locale ).dayOfWeek( ), DayOfWeek.SUNDAY.getValue( ) )
-                .plusWeeks( (long) _appointmentForm.getNbWeeksToDisplay( ) - 1 );
+                .plusWeeks( (long) appointmentForm.getNbWeeksToDisplay( ) - 1 );
         return !( date.toLocalDate( ).isAfter( endingDateOfDisplay ) || date.isBefore( startingDateOfDisplay ) );
 
     }
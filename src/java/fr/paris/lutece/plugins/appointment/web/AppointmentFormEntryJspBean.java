@@ -46,6 +46,7 @@ import fr.paris.lutece.api.user.User;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.EntryTypeService;
+import fr.paris.lutece.plugins.appointment.service.FormConfigCacheService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
@@ -278,6 +279,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                     FieldHome.create( field );
                 }
             }
+            FormConfigCacheService.invalidate( nIdForm );
             if ( request.getParameter( PARAMETER_APPLY ) != null )
             {
                 return redirect( request, VIEW_GET_MODIFY_ENTRY, PARAMETER_ID_ENTRY, entry.getIdEntry( ) );
@@ -384,6 +386,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                         }
                     }
                 }
+                FormConfigCacheService.invalidate( entry.getIdResource( ) );
             }
             if ( request.getParameter( PARAMETER_APPLY ) != null )
             {
@@ -473,6 +476,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                 EntryHome.decrementOrderByOne( entry.getPosition( ), entry.getFieldDepend( ).getIdField( ), entry.getIdResource( ), entry.getResourceType( ) );
             }
             EntryHome.remove( nIdEntry );
+            FormConfigCacheService.invalidate( entry.getIdResource( ) );
             if ( entry.getFieldDepend( ) != null )
             {
                 return redirect( request, AppointmentFormFieldJspBean.getUrlModifyField( request, entry.getFieldDepend( ).getIdField( ) ) );
@@ -581,6 +585,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                 Entry entryParent = EntryHome.findByPrimaryKey( entry.getParent( ).getIdEntry( ) );
                 _entryService.moveUpEntryOrder( entryParent.getPosition( ) + entryParent.getChildren( ).size( ), entry );
             }
+            FormConfigCacheService.invalidate( entry.getIdResource( ) );
             if ( entry.getFieldDepend( ) != null )
             {
                 return redirect( request, AppointmentFormFieldJspBean.getUrlModifyField( request, entry.getFieldDepend( ).getIdField( ) ) );
@@ -647,6 +652,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
                 }
             }
         }
+        FormConfigCacheService.invalidate( nIdForm );
         return redirect( request, getURLModifyAppointmentForm( request, nIdForm ) );
     }
 
@@ -668,6 +674,7 @@ public class AppointmentFormEntryJspBean extends MVCAdminJspBean
             if ( entry.getParent( ) != null )
             {
                 _entryService.moveOutEntryFromGroup( entry );
+                FormConfigCacheService.invalidate( entry.getIdResource( ) );
             }
             return redirect( request, getURLModifyAppointmentForm( request, entry.getIdResource( ) ) );
         }
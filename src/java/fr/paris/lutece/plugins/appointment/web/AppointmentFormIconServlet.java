@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.appointment.web.file.AppointmentFormIconService;
+import fr.paris.lutece.plugins.appointment.web.file.AppointmentFormIconService.FormIcon;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Servlet of the icons of the forms. The URL of an icon holds the hash of its content: an icon requested with its current hash is cached by the browsers
+ * for a long time, otherwise it must be revalidated. A request with a matching If-None-Match header is answered with a 304
+ */
+public class AppointmentFormIconServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 4517218861893541470L;
+
+    // Properties
+    private static final String PROPERTY_MAX_AGE = "appointment.formIcon.maxAge";
+
+    // Parameters
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PARAMETER_HASH = "v";
+
+    // Headers
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=" + AppPropertiesService.getPropertyInt( PROPERTY_MAX_AGE, 31536000 )
+            + ", immutable";
+    private static final String CACHE_CONTROL_NO_CACHE = "no-cache";
+    private static final String QUOTE = "\"";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        int nIdForm = NumberUtils.toInt( request.getParameter( PARAMETER_ID_FORM ), -1 );
+        FormIcon icon = ( nIdForm > 0 ) ? AppointmentFormIconService.getInstance( ).getIcon( nIdForm ) : null;
+        if ( icon == null )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        String strETag = QUOTE + icon.getHash( ) + QUOTE;
+        response.setHeader( HEADER_ETAG, strETag );
+        // An old URL of the icon gets the current content, which must not be kept under this URL
+        response.setHeader( HEADER_CACHE_CONTROL,
+                StringUtils.equals( icon.getHash( ), request.getParameter( PARAMETER_HASH ) ) ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL_NO_CACHE );
+        if ( ETagUtilities.isNotModified( request, strETag ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return;
+        }
+        byte [ ] content = icon.getContent( );
+        response.setContentType( icon.getMimeType( ) );
+        response.setContentLength( content.length );
+        response.getOutputStream( ).write( content );
+    }
+}
@@ -463,7 +463,7 @@ public class AppointmentFormJspBean extends AbstractAppointmentFormAndSlotJspBea
         AppointmentFormDTO appointmentFormDb = FormService.buildAppointmentForm( nIdForm, 0 );
         String strDeleteIcon = ( request.getParameter( PARAMETER_DELETE_ICON ) == null ) ? MARK_FALSE : request.getParameter( PARAMETER_DELETE_ICON );
         MultipartHttpServletRequest mRequest = (MultipartHttpServletRequest) request;
-        if ( Boolean.parseBoolean( strDeleteIcon ) && ( _appointmentFormDTO.getIcon( ).getImage( ) != null ) )
+        if ( Boolean.parseBoolean( strDeleteIcon ) && ( _appointmentFormDTO.getIcon( ) != null ) && ( _appointmentFormDTO.getIcon( ).getMimeType( ) != null ) )
         {
             ImageResource img = new ImageResource( );
             img.setImage( null );
@@ -645,9 +645,9 @@ public class AppointmentFormJspBean extends AbstractAppointmentFormAndSlotJspBea
             int nIdForm = Integer.parseInt( strIdForm );
             UrlItem url = new UrlItem( getViewFullUrl( VIEW_MODIFY_FORM_MESSAGES ) );
             url.addParameter( PARAMETER_ID_FORM, nIdForm );
-            FormMessage formMessage = FormMessageService.findFormMessageByIdForm( nIdForm );
+            FormMessage formMessage = FormMessageHome.findByIdForm( nIdForm );
             populate( formMessage, request );
-            FormMessageHome.update( formMessage );
+            FormMessageService.updateFormMessage( formMessage );
             AppLogService.info( LogUtilities.buildLog( ACTION_DO_MODIFY_FORM_MESSAGES, strIdForm, getUser( ) ) );
             addInfo( INFO_APPOINTMENTFORM_MESSAGES_MODIFIED, getLocale( ) );
         }
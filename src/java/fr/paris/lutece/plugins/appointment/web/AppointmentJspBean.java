@@ -72,11 +72,13 @@ import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.exception.AppointmentSavedException;
 import fr.paris.lutece.plugins.appointment.exception.SlotEditTaskExpiredTimeException;
 import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.exception.SlotLockContendedException;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.AppointmentWorkflowService;
 import fr.paris.lutece.plugins.appointment.service.CommentService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
 import fr.paris.lutece.plugins.appointment.service.FormMessageService;
@@ -250,8 +252,11 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private static final String MARK_USER_CREATOR = "userCreator";
     private static final String JSP_MANAGE_APPOINTMENTS = "jsp/admin/plugins/appointment/ManageAppointments.jsp";
     private static final String ERROR_MESSAGE_SLOT_FULL = "appointment.message.error.slotFull";
+    private static final String ERROR_MESSAGE_SLOT_LOCKED = "appointment.message.error.slotLocked";
     private static final String ERROR_MESSAGE_SLOT_EDIT_TASK_EXPIRED_TIME = "appointment.message.error.appointment.edit.expired.time";
     private static final String MARK_APPOINTMENT_DESK_ENABLED = "isDeskInstalled";
+    private static final String MARK_PENDING_WORKFLOW = "pendingWorkflow";
+    private static final String MARK_LIST_ID_APPOINTMENT_PENDING_WORKFLOW = "listIdAppointmentPendingWorkflow";
 
     // Messages
     private static final String MESSAGE_CONFIRM_REMOVE_APPOINTMENT = "appointment.message.confirmRemoveAppointment";
@@ -309,18 +314,10 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private static final String DATE_APPOINTMENT = "date_appointment";
     private static final String ADMIN = "admin";
     private static final String STATUS = "status";
+    private static final String SESSION_ATTRIBUTE_BOOKING_CONTEXT = "appointment.appointmentJspBean.bookingContext";
     // services
 
-    // Session variable to store working values
-    private String _strCurrentPageIndex;
-    private int _nItemsPerPage;
-    private int _nDefaultItemsPerPage;
-    private int _nNbPlacesToTake;
-    private AppointmentFilterDTO _filter;
-    private AppointmentFormDTO _appointmentForm;
-    private AppointmentDTO _notValidatedAppointment;
-    private AppointmentDTO _validatedAppointment;
-    private List<Integer> _listAppointmentsIds;
+    private final int _nDefaultItemsPerPage;
     List<GenericAttributeError> listFormErrors = new ArrayList<>( );
     Plugin _moduleAppointmentDesk = PluginService.getPlugin( AppPropertiesService.getProperty( PROPERTY_MODULE_APPOINTMENT_DESK_NAME ) );
 
@@ -333,8 +330,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      */
     @View( value = VIEW_CALENDAR_MANAGE_APPOINTMENTS, defaultView = true )
-    public synchronized String getViewCalendarManageAppointments( HttpServletRequest request ) throws AccessDeniedException
+    public String getViewCalendarManageAppointments( HttpServletRequest request ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
 
         if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_VIEW_FORM, (User) getUser( ) ) )
@@ -358,9 +356,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
             }
             else
             {
-                _validatedAppointment = appointmentDTO;
-                AppointmentService.addAppointmentResponses( _validatedAppointment );
-                nbPlacesToTake = Integer.toString( _validatedAppointment.getNbBookedSeats( ) );
+                context.setValidatedAppointment( appointmentDTO );
+                AppointmentService.addAppointmentResponses( context.getValidatedAppointment( ) );
+                nbPlacesToTake = Integer.toString( context.getValidatedAppointment( ).getNbBookedSeats( ) );
             }
         }
         int nIdForm = Integer.parseInt( strIdForm );
@@ -412,11 +410,11 @@ public class AppointmentJspBean extends MVCAdminJspBean
         {
 
             boolean isNewNbPlacesToTake = ( nbPlacesToTake != null && StringUtils.isNumeric( nbPlacesToTake ) );
-            if ( appointmentForm.getIsMultislotAppointment( ) && ( ( _nNbPlacesToTake != 0 || isNewNbPlacesToTake ) && nbPlacesToTake != null ) )
+            if ( appointmentForm.getIsMultislotAppointment( ) && ( ( context.getNbPlacesToTake( ) != 0 || isNewNbPlacesToTake ) && nbPlacesToTake != null ) )
             {
 
-                _nNbPlacesToTake = isNewNbPlacesToTake ? Integer.parseInt( nbPlacesToTake ) : _nNbPlacesToTake;
-                listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, _nNbPlacesToTake,
+                context.setNbPlacesToTake( isNewNbPlacesToTake ? Integer.parseInt( nbPlacesToTake ) : context.getNbPlacesToTake( ) );
+                listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, context.getNbPlacesToTake( ),
                         appointmentForm.getBoOverbooking( ) && RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm,
                                 AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) );
 
@@ -424,7 +422,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
             else
             {
 
-                _nNbPlacesToTake = 0;
+                context.setNbPlacesToTake( 0 );
                 listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay );
             }
 
@@ -435,6 +433,17 @@ public class AppointmentJspBean extends MVCAdminJspBean
             {
                 slotPassed.setIsPassed( Boolean.TRUE );
             }
+
+            // To change the date of an appointment, display the week of the first slot with enough places
+            if ( context.getValidatedAppointment( ) != null && StringUtils.isEmpty( strDateOfDisplay ) )
+            {
+                Slot firstAvailableSlot = SlotService.findFirstAvailableSlot( nIdForm, mapReservationRule, LocalDateTime.now( ), endingDateOfDisplay,
+                        context.getValidatedAppointment( ).getNbBookedSeats( ) );
+                if ( firstAvailableSlot != null )
+                {
+                    dateOfDisplay = firstAvailableSlot.getDate( );
+                }
+            }
         }
         Map<String, Object> model = getModel( );
         if ( bError )
@@ -444,9 +453,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
         // If we change the date of an appointment
         // filter the list of slot with only the ones that have enough places at
         // the moment of the edition
-        if ( _validatedAppointment != null )
+        if ( context.getValidatedAppointment( ) != null )
         {
-            int nbBookedSeats = _validatedAppointment.getNbBookedSeats( );
+            int nbBookedSeats = context.getValidatedAppointment( ).getNbBookedSeats( );
             listSlot = listSlot.stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) >= nbBookedSeats && s.getIsOpen( ) ).collect( Collectors.toList( ) );
             model.put( MARK_MODIFICATION_DATE_APPOINTMENT, true );
         }
@@ -482,14 +491,14 @@ public class AppointmentJspBean extends MVCAdminJspBean
         model.put( AppointmentUtilities.MARK_PERMISSION_ACCESS_CODE, getUser( ).getAccessCode( ) );
         model.put( MARK_APPOINTMENT_DESK_ENABLED, ( _moduleAppointmentDesk != null && _moduleAppointmentDesk.isInstalled( ) ) );
 
-        if ( appointmentForm.getIsMultislotAppointment( ) && _nNbPlacesToTake <= 0 )
+        if ( appointmentForm.getIsMultislotAppointment( ) && context.getNbPlacesToTake( ) <= 0 )
         {
 
             return getPage( PROPERTY_PAGE_TITLE_MANAGE_APPOINTMENTS_CALENDAR, TEMPLATE_MANAGE_APPOINTMENTS_CALENDAR_MULTI_SLOT, model );
 
         }
         else
-            if ( appointmentForm.getIsMultislotAppointment( ) && _nNbPlacesToTake >= 1 )
+            if ( appointmentForm.getIsMultislotAppointment( ) && context.getNbPlacesToTake( ) >= 1 )
             {
 
                 return getPage( PROPERTY_PAGE_TITLE_MANAGE_APPOINTMENTS_CALENDAR, TEMPLATE_MANAGE_APPOINTMENTS_CALENDAR_GROUPED, model );
@@ -511,8 +520,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      */
     @View( value = VIEW_MANAGE_APPOINTMENTS )
-    public synchronized String getManageAppointments( HttpServletRequest request ) throws AccessDeniedException
+    public String getManageAppointments( HttpServletRequest request ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
 
         if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_VIEW_FORM, (User) getUser( ) ) )
@@ -526,22 +536,24 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
         // Clean session
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( request.getSession( ) );
-        _notValidatedAppointment = null;
-        _validatedAppointment = null;
-        _appointmentForm = null;
+        context.setNotValidatedAppointment( null );
+        context.setValidatedAppointment( null );
+        context.setAppointmentForm( null );
         int nIdForm = Integer.parseInt( strIdForm );
 
+        AppointmentFilterDTO filter = context.getFilter( );
         // If it is a new search
         if ( request.getParameter( PARAMETER_SEARCH ) != null )
         {
             // Populate the filter
-            populate( _filter, request );
+            populate( filter, request );
         }
         else
-            if ( request.getParameter( PARAMETER_RESET ) != null || _filter == null || _filter.getIdForm( ) != nIdForm )
+            if ( request.getParameter( PARAMETER_RESET ) != null || filter == null || filter.getIdForm( ) != nIdForm )
             {
-                _filter = new AppointmentFilterDTO( );
-                _filter.setIdForm( nIdForm );
+                filter = new AppointmentFilterDTO( );
+                filter.setIdForm( nIdForm );
+                context.setFilter( filter );
                 // if we come from the calendar, need to get the starting and ending
                 // time of the slot
                 String strStartingDateTime = request.getParameter( PARAMETER_STARTING_DATE_TIME );
@@ -550,13 +562,13 @@ public class AppointmentJspBean extends MVCAdminJspBean
                 {
                     LocalDateTime startingDateTime = LocalDateTime.parse( strStartingDateTime );
                     LocalDateTime endingDateTime = LocalDateTime.parse( strEndingDateTime );
-                    _filter.setStartingDateOfSearch( Date.valueOf( startingDateTime.toLocalDate( ) ) );
-                    _filter.setStartingTimeOfSearch( startingDateTime.toLocalTime( ).toString( ) );
-                    _filter.setEndingDateOfSearch( Date.valueOf( endingDateTime.toLocalDate( ) ) );
-                    _filter.setEndingTimeOfSearch( endingDateTime.toLocalTime( ).toString( ) );
+                    filter.setStartingDateOfSearch( Date.valueOf( startingDateTime.toLocalDate( ) ) );
+                    filter.setStartingTimeOfSearch( startingDateTime.toLocalTime( ).toString( ) );
+                    filter.setEndingDateOfSearch( Date.valueOf( endingDateTime.toLocalDate( ) ) );
+                    filter.setEndingTimeOfSearch( endingDateTime.toLocalTime( ).toString( ) );
                 }
             }
-        _strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, _strCurrentPageIndex );
+        String strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, context.getCurrentPageIndex( ) );
         String strOrderBy = request.getParameter( PARAMETER_ORDER_BY );
         String strOrderAsc = request.getParameter( PARAMETER_ORDER_ASC );
         if ( strOrderBy == null )
@@ -569,22 +581,25 @@ public class AppointmentJspBean extends MVCAdminJspBean
         {
             bAsc = Boolean.parseBoolean( strOrderAsc );
         }
-        _filter.setOrderBy( strOrderBy );
-        _filter.setOrderAsc( bAsc );
+        filter.setOrderBy( strOrderBy );
+        filter.setOrderAsc( bAsc );
 
 
-        if ( _strCurrentPageIndex == null )
+        if ( strCurrentPageIndex == null )
         {
-            _strCurrentPageIndex = DEFAULT_CURRENT_PAGE;
+            strCurrentPageIndex = DEFAULT_CURRENT_PAGE;
         }
-        if ( DEFAULT_CURRENT_PAGE.equals( _strCurrentPageIndex ) )
+        context.setCurrentPageIndex( strCurrentPageIndex );
+        if ( DEFAULT_CURRENT_PAGE.equals( strCurrentPageIndex ) || context.getListAppointmentsIds( ) == null )
         {
-            _listAppointmentsIds = AppointmentService.findListAppointmentsIdsByFilter( _filter );
+            context.setListAppointmentsIds( AppointmentService.findListAppointmentsIdsByFilter( filter ) );
         }
-        _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, _nDefaultItemsPerPage );
-        List<AppointmentDTO> listAppointmentsDTO = findListAppointmentsDTOByFilterByPage( );
+        int nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, context.getItemsPerPage( ),
+                _nDefaultItemsPerPage );
+        context.setItemsPerPage( nItemsPerPage );
+        List<AppointmentDTO> listAppointmentsDTO = findListAppointmentsDTOByFilterByPage( context );
         // If it is an order by
-        listAppointmentsDTO = orderList( listAppointmentsDTO );
+        listAppointmentsDTO = orderList( listAppointmentsDTO, filter );
         if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_DELETE_AND_BACK ) ) )
         {
             String [ ] tabIdAppointmentToDelete = request.getParameterValues( PARAMETER_ID_APPOINTMENT_DELETE );
@@ -599,13 +614,13 @@ public class AppointmentJspBean extends MVCAdminJspBean
         url.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_MANAGE_APPOINTMENTS );
         url.addParameter( PARAMETER_ID_FORM, strIdForm );
         String strUrl = url.getUrl( );
-        LocalizedPaginator<Integer> paginator = new LocalizedPaginator<>(_listAppointmentsIds, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
-                _strCurrentPageIndex, getLocale( ) );
+        LocalizedPaginator<Integer> paginator = new LocalizedPaginator<>(context.getListAppointmentsIds( ), nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
+                strCurrentPageIndex, getLocale( ) );
         AppointmentFormDTO form = FormService.buildAppointmentFormLight( nIdForm );
         Map<String, Object> model = getModel( );
         model.put( MARK_FORM, form );
         model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( nIdForm ) );
-        model.put( MARK_NB_ITEMS_PER_PAGE, Integer.toString( _nItemsPerPage ) );
+        model.put( MARK_NB_ITEMS_PER_PAGE, Integer.toString( nItemsPerPage ) );
         model.put( MARK_PAGINATOR, paginator );
         model.put( MARK_LANGUAGE, getLocale( ) );
         model.put( MARK_ACTIVATE_WORKFLOW, ACTIVATEWORKFLOW );
@@ -628,7 +643,8 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
         User user = getUser( );
         model.put( MARK_APPOINTMENT_LIST, listAppointmentsDTO );
-        model.put( MARK_FILTER, _filter );
+        model.put( MARK_LIST_ID_APPOINTMENT_PENDING_WORKFLOW, AppointmentWorkflowService.findIdAppointmentsWithPendingWorkflow( nIdForm ) );
+        model.put( MARK_FILTER, filter );
         model.put( MARK_LIST_STATUS, getListStatus( ) );
         model.put( MARK_RIGHT_CREATE,
                 RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_CREATE_APPOINTMENT, user ) );
@@ -654,7 +670,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @return the HTML code to confirm
      */
     @Action( ACTION_CONFIRM_REMOVE_APPOINTMENT )
-    public synchronized String getConfirmRemoveAppointment( HttpServletRequest request )
+    public String getConfirmRemoveAppointment( HttpServletRequest request )
     {
         UrlItem url = new UrlItem( getActionUrl( ACTION_REMOVE_APPOINTMENT ) );
         url.addParameter( PARAMETER_ID_APPOINTMENT, request.getParameter( PARAMETER_ID_APPOINTMENT ) );
@@ -674,7 +690,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      */
 
     @Action( ACTION_REMOVE_APPOINTMENT )
-    public synchronized String doRemoveAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String doRemoveAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         int nIdAppointment = Integer.parseInt( request.getParameter( PARAMETER_ID_APPOINTMENT ) );
         Integer idForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
@@ -698,7 +714,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @return the HTML code to confirm
      */
     @Action( ACTION_CONFIRM_REMOVE_MASS_APPOINTMENT )
-    public synchronized String getConfirmRemoveMassAppointment( HttpServletRequest request, int nIdForm )
+    public String getConfirmRemoveMassAppointment( HttpServletRequest request, int nIdForm )
     {
         UrlItem url = new UrlItem( getActionUrl( ACTION_REMOVE_MASSAPPOINTMENT ) );
         url.addParameter( PARAMETER_ID_FORM, nIdForm );
@@ -717,7 +733,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @Action( ACTION_REMOVE_MASSAPPOINTMENT )
-    public synchronized String doRemoveMassAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String doRemoveMassAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         String [ ] tabIdAppointmentToDelete = (String [ ]) request.getSession( ).getAttribute( PARAMETER_ID_APPOINTMENT_DELETE );
         request.getSession( ).removeAttribute( PARAMETER_ID_APPOINTMENT_DELETE );
@@ -752,13 +768,15 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If there is an error with the file service
      */
     @View( VIEW_VIEW_APPOINTMENT )
-    public synchronized String getViewAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String getViewAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
         String strIdAppointment = request.getParameter( PARAMETER_ID_APPOINTMENT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         int nIdForm = Integer.parseInt( strIdForm );
         Form form = FormService.findFormLightByPrimaryKey( nIdForm );
-        int nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, _nDefaultItemsPerPage );
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        int nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, context.getItemsPerPage( ),
+                _nDefaultItemsPerPage );
         int nIdAppointment = Integer.parseInt( strIdAppointment );
         AppointmentDTO appointmentDTO = AppointmentService.buildAppointmentDTOFromIdAppointment( nIdAppointment );
         if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_VIEW_APPOINTMENT,
@@ -768,6 +786,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
         Map<String, Object> model = getModel( );
         model.put( MARK_APPOINTMENT, appointmentDTO );
+        model.put( MARK_PENDING_WORKFLOW, AppointmentWorkflowService.findPendingWorkflow( nIdAppointment ) );
         if ( appointmentDTO.getAdminUserCreate( ) != null )
         {
 
@@ -842,7 +861,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @Action( ACTION_EXPORT_APPOINTMENTS )
-    public synchronized String doExportAppointments( HttpServletRequest request ) throws AccessDeniedException
+    public String doExportAppointments( HttpServletRequest request ) throws AccessDeniedException
     {
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         if ( StringUtils.isEmpty( strIdForm ) || !StringUtils.isNumeric( strIdForm ) )
@@ -856,10 +875,11 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
         Locale locale = getLocale( );
         List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
-        if ( _filter != null && _filter.getIdForm( ) == Integer.parseInt( strIdForm ) )
+        AppointmentFilterDTO filter = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT ).getFilter( );
+        if ( filter != null && filter.getIdForm( ) == Integer.parseInt( strIdForm ) )
         {
 
-            listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( _filter );
+            listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( filter );
         }
 
         List<String> defaultColumnList = new ArrayList<>( );
@@ -892,8 +912,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @View( VIEW_CREATE_APPOINTMENT )
-    public synchronized String getViewCreateAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String getViewCreateAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         clearUploadFilesIfNeeded( request.getSession( ) );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         int nIdForm = Integer.parseInt( strIdForm );
@@ -921,9 +942,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
             if ( strNbPlacesToTake != null )
             {
 
-                _nNbPlacesToTake = Integer.parseInt( strNbPlacesToTake );
+                context.setNbPlacesToTake( Integer.parseInt( strNbPlacesToTake ) );
             }
-            int nNbConsecutiveSlot = ( _nNbPlacesToTake == 0 ) ? 1 : _nNbPlacesToTake;
+            int nNbConsecutiveSlot = ( context.getNbPlacesToTake( ) == 0 ) ? 1 : context.getNbPlacesToTake( );
             LocalDateTime startingDateTime = LocalDateTime.parse( request.getParameter( PARAMETER_STARTING_DATE_TIME ) );
 
             // Get all the week definitions
@@ -947,7 +968,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
 
             }
             if ( listSlot == null || listSlot.stream( ).noneMatch( slot -> slot.getStartingDateTime( ).isEqual( startingDateTime ) )
-                    || ( _nNbPlacesToTake > 0 && _nNbPlacesToTake != listSlot.size( ) ) || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
+                    || ( context.getNbPlacesToTake( ) > 0 && context.getNbPlacesToTake( ) != listSlot.size( ) ) || !AppointmentUtilities.isConsecutiveSlots( listSlot ) )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, locale );
                 return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
@@ -956,36 +977,36 @@ public class AppointmentJspBean extends MVCAdminJspBean
 
         // Get the not validated appointment in session if it exists
 
-        if ( _notValidatedAppointment == null )
+        if ( context.getNotValidatedAppointment( ) == null )
         {
 
-            if ( _validatedAppointment != null )
+            if ( context.getValidatedAppointment( ) != null )
             {
 
                 // Try to get the validated appointment in session
                 // (in case the user click on back button in the recap view (or
                 // modification)
-                _notValidatedAppointment = _validatedAppointment;
-                _validatedAppointment = null;
+                context.setNotValidatedAppointment( context.getValidatedAppointment( ) );
+                context.setValidatedAppointment( null );
             }
             else
             {
                 // Need to get back the informations the user has entered
-                _notValidatedAppointment = new AppointmentDTO( );
+                context.setNotValidatedAppointment( new AppointmentDTO( ) );
 
             }
         }
         else
-            if ( _nNbPlacesToTake == 0 && bModificationForm )
+            if ( context.getNbPlacesToTake( ) == 0 && bModificationForm )
             {
-                _nNbPlacesToTake = _notValidatedAppointment.getNbBookedSeats( );
+                context.setNbPlacesToTake( context.getNotValidatedAppointment( ).getNbBookedSeats( ) );
             }
         if ( !bModificationForm )
         {
             boolean bool = true;
-            _notValidatedAppointment.setSlot( null );
-            _notValidatedAppointment.setIdForm( nIdForm );
-            _notValidatedAppointment.setNbMaxPotentialBookedSeats( 0 );
+            context.getNotValidatedAppointment( ).setSlot( null );
+            context.getNotValidatedAppointment( ).setIdForm( nIdForm );
+            context.getNotValidatedAppointment( ).setNbMaxPotentialBookedSeats( 0 );
             for ( Slot slot : listSlot )
             {
 
@@ -1006,29 +1027,29 @@ public class AppointmentJspBean extends MVCAdminJspBean
                 if ( slot.getNbPotentialRemainingPlaces( ) <= 0 && !formRule.getBoOverbooking( ) && !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE,
                         strIdForm, AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) )
                 {
-                    _notValidatedAppointment = null;
+                    context.setNotValidatedAppointment( null );
                     addError( ERROR_MESSAGE_SLOT_FULL, locale );
                     return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
                 }
 
-                _notValidatedAppointment.addSlot( slot );
+                context.getNotValidatedAppointment( ).addSlot( slot );
 
                 if ( bool )
                 {
 
                     LocalDateTime startingDateTime = LocalDateTime.parse( request.getParameter( PARAMETER_STARTING_DATE_TIME ) );
 
-                    _notValidatedAppointment.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
-                    _notValidatedAppointment.setEndingDateTime( listSlot.get( listSlot.size( ) - 1 ).getEndingDateTime( ) );
-                    _notValidatedAppointment.setStartingDateTime( startingDateTime );
+                    context.getNotValidatedAppointment( ).setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
+                    context.getNotValidatedAppointment( ).setEndingDateTime( listSlot.get( listSlot.size( ) - 1 ).getEndingDateTime( ) );
+                    context.getNotValidatedAppointment( ).setStartingDateTime( startingDateTime );
                     ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
-                    _appointmentForm = FormService.buildAppointmentForm( nIdForm, reservationRule );
+                    context.setAppointmentForm( FormService.buildAppointmentForm( nIdForm, reservationRule ) );
                     bool = false;
                 }
-                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), _notValidatedAppointment, _appointmentForm.getMaxPeoplePerAppointment( ) );
+                AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), context.getNotValidatedAppointment( ), context.getAppointmentForm( ).getMaxPeoplePerAppointment( ) );
             }
 
-            if ( _notValidatedAppointment.getNbMaxPotentialBookedSeats( ) == 0 && !formRule.getBoOverbooking( ) && !RBACService
+            if ( context.getNotValidatedAppointment( ).getNbMaxPotentialBookedSeats( ) == 0 && !formRule.getBoOverbooking( ) && !RBACService
                     .isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) )
 
             {
@@ -1043,21 +1064,21 @@ public class AppointmentJspBean extends MVCAdminJspBean
             model.put( MARK_FORM_ERRORS, listFormErrors );
             listFormErrors = new ArrayList<>( );
         }
-        List<Entry> listEntryFirstLevel = EntryService.getFilter( _appointmentForm.getIdForm( ), false );
+        List<Entry> listEntryFirstLevel = EntryService.getFilter( context.getAppointmentForm( ).getIdForm( ), false );
         StringBuilder strBuffer = new StringBuilder( );
         for ( Entry entry : listEntryFirstLevel )
         {
-            EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, false, _notValidatedAppointment );
+            EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, false, context.getNotValidatedAppointment( ) );
         }
 
-        boolean isOverbooking = !_appointmentForm.getIsMultislotAppointment( ) && formRule.getBoOverbooking( ) && RBACService
+        boolean isOverbooking = !context.getAppointmentForm( ).getIsMultislotAppointment( ) && formRule.getBoOverbooking( ) && RBACService
                 .isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) );
 
         model.put( MARK_STR_ENTRY, strBuffer.toString( ) );
-        model.put( MARK_FORM, _appointmentForm );
-        model.put( MARK_APPOINTMENT, _notValidatedAppointment );
-        model.put( PARAMETER_DATE_OF_DISPLAY, _notValidatedAppointment.getSlot( ).get( 0 ).getDate( ) );
-        model.put( MARK_PLACES, _notValidatedAppointment.getNbMaxPotentialBookedSeats( ) );
+        model.put( MARK_FORM, context.getAppointmentForm( ) );
+        model.put( MARK_APPOINTMENT, context.getNotValidatedAppointment( ) );
+        model.put( PARAMETER_DATE_OF_DISPLAY, context.getNotValidatedAppointment( ).getSlot( ).get( 0 ).getDate( ) );
+        model.put( MARK_PLACES, context.getNotValidatedAppointment( ).getNbMaxPotentialBookedSeats( ) );
         model.put( MARK_IS_OVERBOOKING, isOverbooking );
         FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
         model.put( MARK_FORM_MESSAGES, formMessages );
@@ -1081,45 +1102,46 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @Action( ACTION_DO_VALIDATE_FORM )
-    public synchronized String doValidateForm( HttpServletRequest request ) throws AccessDeniedException
+    public String doValidateForm( HttpServletRequest request ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         int nIdForm = Integer.parseInt( strIdForm );
         String strEmail = request.getParameter( PARAMETER_EMAIL );
         String strEmailConfirm = request.getParameter( PARAMETER_EMAIL_CONFIRMATION );
         Locale locale = getLocale( );
-        AppointmentUtilities.checkDateOfTheAppointmentIsNotBeforeNow( _notValidatedAppointment, locale, listFormErrors );
-        AppointmentUtilities.checkEmail( strEmail, strEmailConfirm, _appointmentForm, locale, listFormErrors );
+        AppointmentUtilities.checkDateOfTheAppointmentIsNotBeforeNow( context.getNotValidatedAppointment( ), locale, listFormErrors );
+        AppointmentUtilities.checkEmail( strEmail, strEmailConfirm, context.getAppointmentForm( ), locale, listFormErrors );
 
-        if ( _appointmentForm.getBoOverbooking( ) && RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm,
+        if ( context.getAppointmentForm( ).getBoOverbooking( ) && RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm,
                 AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) )
         {
 
-            _notValidatedAppointment.setOverbookingAllowed( true );
+            context.getNotValidatedAppointment( ).setOverbookingAllowed( true );
         }
 
-        int nbBookedSeats = _nNbPlacesToTake;
-        if ( _nNbPlacesToTake == 0 )
+        int nbBookedSeats = context.getNbPlacesToTake( );
+        if ( context.getNbPlacesToTake( ) == 0 )
         {
 
-            nbBookedSeats = AppointmentUtilities.checkAndReturnNbBookedSeats( request.getParameter( PARAMETER_NUMBER_OF_BOOKED_SEATS ), _appointmentForm,
-                    _notValidatedAppointment, locale, listFormErrors );
+            nbBookedSeats = AppointmentUtilities.checkAndReturnNbBookedSeats( request.getParameter( PARAMETER_NUMBER_OF_BOOKED_SEATS ), context.getAppointmentForm( ),
+                    context.getNotValidatedAppointment( ), locale, listFormErrors );
 
         }
 
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbDaysBetweenTwoAppointmentsTaken( _notValidatedAppointment, strEmail, _appointmentForm ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbDaysBetweenTwoAppointmentsTaken( context.getNotValidatedAppointment( ), strEmail, context.getAppointmentForm( ) ) )
         {
             addWarning( ERROR_MESSAGE_NB_MIN_DAYS_BETWEEN_TWO_APPOINTMENTS, locale );
         }
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( _notValidatedAppointment, strEmail, _appointmentForm ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbMaxAppointmentsOnAGivenPeriod( context.getNotValidatedAppointment( ), strEmail, context.getAppointmentForm( ) ) )
         {
             addWarning( ERROR_MESSAGE_NB_MAX_APPOINTMENTS_ON_A_PERIOD, locale );
         }
         List<AppointmentDTO> listAppointments = new ArrayList<>( );
-        if ( _appointmentForm.getEnableMandatoryEmail( )
-                && !AppointmentUtilities.checkNbMaxAppointmentsDefinedOnCategory( _notValidatedAppointment, strEmail, _appointmentForm, listAppointments ) )
+        if ( context.getAppointmentForm( ).getEnableMandatoryEmail( )
+                && !AppointmentUtilities.checkNbMaxAppointmentsDefinedOnCategory( context.getNotValidatedAppointment( ), strEmail, context.getAppointmentForm( ), listAppointments ) )
         {
             StringJoiner builder = new StringJoiner( StringUtils.SPACE );
             String lf = System.getProperty( "line.separator" );
@@ -1139,22 +1161,22 @@ public class AppointmentJspBean extends MVCAdminJspBean
                     locale );
             addWarning( strErrorMessageDateWithAppointments );
         }
-        AppointmentUtilities.fillAppointmentDTO( _notValidatedAppointment, nbBookedSeats, strEmail, strEmailConfirm, request.getParameter( PARAMETER_FIRST_NAME ),
+        AppointmentUtilities.fillAppointmentDTO( context.getNotValidatedAppointment( ), nbBookedSeats, strEmail, strEmailConfirm, request.getParameter( PARAMETER_FIRST_NAME ),
                 request.getParameter( PARAMETER_LAST_NAME ) );
-        AppointmentUtilities.validateFormAndEntries( _notValidatedAppointment, request, listFormErrors, true );
-        AppointmentUtilities.fillInListResponseWithMapResponse( _notValidatedAppointment );
-        AppointmentUtilities.setAppointmentPhoneNumberValuesFromResponse( _notValidatedAppointment );
+        AppointmentUtilities.validateFormAndEntries( context.getNotValidatedAppointment( ), request, listFormErrors, true );
+        AppointmentUtilities.fillInListResponseWithMapResponse( context.getNotValidatedAppointment( ) );
+        AppointmentUtilities.setAppointmentPhoneNumberValuesFromResponse( context.getNotValidatedAppointment( ) );
 
         if ( CollectionUtils.isNotEmpty( listFormErrors ) )
         {
             LinkedHashMap<String, String> additionalParameters = new LinkedHashMap<>( );
             additionalParameters.put( PARAMETER_ID_FORM, strIdForm );
-            additionalParameters.put( PARAMETER_STARTING_DATE_TIME, _notValidatedAppointment.getStartingDateTime( ).toString( ) );
-            additionalParameters.put( PARAMETER_ENDING_DATE_TIME, _notValidatedAppointment.getEndingDateTime( ).toString( ) );
+            additionalParameters.put( PARAMETER_STARTING_DATE_TIME, context.getNotValidatedAppointment( ).getStartingDateTime( ).toString( ) );
+            additionalParameters.put( PARAMETER_ENDING_DATE_TIME, context.getNotValidatedAppointment( ).getEndingDateTime( ).toString( ) );
             return redirect( request, VIEW_CREATE_APPOINTMENT, additionalParameters );
         }
-        _validatedAppointment = _notValidatedAppointment;
-        _notValidatedAppointment = null;
+        context.setValidatedAppointment( context.getNotValidatedAppointment( ) );
+        context.setNotValidatedAppointment( null );
         return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, nIdForm );
     }
 
@@ -1168,8 +1190,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If there is an error with the file service
      */
     @View( VIEW_CHANGE_DATE_APPOINTMENT )
-    public synchronized String getViewChangeDateAppointment( HttpServletRequest request )
+    public String getViewChangeDateAppointment( HttpServletRequest request )
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         String strIdForm = request.getParameter( PARAMETER_ID_FORM );
         Locale locale = getLocale( );
         int nIdForm = Integer.parseInt( strIdForm );
@@ -1201,8 +1224,8 @@ public class AppointmentJspBean extends MVCAdminJspBean
         boolean bool = true;
 
         // If nIdSlot == 0, the slot has not been created yet
-        _validatedAppointment.setSlot( null );
-        _validatedAppointment.setNbMaxPotentialBookedSeats( 0 );
+        context.getValidatedAppointment( ).setSlot( null );
+        context.getValidatedAppointment( ).setNbMaxPotentialBookedSeats( 0 );
         for ( Slot slot : listSlot )
         {
             if ( slot.getIdSlot( ) == 0 )
@@ -1216,34 +1239,34 @@ public class AppointmentJspBean extends MVCAdminJspBean
 
             if ( bool )
             {
-                _validatedAppointment.setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
+                context.getValidatedAppointment( ).setDateOfTheAppointment( slot.getDate( ).format( Utilities.getFormatter( ) ) );
                 ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, slot.getDate( ) );
-                _appointmentForm = FormService.buildAppointmentForm( nIdForm, reservationRule );
+                context.setAppointmentForm( FormService.buildAppointmentForm( nIdForm, reservationRule ) );
                 bool = false;
             }
             // Need to check competitive access
             // May be the slot is already taken at the same time
             if ( slot.getNbPotentialRemainingPlaces( ) <= 0
-                    && ( !_appointmentForm.getBoOverbooking( ) || !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm,
+                    && ( !context.getAppointmentForm( ).getBoOverbooking( ) || !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm,
                             AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) ) )
             {
                 addError( ERROR_MESSAGE_SLOT_FULL, locale );
                 return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
             }
 
-            _validatedAppointment.addSlot( slot );
+            context.getValidatedAppointment( ).addSlot( slot );
 
-            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), _validatedAppointment, _appointmentForm.getMaxPeoplePerAppointment( ) );
+            AppointmentUtilities.putTimerInSession( request, slot.getIdSlot( ), context.getValidatedAppointment( ), context.getAppointmentForm( ).getMaxPeoplePerAppointment( ) );
         }
 
-        if ( _validatedAppointment.getNbMaxPotentialBookedSeats( ) == 0 && ( !_appointmentForm.getBoOverbooking( ) || !RBACService
+        if ( context.getValidatedAppointment( ).getNbMaxPotentialBookedSeats( ) == 0 && ( !context.getAppointmentForm( ).getBoOverbooking( ) || !RBACService
                 .isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, strIdForm, AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) ) )
         {
             addError( ERROR_MESSAGE_SLOT_FULL, locale );
             return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, nIdForm );
         }
 
-        for ( Response response : _validatedAppointment.getListResponse( ) )
+        for ( Response response : context.getValidatedAppointment( ).getListResponse( ) )
         {
             if ( response.getFile( ) != null )
             {
@@ -1268,22 +1291,23 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @return The HTML content to display or the next URL to redirect to
      */
     @View( VIEW_DISPLAY_RECAP_APPOINTMENT )
-    public synchronized String displayRecapAppointment( HttpServletRequest request )
+    public String displayRecapAppointment( HttpServletRequest request )
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
 
         Map<String, Object> model = getModel( );
         String strComeFromCalendar = request.getParameter( PARAMETER_COME_FROM_CALENDAR );
         if ( StringUtils.isNotEmpty( strComeFromCalendar ) )
         {
             model.put( PARAMETER_COME_FROM_CALENDAR, strComeFromCalendar );
-            model.put( PARAMETER_DATE_OF_DISPLAY, _validatedAppointment.getSlot( ).get( 0 ).getDate( ) );
+            model.put( PARAMETER_DATE_OF_DISPLAY, context.getValidatedAppointment( ).getSlot( ).get( 0 ).getDate( ) );
         }
-        model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( _validatedAppointment.getIdForm( ) ) );
-        model.put( MARK_APPOINTMENT, _validatedAppointment );
+        model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( context.getValidatedAppointment( ).getIdForm( ) ) );
+        model.put( MARK_APPOINTMENT, context.getValidatedAppointment( ) );
         Locale locale = getLocale( );
-        model.put( MARK_ADDON, AppointmentAddOnManager.getAppointmentAddOn( _validatedAppointment.getIdAppointment( ), getLocale( ) ) );
-        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( _validatedAppointment, request, locale ) );
-        model.put( MARK_FORM, _appointmentForm );
+        model.put( MARK_ADDON, AppointmentAddOnManager.getAppointmentAddOn( context.getValidatedAppointment( ).getIdAppointment( ), getLocale( ) ) );
+        model.put( MARK_LIST_RESPONSE_RECAP_DTO, AppointmentUtilities.buildListResponse( context.getValidatedAppointment( ), request, locale ) );
+        model.put( MARK_FORM, context.getAppointmentForm( ) );
         model.put( MARK_LOCALE, getLocale( ) );
         return getPage( PROPERTY_PAGE_TITLE_RECAP_APPOINTMENT, TEMPLATE_APPOINTMENT_FORM_RECAP, model );
     }
@@ -1298,60 +1322,67 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @Action( ACTION_DO_MAKE_APPOINTMENT )
-    public synchronized String doMakeAppointment( HttpServletRequest request ) throws AccessDeniedException
+    public String doMakeAppointment( HttpServletRequest request ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         boolean overbookingAllowed = false;
         if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_BACK ) ) )
         {
-            return redirect( request, VIEW_CREATE_APPOINTMENT, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
+            return redirect( request, VIEW_CREATE_APPOINTMENT, PARAMETER_ID_FORM, context.getValidatedAppointment( ).getIdForm( ) );
         }
-        if ( _appointmentForm.getBoOverbooking( ) && RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE,
-                Integer.toString( _appointmentForm.getIdForm( ) ), AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) )
+        if ( context.getAppointmentForm( ).getBoOverbooking( ) && RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE,
+                Integer.toString( context.getAppointmentForm( ).getIdForm( ) ), AppointmentResourceIdService.PERMISSION_OVERBOOKING_FORM, (User) getUser( ) ) )
         {
             overbookingAllowed = true;
         }
-        if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, Integer.toString( _appointmentForm.getIdForm( ) ),
-                AppointmentResourceIdService.PERMISSION_CREATE_APPOINTMENT, (User) getUser( ) ) || !_appointmentForm.getIsActive( ) )
+        if ( !RBACService.isAuthorized( AppointmentFormDTO.RESOURCE_TYPE, Integer.toString( context.getAppointmentForm( ).getIdForm( ) ),
+                AppointmentResourceIdService.PERMISSION_CREATE_APPOINTMENT, (User) getUser( ) ) || !context.getAppointmentForm( ).getIsActive( ) )
         {
             throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_CREATE_APPOINTMENT );
         }
         int nIdAppointment;
-        if ( _validatedAppointment.getIdAppointment( ) == 0 )
+        if ( context.getValidatedAppointment( ).getIdAppointment( ) == 0 )
         {
             // set the admin user who is creating the appointment
             AdminUser adminLuteceUser = AdminAuthenticationService.getInstance( ).getRegisteredUser( request );
-            _validatedAppointment.setAdminUserCreate( adminLuteceUser.getAccessCode( ) );
+            context.getValidatedAppointment( ).setAdminUserCreate( adminLuteceUser.getAccessCode( ) );
         }
         try
         {
-            _validatedAppointment.setOverbookingAllowed( overbookingAllowed );
-            nIdAppointment = SlotSafeService.saveAppointment( _validatedAppointment, request );
+            context.getValidatedAppointment( ).setOverbookingAllowed( overbookingAllowed );
+            nIdAppointment = SlotSafeService.saveAppointment( context.getValidatedAppointment( ), request );
 
         }
+        catch( SlotLockContendedException e )
+        {
+            // The slots are not full: the user can confirm the appointment again
+            addError( ERROR_MESSAGE_SLOT_LOCKED, getLocale( ) );
+            return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, context.getValidatedAppointment( ).getIdForm( ) );
+        }
         catch( SlotFullException e )
         {
             addError( ERROR_MESSAGE_SLOT_FULL, getLocale( ) );
-            return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
+            return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, context.getValidatedAppointment( ).getIdForm( ) );
         }
         catch( SlotEditTaskExpiredTimeException e )
         {
             addError( ERROR_MESSAGE_SLOT_EDIT_TASK_EXPIRED_TIME, getLocale( ) );
-            return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
+            return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, PARAMETER_ID_FORM, context.getValidatedAppointment( ).getIdForm( ) );
         }
         catch( AppointmentSavedException e )
         {
 
-            nIdAppointment = _validatedAppointment.getIdAppointment( );
+            nIdAppointment = context.getValidatedAppointment( ).getIdAppointment( );
             AppLogService.error( "Error Save appointment: " + e.getMessage( ), e );
         }
-        _nNbPlacesToTake = 0;
+        context.setNbPlacesToTake( 0 );
         AppLogService.info( LogUtilities.buildLog( ACTION_DO_MAKE_APPOINTMENT, Integer.toString( nIdAppointment ), getUser( ) ) );
         addInfo( INFO_APPOINTMENT_CREATED, getLocale( ) );
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( request.getSession( ) );
         Map<String, String> additionalParameters = new HashMap<>( );
-        additionalParameters.put( PARAMETER_ID_FORM, Integer.toString( _appointmentForm.getIdForm( ) ) );
-        additionalParameters.put( PARAMETER_DATE_OF_DISPLAY, _validatedAppointment.getSlot( ).get( 0 ).getDate( ).toString( ) );
-        _validatedAppointment = null;
+        additionalParameters.put( PARAMETER_ID_FORM, Integer.toString( context.getAppointmentForm( ).getIdForm( ) ) );
+        additionalParameters.put( PARAMETER_DATE_OF_DISPLAY, context.getValidatedAppointment( ).getSlot( ).get( 0 ).getDate( ).toString( ) );
+        context.setValidatedAppointment( null );
         return redirect( request, VIEW_CALENDAR_MANAGE_APPOINTMENTS, additionalParameters );
     }
 
@@ -1366,8 +1397,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws AccessDeniedException
      *             If the user is not authorized to access this feature
      */
-    public synchronized String getDownloadFileFromSession( HttpServletRequest request, HttpServletResponse httpResponse ) throws AccessDeniedException
+    public String getDownloadFileFromSession( HttpServletRequest request, HttpServletResponse httpResponse ) throws AccessDeniedException
     {
+        BookingContext context = BookingContext.getContext( request.getSession( ), SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         String strIdResponse = request.getParameter( PARAMETER_ID_RESPONSE );
         File respfile = null;
         if ( StringUtils.isEmpty( strIdResponse ) || !StringUtils.isNumeric( strIdResponse ) )
@@ -1376,7 +1408,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
 
         int nIdResponse = Integer.parseInt( strIdResponse );
-        List<Response> lResponse = _validatedAppointment.getListResponse( );
+        List<Response> lResponse = context.getValidatedAppointment( ).getListResponse( );
 
         for ( Response response : lResponse )
         {
@@ -1429,7 +1461,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @throws FileServiceException
      *             If there is an error with the file service
      */
-    public synchronized String getDownloadFile( HttpServletRequest request, HttpServletResponse httpResponse ) throws AccessDeniedException
+    public String getDownloadFile( HttpServletRequest request, HttpServletResponse httpResponse ) throws AccessDeniedException
     {
         String strIdResponse = request.getParameter( PARAMETER_ID_RESPONSE );
 
@@ -1478,10 +1510,11 @@ public class AppointmentJspBean extends MVCAdminJspBean
 
     private void cleanSession( HttpSession session )
     {
-        _filter = null;
-        _strCurrentPageIndex = null;
-        _notValidatedAppointment = null;
-        _validatedAppointment = null;
+        BookingContext context = BookingContext.getContext( session, SESSION_ATTRIBUTE_BOOKING_CONTEXT );
+        context.setFilter( null );
+        context.setCurrentPageIndex( null );
+        context.setNotValidatedAppointment( null );
+        context.setValidatedAppointment( null );
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( session );
     }
 
@@ -1493,8 +1526,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
      */
     private void clearUploadFilesIfNeeded( HttpSession session )
     {
+        BookingContext context = BookingContext.getContext( session, SESSION_ATTRIBUTE_BOOKING_CONTEXT );
         // If we do not reload an appointment, we clear uploaded files.
-        if ( _notValidatedAppointment == null && _validatedAppointment == null )
+        if ( context.getNotValidatedAppointment( ) == null && context.getValidatedAppointment( ) == null )
         {
             AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( session );
         }
@@ -1505,8 +1539,10 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *
      * @param listAppointmentsDTO
      *            the llist of appointments
+     * @param filter
+     *            the filter of the list, with its order
      */
-    private List<AppointmentDTO> orderList( List<AppointmentDTO> listAppointmentsDTO )
+    private List<AppointmentDTO> orderList( List<AppointmentDTO> listAppointmentsDTO, AppointmentFilterDTO filter )
     {
         List<AppointmentDTO> sortedList = new ArrayList<>( );
         if ( CollectionUtils.isNotEmpty( listAppointmentsDTO ) )
@@ -1515,7 +1551,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
         }
 
         Stream<AppointmentDTO> stream = null;
-        switch( _filter.getOrderBy( ) )
+        switch( filter.getOrderBy( ) )
         {
             case LAST_NAME:
                 stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getLastName( ).compareTo( a2.getLastName( ) ) );
@@ -1546,7 +1582,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
                 stream = sortedList.stream( ).sorted( ( a1, a2 ) -> a1.getStartingDateTime( ).compareTo( a2.getStartingDateTime( ) ) );
         }
         sortedList = stream.collect( Collectors.toList( ) );
-        if ( !_filter.isOrderAsc( ) )
+        if ( !filter.isOrderAsc( ) )
         {
             Collections.reverse( sortedList );
         }
@@ -1583,7 +1619,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @return The HTML content to display, or the next URL to redirect the user to
      */
     @View( VIEW_WORKFLOW_ACTION_FORM )
-    public synchronized String getWorkflowActionForm( HttpServletRequest request )
+    public String getWorkflowActionForm( HttpServletRequest request )
     {
         String strIdAction = request.getParameter( PARAMETER_ID_ACTION );
         String strIdAppointment = request.getParameter( PARAMETER_ID_APPOINTMENT );
@@ -1631,7 +1667,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      * @return The next URL to redirect to
      */
     @Action( ACTION_DO_PROCESS_WORKFLOW_ACTION )
-    public synchronized String doProcessWorkflowAction( HttpServletRequest request )
+    public String doProcessWorkflowAction( HttpServletRequest request )
     {
         String strIdAction = request.getParameter( PARAMETER_ID_ACTION );
         String strIdAppointment = request.getParameter( PARAMETER_ID_APPOINTMENT );
@@ -1710,7 +1746,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
      *             If the user is not authorized to access this feature
      */
     @Action( ACTION_DO_CHANGE_APPOINTMENT_STATUS )
-    public synchronized String doChangeAppointmentStatus( HttpServletRequest request ) throws AccessDeniedException
+    public String doChangeAppointmentStatus( HttpServletRequest request ) throws AccessDeniedException
     {
         String strIdAppointment = request.getParameter( PARAMETER_ID_APPOINTMENT );
         String strStatusCancelled = request.getParameter( PARAMETER_STATUS_CANCELLED );
@@ -1766,27 +1802,29 @@ public class AppointmentJspBean extends MVCAdminJspBean
         return refListStatus;
     }
 
-    private List<AppointmentDTO> findListAppointmentsDTOByFilterByPage( )
+    private List<AppointmentDTO> findListAppointmentsDTOByFilterByPage( BookingContext context )
     {
+        AppointmentFilterDTO filter = context.getFilter( );
+        int nItemsPerPage = context.getItemsPerPage( );
         int currentPage;
         try
         {
-            currentPage = Integer.parseInt( _strCurrentPageIndex );
+            currentPage = Integer.parseInt( context.getCurrentPageIndex( ) );
         }
         catch( NumberFormatException ex )
         {
             currentPage = 1;
         }
 
-        int skip = ( currentPage - 1 ) * _nItemsPerPage;
+        int skip = ( currentPage - 1 ) * nItemsPerPage;
 
-        List<Integer> listIdAppointment = _filter.getListIdAppointment( );
+        List<Integer> listIdAppointment = filter.getListIdAppointment( );
 
-        _filter.setListIdAppointment( _listAppointmentsIds.stream( ).skip( skip ).limit( _nItemsPerPage ).collect( Collectors.toList( ) ) );
+        filter.setListIdAppointment( context.getListAppointmentsIds( ).stream( ).skip( skip ).limit( nItemsPerPage ).collect( Collectors.toList( ) ) );
 
-        List<AppointmentDTO> listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( _filter );
+        List<AppointmentDTO> listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( filter );
 
-        _filter.setListIdAppointment( listIdAppointment );
+        filter.setListIdAppointment( listIdAppointment );
 
         return listAppointmentsDTO;
     }
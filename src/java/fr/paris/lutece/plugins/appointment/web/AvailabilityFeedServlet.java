@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.admission.Admission;
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionControlService;
+import fr.paris.lutece.plugins.appointment.service.availability.AvailabilityFeedService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.accesscontrol.AccessControlService;
+
+/**
+ * Servlet of the availability feed of the calendar of the front office: the slots of a form, week by week, in JSON. The feed has a strong ETag and a
+ * request with a matching If-None-Match header is answered with a 304, without building the slots
+ */
+public class AvailabilityFeedServlet extends HttpServlet
+{
+    private static final long serialVersionUID = -2370474735436209418L;
+
+    // Parameters
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PARAMETER_STARTING_DATE = "starting_date";
+    private static final String PARAMETER_NB_WEEKS = "nb_weeks";
+    private static final String PARAMETER_NB_PLACES_TO_TAKE = "nbPlacesToTake";
+
+    // Headers
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    // The clients must revalidate the feed on each use
+    private static final String CACHE_CONTROL = "no-cache";
+    private static final String CONTENT_TYPE = "application/json";
+    private static final String CHARACTER_ENCODING = "UTF-8";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        int nIdForm = NumberUtils.toInt( request.getParameter( PARAMETER_ID_FORM ), -1 );
+        Form formLight = ( nIdForm > 0 ) ? FormService.findFormLightByPrimaryKey( nIdForm ) : null;
+        if ( formLight == null || !formLight.getIsActive( ) )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        AppointmentFormDTO form = FormService.buildAppointmentFormWithoutReservationRule( nIdForm );
+        if ( form.getDateStartValidity( ) == null )
+        {
+            response.sendError( HttpServletResponse.SC_NOT_FOUND );
+            return;
+        }
+        if ( AccessControlService.getInstance( ).doExecuteAccessControl( request, nIdForm, Form.RESOURCE_TYPE, null ) != null )
+        {
+            response.sendError( HttpServletResponse.SC_FORBIDDEN );
+            return;
+        }
+        int nNbPlaces = NumberUtils.toInt( request.getParameter( PARAMETER_NB_PLACES_TO_TAKE ), 0 );
+        if ( nNbPlaces < 0 || nNbPlaces > form.getNbConsecutiveSlots( ) )
+        {
+            response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+            return;
+        }
+
+        // Same period of display as the calendar
+        LocalDate startingDateOfDisplay = FormService.getStartingDateOfDisplay( form.getDateStartValidity( ).toLocalDate( ) );
+        LocalDate endingDateOfDisplay = FormService.getEndingDateOfDisplay( startingDateOfDisplay, form.getNbWeeksToDisplay( ),
+                ( form.getDateEndValidity( ) != null ) ? form.getDateEndValidity( ).toLocalDate( ) : null, request.getLocale( ) );
+
+        // Requested period, one week by default
+        LocalDate startingDate = startingDateOfDisplay;
+        String strStartingDate = request.getParameter( PARAMETER_STARTING_DATE );
+        if ( StringUtils.isNotEmpty( strStartingDate ) )
+        {
+            try
+            {
+                startingDate = LocalDate.parse( strStartingDate );
+            }
+            catch( DateTimeParseException e )
+            {
+                response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+                return;
+            }
+            if ( startingDate.isBefore( startingDateOfDisplay ) )
+            {
+                startingDate = startingDateOfDisplay;
+            }
+        }
+        int nNbWeeks = Math.min( Math.max( 1, NumberUtils.toInt( request.getParameter( PARAMETER_NB_WEEKS ), 1 ) ), Math.max( 1, form.getNbWeeksToDisplay( ) ) );
+        LocalDate endingDate = startingDate.plusWeeks( nNbWeeks ).minusDays( 1 );
+        if ( endingDate.isAfter( endingDateOfDisplay ) )
+        {
+            endingDate = endingDateOfDisplay;
+        }
+        LocalDate nextStartingDate = endingDate.isBefore( endingDateOfDisplay ) ? endingDate.plusDays( 1 ) : null;
+
+        String strETag = AvailabilityFeedService.getETag( nIdForm, startingDate, endingDate, nNbPlaces );
+        if ( ETagUtilities.isNotModified( request, strETag ) )
+        {
+            response.setHeader( HEADER_ETAG, strETag );
+            response.setHeader( HEADER_CACHE_CONTROL, CACHE_CONTROL );
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return;
+        }
+
+        String strJson;
+        try ( Admission admission = AdmissionControlService.admit( nIdForm, request ) )
+        {
+            if ( !admission.isAdmitted( ) )
+            {
+                response.setHeader( HEADER_RETRY_AFTER, Long.toString( Math.max( 1, admission.getEstimatedWait( ) ) ) );
+                response.sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+                return;
+            }
+            List<Slot> listSlot = startingDate.isAfter( endingDate ) ? Collections.emptyList( )
+                    : AvailabilityFeedService.findListSlot( form, startingDate, endingDate, nNbPlaces );
+            strJson = AvailabilityFeedService.toJson( nIdForm, startingDate, endingDate, nextStartingDate, nNbPlaces, listSlot );
+        }
+        response.setHeader( HEADER_ETAG, strETag );
+        response.setHeader( HEADER_CACHE_CONTROL, CACHE_CONTROL );
+        response.setContentType( CONTENT_TYPE );
+        response.setCharacterEncoding( CHARACTER_ENCODING );
+        response.getWriter( ).write( strJson );
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.http.HttpSession;
+
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+
+/**
+ * Conversational state of a user who is booking an appointment (form being filled in, appointment waiting for validation, appointment waiting for
+ * confirmation and number of places to take) or browsing the list of the appointments of a form (filter and page). The context is kept in the session of the
+ * user, so the beans that drive the booking stay stateless and their views can be served concurrently
+ */
+public final class BookingContext implements Serializable
+{
+    private static final long serialVersionUID = -6158218624318375042L;
+
+    /**
+     * Name of the session attribute holding the mutex of the session, as set by the HttpSessionMutexListener of Spring
+     */
+    private static final String SESSION_ATTRIBUTE_MUTEX = "org.springframework.web.util.WebUtils.MUTEX";
+
+    private volatile int _nNbPlacesToTake;
+    private volatile AppointmentFormDTO _appointmentForm;
+    private volatile AppointmentDTO _notValidatedAppointment;
+    private volatile AppointmentDTO _validatedAppointment;
+    private final AtomicBoolean _bSaving = new AtomicBoolean( );
+
+    // List of the appointments
+    private volatile AppointmentFilterDTO _filter;
+    private volatile String _strCurrentPageIndex;
+    private volatile int _nItemsPerPage;
+    private volatile List<Integer> _listAppointmentsIds;
+
+    /**
+     * Get the booking context stored in the session, create it if it does not exist
+     *
+     * @param session
+     *            the session of the user
+     * @param strAttributeName
+     *            the name of the session attribute of the context
+     * @return the booking context of the user
+     */
+    public static BookingContext getContext( HttpSession session, String strAttributeName )
+    {
+        BookingContext context = (BookingContext) session.getAttribute( strAttributeName );
+        if ( context == null )
+        {
+            synchronized( getSessionMutex( session ) )
+            {
+                context = (BookingContext) session.getAttribute( strAttributeName );
+                if ( context == null )
+                {
+                    context = new BookingContext( );
+                    session.setAttribute( strAttributeName, context );
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Get the mutex of a session: the mutex set by the HttpSessionMutexListener if it is registered, the session itself otherwise
+     *
+     * @param session
+     *            the session of the user
+     * @return the mutex of the session
+     */
+    private static Object getSessionMutex( HttpSession session )
+    {
+        Object mutex = session.getAttribute( SESSION_ATTRIBUTE_MUTEX );
+        return ( mutex != null ) ? mutex : session;
+    }
+
+    /**
+     * Mark the appointment of the context as being saved
+     *
+     * @return false if the appointment is already being saved by another request of the user
+     */
+    public boolean startSaving( )
+    {
+        return _bSaving.compareAndSet( false, true );
+    }
+
+    /**
+     * Mark the save of the appointment of the context as ended
+     */
+    public void endSaving( )
+    {
+        _bSaving.set( false );
+    }
+
+    /**
+     * Get the number of places to take
+     *
+     * @return the number of places to take
+     */
+    public int getNbPlacesToTake( )
+    {
+        return _nNbPlacesToTake;
+    }
+
+    /**
+     * Set the number of places to take
+     *
+     * @param nNbPlacesToTake
+     *            the number of places to take
+     */
+    public void setNbPlacesToTake( int nNbPlacesToTake )
+    {
+        _nNbPlacesToTake = nNbPlacesToTake;
+    }
+
+    /**
+     * Get the form of the appointment
+     *
+     * @return the form
+     */
+    public AppointmentFormDTO getAppointmentForm( )
+    {
+        return _appointmentForm;
+    }
+
+    /**
+     * Set the form of the appointment
+     *
+     * @param appointmentForm
+     *            the form
+     */
+    public void setAppointmentForm( AppointmentFormDTO appointmentForm )
+    {
+        _appointmentForm = appointmentForm;
+    }
+
+    /**
+     * Get the appointment which is being filled in
+     *
+     * @return the appointment not validated yet
+     */
+    public AppointmentDTO getNotValidatedAppointment( )
+    {
+        return _notValidatedAppointment;
+    }
+
+    /**
+     * Set the appointment which is being filled in
+     *
+     * @param notValidatedAppointment
+     *            the appointment not validated yet
+     */
+    public void setNotValidatedAppointment( AppointmentDTO notValidatedAppointment )
+    {
+        _notValidatedAppointment = notValidatedAppointment;
+    }
+
+    /**
+     * Get the appointment which is waiting for confirmation
+     *
+     * @return the validated appointment
+     */
+    public AppointmentDTO getValidatedAppointment( )
+    {
+        return _validatedAppointment;
+    }
+
+    /**
+     * Set the appointment which is waiting for confirmation
+     *
+     * @param validatedAppointment
+     *            the validated appointment
+     */
+    public void setValidatedAppointment( AppointmentDTO validatedAppointment )
+    {
+        _validatedAppointment = validatedAppointment;
+    }
+
+    /**
+     * Get the filter of the list of the appointments
+     *
+     * @return the filter
+     */
+    public AppointmentFilterDTO getFilter( )
+    {
+        return _filter;
+    }
+
+    /**
+     * Set the filter of the list of the appointments
+     *
+     * @param filter
+     *            the filter
+     */
+    public void setFilter( AppointmentFilterDTO filter )
+    {
+        _filter = filter;
+    }
+
+    /**
+     * Get the index of the current page of the list of the appointments
+     *
+     * @return the index of the current page
+     */
+    public String getCurrentPageIndex( )
+    {
+        return _strCurrentPageIndex;
+    }
+
+    /**
+     * Set the index of the current page of the list of the appointments
+     *
+     * @param strCurrentPageIndex
+     *            the index of the current page
+     */
+    public void setCurrentPageIndex( String strCurrentPageIndex )
+    {
+        _strCurrentPageIndex = strCurrentPageIndex;
+    }
+
+    /**
+     * Get the number of appointments per page
+     *
+     * @return the number of appointments per page
+     */
+    public int getItemsPerPage( )
+    {
+        return _nItemsPerPage;
+    }
+
+    /**
+     * Set the number of appointments per page
+     *
+     * @param nItemsPerPage
+     *            the number of appointments per page
+     */
+    public void setItemsPerPage( int nItemsPerPage )
+    {
+        _nItemsPerPage = nItemsPerPage;
+    }
+
+    /**
+     * Get the ids of the appointments matching the filter
+     *
+     * @return the ids of the appointments
+     */
+    public List<Integer> getListAppointmentsIds( )
+    {
+        return _listAppointmentsIds;
+    }
+
+    /**
+     * Set the ids of the appointments matching the filter
+     *
+     * @param listAppointmentsIds
+     *            the ids of the appointments
+     */
+    public void setListAppointmentsIds( List<Integer> listAppointmentsIds )
+    {
+        _listAppointmentsIds = listAppointmentsIds;
+    }
+}
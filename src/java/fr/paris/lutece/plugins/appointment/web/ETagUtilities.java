@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Utilities for the ETags of the resources served by the servlets of the plugin
+ */
+public final class ETagUtilities
+{
+    // Headers
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+    private static final String SEPARATOR = ",";
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ETagUtilities( )
+    {
+    }
+
+    /**
+     * Check if the If-None-Match header of a request matches the current ETag of a resource, in which case the request can be answered with a 304
+     * 
+     * @param request
+     *            the request
+     * @param strETag
+     *            the current ETag of the resource, with its quotes
+     * @return true if the header matches the ETag
+     */
+    public static boolean isNotModified( HttpServletRequest request, String strETag )
+    {
+        return matches( strETag, request.getHeader( HEADER_IF_NONE_MATCH ) );
+    }
+
+    /**
+     * Check if an ETag matches the value of an If-None-Match header, with the weak comparison of the header: a weak ETag of the header matches the strong
+     * ETag with the same value
+     * 
+     * @param strETag
+     *            the ETag, with its quotes
+     * @param strIfNoneMatch
+     *            the value of the If-None-Match header, can be null
+     * @return true if the header contains the ETag or is *
+     */
+    public static boolean matches( String strETag, String strIfNoneMatch )
+    {
+        if ( strIfNoneMatch == null )
+        {
+            return false;
+        }
+        for ( String strValue : strIfNoneMatch.split( SEPARATOR ) )
+        {
+            String strTrimmed = strValue.trim( );
+            if ( strTrimmed.startsWith( WEAK_PREFIX ) )
+            {
+                strTrimmed = strTrimmed.substring( WEAK_PREFIX.length( ) );
+            }
+            if ( ANY.equals( strTrimmed ) || strETag.equals( strTrimmed ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -42,7 +42,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -79,6 +78,8 @@ import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+import fr.paris.lutece.plugins.appointment.service.availability.AvailabilityGridService;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLock;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.i18n.I18nService;
@@ -312,7 +313,7 @@ public class SpecificWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
             throw new AccessDeniedException( AppointmentResourceIdService.PERMISSION_MODIFY_ADVANCED_SETTING_FORM );
         }
         int nIdSlot = Integer.parseInt( strIdSlot );
-        Lock lock = SlotSafeService.getLockOnSlot( nIdSlot );
+        ISlotLock lock = SlotSafeService.getLockOnSlot( nIdSlot );
         lock.lock( );
         try
         {
@@ -607,7 +608,7 @@ public class SpecificWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
 
         for ( Slot slot : listSlot )
         {
-            Lock lock = SlotSafeService.getLockOnSlot( slot.getIdSlot( ) );
+            ISlotLock lock = SlotSafeService.getLockOnSlot( slot.getIdSlot( ) );
             lock.lock( );
             try
             {
@@ -624,6 +625,7 @@ public class SpecificWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
                     // closing day so that the slot is not in conflict with the
                     // definition of the closing days
                     ClosingDayHome.deleteByIdFormAndDateOfClosingDay( slot.getIdForm( ), dateSlot );
+                    AvailabilityGridService.invalidate( slot.getIdForm( ), dateSlot, dateSlot );
                 }
                 if ( nVarMaxCapacity != 0 || ( nMaxCapacity >= 0 && nMaxCapacity != slot.getMaxCapacity( ) ) )
                 {
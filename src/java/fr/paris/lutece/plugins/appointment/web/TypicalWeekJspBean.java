@@ -40,7 +40,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -64,6 +63,7 @@ import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.FormConfigCacheService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
 import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
@@ -72,6 +72,7 @@ import fr.paris.lutece.plugins.appointment.service.TimeSlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLock;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.message.AdminMessage;
@@ -395,6 +396,7 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
         }
 
         ReservationRuleHome.update( reservationRule );
+        FormConfigCacheService.invalidate( _appointmentForm.getIdForm( ) );
         addInfo( INFO_GLOBAL_PARAMETERS_UPDATED, getLocale( ) );
         return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, _appointmentForm.getIdForm( ), PARAMETER_ID_RULE,
                 _appointmentForm.getIdReservationRule( ) );
@@ -628,6 +630,7 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
             }
         }
         TimeSlotService.updateTimeSlot( _timeSlot, bEndingTimeHasChanged, previousEndingTime, bShiftSlot );
+        FormConfigCacheService.invalidate( nIdForm );
 
         AppLogService.info( LogUtilities.buildLog( ACTION_DO_MODIFY_TIME_SLOT, strIdTimeSlot, getUser( ) ) );
         addInfo( MESSAGE_INFO_SLOT_UPDATED, getLocale( ) );
@@ -809,6 +812,7 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
         }
 
         TimeSlotService.updateListTimeSlot( listTimeSlot );
+        FormConfigCacheService.invalidate( nIdForm );
         if ( CollectionUtils.isNotEmpty( listTimeSlot ) && CollectionUtils.isNotEmpty( listWeekDefinition ) )
         {
 
@@ -873,7 +877,7 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
         SlotService.deleteListSlots( listslotImpactedWithoutAppointments );
         for ( Slot slotImpacted : listSlotsImpactedWithAppointments )
         {
-            Lock lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot( ) );
+            ISlotLock lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot( ) );
             lock.lock( );
             try
             {
@@ -917,7 +921,7 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
             bOpeningHasChanged = false;
             bMaxCapacityHasChanged = false;
 
-            Lock lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot( ) );
+            ISlotLock lock = SlotSafeService.getLockOnSlot( slotImpacted.getIdSlot( ) );
             lock.lock( );
             try
             {
@@ -249,6 +249,14 @@ public final class AppointmentFormDTO extends ReservationRule implements RBACRes
      * BoOverbooking
      */
     private boolean _bBoOverbooking;
+    /**
+     * Maximum number of requests admitted per second
+     */
+    private int _nNbAdmissionsPerSecond;
+    /**
+     * Maximum number of requests processed at the same time
+     */
+    private int _nNbMaxConcurrentRequests;
     /**
      * isMultislotAppointment
      */
@@ -1068,6 +1076,48 @@ public final class AppointmentFormDTO extends ReservationRule implements RBACRes
         _bBoOverbooking = bBoOverbooking;
     }
 
+    /**
+     * Returns the NbAdmissionsPerSecond
+     * 
+     * @return The NbAdmissionsPerSecond
+     */
+    public int getNbAdmissionsPerSecond( )
+    {
+        return _nNbAdmissionsPerSecond;
+    }
+
+    /**
+     * Sets the NbAdmissionsPerSecond
+     * 
+     * @param nNbAdmissionsPerSecond
+     *            The NbAdmissionsPerSecond
+     */
+    public void setNbAdmissionsPerSecond( int nNbAdmissionsPerSecond )
+    {
+        _nNbAdmissionsPerSecond = nNbAdmissionsPerSecond;
+    }
+
+    /**
+     * Returns the NbMaxConcurrentRequests
+     * 
+     * @return The NbMaxConcurrentRequests
+     */
+    public int getNbMaxConcurrentRequests( )
+    {
+        return _nNbMaxConcurrentRequests;
+    }
+
+    /**
+     * Sets the NbMaxConcurrentRequests
+     * 
+     * @param nNbMaxConcurrentRequests
+     *            The NbMaxConcurrentRequests
+     */
+    public void setNbMaxConcurrentRequests( int nNbMaxConcurrentRequests )
+    {
+        _nNbMaxConcurrentRequests = nNbMaxConcurrentRequests;
+    }
+
     /**
      * Returns the IsMultislotAppointment
      * 
@@ -1,21 +1,52 @@
 package fr.paris.lutece.plugins.appointment.web.file;
 
-import fr.paris.lutece.plugins.appointment.business.display.Display;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
 import fr.paris.lutece.plugins.appointment.service.DisplayService;
+import fr.paris.lutece.plugins.appointment.service.FormConfigCacheService;
+import fr.paris.lutece.plugins.appointment.service.FormConfigSnapshot;
 import fr.paris.lutece.portal.service.image.ImageResource;
 import fr.paris.lutece.portal.service.image.ImageResourceManager;
 import fr.paris.lutece.portal.service.image.ImageResourceProvider;
 import fr.paris.lutece.portal.service.init.LuteceInitException;
-import org.apache.commons.fileupload.FileItem;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
- * Image Resource Service for the appointment form icon
+ * Image Resource Service for the appointment form icon. The icons are served by the AppointmentFormIconServlet with an URL holding the hash of their
+ * content, and kept in memory in a LRU cache bounded by the total size of their content. An icon is loaded again from the database when the configuration
+ * version of its form has changed
  */
 public class AppointmentFormIconService implements ImageResourceProvider
 {
+    // Properties
+    private static final String PROPERTY_CACHE_MAX_BYTES = "appointment.formIcon.cache.maxBytes";
+
+    private static final long MAX_BYTES = Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_CACHE_MAX_BYTES, 1048576 ) );
+
+    private static final String SERVLET_URL = "servlet/plugins/appointment/icon";
+    private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String PARAMETER_HASH = "v";
+    private static final String MIME_TYPE_NULL = "NULL";
+    private static final String ALGORITHM = "SHA-256";
+
     private static AppointmentFormIconService _singleton = new AppointmentFormIconService( );
     private static final String IMAGE_RESOURCE_TYPE_ID = "appointmentForm_icon";
 
+    // The icons in the order of their last use, guarded by the map
+    private final Map<Integer, FormIcon> _mapIcons = new LinkedHashMap<>( 16, 0.75f, true );
+    private long _lCachedBytes;
+
     /**
      * Creates a new instance of AppointmentFormIconService
      */
@@ -62,11 +93,14 @@ public class AppointmentFormIconService implements ImageResourceProvider
     @Override
     public ImageResource getImageResource( int nIdResource )
     {
-        Display display = DisplayService.findDisplayWithFormId( nIdResource );
+        FormIcon icon = getIcon( nIdResource );
 
-        if ( display != null )
+        if ( icon != null )
         {
-            return display.getIcon( );
+            ImageResource imageResource = new ImageResource( );
+            imageResource.setImage( icon.getContent( ) );
+            imageResource.setMimeType( icon.getMimeType( ) );
+            return imageResource;
         }
         return null;
     }
@@ -93,5 +127,225 @@ public class AppointmentFormIconService implements ImageResourceProvider
         return null;
     }
 
-}
+    /**
+     * Get the URL of the icon of a form. The URL holds the hash of the content of the icon, so it changes with the icon and can be cached by the browsers
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @return the relative URL of the icon, null if the form has no icon
+     */
+    public String getIconUrl( int nIdForm )
+    {
+        FormIcon icon = findIcon( nIdForm, false );
+        if ( icon == null )
+        {
+            return null;
+        }
+        return SERVLET_URL + "?" + PARAMETER_ID_FORM + "=" + nIdForm + "&" + PARAMETER_HASH + "=" + icon.getHash( );
+    }
+
+    /**
+     * Get the icon of a form, with its content
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @return the icon, null if the form has no icon
+     */
+    public FormIcon getIcon( int nIdForm )
+    {
+        return findIcon( nIdForm, true );
+    }
+
+    /**
+     * Find the icon of a form in the cache, or load it from the database if it is not cached or if the configuration of its form has changed
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @param bWithContent
+     *            true if the content of the icon is needed
+     * @return the icon, null if the form has no icon
+     */
+    private FormIcon findIcon( int nIdForm, boolean bWithContent )
+    {
+        // The version is read before the icon, so that a change made meanwhile is not hidden
+        int nConfigVersion = findConfigVersion( nIdForm );
+        FormIcon icon;
+        synchronized( _mapIcons )
+        {
+            icon = _mapIcons.get( nIdForm );
+        }
+        if ( icon == null || icon._nConfigVersion != nConfigVersion || ( bWithContent && icon._strHash != null && icon._content == null ) )
+        {
+            icon = loadIcon( nIdForm, nConfigVersion );
+            putIcon( nIdForm, icon );
+        }
+        return ( icon._strHash != null ) ? icon : null;
+    }
+
+    /**
+     * Get the configuration version of a form, from the cache of the configurations if it is enabled
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @return the configuration version
+     */
+    private static int findConfigVersion( int nIdForm )
+    {
+        FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+        return ( snapshot != null ) ? snapshot.getConfigVersion( ) : FormHome.findConfigVersion( nIdForm );
+    }
+
+    /**
+     * Load the icon of a form from the database
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @param nConfigVersion
+     *            the configuration version of the form read before the icon
+     * @return the icon, without hash if the form has no icon
+     */
+    private static FormIcon loadIcon( int nIdForm, int nConfigVersion )
+    {
+        ImageResource imageResource = DisplayService.findIconWithFormId( nIdForm );
+        if ( imageResource == null || imageResource.getImage( ) == null || imageResource.getImage( ).length == 0
+                || StringUtils.isEmpty( imageResource.getMimeType( ) ) || StringUtils.equals( imageResource.getMimeType( ), MIME_TYPE_NULL ) )
+        {
+            return new FormIcon( nConfigVersion, null, null, null );
+        }
+        return new FormIcon( nConfigVersion, imageResource.getImage( ), imageResource.getMimeType( ),
+                computeHash( imageResource.getImage( ), imageResource.getMimeType( ) ) );
+    }
+
+    /**
+     * Put an icon in the cache and evict the least recently used icons beyond the maximum size. The content of an icon bigger than the maximum size is not
+     * kept
+     *
+     * @param nIdForm
+     *            the id of the form
+     * @param icon
+     *            the icon loaded
+     */
+    private void putIcon( int nIdForm, FormIcon icon )
+    {
+        FormIcon iconToCache = icon;
+        if ( icon._content != null && icon._content.length > MAX_BYTES )
+        {
+            iconToCache = new FormIcon( icon._nConfigVersion, null, icon._strMimeType, icon._strHash );
+        }
+        synchronized( _mapIcons )
+        {
+            FormIcon previousIcon = _mapIcons.put( nIdForm, iconToCache );
+            if ( previousIcon != null )
+            {
+                _lCachedBytes -= previousIcon.getSize( );
+            }
+            _lCachedBytes += iconToCache.getSize( );
+            Iterator<Map.Entry<Integer, FormIcon>> iterator = _mapIcons.entrySet( ).iterator( );
+            while ( _lCachedBytes > MAX_BYTES && iterator.hasNext( ) )
+            {
+                Map.Entry<Integer, FormIcon> entry = iterator.next( );
+                FormIcon iconToEvict = entry.getValue( );
+                if ( iconToEvict != iconToCache && iconToEvict._content != null )
+                {
+                    // Only the content is evicted, the hash of the icon is kept
+                    _lCachedBytes -= iconToEvict.getSize( );
+                    entry.setValue( new FormIcon( iconToEvict._nConfigVersion, null, iconToEvict._strMimeType, iconToEvict._strHash ) );
+                }
+            }
+        }
+    }
 
+    /**
+     * Compute the hash of an icon
+     *
+     * @param content
+     *            the content of the icon
+     * @param strMimeType
+     *            the mime type of the icon
+     * @return the hash, encoded for an URL
+     */
+    private static String computeHash( byte [ ] content, String strMimeType )
+    {
+        try
+        {
+            MessageDigest messageDigest = MessageDigest.getInstance( ALGORITHM );
+            messageDigest.update( strMimeType.getBytes( StandardCharsets.UTF_8 ) );
+            return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( messageDigest.digest( content ) );
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Icon of a form, identified by the hash of its content
+     */
+    public static final class FormIcon
+    {
+        private final int _nConfigVersion;
+        private final String _strMimeType;
+        private final String _strHash;
+        private final byte [ ] _content;
+
+        /**
+         * Constructor
+         *
+         * @param nConfigVersion
+         *            the configuration version of the form
+         * @param content
+         *            the content of the icon
+         * @param strMimeType
+         *            the mime type of the icon
+         * @param strHash
+         *            the hash of the icon
+         */
+        private FormIcon( int nConfigVersion, byte [ ] content, String strMimeType, String strHash )
+        {
+            _nConfigVersion = nConfigVersion;
+            _content = content;
+            _strMimeType = strMimeType;
+            _strHash = strHash;
+        }
+
+        /**
+         * Get the content of the icon. The array is shared and must not be modified
+         *
+         * @return the content of the icon
+         */
+        public byte [ ] getContent( )
+        {
+            return _content;
+        }
+
+        /**
+         * Get the mime type of the icon
+         *
+         * @return the mime type
+         */
+        public String getMimeType( )
+        {
+            return _strMimeType;
+        }
+
+        /**
+         * Get the hash of the content of the icon
+         *
+         * @return the hash
+         */
+        public String getHash( )
+        {
+            return _strHash;
+        }
+
+        /**
+         * Get the number of bytes of the content kept in memory
+         *
+         * @return the size
+         */
+        private long getSize( )
+        {
+            return ( _content != null ) ? _content.length : 0;
+        }
+    }
+}
@@ -17,6 +17,10 @@ DROP TABLE IF EXISTS appointment_form ;
 DROP TABLE IF EXISTS appointment_category ;
 DROP TABLE IF EXISTS appointment_comment;
 DROP TABLE IF EXISTS appointment_comment_notification_cf;
+DROP TABLE IF EXISTS appointment_lock;
+DROP TABLE IF EXISTS appointment_lock_lease;
+DROP TABLE IF EXISTS appointment_workflow_pending;
+DROP TABLE IF EXISTS appointment_slot_hold;
 
 
 -- -----------------------------------------------------
@@ -67,6 +71,7 @@ CREATE TABLE IF NOT EXISTS appointment_form (
   nb_consecutive_slots INT DEFAULT 1 NOT NULL,
   is_anonymizable BOOLEAN DEFAULT FALSE NOT NULL,
   anonymization_pattern VARCHAR(2) DEFAULT NULL,
+  config_version INT DEFAULT 0 NOT NULL,
   PRIMARY KEY (id_form),
    CONSTRAINT fk_appointment_form_appointment_category
     FOREIGN KEY (id_category)
@@ -352,6 +357,8 @@ CREATE TABLE IF NOT EXISTS appointment_form_rule (
   nb_max_appointments_per_user INT DEFAULT 0 NOT NULL,
   nb_days_for_max_appointments_per_user INT DEFAULT 0 NOT NULL,
   bo_overbooking BOOLEAN DEFAULT FALSE NOT NULL,
+  nb_admissions_per_second INT DEFAULT 0 NOT NULL,
+  nb_max_concurrent_requests INT DEFAULT 0 NOT NULL,
   id_form INT NOT NULL,
   PRIMARY KEY (id_form_rule),
   CONSTRAINT fk_appointment_form_rule_appointment_form
@@ -404,3 +411,48 @@ CREATE TABLE appointment_comment_notification_cf
 	subject VARCHAR(255) DEFAULT NULL, 
 	message LONG VARCHAR DEFAULT NULL
 );
+
+-- -----------------------------------------------------
+-- Table appointment_lock
+-- -----------------------------------------------------
+CREATE TABLE appointment_lock (
+  lock_key VARCHAR(50) NOT NULL,
+  PRIMARY KEY (lock_key)
+);
+
+-- -----------------------------------------------------
+-- Table appointment_lock_lease
+-- -----------------------------------------------------
+CREATE TABLE appointment_lock_lease (
+  lock_key VARCHAR(50) NOT NULL,
+  lock_owner VARCHAR(50) NOT NULL,
+  expiry_date TIMESTAMP NOT NULL,
+  PRIMARY KEY (lock_key)
+);
+
+-- -----------------------------------------------------
+-- Table appointment_workflow_pending
+-- -----------------------------------------------------
+CREATE TABLE appointment_workflow_pending (
+  id_appointment INT NOT NULL,
+  id_form INT NOT NULL,
+  is_report BOOLEAN DEFAULT FALSE NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  locale VARCHAR(50) NULL,
+  nb_attempts INT DEFAULT 0 NOT NULL,
+  last_attempt_date TIMESTAMP NOT NULL,
+  last_error VARCHAR(255) NULL,
+  PRIMARY KEY (id_appointment)
+);
+
+-- -----------------------------------------------------
+-- Table appointment_slot_hold
+-- -----------------------------------------------------
+CREATE TABLE appointment_slot_hold (
+  hold_token VARCHAR(50) NOT NULL,
+  id_slot INT NOT NULL,
+  nb_places INT NOT NULL,
+  expiry_date TIMESTAMP NOT NULL,
+  PRIMARY KEY (hold_token)
+);
+CREATE INDEX expiry_date_idx ON appointment_slot_hold (expiry_date ASC);
@@ -0,0 +1,52 @@
+--
+-- Tables used by the database lock providers of the slots and the forms
+--
+CREATE TABLE appointment_lock (
+  lock_key VARCHAR(50) NOT NULL,
+  PRIMARY KEY (lock_key)
+);
+
+CREATE TABLE appointment_lock_lease (
+  lock_key VARCHAR(50) NOT NULL,
+  lock_owner VARCHAR(50) NOT NULL,
+  expiry_date TIMESTAMP NOT NULL,
+  PRIMARY KEY (lock_key)
+);
+
+--
+-- Workflows of the appointments to process again after a failure
+--
+CREATE TABLE appointment_workflow_pending (
+  id_appointment INT NOT NULL,
+  id_form INT NOT NULL,
+  is_report BOOLEAN DEFAULT FALSE NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  locale VARCHAR(50) NULL,
+  nb_attempts INT DEFAULT 0 NOT NULL,
+  last_attempt_date TIMESTAMP NOT NULL,
+  last_error VARCHAR(255) NULL,
+  PRIMARY KEY (id_appointment)
+);
+
+--
+-- Places held on the slots while the users fill the appointment form
+--
+CREATE TABLE appointment_slot_hold (
+  hold_token VARCHAR(50) NOT NULL,
+  id_slot INT NOT NULL,
+  nb_places INT NOT NULL,
+  expiry_date TIMESTAMP NOT NULL,
+  PRIMARY KEY (hold_token)
+);
+CREATE INDEX expiry_date_idx ON appointment_slot_hold (expiry_date ASC);
+
+--
+-- Admission control of the front office requests on the calendar and the booking of a form
+--
+ALTER TABLE appointment_form_rule ADD nb_admissions_per_second INT DEFAULT 0 NOT NULL;
+ALTER TABLE appointment_form_rule ADD nb_max_concurrent_requests INT DEFAULT 0 NOT NULL;
+
+--
+-- Version of the configuration of the forms, polled by the nodes to refresh their copy of the configuration
+--
+ALTER TABLE appointment_form ADD config_version INT DEFAULT 0 NOT NULL;
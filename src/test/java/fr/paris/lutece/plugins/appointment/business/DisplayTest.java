@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business;
 
+import java.util.Arrays;
+
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
 import fr.paris.lutece.plugins.appointment.business.display.Display;
@@ -135,6 +137,37 @@ public final class DisplayTest extends LuteceTestCase
         FormHome.delete( form.getIdForm( ) );
     }
 
+    /**
+     * Test that the icon is only loaded by findIconByIdForm
+     */
+    public void testFindIconByIdForm( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        CalendarTemplate calendarTemplate = CalendarTemplateTest.buildCalendarTemplate( );
+        CalendarTemplateHome.create( calendarTemplate );
+
+        Display display = buildDisplay( );
+        display.setIdForm( form.getIdForm( ) );
+        display.setIdCalendarTemplate( calendarTemplate.getIdCalendarTemplate( ) );
+        DisplayHome.create( display );
+
+        // The display is read without the content of its icon
+        Display displayStored = DisplayHome.findByIdForm( form.getIdForm( ) );
+        assertNull( displayStored.getIcon( ).getImage( ) );
+        assertEquals( ICON_FORM_MIME_TYPE_1, displayStored.getIcon( ).getMimeType( ) );
+
+        ImageResource icon = DisplayHome.findIconByIdForm( form.getIdForm( ) );
+        assertTrue( Arrays.equals( BYTES_1, icon.getImage( ) ) );
+        assertEquals( ICON_FORM_MIME_TYPE_1, icon.getMimeType( ) );
+
+        // Clean
+        DisplayHome.delete( display.getIdDisplay( ) );
+        CalendarTemplateHome.delete( calendarTemplate.getIdCalendarTemplate( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
     /**
      * Build a Display Business Object
      * 
@@ -52,6 +52,10 @@ public final class FormRuleTest extends LuteceTestCase
     public static final boolean IS_CAPTCHA_ENABLED_2 = false;
     public static final boolean IS_MANDATORY_EMAIL_ENABLED_1 = true;
     public static final boolean IS_MANDATORY_EMAIL_ENABLED_2 = false;
+    public static final int NB_ADMISSIONS_PER_SECOND_1 = 20;
+    public static final int NB_ADMISSIONS_PER_SECOND_2 = 0;
+    public static final int NB_MAX_CONCURRENT_REQUESTS_1 = 10;
+    public static final int NB_MAX_CONCURRENT_REQUESTS_2 = 5;
 
     /**
      * Test method for the FormRule (CRUD)
@@ -74,6 +78,8 @@ public final class FormRuleTest extends LuteceTestCase
         // Update the FormRule
         formRule.setIsCaptchaEnabled( IS_CAPTCHA_ENABLED_2 );
         formRule.setIsMandatoryEmailEnabled( IS_MANDATORY_EMAIL_ENABLED_2 );
+        formRule.setNbAdmissionsPerSecond( NB_ADMISSIONS_PER_SECOND_2 );
+        formRule.setNbMaxConcurrentRequests( NB_MAX_CONCURRENT_REQUESTS_2 );
         // Update the FormRule in database
         FormRuleHome.update( formRule );
         // Find the FormRule updated in database
@@ -124,6 +130,8 @@ public final class FormRuleTest extends LuteceTestCase
         FormRule formRule = new FormRule( );
         formRule.setIsCaptchaEnabled( IS_CAPTCHA_ENABLED_1 );
         formRule.setIsMandatoryEmailEnabled( IS_MANDATORY_EMAIL_ENABLED_1 );
+        formRule.setNbAdmissionsPerSecond( NB_ADMISSIONS_PER_SECOND_1 );
+        formRule.setNbMaxConcurrentRequests( NB_MAX_CONCURRENT_REQUESTS_1 );
         return formRule;
     }
 
@@ -139,6 +147,8 @@ public final class FormRuleTest extends LuteceTestCase
     {
         assertEquals( formRuleStored.getIsCaptchaEnabled( ), formRule.getIsCaptchaEnabled( ) );
         assertEquals( formRuleStored.getIsMandatoryEmailEnabled( ), formRule.getIsMandatoryEmailEnabled( ) );
+        assertEquals( formRuleStored.getNbAdmissionsPerSecond( ), formRule.getNbAdmissionsPerSecond( ) );
+        assertEquals( formRuleStored.getNbMaxConcurrentRequests( ), formRule.getNbMaxConcurrentRequests( ) );
         assertEquals( formRuleStored.getIdForm( ), formRule.getIdForm( ) );
     }
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.PendingWorkflow;
+import fr.paris.lutece.plugins.appointment.business.appointment.PendingWorkflowHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test Class for the PendingWorkflow
+ */
+public final class PendingWorkflowTest extends LuteceTestCase
+{
+    private static final int ID_APPOINTMENT = 987654;
+    private static final int ID_FORM = 12;
+    private static final int ID_ADMIN_USER = 7;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Test method for the PendingWorkflow (CRUD)
+     */
+    public void testPendingWorkflow( )
+    {
+        // Initialize a PendingWorkflow
+        PendingWorkflow pendingWorkflow = new PendingWorkflow( );
+        pendingWorkflow.setIdAppointment( ID_APPOINTMENT );
+        pendingWorkflow.setIdForm( ID_FORM );
+        pendingWorkflow.setIsReport( true );
+        pendingWorkflow.setIdAdminUser( ID_ADMIN_USER );
+        pendingWorkflow.setLocale( Locale.FRENCH );
+        pendingWorkflow.setNbAttempts( 1 );
+        pendingWorkflow.setDateLastAttempt( LocalDateTime.now( ).truncatedTo( ChronoUnit.SECONDS ) );
+        pendingWorkflow.setLastError( "Error" );
+        // Create the PendingWorkflow in database
+        PendingWorkflowHome.save( pendingWorkflow );
+        // Find the PendingWorkflow created in database
+        PendingWorkflow pendingWorkflowStored = PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT );
+        // Check Asserts
+        checkAsserts( pendingWorkflowStored, pendingWorkflow );
+        assertTrue( PendingWorkflowHome.findToRetry( MAX_ATTEMPTS, LocalDateTime.now( ).plusMinutes( 1 ) ).stream( )
+                .anyMatch( p -> p.getIdAppointment( ) == ID_APPOINTMENT ) );
+        // A workflow attempted too recently is not retried yet
+        assertFalse( PendingWorkflowHome.findToRetry( MAX_ATTEMPTS, pendingWorkflow.getDateLastAttempt( ) ).stream( )
+                .anyMatch( p -> p.getIdAppointment( ) == ID_APPOINTMENT ) );
+        assertTrue( PendingWorkflowHome.findIdAppointmentsByIdForm( ID_FORM ).contains( ID_APPOINTMENT ) );
+
+        // Claim the PendingWorkflow: a node that read it before the claim can not claim it again
+        PendingWorkflow pendingWorkflowOtherNode = PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT );
+        assertTrue( PendingWorkflowHome.claim( pendingWorkflow ) );
+        assertEquals( 2, pendingWorkflow.getNbAttempts( ) );
+        assertEquals( 2, PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT ).getNbAttempts( ) );
+        assertFalse( PendingWorkflowHome.claim( pendingWorkflowOtherNode ) );
+        assertEquals( 2, PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT ).getNbAttempts( ) );
+
+        // Update the PendingWorkflow after a new failure
+        pendingWorkflow.setNbAttempts( MAX_ATTEMPTS );
+        pendingWorkflow.setDateLastAttempt( LocalDateTime.now( ).truncatedTo( ChronoUnit.SECONDS ) );
+        pendingWorkflow.setLastError( "Error again" );
+        PendingWorkflowHome.save( pendingWorkflow );
+        pendingWorkflowStored = PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT );
+        checkAsserts( pendingWorkflowStored, pendingWorkflow );
+        // A workflow that failed too many times is no longer retried
+        assertFalse( PendingWorkflowHome.findToRetry( MAX_ATTEMPTS, LocalDateTime.now( ).plusMinutes( 1 ) ).stream( )
+                .anyMatch( p -> p.getIdAppointment( ) == ID_APPOINTMENT ) );
+
+        // Delete the PendingWorkflow
+        PendingWorkflowHome.delete( ID_APPOINTMENT );
+        // Check the PendingWorkflow has been removed from database
+        assertNull( PendingWorkflowHome.findByIdAppointment( ID_APPOINTMENT ) );
+    }
+
+    /**
+     * Check that all the asserts are true
+     * 
+     * @param pendingWorkflowStored
+     *            the PendingWorkflow stored
+     * @param pendingWorkflow
+     *            the PendingWorkflow created
+     */
+    public void checkAsserts( PendingWorkflow pendingWorkflowStored, PendingWorkflow pendingWorkflow )
+    {
+        assertEquals( pendingWorkflowStored.getIdForm( ), pendingWorkflow.getIdForm( ) );
+        assertEquals( pendingWorkflowStored.getIsReport( ), pendingWorkflow.getIsReport( ) );
+        assertEquals( pendingWorkflowStored.getIdAdminUser( ), pendingWorkflow.getIdAdminUser( ) );
+        assertEquals( pendingWorkflowStored.getLocale( ), pendingWorkflow.getLocale( ) );
+        assertEquals( pendingWorkflowStored.getNbAttempts( ), pendingWorkflow.getNbAttempts( ) );
+        assertEquals( pendingWorkflowStored.getDateLastAttempt( ), pendingWorkflow.getDateLastAttempt( ) );
+        assertEquals( pendingWorkflowStored.getLastError( ), pendingWorkflow.getLastError( ) );
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHoldHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test Class for the SlotHold
+ */
+public final class SlotHoldTest extends LuteceTestCase
+{
+    private static final String TOKEN_1 = "slot-hold-test-1";
+    private static final String TOKEN_2 = "slot-hold-test-2";
+    private static final int ID_SLOT = 987654;
+
+    /**
+     * Test method for the SlotHold (CRUD)
+     */
+    public void testSlotHold( )
+    {
+        LocalDateTime dateNow = LocalDateTime.now( ).truncatedTo( ChronoUnit.SECONDS );
+        // Initialize an expired hold and a current one
+        SlotHold slotHoldExpired = buildSlotHold( TOKEN_1, dateNow.minusMinutes( 1 ) );
+        SlotHold slotHold = buildSlotHold( TOKEN_2, dateNow.plusMinutes( 5 ) );
+        SlotHoldHome.create( slotHoldExpired );
+        SlotHoldHome.create( slotHold );
+        // Find the SlotHold created in database
+        checkAsserts( SlotHoldHome.findByToken( TOKEN_2 ), slotHold );
+        // Only the expired hold is found
+        assertTrue( SlotHoldHome.findExpired( dateNow, 1000 ).stream( ).anyMatch( h -> h.getToken( ).equals( TOKEN_1 ) ) );
+        assertFalse( SlotHoldHome.findExpired( dateNow, 1000 ).stream( ).anyMatch( h -> h.getToken( ).equals( TOKEN_2 ) ) );
+
+        // Delete the SlotHold, only once
+        assertTrue( SlotHoldHome.delete( TOKEN_1 ) );
+        assertFalse( SlotHoldHome.delete( TOKEN_1 ) );
+        assertTrue( SlotHoldHome.delete( TOKEN_2 ) );
+        // Check the SlotHold has been removed from database
+        assertNull( SlotHoldHome.findByToken( TOKEN_2 ) );
+    }
+
+    /**
+     * Build a SlotHold Business Object
+     * 
+     * @param strToken
+     *            the token
+     * @param dateExpiry
+     *            the expiry date
+     * @return the slot hold
+     */
+    public static SlotHold buildSlotHold( String strToken, LocalDateTime dateExpiry )
+    {
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setToken( strToken );
+        slotHold.setIdSlot( ID_SLOT );
+        slotHold.setNbPlaces( 2 );
+        slotHold.setDateExpiry( dateExpiry );
+        return slotHold;
+    }
+
+    /**
+     * Check that all the asserts are true
+     * 
+     * @param slotHoldStored
+     *            the SlotHold stored
+     * @param slotHold
+     *            the SlotHold created
+     */
+    public void checkAsserts( SlotHold slotHoldStored, SlotHold slotHold )
+    {
+        assertEquals( slotHoldStored.getIdSlot( ), slotHold.getIdSlot( ) );
+        assertEquals( slotHoldStored.getNbPlaces( ), slotHold.getNbPlaces( ) );
+        assertEquals( slotHoldStored.getDateExpiry( ), slotHold.getDateExpiry( ) );
+    }
+}
@@ -189,6 +189,72 @@ public final class SlotTest extends LuteceTestCase
 
     }
 
+    /**
+     * Test of takePlaces and releasePlaces
+     */
+    public void testTakeAndReleasePlaces( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        LocalDateTime startingDateTime = LocalDateTime.now( ).plusDays( 1 );
+        Slot slot = buildSlot( form.getIdForm( ), startingDateTime, startingDateTime.plusMinutes( 30 ), 2, 2, 0, 2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // Take the 2 places of the slot
+        assertTrue( SlotHome.takePlaces( slot.getIdSlot( ), 2, 0, true ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 2, slotStored.getNbPlacesTaken( ) );
+
+        // The slot is full
+        assertFalse( SlotHome.takePlaces( slot.getIdSlot( ), 1, 0, true ) );
+        // Over booking
+        assertTrue( SlotHome.takePlaces( slot.getIdSlot( ), 1, 0, false ) );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( -1, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 3, slotStored.getNbPlacesTaken( ) );
+
+        // Give back the places of the over booked appointment
+        assertTrue( SlotHome.releasePlaces( slot.getIdSlot( ), 1 ) );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 2, slotStored.getNbPlacesTaken( ) );
+
+        // Clean
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
+    /**
+     * Test of updateDefinition: the remaining places are shifted by the change of capacity and the places taken are kept
+     */
+    public void testUpdateDefinition( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        LocalDateTime startingDateTime = LocalDateTime.now( ).plusDays( 1 );
+        Slot slot = buildSlot( form.getIdForm( ), startingDateTime, startingDateTime.plusMinutes( 30 ), 2, 2, 0, 2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // A place is taken after the slot has been read by the administrator
+        assertTrue( SlotHome.takePlaces( slot.getIdSlot( ), 1, 0, true ) );
+        slot.setMaxCapacity( 3 );
+        SlotHome.updateDefinition( slot );
+
+        Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 3, slotStored.getMaxCapacity( ) );
+        assertEquals( 2, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 1, slotStored.getNbPlacesTaken( ) );
+
+        // Clean
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
     /**
      * Build a SLot Business Object
      * 
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the compiled working days and the closing day sets used by the generation of the slots
+ */
+public class CompiledWorkingDayTest extends LuteceTestCase
+{
+    /**
+     * Test the lookups of a compiled working day give the same results as the scans of its time slots
+     */
+    public void testCompiledWorkingDay( )
+    {
+        WorkingDay workingDay = new WorkingDay( );
+        List<TimeSlot> listTimeSlot = new ArrayList<>( );
+        // Time slots of 25 minutes from 8:00 to 18:00, not sorted
+        for ( LocalTime time = LocalTime.of( 17, 35 ); !time.isBefore( LocalTime.of( 8, 0 ) ); time = time.minusMinutes( 25 ) )
+        {
+            TimeSlot timeSlot = new TimeSlot( );
+            timeSlot.setStartingTime( time );
+            timeSlot.setEndingTime( time.plusMinutes( 25 ) );
+            listTimeSlot.add( timeSlot );
+        }
+        workingDay.setListTimeSlot( listTimeSlot );
+        CompiledWorkingDay compiledWorkingDay = new CompiledWorkingDay( workingDay );
+
+        assertEquals( WorkingDayService.getMinStartingTimeOfAWorkingDay( workingDay ), compiledWorkingDay.getMinStartingTime( ) );
+        assertEquals( WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay ), compiledWorkingDay.getMaxEndingTime( ) );
+        for ( int nMinute = 0; nMinute < 24 * 60; nMinute++ )
+        {
+            LocalTime time = LocalTime.MIN.plusMinutes( nMinute );
+            assertSame( TimeSlotService.getTimeSlotInListOfTimeSlotWithStartingTime( listTimeSlot, time ), compiledWorkingDay.getTimeSlot( time ) );
+        }
+        assertNull( compiledWorkingDay.getTimeSlot( LocalTime.of( 8, 0, 30 ) ) );
+
+        WorkingDay emptyWorkingDay = new WorkingDay( );
+        emptyWorkingDay.setListTimeSlot( new ArrayList<>( ) );
+        assertNull( new CompiledWorkingDay( emptyWorkingDay ).getMinStartingTime( ) );
+    }
+
+    /**
+     * Test the closing day set
+     */
+    public void testClosingDaySet( )
+    {
+        LocalDate date = LocalDate.parse( "2030-05-01" );
+        ClosingDaySet closingDays = new ClosingDaySet( Arrays.asList( date, date.plusDays( 7 ), date.plusYears( 1 ) ) );
+        assertTrue( closingDays.contains( date ) );
+        assertTrue( closingDays.contains( date.plusDays( 7 ) ) );
+        assertTrue( closingDays.contains( date.plusYears( 1 ) ) );
+        assertFalse( closingDays.contains( date.minusDays( 1 ) ) );
+        assertFalse( closingDays.contains( date.plusDays( 1 ) ) );
+        assertFalse( new ClosingDaySet( new ArrayList<>( ) ).contains( date ) );
+    }
+}
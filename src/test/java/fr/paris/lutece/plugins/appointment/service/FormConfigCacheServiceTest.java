@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the cache of the configuration snapshots of the forms
+ */
+public class FormConfigCacheServiceTest extends LuteceTestCase
+{
+    private static final String TITLE_UPDATED = "Title Form updated";
+
+    /**
+     * Test that the snapshot is rebuilt after a change of the form, of its reservation rule or of its display on this node
+     */
+    public void testRebuildAfterLocalChange( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        try
+        {
+            FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotNull( snapshot );
+            assertSame( snapshot, FormConfigCacheService.getSnapshot( nIdForm ) );
+
+            // Change of the form
+            Form form = FormService.findFormLightByPrimaryKey( nIdForm );
+            form.setTitle( TITLE_UPDATED );
+            FormService.updateForm( form );
+            FormConfigSnapshot snapshotForm = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotSame( snapshot, snapshotForm );
+            assertTrue( snapshotForm.getConfigVersion( ) > snapshot.getConfigVersion( ) );
+            assertEquals( TITLE_UPDATED, snapshotForm.getForm( ).getTitle( ) );
+
+            // Change of the reservation rule
+            int nIdReservationRule = ReservationRuleService.findListReservationRule( nIdForm ).get( 0 ).getIdReservationRule( );
+            AppointmentFormDTO appointmentForm = FormService.buildAppointmentForm( nIdForm, nIdReservationRule );
+            int nMaxCapacity = appointmentForm.getMaxCapacityPerSlot( ) + 1;
+            appointmentForm.setMaxCapacityPerSlot( nMaxCapacity );
+            ReservationRuleService.updateAdvancedParameters( appointmentForm );
+            FormConfigSnapshot snapshotRule = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotSame( snapshotForm, snapshotRule );
+            assertTrue( snapshotRule.getConfigVersion( ) > snapshotForm.getConfigVersion( ) );
+            assertEquals( nMaxCapacity, snapshotRule.getReservationRule( nIdReservationRule ).getMaxCapacityPerSlot( ) );
+
+            // Change of the display
+            appointmentForm = FormService.buildAppointmentForm( nIdForm, nIdReservationRule );
+            int nNbWeeksToDisplay = appointmentForm.getNbWeeksToDisplay( ) + 1;
+            appointmentForm.setNbWeeksToDisplay( nNbWeeksToDisplay );
+            FormService.updateGlobalParameters( appointmentForm );
+            FormConfigSnapshot snapshotDisplay = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotSame( snapshotRule, snapshotDisplay );
+            assertTrue( snapshotDisplay.getConfigVersion( ) > snapshotRule.getConfigVersion( ) );
+            assertEquals( nNbWeeksToDisplay, snapshotDisplay.getSharedDisplay( ).getNbWeeksToDisplay( ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test that a change of the configuration version made by another node is read by the poll of the versions
+     */
+    public void testPollConfigVersionChangedByOtherNode( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        try
+        {
+            FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotNull( snapshot );
+
+            // Another node changes the form: only the version in the database is incremented
+            Form form = FormHome.findByPrimaryKey( nIdForm );
+            form.setTitle( TITLE_UPDATED );
+            FormHome.update( form );
+            FormHome.incrementConfigVersion( nIdForm );
+            assertSame( snapshot, FormConfigCacheService.getSnapshot( nIdForm ) );
+
+            FormConfigCacheService.expirePollInterval( );
+            FormConfigSnapshot snapshotPolled = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotSame( snapshot, snapshotPolled );
+            assertEquals( FormHome.findConfigVersion( nIdForm ), snapshotPolled.getConfigVersion( ) );
+            assertEquals( TITLE_UPDATED, snapshotPolled.getForm( ).getTitle( ) );
+
+            // The versions are unchanged: the snapshot is kept
+            FormConfigCacheService.expirePollInterval( );
+            assertSame( snapshotPolled, FormConfigCacheService.getSnapshot( nIdForm ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test that the changes made by the callers on the objects returned by a snapshot do not leak into the cache
+     */
+    public void testSnapshotImmutable( )
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        try
+        {
+            FormConfigSnapshot snapshot = FormConfigCacheService.getSnapshot( nIdForm );
+            assertNotNull( snapshot );
+
+            Form form = snapshot.getForm( );
+            String strTitle = form.getTitle( );
+            form.setTitle( TITLE_UPDATED );
+            assertEquals( strTitle, snapshot.getForm( ).getTitle( ) );
+            assertEquals( strTitle, snapshot.getSharedForm( ).getTitle( ) );
+
+            int nIdReservationRule = ReservationRuleService.findListReservationRule( nIdForm ).get( 0 ).getIdReservationRule( );
+            ReservationRule reservationRule = snapshot.getReservationRule( nIdReservationRule );
+            int nMaxCapacity = reservationRule.getMaxCapacityPerSlot( );
+            int nNbWorkingDays = reservationRule.getListWorkingDay( ).size( );
+            reservationRule.setMaxCapacityPerSlot( nMaxCapacity + 1 );
+            reservationRule.getListWorkingDay( ).clear( );
+            ReservationRule reservationRuleCached = snapshot.getReservationRule( nIdReservationRule );
+            assertEquals( nMaxCapacity, reservationRuleCached.getMaxCapacityPerSlot( ) );
+            assertEquals( nNbWorkingDays, reservationRuleCached.getListWorkingDay( ).size( ) );
+
+            List<Integer> listIdEntryFront = snapshot.getListIdEntryFront( );
+            int nNbEntries = listIdEntryFront.size( );
+            try
+            {
+                listIdEntryFront.add( -1 );
+                fail( "The list of the entries of a snapshot must not be modifiable" );
+            }
+            catch( UnsupportedOperationException e )
+            {
+                assertEquals( nNbEntries, snapshot.getListIdEntryFront( ).size( ) );
+            }
+            assertSame( snapshot, FormConfigCacheService.getSnapshot( nIdForm ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+}
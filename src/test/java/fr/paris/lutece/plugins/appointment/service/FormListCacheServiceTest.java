@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the cache of the rendered lists of forms
+ */
+public class FormListCacheServiceTest extends LuteceTestCase
+{
+    private static final LocalDate DAY = LocalDate.of( 2030, 3, 4 );
+    private static final String HTML = "<ul></ul>";
+
+    /**
+     * Test the keys of the rendered lists
+     */
+    public void testBuildKey( )
+    {
+        Map<String, Object> model = new HashMap<>( );
+        model.put( "errors", new ArrayList<>( ) );
+        model.put( "portlet_name", "Forms" );
+        String strKey = FormListCacheService.buildKey( Locale.FRENCH, model );
+        assertNotNull( strKey );
+        assertFalse( strKey.equals( FormListCacheService.buildKey( Locale.ENGLISH, model ) ) );
+
+        model.put( "portlet_name", "Other forms" );
+        assertFalse( strKey.equals( FormListCacheService.buildKey( Locale.FRENCH, model ) ) );
+
+        // A list with messages is not cached
+        model.put( "errors", Collections.singletonList( "error" ) );
+        assertNull( FormListCacheService.buildKey( Locale.FRENCH, model ) );
+    }
+
+    /**
+     * Test that a rendered list is only valid for its forms version and its day
+     */
+    public void testGetHtml( )
+    {
+        String strKey = FormListCacheService.buildKey( Locale.FRENCH, new HashMap<>( ) );
+        long lFormsVersion = FormListCacheService.getFormsVersion( );
+        FormListCacheService.putHtml( strKey, lFormsVersion, DAY, HTML );
+        assertEquals( HTML, FormListCacheService.getHtml( strKey, lFormsVersion, DAY ) );
+        assertNull( FormListCacheService.getHtml( strKey, lFormsVersion, DAY.plusDays( 1 ) ) );
+
+        FormListCacheService.invalidate( );
+        assertNull( FormListCacheService.getHtml( strKey, FormListCacheService.getFormsVersion( ), DAY ) );
+    }
+}
@@ -37,6 +37,7 @@ import java.sql.Date;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
@@ -94,6 +95,23 @@ public class FormServiceTest extends LuteceTestCase
         assertEquals( 0, listForms.size( ) );
     }
 
+    /**
+     * Test the end of the display of the calendar of a form, shared by the calendar, the availability feed and the search of the earliest slots
+     */
+    public void testGetEndingDateOfDisplay( )
+    {
+        // A wednesday: the display ends on the sunday of the last week, counting the current week
+        LocalDate startingDateOfDisplay = LocalDate.of( 2025, 1, 8 );
+        assertEquals( LocalDate.of( 2025, 1, 12 ), FormService.getEndingDateOfDisplay( startingDateOfDisplay, 1, null, Locale.FRANCE ) );
+        assertEquals( LocalDate.of( 2025, 1, 26 ), FormService.getEndingDateOfDisplay( startingDateOfDisplay, 3, null, Locale.FRANCE ) );
+        // The display ends at the ending validity date of the form
+        assertEquals( LocalDate.of( 2025, 1, 15 ),
+                FormService.getEndingDateOfDisplay( startingDateOfDisplay, 3, LocalDate.of( 2025, 1, 15 ), Locale.FRANCE ) );
+        // The display starts today, or at the starting validity date of the form
+        assertEquals( LocalDate.now( ), FormService.getStartingDateOfDisplay( LocalDate.now( ).minusDays( 3 ) ) );
+        assertEquals( LocalDate.now( ).plusDays( 3 ), FormService.getStartingDateOfDisplay( LocalDate.now( ).plusDays( 3 ) ) );
+    }
+
     /**
      * Build an AppointmentForm DTO
      * 
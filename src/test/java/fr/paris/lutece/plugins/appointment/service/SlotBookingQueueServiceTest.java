@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.paris.lutece.plugins.appointment.business.FormTest;
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the booking queues of the slots
+ */
+public class SlotBookingQueueServiceTest extends LuteceTestCase
+{
+    private static final int NB_PLACES = 5;
+    private static final int NB_BOOKINGS = 40;
+
+    /**
+     * Test that concurrent bookings on a slot take exactly its places
+     */
+    public void testClaimPlaces( ) throws Exception
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        LocalDateTime startingDateTime = LocalDateTime.now( ).plusDays( 1 );
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), startingDateTime, startingDateTime.plusMinutes( 30 ), NB_PLACES, NB_PLACES, 0, NB_PLACES,
+                Boolean.TRUE, Boolean.FALSE );
+        SlotHome.create( slot );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Boolean>> listFuture = new ArrayList<>( );
+            Callable<Boolean> booking = ( ) -> SlotBookingQueueService.claimPlaces( slot.getIdSlot( ), 1, 1 );
+            for ( int i = 0; i < NB_BOOKINGS; i++ )
+            {
+                listFuture.add( executor.submit( booking ) );
+            }
+            int nbClaimed = 0;
+            for ( Future<Boolean> future : listFuture )
+            {
+                if ( future.get( ) )
+                {
+                    nbClaimed++;
+                }
+            }
+            assertEquals( NB_PLACES, nbClaimed );
+            Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+            assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+            assertEquals( NB_PLACES, slotStored.getNbPlacesTaken( ) );
+            // The slot is known as full
+            assertFalse( SlotBookingQueueService.claimPlaces( slot.getIdSlot( ), 1, 1 ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+            SlotHome.delete( slot.getIdSlot( ) );
+            FormHome.delete( form.getIdForm( ) );
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the filter of the slots
+ */
+public class SlotFilterTest extends LuteceTestCase
+{
+    // A wednesday
+    private static final LocalDateTime MIN_STARTING_DATE_TIME = LocalDateTime.parse( "2030-01-09T10:00" );
+    private static final LocalDate MIN_STARTING_DATE = MIN_STARTING_DATE_TIME.toLocalDate( );
+    private static final LocalDateTime SATURDAY = MIN_STARTING_DATE_TIME.plusDays( 3 );
+    private static final Set<Integer> OPEN_DAYS = new HashSet<>( Arrays.asList( 1, 2, 3, 4, 5 ) );
+
+    /**
+     * Test the days that can have accepted slots: the days of the week, and the days from the day of the minimum starting date time
+     */
+    public void testAcceptDay( )
+    {
+        SlotFilter filter = new SlotFilter( );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE.minusYears( 1 ) ) );
+
+        // The day of the minimum starting date time can have slots starting after its time
+        filter.setMinStartingDateTime( MIN_STARTING_DATE_TIME );
+        assertFalse( filter.acceptDay( MIN_STARTING_DATE.minusDays( 1 ) ) );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE ) );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE.plusDays( 1 ) ) );
+
+        filter.setDaysOfWeek( new HashSet<>( Arrays.asList( 3 ) ) );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE ) );
+        assertFalse( filter.acceptDay( MIN_STARTING_DATE.plusDays( 1 ) ) );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE.plusWeeks( 1 ) ) );
+        assertFalse( filter.acceptDay( MIN_STARTING_DATE.minusWeeks( 1 ) ) );
+
+        filter.setDaysOfWeek( null );
+        assertTrue( filter.acceptDay( MIN_STARTING_DATE.plusDays( 1 ) ) );
+    }
+
+    /**
+     * Test the cutoff of the minimum starting date time: the slots must start strictly after it
+     */
+    public void testMinStartingDateTime( )
+    {
+        SlotFilter filter = new SlotFilter( );
+        filter.setMinStartingDateTime( MIN_STARTING_DATE_TIME );
+        assertFalse( filter.accept( MIN_STARTING_DATE_TIME.minusMinutes( 1 ), true, 1, 1 ) );
+        assertFalse( filter.accept( MIN_STARTING_DATE_TIME, true, 1, 1 ) );
+        assertTrue( filter.accept( MIN_STARTING_DATE_TIME.plusMinutes( 1 ), true, 1, 1 ) );
+        // Without other criteria, the closed and full slots are accepted
+        assertTrue( filter.accept( MIN_STARTING_DATE_TIME.plusMinutes( 1 ), false, 0, 0 ) );
+
+        filter.setDaysOfWeek( new HashSet<>( Arrays.asList( 3 ) ) );
+        assertTrue( filter.accept( MIN_STARTING_DATE_TIME.plusHours( 1 ), true, 1, 1 ) );
+        assertFalse( filter.accept( MIN_STARTING_DATE_TIME.plusDays( 1 ), true, 1, 1 ) );
+    }
+
+    /**
+     * Test the filter of the available slots
+     */
+    public void testAvailable( )
+    {
+        LocalDateTime startingDateTime = MIN_STARTING_DATE_TIME.plusHours( 1 );
+        // At least one place is needed
+        SlotFilter filter = SlotFilter.available( MIN_STARTING_DATE_TIME, 0 );
+        assertTrue( filter.isOpenOnly( ) );
+        assertEquals( 1, filter.getMinPotentialRemainingPlaces( ) );
+        assertTrue( filter.accept( startingDateTime, true, 0, 1 ) );
+        assertFalse( filter.accept( startingDateTime, true, 1, 0 ) );
+        assertFalse( filter.accept( startingDateTime, false, 1, 1 ) );
+        assertFalse( filter.accept( MIN_STARTING_DATE_TIME, true, 1, 1 ) );
+
+        filter = SlotFilter.available( MIN_STARTING_DATE_TIME, 3 );
+        assertFalse( filter.acceptPlaces( true, 3, 2 ) );
+        assertTrue( filter.acceptPlaces( true, 3, 3 ) );
+    }
+
+    /**
+     * Test the filters of the calendar templates: only the templates of the free slots keep the open slots with remaining places, and only on the open days
+     * for the template of the open days
+     */
+    public void testForCalendarTemplate( )
+    {
+        LocalDateTime startingDateTime = MIN_STARTING_DATE_TIME.plusHours( 1 );
+        SlotFilter filter = SlotFilter.forCalendarTemplate( CalendarTemplate.CALENDAR, MIN_STARTING_DATE_TIME, null, OPEN_DAYS );
+        assertEquals( MIN_STARTING_DATE_TIME, filter.getMinStartingDateTime( ) );
+        assertFalse( filter.isOpenOnly( ) );
+        assertTrue( filter.accept( startingDateTime, false, 0, 0 ) );
+        assertTrue( filter.accept( SATURDAY, true, 1, 1 ) );
+
+        filter = SlotFilter.forCalendarTemplate( CalendarTemplate.FREE_SLOTS, MIN_STARTING_DATE_TIME, null, OPEN_DAYS );
+        assertTrue( filter.isOpenOnly( ) );
+        assertEquals( 1, filter.getMinRemainingPlaces( ) );
+        assertFalse( filter.accept( startingDateTime, false, 1, 1 ) );
+        assertFalse( filter.accept( startingDateTime, true, 0, 0 ) );
+        assertTrue( filter.accept( startingDateTime, true, 1, 0 ) );
+        assertTrue( filter.accept( SATURDAY, true, 1, 1 ) );
+        assertTrue( filter.acceptDay( SATURDAY.toLocalDate( ) ) );
+
+        filter = SlotFilter.forCalendarTemplate( CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS, MIN_STARTING_DATE_TIME, null, OPEN_DAYS );
+        assertTrue( filter.isOpenOnly( ) );
+        assertEquals( 1, filter.getMinRemainingPlaces( ) );
+        assertTrue( filter.accept( startingDateTime, true, 1, 0 ) );
+        assertFalse( filter.accept( SATURDAY, true, 1, 1 ) );
+        assertFalse( filter.acceptDay( SATURDAY.toLocalDate( ) ) );
+
+        // The date of an appointment can only be changed to open slots with enough potential remaining places
+        AppointmentDTO appointmentToMove = new AppointmentDTO( );
+        appointmentToMove.setNbBookedSeats( 2 );
+        filter = SlotFilter.forCalendarTemplate( CalendarTemplate.CALENDAR, MIN_STARTING_DATE_TIME, appointmentToMove, OPEN_DAYS );
+        assertTrue( filter.isOpenOnly( ) );
+        assertEquals( 0, filter.getMinRemainingPlaces( ) );
+        assertEquals( 2, filter.getMinPotentialRemainingPlaces( ) );
+        assertFalse( filter.accept( startingDateTime, true, 2, 1 ) );
+        assertTrue( filter.accept( startingDateTime, true, 0, 2 ) );
+    }
+
+    /**
+     * Test that the generation of the slots not grouped starts at the day of the minimum starting date time of the filter
+     */
+    public void testGeneratorStartsAtMinStartingDate( )
+    {
+        Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
+        WeekDefinition weekDefinition = new WeekDefinition( );
+        weekDefinition.setIdReservationRule( 1 );
+        weekDefinition.setDateOfApply( MIN_STARTING_DATE.minusYears( 1 ) );
+        weekDefinition.setEndingDateOfApply( MIN_STARTING_DATE.plusYears( 1 ) );
+        ReservationRule reservationRule = new ReservationRule( );
+        reservationRule.setIdReservationRule( 1 );
+        mapReservationRule.put( weekDefinition, reservationRule );
+        LocalDate startingDate = MIN_STARTING_DATE.minusMonths( 1 );
+        LocalDate endingDate = MIN_STARTING_DATE.plusMonths( 1 );
+        SlotFilter filter = SlotFilter.available( MIN_STARTING_DATE_TIME, 1 );
+
+        assertEquals( MIN_STARTING_DATE, SlotGenerator.of( 0, mapReservationRule, startingDate, endingDate ).withFilter( filter ).getNextDate( ) );
+        // A minimum starting date time before the period does not move its start
+        assertEquals( startingDate, SlotGenerator.of( 0, mapReservationRule, startingDate, endingDate )
+                .withFilter( SlotFilter.available( startingDate.minusDays( 1 ).atStartOfDay( ), 1 ) ).getNextDate( ) );
+        assertEquals( startingDate, SlotGenerator.of( 0, mapReservationRule, startingDate, endingDate ).withFilter( new SlotFilter( ) ).getNextDate( ) );
+        assertEquals( startingDate, SlotGenerator.of( 0, mapReservationRule, startingDate, endingDate ).withFilter( null ).getNextDate( ) );
+        // The grouped slots need all the slots of their days, the filter applies to the grouped slots
+        assertEquals( startingDate, SlotGenerator.of( 0, mapReservationRule, startingDate, endingDate, 2, false ).withFilter( filter ).getNextDate( ) );
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.planning.ClosingDay;
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Period;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the lazy generation of the slots, against the previous eager build of the calendar builder. The form has specific slots, closing days,
+ * passed days and a second typical week applied from a wednesday
+ */
+public class SlotGeneratorTest extends LuteceTestCase
+{
+    // The monday two weeks ago: the first two weeks of the period are passed
+    private final LocalDate _firstMonday = LocalDate.now( ).with( TemporalAdjusters.previousOrSame( DayOfWeek.MONDAY ) ).minusWeeks( 2 );
+    private final LocalDate _lastDay = _firstMonday.plusWeeks( 6 ).minusDays( 1 );
+    // The second typical week is applied from the wednesday of the fourth week to the tuesday of the fifth week
+    private final LocalDate _startOfSecondWeek = _firstMonday.plusWeeks( 3 ).plusDays( 2 );
+    private final LocalDate _endOfSecondWeek = _firstMonday.plusWeeks( 4 ).plusDays( 1 );
+
+    /**
+     * Test that the generated slots are the slots of the eager build, on the whole period and on periods starting or ending around the boundaries of the
+     * week definitions
+     */
+    public void testSameSlotsAsEagerBuild( )
+    {
+        int nIdForm = createForm( );
+        try
+        {
+            Map<WeekDefinition, ReservationRule> mapReservationRule = findMapReservationRule( nIdForm );
+            List<Slot> listExpected = EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday.minusDays( 3 ), _lastDay );
+            assertFalse( listExpected.isEmpty( ) );
+            assertTrue( listExpected.stream( ).anyMatch( Slot::getIsSpecific ) );
+            assertEquals( toString( listExpected ), toString( SlotGenerator.of( nIdForm, mapReservationRule, _firstMonday.minusDays( 3 ), _lastDay ).stream( )
+                    .collect( Collectors.toList( ) ) ) );
+
+            for ( LocalDate boundary : Arrays.asList( _firstMonday, _startOfSecondWeek, _endOfSecondWeek.plusDays( 1 ) ) )
+            {
+                for ( LocalDate date : Arrays.asList( boundary.minusDays( 1 ), boundary, boundary.plusDays( 1 ) ) )
+                {
+                    assertEquals( toString( EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, date, _lastDay ) ),
+                            toString( CalendarBuilder.buildListSlot( nIdForm, mapReservationRule, date, _lastDay ) ) );
+                    assertEquals( toString( EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, date ) ),
+                            toString( CalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, date ) ) );
+                }
+            }
+        }
+        finally
+        {
+            cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test that the grouped slots are the grouped slots of the eager build, with the passed slots that can not be grouped
+     */
+    public void testSameGroupedSlotsAsEagerBuild( )
+    {
+        int nIdForm = createForm( );
+        try
+        {
+            Map<WeekDefinition, ReservationRule> mapReservationRule = findMapReservationRule( nIdForm );
+            for ( int nNbPlaces = 1; nNbPlaces <= 3; nNbPlaces++ )
+            {
+                for ( boolean bAllOpenSlot : new boolean [ ] {
+                        false, true
+                } )
+                {
+                    List<Slot> listExpected = EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, _lastDay, nNbPlaces,
+                            bAllOpenSlot );
+                    assertFalse( listExpected.isEmpty( ) );
+                    assertEquals( toString( listExpected ),
+                            toString( CalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, _lastDay, nNbPlaces, bAllOpenSlot ) ) );
+                }
+            }
+        }
+        finally
+        {
+            cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test that a filter given to the generator keeps the slots of the eager build accepted by the filter
+     */
+    public void testFilterPushdown( )
+    {
+        int nIdForm = createForm( );
+        try
+        {
+            Map<WeekDefinition, ReservationRule> mapReservationRule = findMapReservationRule( nIdForm );
+            List<SlotFilter> listFilter = new ArrayList<>( );
+            listFilter.add( SlotFilter.available( LocalDateTime.now( ), 1 ) );
+            listFilter.add( SlotFilter.available( _startOfSecondWeek.atTime( 10, 45 ), 2 ) );
+            SlotFilter filterDays = new SlotFilter( );
+            filterDays.setDaysOfWeek( new HashSet<>( Arrays.asList( 3, 6, 7 ) ) );
+            filterDays.setMinRemainingPlaces( 1 );
+            listFilter.add( filterDays );
+            SlotFilter filterClosed = new SlotFilter( );
+            filterClosed.setMinStartingDateTime( _firstMonday.plusDays( 1 ).atTime( 9, 0 ) );
+            listFilter.add( filterClosed );
+
+            for ( SlotFilter filter : listFilter )
+            {
+                List<Slot> listExpected = EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, _lastDay ).stream( )
+                        .filter( filter::accept ).collect( Collectors.toList( ) );
+                assertFalse( listExpected.isEmpty( ) );
+                assertEquals( toString( listExpected ), toString( SlotGenerator.of( nIdForm, mapReservationRule, _firstMonday, _lastDay ).withFilter( filter )
+                        .stream( ).collect( Collectors.toList( ) ) ) );
+                // The search of the first slot loads the days one after the other
+                assertEquals( toString( listExpected.subList( 0, 1 ) ), toString( SlotGenerator.of( nIdForm, mapReservationRule, _firstMonday, _lastDay )
+                        .withGrowingWindows( ).withFilter( filter ).stream( ).limit( 1 ).collect( Collectors.toList( ) ) ) );
+
+                List<Slot> listExpectedGrouped = EagerCalendarBuilder.buildListSlot( nIdForm, mapReservationRule, _firstMonday, _lastDay, 2, false ).stream( )
+                        .filter( filter::accept ).collect( Collectors.toList( ) );
+                assertEquals( toString( listExpectedGrouped ), toString( SlotGenerator.of( nIdForm, mapReservationRule, _firstMonday, _lastDay, 2, false )
+                        .withFilter( filter ).stream( ).collect( Collectors.toList( ) ) ) );
+            }
+        }
+        finally
+        {
+            cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Create the form: a first typical week from monday to friday, a second typical week from tuesday to saturday with longer slots, closing days and
+     * specific slots
+     * 
+     * @return the id of the form
+     */
+    private int createForm( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setDateStartValidity( Date.valueOf( _firstMonday ) );
+        appointmentForm.setDateEndValidity( Date.valueOf( _firstMonday.plusYears( 1 ) ) );
+        int nIdForm = FormService.createAppointmentForm( appointmentForm );
+
+        AppointmentFormDTO appointmentForm2 = FormServiceTest.buildAppointmentForm( );
+        appointmentForm2.setIdForm( nIdForm );
+        appointmentForm2.setTimeStart( "10:00" );
+        appointmentForm2.setTimeEnd( "16:00" );
+        appointmentForm2.setDurationAppointments( 45 );
+        appointmentForm2.setMaxCapacityPerSlot( 2 );
+        appointmentForm2.setIsOpenMonday( Boolean.FALSE );
+        appointmentForm2.setIsOpenSaturday( Boolean.TRUE );
+        int nIdReservationRule2 = ReservationRuleService.createTypicalWeek( appointmentForm2 );
+        WeekDefinition weekDefinition = WeekDefinitionService.createWeekDefinition( nIdReservationRule2, _startOfSecondWeek, _endOfSecondWeek );
+        WeekDefinitionService.assignWeekDefinition( nIdForm, weekDefinition );
+
+        // A passed closing day, a closing day on each typical week and a closing day on a sunday
+        ClosingDayService.saveListClosingDay( nIdForm, Arrays.asList( _firstMonday.plusDays( 1 ), _firstMonday.plusWeeks( 2 ).plusDays( 3 ),
+                _firstMonday.plusWeeks( 3 ).plusDays( 3 ), _firstMonday.plusWeeks( 3 ).plusDays( 5 ), _firstMonday.plusWeeks( 4 ).plusDays( 6 ) ) );
+
+        // A passed large slot, a closed slot, a full slot, a large slot, a slot on a closing day, a slot on a sunday and a slot of the second typical week
+        saveSlot( nIdForm, _firstMonday.atTime( 9, 0 ), _firstMonday.atTime( 10, 0 ), 3, true );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 2 ).plusDays( 4 ).atTime( 10, 0 ), _firstMonday.plusWeeks( 2 ).plusDays( 4 ).atTime( 10, 30 ), 3, false );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 2 ).plusDays( 4 ).atTime( 11, 0 ), _firstMonday.plusWeeks( 2 ).plusDays( 4 ).atTime( 11, 30 ), 0, true );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 3 ).atTime( 14, 0 ), _firstMonday.plusWeeks( 3 ).atTime( 15, 30 ), 3, true );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 3 ).plusDays( 3 ).atTime( 10, 0 ), _firstMonday.plusWeeks( 3 ).plusDays( 3 ).atTime( 10, 45 ), 2, true );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 3 ).plusDays( 6 ).atTime( 10, 0 ), _firstMonday.plusWeeks( 3 ).plusDays( 6 ).atTime( 10, 45 ), 2, true );
+        saveSlot( nIdForm, _firstMonday.plusWeeks( 3 ).plusDays( 4 ).atTime( 10, 45 ), _firstMonday.plusWeeks( 3 ).plusDays( 4 ).atTime( 11, 30 ), 1, true );
+        return nIdForm;
+    }
+
+    /**
+     * Save a specific slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDateTime
+     *            the starting date time of the slot
+     * @param endingDateTime
+     *            the ending date time of the slot
+     * @param nRemainingPlaces
+     *            the remaining places of the slot, out of a capacity of 3
+     * @param bIsOpen
+     *            true if the slot is open
+     */
+    private static void saveSlot( int nIdForm, LocalDateTime startingDateTime, LocalDateTime endingDateTime, int nRemainingPlaces, boolean bIsOpen )
+    {
+        SlotService.saveSlot( SlotTest.buildSlot( nIdForm, startingDateTime, endingDateTime, nRemainingPlaces, nRemainingPlaces, 3 - nRemainingPlaces, 3,
+                bIsOpen, Boolean.TRUE ) );
+    }
+
+    /**
+     * Remove the form with its closing days
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    private static void cleanForm( int nIdForm )
+    {
+        for ( ClosingDay closingDay : ClosingDayService.findListClosingDay( nIdForm ) )
+        {
+            ClosingDayService.removeClosingDay( closingDay );
+        }
+        FormServiceTest.cleanForm( nIdForm );
+    }
+
+    private static Map<WeekDefinition, ReservationRule> findMapReservationRule( int nIdForm )
+    {
+        return ReservationRuleService.findAllReservationRule( nIdForm, WeekDefinitionService.findListWeekDefinition( nIdForm ) );
+    }
+
+    private static String toString( List<Slot> listSlot )
+    {
+        StringBuilder sb = new StringBuilder( );
+        for ( Slot slot : listSlot )
+        {
+            sb.append( slot.getIdSlot( ) ).append( '/' ).append( slot.getStartingDateTime( ) ).append( '/' ).append( slot.getEndingDateTime( ) ).append( '/' )
+                    .append( slot.getDate( ) ).append( '/' ).append( slot.getMaxCapacity( ) ).append( '/' ).append( slot.getNbPotentialRemainingPlaces( ) )
+                    .append( '/' ).append( slot.getNbRemainingPlaces( ) ).append( '/' ).append( slot.getIsOpen( ) ).append( '/' ).append( slot.getIsFull( ) )
+                    .append( '/' ).append( slot.getIsSpecific( ) ).append( '\n' );
+        }
+        return sb.toString( );
+    }
+
+    /**
+     * The previous eager build of the calendar builder, building all the slots of the period at once
+     */
+    private static final class EagerCalendarBuilder
+    {
+        private EagerCalendarBuilder( )
+        {
+        }
+
+        static List<Slot> buildListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
+        {
+            List<Slot> listSlot = new ArrayList<>( );
+            final WeekDefinitionTimeline timeline = WeekDefinitionTimeline.of( mapReservationRule );
+            Map<ReservationRule, CompiledReservationRule> mapCompiledRule = new IdentityHashMap<>( );
+            LocalDate startingDateToUse = startingDate;
+            final LocalDate firstDateOfReservationRule = timeline.getFirstWeekDefinition( ).getDateOfApply( );
+            if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
+            {
+                startingDateToUse = firstDateOfReservationRule;
+            }
+            ClosingDaySet closingDays = new ClosingDaySet(
+                    ClosingDayService.findListDateOfClosingDayByIdFormAndDateRange( nIdForm, startingDateToUse, endingDate ) );
+            Map<LocalDateTime, Slot> mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm, startingDateToUse.atStartOfDay( ),
+                    endingDate.atTime( LocalTime.MAX ) );
+            LocalDate dateTemp = startingDate;
+            while ( !dateTemp.isAfter( endingDate ) )
+            {
+                ReservationRule reservationRuleToApply = timeline.getReservationRule( dateTemp );
+                CompiledReservationRule compiledRule = ( reservationRuleToApply == null ) ? null
+                        : mapCompiledRule.computeIfAbsent( reservationRuleToApply, CompiledReservationRule::new );
+                int nMaxCapacity = 0;
+                CompiledWorkingDay workingDay = null;
+                if ( reservationRuleToApply != null )
+                {
+                    nMaxCapacity = reservationRuleToApply.getMaxCapacityPerSlot( );
+                    workingDay = compiledRule.getWorkingDay( dateTemp.getDayOfWeek( ) );
+                }
+                if ( workingDay != null )
+                {
+                    LocalTime maxTimeForThisDay = workingDay.getMaxEndingTime( );
+                    if ( closingDays.contains( dateTemp ) )
+                    {
+                        listSlot.add( SlotService.buildSlot( nIdForm,
+                                new Period( dateTemp.atTime( workingDay.getMinStartingTime( ) ), dateTemp.atTime( maxTimeForThisDay ) ), nMaxCapacity,
+                                nMaxCapacity, nMaxCapacity, 0, Boolean.FALSE, Boolean.FALSE ) );
+                    }
+                    else
+                    {
+                        LocalTime timeTemp = workingDay.getMinStartingTime( );
+                        while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+                        {
+                            LocalDateTime dateTimeTemp = dateTemp.atTime( timeTemp );
+                            if ( mapSlot.containsKey( dateTimeTemp ) )
+                            {
+                                Slot slotToAdd = mapSlot.get( dateTimeTemp );
+                                timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+                                listSlot.add( slotToAdd );
+                            }
+                            else
+                            {
+                                TimeSlot timeSlot = workingDay.getTimeSlot( timeTemp );
+                                if ( timeSlot == null )
+                                {
+                                    break;
+                                }
+                                timeTemp = timeSlot.getEndingTime( );
+                                int nMaxCapacityToPut = timeSlot.getMaxCapacity( );
+                                listSlot.add( SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacityToPut,
+                                        nMaxCapacityToPut, nMaxCapacityToPut, 0, timeSlot.getIsOpen( ), Boolean.FALSE ) );
+                            }
+                        }
+                    }
+                }
+                else
+                    if ( reservationRuleToApply != null && compiledRule.getMinStartingTime( ) != null && compiledRule.getMaxEndingTime( ) != null )
+                    {
+                        // This is not a working day: all the slots of this day are closed
+                        LocalTime maxTimeForThisDay = compiledRule.getMaxEndingTime( );
+                        LocalTime timeTemp = compiledRule.getMinStartingTime( );
+                        while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+                        {
+                            LocalDateTime dateTimeTemp = dateTemp.atTime( timeTemp );
+                            if ( mapSlot.containsKey( dateTimeTemp ) )
+                            {
+                                Slot slotToAdd = mapSlot.get( dateTimeTemp );
+                                timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+                                listSlot.add( slotToAdd );
+                            }
+                            else
+                            {
+                                timeTemp = timeTemp.plusMinutes( reservationRuleToApply.getDurationAppointments( ) );
+                                if ( timeTemp.isAfter( maxTimeForThisDay ) )
+                                {
+                                    timeTemp = maxTimeForThisDay;
+                                }
+                                listSlot.add( SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacity,
+                                        nMaxCapacity, nMaxCapacity, 0, Boolean.FALSE, Boolean.FALSE ) );
+                            }
+                        }
+                    }
+                dateTemp = dateTemp.plusDays( 1 );
+            }
+            return listSlot;
+        }
+
+        static List<Slot> buildListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate,
+                int nNbPlaces, boolean isAllOpenSlot )
+        {
+            List<Slot> listSlotToShow = new ArrayList<>( );
+            final WeekDefinitionTimeline timeline = WeekDefinitionTimeline.of( mapReservationRule );
+            Map<ReservationRule, CompiledReservationRule> mapCompiledRule = new IdentityHashMap<>( );
+            LocalDateTime localDateTimeNow = LocalDateTime.now( );
+            LocalDateTime startingDateTime = null;
+            boolean isfull = false;
+            LocalDate startingDateToUse = startingDate;
+            final LocalDate firstDateOfReservationRule = timeline.getFirstWeekDefinition( ).getDateOfApply( );
+            if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
+            {
+                startingDateToUse = firstDateOfReservationRule;
+            }
+            ClosingDaySet closingDays = new ClosingDaySet(
+                    ClosingDayService.findListDateOfClosingDayByIdFormAndDateRange( nIdForm, startingDateToUse, endingDate ) );
+            Map<LocalDateTime, Slot> mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm, startingDateToUse.atStartOfDay( ),
+                    endingDate.atTime( LocalTime.MAX ) );
+            LocalDate dateTemp = startingDate;
+            while ( !dateTemp.isAfter( endingDate ) )
+            {
+                ReservationRule reservationRuleToApply = timeline.getReservationRule( dateTemp );
+                CompiledWorkingDay workingDay = ( reservationRuleToApply == null ) ? null
+                        : mapCompiledRule.computeIfAbsent( reservationRuleToApply, CompiledReservationRule::new ).getWorkingDay( dateTemp.getDayOfWeek( ) );
+                if ( workingDay != null && !closingDays.contains( dateTemp ) )
+                {
+                    LocalTime maxTimeForThisDay = workingDay.getMaxEndingTime( );
+                    LocalTime timeTemp = workingDay.getMinStartingTime( );
+                    int sumNbPotentialRemainingPlaces = 0;
+                    int sumNbRemainingPlaces = 0;
+                    int nbSlot = 0;
+                    boolean isChanged = true;
+                    LocalTime tempEndingDateTime = timeTemp;
+                    while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
+                    {
+                        LocalDateTime dateTimeTemp = dateTemp.atTime( timeTemp );
+                        Slot slotToAdd;
+                        if ( isChanged )
+                        {
+                            startingDateTime = dateTimeTemp;
+                            isChanged = false;
+                        }
+                        if ( mapSlot.containsKey( dateTimeTemp ) )
+                        {
+                            slotToAdd = mapSlot.get( dateTimeTemp );
+                            timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
+                        }
+                        else
+                        {
+                            TimeSlot timeSlot = workingDay.getTimeSlot( timeTemp );
+                            if ( timeSlot == null )
+                            {
+                                break;
+                            }
+                            timeTemp = timeSlot.getEndingTime( );
+                            int nMaxCapacityToPut = timeSlot.getMaxCapacity( );
+                            slotToAdd = SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacityToPut,
+                                    nMaxCapacityToPut, nMaxCapacityToPut, 0, timeSlot.getIsOpen( ), Boolean.FALSE );
+                        }
+                        if ( isNewSlot( sumNbPotentialRemainingPlaces, nNbPlaces, slotToAdd, localDateTimeNow, isAllOpenSlot, nbSlot ) )
+                        {
+                            sumNbPotentialRemainingPlaces = 0;
+                            nbSlot = 0;
+                            sumNbRemainingPlaces = 0;
+                            startingDateTime = slotToAdd.getEndingDateTime( );
+                            tempEndingDateTime = slotToAdd.getEndingTime( );
+                        }
+                        else
+                        {
+                            if ( slotToAdd.getNbPotentialRemainingPlaces( ) <= 0 )
+                            {
+                                isfull = true;
+                            }
+                            sumNbPotentialRemainingPlaces = sumNbPotentialRemainingPlaces + 1;
+                            nbSlot = nbSlot + 1;
+                            sumNbRemainingPlaces = sumNbRemainingPlaces + 1;
+                        }
+                        if ( isAllOpenSlot ? nbSlot == nNbPlaces : sumNbPotentialRemainingPlaces >= nNbPlaces )
+                        {
+                            Slot slt = new Slot( );
+                            slt.setStartingDateTime( startingDateTime );
+                            slt.setEndingDateTime( slotToAdd.getEndingDateTime( ) );
+                            slt.setIsOpen( true );
+                            slt.setNbPotentialRemainingPlaces( sumNbPotentialRemainingPlaces );
+                            slt.setNbRemainingPlaces( sumNbRemainingPlaces );
+                            slt.setDate( slotToAdd.getDate( ) );
+                            slt.setIdForm( slotToAdd.getIdForm( ) );
+                            slt.setIsFull( isfull ? 1 : 0 );
+                            listSlotToShow.add( slt );
+                            isChanged = true;
+                            isfull = false;
+                            timeTemp = tempEndingDateTime;
+                        }
+                    }
+                }
+                dateTemp = dateTemp.plusDays( 1 );
+            }
+            return listSlotToShow;
+        }
+
+        private static boolean isNewSlot( int sumNbPotentialRemainingPlaces, int nNbPlaces, Slot slotToAdd, LocalDateTime localDateTimeNow,
+                boolean isAllOpenSlot, int nbSlot )
+        {
+            if ( isAllOpenSlot )
+            {
+                return nbSlot == nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getEndingDateTime( ).isBefore( localDateTimeNow );
+            }
+            return sumNbPotentialRemainingPlaces >= nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getNbPotentialRemainingPlaces( ) <= 0
+                    || slotToAdd.getEndingDateTime( ).isBefore( localDateTimeNow );
+        }
+    }
+}
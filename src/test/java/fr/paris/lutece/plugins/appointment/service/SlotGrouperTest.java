@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the grouping of the consecutive slots, against the previous grouping of the calendar builder
+ */
+public class SlotGrouperTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 1;
+    private static final LocalDate FIRST_DAY = LocalDate.of( 2030, 3, 4 );
+    private static final LocalDateTime NOW = FIRST_DAY.atTime( 10, 0 );
+
+    /**
+     * Test the grouping of consecutive slots
+     */
+    public void testGroup( )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        LocalTime time = LocalTime.of( 11, 0 );
+        for ( int nPlaces : new int [ ] {
+                2, 1, 0, 3, 3, 3
+        } )
+        {
+            listSlot.add( buildSlot( FIRST_DAY, time, 30, nPlaces, true ) );
+            time = time.plusMinutes( 30 );
+        }
+        List<Slot> listGroupedSlot = new ArrayList<>( );
+        new SlotGrouper( 2, false, NOW ).group( listSlot, listGroupedSlot );
+        assertEquals( 3, listGroupedSlot.size( ) );
+        assertEquals( FIRST_DAY.atTime( 11, 0 ), listGroupedSlot.get( 0 ).getStartingDateTime( ) );
+        assertEquals( FIRST_DAY.atTime( 12, 0 ), listGroupedSlot.get( 0 ).getEndingDateTime( ) );
+        assertEquals( FIRST_DAY.atTime( 12, 30 ), listGroupedSlot.get( 1 ).getStartingDateTime( ) );
+        assertEquals( FIRST_DAY.atTime( 13, 30 ), listGroupedSlot.get( 1 ).getEndingDateTime( ) );
+        assertEquals( FIRST_DAY.atTime( 13, 0 ), listGroupedSlot.get( 2 ).getStartingDateTime( ) );
+        assertEquals( 2, listGroupedSlot.get( 2 ).getNbPotentialRemainingPlaces( ) );
+    }
+
+    /**
+     * Test the grouping gives the same grouped slots as the previous algorithm, on random days
+     */
+    public void testGroupSameAsPreviousAlgorithm( )
+    {
+        Random random = new Random( 20301 );
+        for ( int nRun = 0; nRun < 500; nRun++ )
+        {
+            int nNbPlaces = 1 + random.nextInt( 10 );
+            boolean bAllOpenSlot = random.nextBoolean( );
+            SlotGrouper grouper = new SlotGrouper( nNbPlaces, bAllOpenSlot, NOW );
+            PreviousGrouping previous = new PreviousGrouping( nNbPlaces, bAllOpenSlot, NOW );
+            for ( int nDay = 0; nDay < 5; nDay++ )
+            {
+                List<Slot> listSlotOfDay = buildRandomDay( random, FIRST_DAY.plusDays( nDay ) );
+                List<Slot> listExpected = new ArrayList<>( );
+                List<Slot> listActual = new ArrayList<>( );
+                previous.group( listSlotOfDay, listExpected );
+                grouper.group( listSlotOfDay, listActual );
+                assertEquals( toString( listExpected ), toString( listActual ) );
+            }
+        }
+    }
+
+    private static List<Slot> buildRandomDay( Random random, LocalDate date )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        int nDuration = 5 * ( 1 + random.nextInt( 6 ) );
+        LocalTime time = LocalTime.of( 8, 0 ).plusMinutes( 5L * random.nextInt( 12 ) );
+        int nbSlots = random.nextInt( 1 + 12 * 60 / nDuration );
+        for ( int i = 0; i < nbSlots; i++ )
+        {
+            int nPlaces = ( random.nextInt( 5 ) == 0 ) ? 0 : random.nextInt( 4 );
+            listSlot.add( buildSlot( date, time, nDuration, nPlaces, random.nextInt( 10 ) != 0 ) );
+            time = time.plusMinutes( nDuration );
+        }
+        return listSlot;
+    }
+
+    private static Slot buildSlot( LocalDate date, LocalTime time, int nDuration, int nPlaces, boolean bOpen )
+    {
+        Slot slot = new Slot( );
+        slot.setIdForm( ID_FORM );
+        slot.setDate( date );
+        slot.setStartingDateTime( date.atTime( time ) );
+        slot.setEndingDateTime( date.atTime( time.plusMinutes( nDuration ) ) );
+        slot.setNbPotentialRemainingPlaces( nPlaces );
+        slot.setNbRemainingPlaces( nPlaces );
+        slot.setIsOpen( bOpen );
+        return slot;
+    }
+
+    private static String toString( List<Slot> listSlot )
+    {
+        StringBuilder sb = new StringBuilder( );
+        for ( Slot slot : listSlot )
+        {
+            sb.append( slot.getStartingDateTime( ) ).append( '/' ).append( slot.getEndingDateTime( ) ).append( '/' ).append( slot.getDate( ) ).append( '/' )
+                    .append( slot.getNbPotentialRemainingPlaces( ) ).append( '/' ).append( slot.getNbRemainingPlaces( ) ).append( '/' )
+                    .append( slot.getIsOpen( ) ).append( '/' ).append( slot.getIsFull( ) ).append( '\n' );
+        }
+        return sb.toString( );
+    }
+
+    /**
+     * The previous grouping of the calendar builder, walking the slots of the day and going back after each grouped slot
+     */
+    private static final class PreviousGrouping
+    {
+        private final int _nNbPlaces;
+        private final boolean _bAllOpenSlot;
+        private final LocalDateTime _localDateTimeNow;
+        private boolean _isfull;
+
+        PreviousGrouping( int nNbPlaces, boolean bAllOpenSlot, LocalDateTime localDateTimeNow )
+        {
+            _nNbPlaces = nNbPlaces;
+            _bAllOpenSlot = bAllOpenSlot;
+            _localDateTimeNow = localDateTimeNow;
+        }
+
+        void group( List<Slot> listSlotOfDay, List<Slot> listSlotToShow )
+        {
+            if ( listSlotOfDay.isEmpty( ) )
+            {
+                return;
+            }
+            LocalDateTime startingDateTime = null;
+            LocalDateTime tempEndingDateTime = listSlotOfDay.get( 0 ).getStartingDateTime( );
+            boolean isChanged = true;
+            int sumNbPotentialRemainingPlaces = 0;
+            int sumNbRemainingPlaces = 0;
+            int nbSlot = 0;
+            int nIndex = 0;
+            while ( nIndex < listSlotOfDay.size( ) )
+            {
+                Slot slotToAdd = listSlotOfDay.get( nIndex );
+                if ( isChanged )
+                {
+                    startingDateTime = slotToAdd.getStartingDateTime( );
+                    isChanged = false;
+                }
+                nIndex++;
+                if ( isNewSlot( sumNbPotentialRemainingPlaces, slotToAdd, nbSlot ) )
+                {
+                    sumNbPotentialRemainingPlaces = 0;
+                    nbSlot = 0;
+                    sumNbRemainingPlaces = 0;
+                    startingDateTime = slotToAdd.getEndingDateTime( );
+                    tempEndingDateTime = slotToAdd.getEndingDateTime( );
+                }
+                else
+                {
+                    if ( slotToAdd.getNbPotentialRemainingPlaces( ) <= 0 )
+                    {
+                        _isfull = true;
+                    }
+                    sumNbPotentialRemainingPlaces = sumNbPotentialRemainingPlaces + 1;
+                    nbSlot = nbSlot + 1;
+                    sumNbRemainingPlaces = sumNbRemainingPlaces + 1;
+                }
+                if ( _bAllOpenSlot ? nbSlot == _nNbPlaces : sumNbPotentialRemainingPlaces >= _nNbPlaces )
+                {
+                    Slot slt = new Slot( );
+                    slt.setStartingDateTime( startingDateTime );
+                    slt.setEndingDateTime( slotToAdd.getEndingDateTime( ) );
+                    slt.setIsOpen( true );
+                    slt.setNbPotentialRemainingPlaces( sumNbPotentialRemainingPlaces );
+                    slt.setNbRemainingPlaces( sumNbRemainingPlaces );
+                    slt.setDate( slotToAdd.getDate( ) );
+                    slt.setIdForm( slotToAdd.getIdForm( ) );
+                    slt.setIsFull( _isfull ? 1 : 0 );
+                    listSlotToShow.add( slt );
+                    isChanged = true;
+                    _isfull = false;
+                    // Go back to the slot starting at the ending time of the last reset
+                    nIndex = listSlotOfDay.size( );
+                    for ( int i = 0; i < listSlotOfDay.size( ); i++ )
+                    {
+                        if ( listSlotOfDay.get( i ).getStartingDateTime( ).equals( tempEndingDateTime ) )
+                        {
+                            nIndex = i;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean isNewSlot( int sumNbPotentialRemainingPlaces, Slot slotToAdd, int nbSlot )
+        {
+            if ( _bAllOpenSlot )
+            {
+                return nbSlot == _nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getEndingDateTime( ).isBefore( _localDateTimeNow );
+            }
+            return sumNbPotentialRemainingPlaces >= _nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getNbPotentialRemainingPlaces( ) <= 0
+                    || slotToAdd.getEndingDateTime( ).isBefore( _localDateTimeNow );
+        }
+    }
+}
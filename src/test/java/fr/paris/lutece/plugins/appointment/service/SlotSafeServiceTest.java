@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.paris.lutece.plugins.appointment.business.FormTest;
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotSafeService
+ */
+public class SlotSafeServiceTest extends LuteceTestCase
+{
+    private static final int NB_ROUNDS = 50;
+
+    /**
+     * Cancel an appointment of a full slot while another user books the slot with a conditional update: no place must be lost nor oversold
+     * 
+     * @throws Exception
+     */
+    public void testCancelAlongsideAtomicBooking( ) throws Exception
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        LocalDateTime startingDateTime = LocalDateTime.now( ).plusDays( 1 );
+        // A full slot of 2 places
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), startingDateTime, startingDateTime.plusMinutes( 30 ), 0, 0, 2, 2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+        int nIdSlot = slot.getIdSlot( );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            for ( int i = 0; i < NB_ROUNDS; i++ )
+            {
+                CyclicBarrier barrier = new CyclicBarrier( 2 );
+                Future<Void> cancel = executor.submit( ( ) -> {
+                    barrier.await( );
+                    SlotSafeService.updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( 1, nIdSlot );
+                    return null;
+                } );
+                Future<Boolean> booking = executor.submit( ( ) -> {
+                    barrier.await( );
+                    return SlotHome.takePlaces( nIdSlot, 1, 0, true );
+                } );
+                cancel.get( );
+                boolean bBooked = booking.get( );
+
+                Slot slotStored = SlotHome.findByPrimaryKey( nIdSlot );
+                assertEquals( 2, slotStored.getMaxCapacity( ) );
+                assertEquals( 2, slotStored.getNbPlacesTaken( ) + slotStored.getNbRemainingPlaces( ) );
+                assertEquals( bBooked ? 2 : 1, slotStored.getNbPlacesTaken( ) );
+                if ( !bBooked )
+                {
+                    // The booking has been tried before the cancellation: the place given back can be taken now
+                    assertTrue( SlotHome.takePlaces( nIdSlot, 1, 0, true ) );
+                }
+                slotStored = SlotHome.findByPrimaryKey( nIdSlot );
+                assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+                assertEquals( 2, slotStored.getNbPlacesTaken( ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+            SlotHome.delete( nIdSlot );
+            FormHome.delete( form.getIdForm( ) );
+        }
+    }
+}
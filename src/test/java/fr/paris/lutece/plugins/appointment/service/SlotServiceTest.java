@@ -153,4 +153,42 @@ public class SlotServiceTest extends LuteceTestCase
         assertEquals( 177, listSlots.stream( ).filter( s -> s.getIsOpen( ) ).collect( Collectors.toList( ) ).size( ) );
         FormServiceTest.cleanForm( nIdForm );
     }
+
+    /**
+     * Test the search of the first available slot: closed and full slots are skipped, and the search stops at the end of the display of the form
+     */
+    public void testFindFirstAvailableSlot( )
+    {
+        // Build the form
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setName( "appointment_form" );
+        appointmentForm.setDateStartValidity( Date.valueOf( _nextMonday ) );
+        appointmentForm.setDateEndValidity( Date.valueOf( _nextMonday.plusYears( 1 ) ) );
+        appointmentForm.setNbWeeksToDisplay( 2 );
+        int nIdForm = FormService.createAppointmentForm( appointmentForm );
+
+        Slot slot = SlotService.findFirstAvailableSlot( nIdForm, _nextMonday.atStartOfDay( ), 1 );
+        assertNotNull( slot );
+        assertEquals( _nextMonday.atTime( 9, 0 ), slot.getStartingDateTime( ) );
+
+        // A closed slot and a full slot are skipped
+        SlotService.saveSlot( SlotTest.buildSlot( nIdForm, _nextMonday.atTime( 9, 0 ), _nextMonday.atTime( 9, 30 ), 3, 3, 0, 3, Boolean.FALSE, Boolean.TRUE ) );
+        SlotService.saveSlot( SlotTest.buildSlot( nIdForm, _nextMonday.atTime( 9, 30 ), _nextMonday.atTime( 10, 0 ), 0, 0, 3, 3, Boolean.TRUE, Boolean.FALSE ) );
+        slot = SlotService.findFirstAvailableSlot( nIdForm, _nextMonday.atStartOfDay( ), 1 );
+        assertNotNull( slot );
+        assertEquals( _nextMonday.atTime( 10, 0 ), slot.getStartingDateTime( ) );
+
+        // The slots must start after the given date time
+        slot = SlotService.findFirstAvailableSlot( nIdForm, _nextMonday.atTime( 12, 10 ), 1 );
+        assertNotNull( slot );
+        assertEquals( _nextMonday.atTime( 12, 30 ), slot.getStartingDateTime( ) );
+
+        // No slot has enough places
+        assertNull( SlotService.findFirstAvailableSlot( nIdForm, _nextMonday.atStartOfDay( ), 4 ) );
+
+        // The form is valid, but the day is after the display of the calendar
+        assertNull( SlotService.findFirstAvailableSlot( nIdForm, _nextMonday.plusWeeks( 3 ).atStartOfDay( ), 1 ) );
+
+        FormServiceTest.cleanForm( nIdForm );
+    }
 }
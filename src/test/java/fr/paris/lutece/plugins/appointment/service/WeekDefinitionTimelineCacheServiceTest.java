@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the cache of the timelines of the week definitions of the forms
+ */
+public class WeekDefinitionTimelineCacheServiceTest extends LuteceTestCase
+{
+    private final LocalDate _firstMonday = LocalDate.now( ).with( TemporalAdjusters.next( DayOfWeek.MONDAY ) );
+    private final LocalDate _startOfSecondWeek = _firstMonday.plusWeeks( 2 );
+    private final LocalDate _endOfSecondWeek = _firstMonday.plusWeeks( 3 ).minusDays( 1 );
+
+    /**
+     * Test that the timeline is built again and kept in the cache when a week is assigned and when the listeners are notified of a change
+     */
+    public void testRebuildOnChange( )
+    {
+        int nIdForm = createForm( );
+        try
+        {
+            WeekDefinitionTimeline timeline = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+            assertEquals( 1, timeline.getWeekDefinitions( ).size( ) );
+            assertSame( timeline, WeekDefinitionTimelineCacheService.getTimeline( nIdForm ) );
+
+            // Assignment of a week: the timeline is replaced by a timeline containing the week, which is not removed by the notification of the listeners
+            int nIdReservationRule = assignSecondWeek( nIdForm );
+            WeekDefinitionTimeline timelineAssigned = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+            assertNotSame( timeline, timelineAssigned );
+            assertEquals( 3, timelineAssigned.getWeekDefinitions( ).size( ) );
+            assertEquals( nIdReservationRule, timelineAssigned.getWeekDefinition( _startOfSecondWeek ).getIdReservationRule( ) );
+            assertSame( timelineAssigned, WeekDefinitionTimelineCacheService.getTimeline( nIdForm ) );
+
+            // Change of the list of the weeks notified to the listeners
+            WeekDefinitionManagerListener.notifyListenersListWeekDefinitionChanged( nIdForm, WeekDefinitionService.findListWeekDefinition( nIdForm ) );
+            WeekDefinitionTimeline timelineChanged = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+            assertNotSame( timelineAssigned, timelineChanged );
+            assertEquals( 3, timelineChanged.getWeekDefinitions( ).size( ) );
+            assertSame( timelineChanged, WeekDefinitionTimelineCacheService.getTimeline( nIdForm ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test that the invalidation of the timeline of a form keeps the timelines of the other forms
+     */
+    public void testInvalidateForm( )
+    {
+        int nIdForm = createForm( );
+        int nIdOtherForm = createForm( );
+        try
+        {
+            WeekDefinitionTimeline timeline = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+            WeekDefinitionTimeline timelineOther = WeekDefinitionTimelineCacheService.getTimeline( nIdOtherForm );
+
+            WeekDefinitionTimelineCacheService.invalidate( nIdForm );
+            WeekDefinitionTimeline timelineLoaded = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+            assertNotSame( timeline, timelineLoaded );
+            assertEquals( timeline.getWeekDefinitions( ).size( ), timelineLoaded.getWeekDefinitions( ).size( ) );
+            assertSame( timelineLoaded, WeekDefinitionTimelineCacheService.getTimeline( nIdForm ) );
+            assertSame( timelineOther, WeekDefinitionTimelineCacheService.getTimeline( nIdOtherForm ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdOtherForm );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Test the closest, exact date, next and period lookups of the week definition service, answered by the cached timeline
+     */
+    public void testLookups( )
+    {
+        int nIdForm = createForm( );
+        try
+        {
+            int nIdReservationRule = assignSecondWeek( nIdForm );
+            WeekDefinitionTimeline timeline = WeekDefinitionTimelineCacheService.getTimeline( nIdForm );
+
+            // Closest week: the previous date of apply, or the first week if there is none
+            assertEquals( _firstMonday, WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, _firstMonday.minusDays( 10 ) )
+                    .getDateOfApply( ) );
+            assertEquals( _firstMonday, WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, _startOfSecondWeek.minusDays( 1 ) )
+                    .getDateOfApply( ) );
+            WeekDefinition weekDefinition = WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm,
+                    _startOfSecondWeek.plusDays( 3 ) );
+            assertEquals( _startOfSecondWeek, weekDefinition.getDateOfApply( ) );
+            assertEquals( nIdReservationRule, weekDefinition.getIdReservationRule( ) );
+            assertEquals( _endOfSecondWeek.plusDays( 1 ),
+                    WeekDefinitionService.findWeekDefinitionByIdFormAndClosestToDateOfApply( nIdForm, _firstMonday.plusWeeks( 5 ) ).getDateOfApply( ) );
+
+            // Exact date of apply
+            assertEquals( nIdReservationRule,
+                    WeekDefinitionService.findWeekDefinitionByIdFormAndDateOfApply( nIdForm, _startOfSecondWeek ).getIdReservationRule( ) );
+            assertNull( WeekDefinitionService.findWeekDefinitionByIdFormAndDateOfApply( nIdForm, _startOfSecondWeek.plusDays( 1 ) ) );
+
+            // Next week: strictly after the date
+            assertEquals( _startOfSecondWeek, WeekDefinitionService.findNextWeekDefinition( nIdForm, _firstMonday ).getDateOfApply( ) );
+            assertEquals( _endOfSecondWeek.plusDays( 1 ), WeekDefinitionService.findNextWeekDefinition( nIdForm, _startOfSecondWeek ).getDateOfApply( ) );
+            assertNull( WeekDefinitionService.findNextWeekDefinition( nIdForm, _endOfSecondWeek.plusDays( 1 ) ).getDateOfApply( ) );
+
+            // Weeks overlapping a period
+            List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findWeekDefinitionByDateOfApply( nIdForm, _firstMonday.plusWeeks( 1 ),
+                    _startOfSecondWeek );
+            assertEquals( 2, listWeekDefinition.size( ) );
+            assertEquals( _firstMonday, listWeekDefinition.get( 0 ).getDateOfApply( ) );
+            assertEquals( _startOfSecondWeek, listWeekDefinition.get( 1 ).getDateOfApply( ) );
+            listWeekDefinition = WeekDefinitionService.findWeekDefinitionByDateOfApply( nIdForm, _startOfSecondWeek.plusDays( 1 ), _endOfSecondWeek );
+            assertEquals( 1, listWeekDefinition.size( ) );
+            assertEquals( nIdReservationRule, listWeekDefinition.get( 0 ).getIdReservationRule( ) );
+            assertEquals( 3, WeekDefinitionService.findWeekDefinitionByDateOfApply( nIdForm, _firstMonday.minusDays( 10 ), _firstMonday.plusYears( 2 ) )
+                    .size( ) );
+
+            // The week definitions returned are copies, and the lookups do not load the timeline again
+            weekDefinition.setDateOfApply( _firstMonday.minusDays( 10 ) );
+            assertEquals( _startOfSecondWeek, timeline.getWeekDefinition( _startOfSecondWeek ).getDateOfApply( ) );
+            assertSame( timeline, WeekDefinitionTimelineCacheService.getTimeline( nIdForm ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Create a form with one week definition from the first monday to one year later
+     * 
+     * @return the id of the form
+     */
+    private int createForm( )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setDateStartValidity( Date.valueOf( _firstMonday ) );
+        appointmentForm.setDateEndValidity( Date.valueOf( _firstMonday.plusYears( 1 ) ) );
+        return FormService.createAppointmentForm( appointmentForm );
+    }
+
+    /**
+     * Assign a new typical week to the second week of a form, which cuts its week definition in three
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the id of the reservation rule of the new typical week
+     */
+    private int assignSecondWeek( int nIdForm )
+    {
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setIdForm( nIdForm );
+        appointmentForm.setTimeStart( "10:00" );
+        int nIdReservationRule = ReservationRuleService.createTypicalWeek( appointmentForm );
+        WeekDefinition weekDefinition = new WeekDefinition( );
+        WeekDefinitionService.fillInWeekDefinition( weekDefinition, nIdReservationRule, _startOfSecondWeek, _endOfSecondWeek );
+        WeekDefinitionService.assignWeekDefinition( nIdForm, weekDefinition );
+        return nIdReservationRule;
+    }
+}
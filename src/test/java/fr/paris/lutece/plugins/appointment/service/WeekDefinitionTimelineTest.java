@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the timeline of the week definitions of a form
+ */
+public class WeekDefinitionTimelineTest extends LuteceTestCase
+{
+    /**
+     * Test the lookups of the timeline give the same week definitions as a scan of all the weeks
+     */
+    public void testLookups( )
+    {
+        // A week definition every other week, of one week, over a year
+        LocalDate startingDate = LocalDate.parse( "2030-01-07" );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
+        List<WeekDefinition> listWeek = new ArrayList<>( );
+        for ( int nWeek = 0; nWeek < 52; nWeek += 2 )
+        {
+            WeekDefinition weekDefinition = new WeekDefinition( );
+            weekDefinition.setIdReservationRule( nWeek + 1 );
+            weekDefinition.setDateOfApply( startingDate.plusWeeks( nWeek ) );
+            weekDefinition.setEndingDateOfApply( startingDate.plusWeeks( nWeek ).plusDays( 6 ) );
+            ReservationRule reservationRule = new ReservationRule( );
+            reservationRule.setIdReservationRule( nWeek + 1 );
+            mapReservationRule.put( weekDefinition, reservationRule );
+            listWeek.add( weekDefinition );
+        }
+        WeekDefinitionTimeline timeline = WeekDefinitionTimeline.of( mapReservationRule );
+        assertEquals( startingDate, timeline.getFirstWeekDefinition( ).getDateOfApply( ) );
+
+        for ( LocalDate date = startingDate.minusDays( 10 ); date.isBefore( startingDate.plusYears( 1 ) ); date = date.plusDays( 1 ) )
+        {
+            WeekDefinition expected = Utilities.getClosestWeekDefinitionInPast( listWeek, date );
+            assertEquals( expected, timeline.getWeekDefinition( date ) );
+            ReservationRule reservationRule = timeline.getReservationRule( date );
+            assertEquals( expected == null ? 0 : expected.getIdReservationRule( ), reservationRule == null ? 0 : reservationRule.getIdReservationRule( ) );
+        }
+
+        // Closest week in the past, whatever its ending date, or the first week
+        assertEquals( startingDate, timeline.getClosestWeekDefinition( startingDate.minusDays( 3 ) ).getDateOfApply( ) );
+        assertEquals( startingDate.plusWeeks( 2 ), timeline.getClosestWeekDefinition( startingDate.plusWeeks( 3 ) ).getDateOfApply( ) );
+
+        // Overlapping weeks
+        List<WeekDefinition> listOverlapping = timeline.getWeekDefinitions( startingDate.plusDays( 3 ), startingDate.plusWeeks( 2 ) );
+        assertEquals( 2, listOverlapping.size( ) );
+        assertEquals( startingDate, listOverlapping.get( 0 ).getDateOfApply( ) );
+        assertTrue( timeline.getWeekDefinitions( startingDate.plusWeeks( 1 ), startingDate.plusWeeks( 1 ).plusDays( 6 ) ).isEmpty( ) );
+        assertTrue( WeekDefinitionTimeline.of( new ArrayList<>( ) ).isEmpty( ) );
+
+        // Next week after a date, and all the weeks sorted by date of apply
+        assertEquals( startingDate.plusWeeks( 2 ), timeline.getNextWeekDefinition( startingDate ).getDateOfApply( ) );
+        assertEquals( startingDate, timeline.getNextWeekDefinition( startingDate.minusDays( 1 ) ).getDateOfApply( ) );
+        assertNull( timeline.getNextWeekDefinition( startingDate.plusWeeks( 50 ) ) );
+        assertEquals( listWeek.size( ), timeline.getWeekDefinitions( ).size( ) );
+        assertEquals( startingDate, timeline.getWeekDefinitions( ).iterator( ).next( ).getDateOfApply( ) );
+    }
+}
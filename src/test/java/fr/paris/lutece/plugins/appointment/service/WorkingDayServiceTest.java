@@ -39,6 +39,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
@@ -217,6 +218,34 @@ public class WorkingDayServiceTest extends LuteceTestCase
         FormServiceTest.cleanForm( nIdForm );
     }
 
+    /**
+     * Find the working days of all the reservation rules of a form in one load
+     */
+    public void testFindMapListWorkingDayByIdForm( )
+    {
+        // Build the form
+        AppointmentFormDTO appointmentForm = FormServiceTest.buildAppointmentForm( );
+        appointmentForm.setName( "appointment_form" );
+        int nIdForm = FormService.createAppointmentForm( appointmentForm );
+
+        Map<Integer, List<WorkingDay>> mapListWorkingDay = WorkingDayService.findMapListWorkingDayByIdForm( nIdForm );
+        List<ReservationRule> listReservationRule = ReservationRuleHome.findByIdForm( nIdForm );
+        assertEquals( listReservationRule.size( ), mapListWorkingDay.size( ) );
+        for ( ReservationRule reservationRule : listReservationRule )
+        {
+            List<WorkingDay> listWorkingDay = WorkingDayService.findListWorkingDayByWeekDefinitionRule( reservationRule.getIdReservationRule( ) );
+            List<WorkingDay> listWorkingDayOfForm = mapListWorkingDay.get( reservationRule.getIdReservationRule( ) );
+            assertEquals( listWorkingDay.size( ), listWorkingDayOfForm.size( ) );
+            for ( int i = 0; i < listWorkingDay.size( ); i++ )
+            {
+                assertEquals( listWorkingDay.get( i ).getIdWorkingDay( ), listWorkingDayOfForm.get( i ).getIdWorkingDay( ) );
+                assertEquals( TimeSlotService.findListTimeSlotByWorkingDay( listWorkingDay.get( i ).getIdWorkingDay( ) ).size( ),
+                        listWorkingDayOfForm.get( i ).getListTimeSlot( ).size( ) );
+            }
+        }
+        FormServiceTest.cleanForm( nIdForm );
+    }
+
     /**
      * Get the open days of an appointmentForm DTO
      */
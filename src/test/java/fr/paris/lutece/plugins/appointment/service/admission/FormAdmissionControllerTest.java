@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the admission controller of a form
+ */
+public class FormAdmissionControllerTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 987654;
+
+    /**
+     * Test the tickets are admitted in their order, at the admission rate
+     */
+    public void testWaitingRoom( ) throws Exception
+    {
+        FormAdmissionController controller = new FormAdmissionController( ID_FORM, 2, 0 );
+        assertTrue( controller.isLimited( ) );
+        // The bucket is full at the start: one second of admissions
+        long lTicket1 = controller.issueTicket( );
+        long lTicket2 = controller.issueTicket( );
+        long lTicket3 = controller.issueTicket( );
+        long lTicket4 = controller.issueTicket( );
+        assertEquals( 0, controller.getPosition( lTicket1 ) );
+        assertEquals( 0, controller.getPosition( lTicket2 ) );
+        assertEquals( 1, controller.getPosition( lTicket3 ) );
+        assertEquals( 2, controller.getPosition( lTicket4 ) );
+        assertEquals( 2, controller.getQueueDepth( ) );
+        assertEquals( 1, controller.getEstimatedWait( controller.getPosition( lTicket4 ) ) );
+
+        Thread.sleep( 1100 );
+        assertEquals( 0, controller.getPosition( lTicket4 ) );
+        assertEquals( 0, controller.getQueueDepth( ) );
+        assertEquals( 4, controller.getNbAdmitted( ) );
+
+        // Without admission rate, every ticket is admitted
+        controller.setLimits( 0, 0 );
+        assertFalse( controller.isLimited( ) );
+        assertEquals( 0, controller.getPosition( controller.issueTicket( ) ) );
+    }
+
+    /**
+     * Test the limit of requests processed at the same time
+     */
+    public void testConcurrentRequests( )
+    {
+        FormAdmissionController controller = new FormAdmissionController( ID_FORM, 0, 2 );
+        assertTrue( controller.enter( ) );
+        assertTrue( controller.enter( ) );
+        assertFalse( controller.enter( ) );
+        controller.exit( );
+        assertTrue( controller.enter( ) );
+        assertEquals( 2, controller.getNbActiveRequests( ) );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the availability feed of the calendar
+ */
+public class AvailabilityFeedServiceTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 987655;
+    private static final LocalDate STARTING_DATE = LocalDate.of( 2030, 1, 7 );
+    private static final LocalDate ENDING_DATE = STARTING_DATE.plusDays( 6 );
+
+    /**
+     * Test the ETag changes with the availability version of the form and the parameters of the feed
+     */
+    public void testETag( )
+    {
+        String strETag = AvailabilityFeedService.getETag( ID_FORM, STARTING_DATE, ENDING_DATE, 0 );
+        assertTrue( strETag.startsWith( "\"" ) && strETag.endsWith( "\"" ) );
+        assertEquals( strETag, AvailabilityFeedService.getETag( ID_FORM, STARTING_DATE, ENDING_DATE, 0 ) );
+        assertFalse( strETag.equals( AvailabilityFeedService.getETag( ID_FORM, STARTING_DATE, ENDING_DATE, 2 ) ) );
+        assertFalse( strETag.equals( AvailabilityFeedService.getETag( ID_FORM, STARTING_DATE.plusWeeks( 1 ), ENDING_DATE.plusWeeks( 1 ), 0 ) ) );
+
+        AvailabilityGridService.invalidate( ID_FORM, STARTING_DATE, STARTING_DATE );
+        String strNewETag = AvailabilityFeedService.getETag( ID_FORM, STARTING_DATE, ENDING_DATE, 0 );
+        assertFalse( strETag.equals( strNewETag ) );
+    }
+
+    /**
+     * Test the JSON of a feed
+     */
+    public void testToJson( )
+    {
+        Slot slot = new Slot( );
+        slot.setIdSlot( 12 );
+        slot.setStartingDateTime( LocalDateTime.of( 2030, 1, 7, 9, 0 ) );
+        slot.setEndingDateTime( LocalDateTime.of( 2030, 1, 7, 9, 30 ) );
+        slot.setIsOpen( true );
+        slot.setMaxCapacity( 2 );
+        slot.setNbRemainingPlaces( 2 );
+        slot.setNbPotentialRemainingPlaces( 1 );
+        String strJson = AvailabilityFeedService.toJson( ID_FORM, STARTING_DATE, ENDING_DATE, null, 0, Arrays.asList( slot ) );
+        assertEquals( "{\"idForm\":987655,\"startingDate\":\"2030-01-07\",\"endingDate\":\"2030-01-13\",\"nextStartingDate\":null,\"nbPlacesToTake\":0,"
+                + "\"slots\":[{\"idSlot\":12,\"startingDateTime\":\"2030-01-07T09:00\",\"endingDateTime\":\"2030-01-07T09:30\",\"isOpen\":true,"
+                + "\"maxCapacity\":2,\"nbRemainingPlaces\":2,\"nbPotentialRemainingPlaces\":1}]}", strJson );
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.SlotFilter;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the availability grid of a form
+ */
+public class AvailabilityGridTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 987654;
+    private static final LocalDate STARTING_DATE = LocalDate.of( 2030, 1, 7 );
+
+    /**
+     * Test the days are stored, read, updated and invalidated
+     */
+    public void testGrid( )
+    {
+        AvailabilityGrid grid = new AvailabilityGrid( ID_FORM, STARTING_DATE, 14 );
+        assertTrue( grid.covers( STARTING_DATE, STARTING_DATE.plusDays( 13 ) ) );
+        assertFalse( grid.covers( STARTING_DATE.minusDays( 1 ), STARTING_DATE ) );
+        assertFalse( grid.covers( STARTING_DATE, STARTING_DATE.plusDays( 14 ) ) );
+        assertNull( grid.getDay( STARTING_DATE, 0 ) );
+
+        long lVersion = grid.getVersion( );
+        assertTrue( grid.putDays( STARTING_DATE, STARTING_DATE.plusDays( 2 ), buildSlots( STARTING_DATE, 3, 5 ), lVersion, 1000 ) );
+        assertEquals( 3, grid.getNbDaysBuilt( ) );
+        assertEquals( 5, grid.getDay( STARTING_DATE.plusDays( 1 ), 0 ).size( ) );
+        assertNull( grid.getDay( STARTING_DATE.plusDays( 3 ), 0 ) );
+        // Too old
+        assertNull( grid.getDay( STARTING_DATE, 2000 ) );
+
+        // A booked slot replaces its version of the grid
+        Slot slot = buildSlot( STARTING_DATE.plusDays( 1 ), 2 );
+        slot.setNbPotentialRemainingPlaces( 0 );
+        grid.updateSlot( slot );
+        assertEquals( 0, grid.getDay( STARTING_DATE.plusDays( 1 ), 0 ).getNbPotentialRemainingPlaces( 2 ) );
+        assertEquals( 1, grid.getDay( STARTING_DATE.plusDays( 1 ), 0 ).getNbPotentialRemainingPlaces( 1 ) );
+
+        // A slot with new bounds invalidates its day
+        Slot slotLonger = buildSlot( STARTING_DATE, 0 );
+        slotLonger.setEndingDateTime( slotLonger.getEndingDateTime( ).plusMinutes( 10 ) );
+        grid.updateSlot( slotLonger );
+        assertNull( grid.getDay( STARTING_DATE, 0 ) );
+
+        // A build started before a change is not stored
+        assertFalse( grid.putDays( STARTING_DATE, STARTING_DATE, buildSlots( STARTING_DATE, 1, 5 ), lVersion, 1000 ) );
+
+        grid.invalidate( STARTING_DATE.minusDays( 10 ), STARTING_DATE.plusDays( 1 ) );
+        assertEquals( 1, grid.getNbDaysBuilt( ) );
+        grid.invalidate( STARTING_DATE.plusDays( 2 ), STARTING_DATE.plusDays( 30 ) );
+        assertEquals( 0, grid.getNbDaysBuilt( ) );
+    }
+
+    /**
+     * Test the slots are the same once packed and read
+     */
+    public void testPackedSlots( )
+    {
+        Slot slot = buildSlot( STARTING_DATE, 3 );
+        slot.setIdSlot( 42 );
+        slot.setMaxCapacity( 5 );
+        slot.setNbRemainingPlaces( 4 );
+        slot.setNbPotentialRemainingPlaces( 3 );
+        slot.setNbPlacestaken( 1 );
+        slot.setIsOpen( true );
+        slot.setIsSpecific( true );
+        slot.setIsFull( 1 );
+        PackedSlots packedSlots = PackedSlots.of( Arrays.asList( buildSlot( STARTING_DATE, 0 ), slot ) );
+        assertEquals( 2, packedSlots.size( ) );
+        assertEquals( 1, packedSlots.indexOf( slot.getStartingDateTime( ), slot.getEndingDateTime( ) ) );
+        assertEquals( -1, packedSlots.indexOf( slot.getStartingDateTime( ), slot.getEndingDateTime( ).plusMinutes( 1 ) ) );
+
+        Slot slotRead = packedSlots.toSlot( 1, ID_FORM );
+        assertEquals( 42, slotRead.getIdSlot( ) );
+        assertEquals( ID_FORM, slotRead.getIdForm( ) );
+        assertEquals( slot.getStartingDateTime( ), slotRead.getStartingDateTime( ) );
+        assertEquals( slot.getEndingDateTime( ), slotRead.getEndingDateTime( ) );
+        assertEquals( STARTING_DATE, slotRead.getDate( ) );
+        assertEquals( LocalTime.of( 10, 30 ), slotRead.getStartingTime( ) );
+        assertEquals( LocalTime.of( 11, 0 ), slotRead.getEndingTime( ) );
+        assertEquals( 5, slotRead.getMaxCapacity( ) );
+        assertEquals( 4, slotRead.getNbRemainingPlaces( ) );
+        assertEquals( 3, slotRead.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 1, slotRead.getNbPlacesTaken( ) );
+        assertTrue( slotRead.getIsOpen( ) );
+        assertTrue( slotRead.getIsSpecific( ) );
+        assertFalse( slotRead.getIsPassed( ) );
+        assertTrue( slotRead.getIsFull( ) );
+        assertFalse( packedSlots.toSlot( 0, ID_FORM ).getIsFull( ) );
+
+        // The filters are checked on the packed slots as on the slots
+        SlotFilter filter = SlotFilter.available( slot.getStartingDateTime( ).minusSeconds( 1 ), 3 );
+        assertTrue( packedSlots.accept( 1, filter ) );
+        assertFalse( packedSlots.accept( 0, filter ) );
+        filter.setMinStartingDateTime( slot.getStartingDateTime( ) );
+        assertFalse( packedSlots.accept( 1, filter ) );
+        assertEquals( filter.accept( slotRead ), packedSlots.accept( 1, filter ) );
+        filter.setMinStartingDateTime( null );
+        filter.setMinPotentialRemainingPlaces( 4 );
+        assertFalse( packedSlots.accept( 1, filter ) );
+
+        // A slot not on an exact minute is not packed
+        slot.setEndingDateTime( slot.getEndingDateTime( ).plusSeconds( 30 ) );
+        assertNull( PackedSlots.of( Arrays.asList( slot ) ) );
+    }
+
+    /**
+     * Build the slots of consecutive days
+     * 
+     * @param startingDate
+     *            the first day
+     * @param nbDays
+     *            the number of days
+     * @param nbSlotsPerDay
+     *            the number of slots per day
+     * @return the slots
+     */
+    private static List<Slot> buildSlots( LocalDate startingDate, int nbDays, int nbSlotsPerDay )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        for ( int nDay = 0; nDay < nbDays; nDay++ )
+        {
+            for ( int nSlot = 0; nSlot < nbSlotsPerDay; nSlot++ )
+            {
+                listSlot.add( buildSlot( startingDate.plusDays( nDay ), nSlot ) );
+            }
+        }
+        return listSlot;
+    }
+
+    /**
+     * Build a slot of 30 minutes with one place
+     * 
+     * @param date
+     *            the day of the slot
+     * @param nSlot
+     *            the index of the slot in the day, from 9:00
+     * @return the slot
+     */
+    private static Slot buildSlot( LocalDate date, int nSlot )
+    {
+        Slot slot = new Slot( );
+        slot.setIdForm( ID_FORM );
+        slot.setStartingDateTime( date.atTime( LocalTime.of( 9, 0 ).plusMinutes( 30L * nSlot ) ) );
+        slot.setEndingDateTime( slot.getStartingDateTime( ).plusMinutes( 30 ) );
+        slot.setNbPotentialRemainingPlaces( 1 );
+        return slot;
+    }
+}
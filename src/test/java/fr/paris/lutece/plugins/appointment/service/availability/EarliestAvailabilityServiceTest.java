@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.availability;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the search of the earliest available slots across the forms
+ */
+public class EarliestAvailabilityServiceTest extends LuteceTestCase
+{
+    /**
+     * Test the distance between two points
+     */
+    public void testComputeDistance( )
+    {
+        // Paris - Lyon
+        double dDistance = EarliestAvailabilityService.computeDistance( 48.8566, 2.3522, 45.7640, 4.8357 );
+        assertTrue( dDistance > 390 && dDistance < 393 );
+        assertEquals( 0.0, EarliestAvailabilityService.computeDistance( 48.8566, 2.3522, 48.8566, 2.3522 ), 0.0001 );
+    }
+
+    /**
+     * Test a search without slot to find
+     */
+    public void testFindNoSlot( )
+    {
+        assertTrue( EarliestAvailabilityService.findEarliestSlots( null, null, null, null, 0 ).isEmpty( ) );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the timing wheel of the slot holds
+ */
+public class SlotHoldTimingWheelTest extends LuteceTestCase
+{
+    private static final long TICK_DURATION = 1000;
+    private static final long START_TIME = 1_000_000;
+
+    /**
+     * Test the expiry of the tasks at their tick, on all the levels of the wheel
+     */
+    public void testAdvance( )
+    {
+        SlotHoldTimingWheel wheel = new SlotHoldTimingWheel( TICK_DURATION, START_TIME );
+        long [ ] delays = {
+                1, 63, 64, 65, 4095, 4096, 4097, 300_000, 16_777_300
+        };
+        for ( long lDelay : delays )
+        {
+            wheel.schedule( buildTask( "token-" + lDelay ), START_TIME + lDelay * TICK_DURATION );
+        }
+        assertEquals( delays.length, wheel.size( ) );
+
+        for ( long lDelay : delays )
+        {
+            // Nothing expires before the tick of the task
+            assertTrue( wheel.advance( START_TIME + ( lDelay - 1 ) * TICK_DURATION ).isEmpty( ) );
+            List<SlotEditTask> listExpired = wheel.advance( START_TIME + lDelay * TICK_DURATION );
+            assertEquals( 1, listExpired.size( ) );
+            assertEquals( "token-" + lDelay, listExpired.get( 0 ).getToken( ) );
+        }
+        assertEquals( 0, wheel.size( ) );
+    }
+
+    /**
+     * Test the tasks of the same tick expire together, and the cancelled ones never expire
+     */
+    public void testCancel( )
+    {
+        SlotHoldTimingWheel wheel = new SlotHoldTimingWheel( TICK_DURATION, START_TIME );
+        long lExpiryTime = START_TIME + 300 * TICK_DURATION;
+        for ( int i = 0; i < 10; i++ )
+        {
+            wheel.schedule( buildTask( "token-" + i ), lExpiryTime - i );
+        }
+        assertNotNull( wheel.cancel( "token-0" ) );
+        assertNotNull( wheel.cancel( "token-5" ) );
+        assertNull( wheel.cancel( "token-5" ) );
+
+        List<SlotEditTask> listExpired = wheel.advance( lExpiryTime );
+        assertEquals( 8, listExpired.size( ) );
+        assertTrue( listExpired.stream( ).noneMatch( t -> t.getToken( ).equals( "token-0" ) || t.getToken( ).equals( "token-5" ) ) );
+
+        // A task already expired is scheduled on the next tick
+        wheel.schedule( buildTask( "token-late" ), START_TIME );
+        assertEquals( 1, wheel.advance( lExpiryTime + TICK_DURATION ).size( ) );
+    }
+
+    /**
+     * Build a task on a hold
+     * 
+     * @param strToken
+     *            the token of the hold
+     * @return the task
+     */
+    private SlotEditTask buildTask( String strToken )
+    {
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setToken( strToken );
+        slotHold.setIdSlot( 1 );
+        slotHold.setNbPlaces( 1 );
+        return new SlotEditTask( slotHold );
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Test class for the slot lock providers
+ */
+public class SlotLockProviderTest extends LuteceTestCase
+{
+    private static final int ID_SLOT = 987654;
+    private static final int ID_FORM = 987654;
+
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor( );
+
+    @Override
+    protected void tearDown( ) throws Exception
+    {
+        _executor.shutdownNow( );
+        super.tearDown( );
+    }
+
+    /**
+     * Test of the locks in memory
+     */
+    public void testMemorySlotLockProvider( ) throws Exception
+    {
+        MemorySlotLockProvider provider = new MemorySlotLockProvider( );
+        ISlotLock lock = provider.getLockOnSlot( ID_SLOT );
+        assertSame( lock, provider.getLockOnSlot( ID_SLOT ) );
+        assertNotSame( lock, provider.getLockOnForm( ID_FORM ) );
+
+        checkReentrant( lock );
+        assertTrue( lock.tryLock( 1, TimeUnit.SECONDS ) );
+        // Another thread can not take the lock
+        assertFalse( tryLockInAnotherThread( lock ) );
+        lock.unlock( );
+        assertTrue( tryLockInAnotherThread( lock ) );
+
+        assertEquals( 1, provider.getLockWaitMetrics( ).getNbFailures( ) );
+        assertEquals( 1, provider.getSlotStripeContentions( ) [Math.floorMod( ID_SLOT, provider.getSlotStripeContentions( ).length )] );
+    }
+
+    /**
+     * Test of the stripes shared by the slots
+     */
+    public void testStripes( ) throws Exception
+    {
+        MemorySlotLockProvider provider = new MemorySlotLockProvider( );
+        provider.setNbSlotStripes( 16 );
+        provider.setNbFormStripes( 4 );
+        assertSame( provider.getLockOnSlot( ID_SLOT ), provider.getLockOnSlot( ID_SLOT + 16 ) );
+        assertNotSame( provider.getLockOnSlot( ID_SLOT ), provider.getLockOnSlot( ID_SLOT + 1 ) );
+        assertSame( provider.getLockOnForm( ID_FORM ), provider.getLockOnForm( ID_FORM + 4 ) );
+        assertEquals( 16, provider.getSlotStripeContentions( ).length );
+        assertEquals( 4, provider.getFormStripeContentions( ).length );
+    }
+
+    /**
+     * Test of the acquisition of the locks of several slots
+     */
+    public void testSlotLockAcquisition( ) throws Exception
+    {
+        MemorySlotLockProvider provider = new MemorySlotLockProvider( );
+        provider.setNbSlotStripes( 16 );
+        List<Integer> listIdSlot = Arrays.asList( 21, 3, 5 );
+        // The slots 5 and 21 share the same stripe, the locks are ordered by stripe
+        assertEquals( Arrays.asList( provider.getLockOnSlot( 3 ), provider.getLockOnSlot( 5 ) ), provider.getLocksOnSlots( listIdSlot ) );
+
+        SlotLockAcquisition acquisition = SlotLockAcquisition.acquire( provider, listIdSlot, 1, TimeUnit.SECONDS );
+        assertTrue( acquisition.isAcquired( ) );
+        acquisition.release( );
+
+        ISlotLock lock = provider.getLockOnSlot( 5 );
+        lock.lock( );
+        try
+        {
+            SlotLockAcquisition contended = _executor.submit( ( ) -> SlotLockAcquisition.acquire( provider, listIdSlot, 100, TimeUnit.MILLISECONDS ) )
+                    .get( 30, TimeUnit.SECONDS );
+            assertFalse( contended.isAcquired( ) );
+            assertEquals( Arrays.asList( 21, 5 ), contended.getListIdSlotContended( ) );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+        // The lock taken before the contended one has been released
+        assertTrue( tryLockInAnotherThread( provider.getLockOnSlot( 3 ) ) );
+    }
+
+    /**
+     * Test of the row locks in database
+     */
+    public void testDatabaseSlotLockProvider( ) throws Exception
+    {
+        // Two providers stand for two nodes
+        checkSharedLocks( new DatabaseSlotLockProvider( ), new DatabaseSlotLockProvider( ) );
+    }
+
+    /**
+     * Test of the row locks taken on the connection of a transaction
+     */
+    public void testDatabaseSlotLockInTransaction( ) throws Exception
+    {
+        ISlotLock lock1 = new DatabaseSlotLockProvider( ).getLockOnSlot( ID_SLOT );
+        ISlotLock lock2 = new DatabaseSlotLockProvider( ).getLockOnSlot( ID_SLOT );
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        try
+        {
+            assertTrue( lock1.tryLock( 1, TimeUnit.SECONDS ) );
+            lock1.unlock( );
+            // The row stays locked until the end of the transaction
+            assertFalse( tryLockInAnotherThread( lock2 ) );
+        }
+        finally
+        {
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+        }
+        assertTrue( tryLockInAnotherThread( lock2 ) );
+    }
+
+    /**
+     * Test of the leases in database
+     */
+    public void testLeaseSlotLockProvider( ) throws Exception
+    {
+        checkSharedLocks( new LeaseSlotLockProvider( ), new LeaseSlotLockProvider( ) );
+
+        // A lease held longer than its duration is renewed
+        LeaseSlotLockProvider provider = new LeaseSlotLockProvider( );
+        provider.setLeaseDuration( 2 );
+        ISlotLock lock = provider.getLockOnForm( ID_FORM );
+        assertTrue( lock.tryLock( 1, TimeUnit.SECONDS ) );
+        Thread.sleep( 3000 );
+        assertFalse( tryLockInAnotherThread( new LeaseSlotLockProvider( ).getLockOnForm( ID_FORM ) ) );
+        lock.unlock( );
+        provider.shutdown( );
+
+        // A lease that has expired can be taken over by another node, the release of the lock then fails
+        provider = new LeaseSlotLockProvider( );
+        provider.setLeaseDuration( 0 );
+        lock = provider.getLockOnForm( ID_FORM );
+        assertTrue( lock.tryLock( 1, TimeUnit.SECONDS ) );
+        Thread.sleep( 1100 );
+        assertTrue( tryLockInAnotherThread( new LeaseSlotLockProvider( ).getLockOnForm( ID_FORM ) ) );
+        try
+        {
+            lock.unlock( );
+            fail( "The release of a lease taken over must fail" );
+        }
+        catch( AppException e )
+        {
+            // The lease has been lost
+        }
+        provider.shutdown( );
+    }
+
+    /**
+     * Check that a lock held by a node can not be taken by another node until it is released
+     * 
+     * @param provider1
+     *            the provider of the first node
+     * @param provider2
+     *            the provider of the second node
+     */
+    private void checkSharedLocks( ISlotLockProvider provider1, ISlotLockProvider provider2 ) throws Exception
+    {
+        ISlotLock lock1 = provider1.getLockOnSlot( ID_SLOT );
+        ISlotLock lock2 = provider2.getLockOnSlot( ID_SLOT );
+
+        checkReentrant( lock1 );
+        assertTrue( lock1.tryLock( 1, TimeUnit.SECONDS ) );
+        assertFalse( tryLockInAnotherThread( lock2 ) );
+        lock1.unlock( );
+        assertTrue( tryLockInAnotherThread( lock2 ) );
+        assertTrue( provider2.getLockWaitMetrics( ).getNbFailures( ) >= 1 );
+
+        ISlotLock formLock1 = provider1.getLockOnForm( ID_FORM );
+        assertTrue( formLock1.tryLock( 1, TimeUnit.SECONDS ) );
+        assertFalse( tryLockInAnotherThread( provider2.getLockOnForm( ID_FORM ) ) );
+        formLock1.unlock( );
+    }
+
+    /**
+     * Check that a lock can be taken several times by the same thread
+     * 
+     * @param lock
+     *            the lock
+     */
+    private void checkReentrant( ISlotLock lock ) throws Exception
+    {
+        assertTrue( lock.tryLock( 1, TimeUnit.SECONDS ) );
+        assertTrue( lock.tryLock( 1, TimeUnit.SECONDS ) );
+        lock.unlock( );
+        lock.unlock( );
+    }
+
+    /**
+     * Try to take a lock in another thread, and release it
+     * 
+     * @param lock
+     *            the lock
+     * @return true if the lock could be taken
+     */
+    private boolean tryLockInAnotherThread( ISlotLock lock ) throws Exception
+    {
+        Future<Boolean> future = _executor.submit( ( ) -> {
+            if ( lock.tryLock( 1, TimeUnit.SECONDS ) )
+            {
+                lock.unlock( );
+                return true;
+            }
+            return false;
+        } );
+        return future.get( 30, TimeUnit.SECONDS );
+    }
+}
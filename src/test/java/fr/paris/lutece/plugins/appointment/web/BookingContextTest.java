@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.mock.web.MockHttpSession;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the booking context kept in the session of the users
+ */
+public class BookingContextTest extends LuteceTestCase
+{
+    private static final String SESSION_ATTRIBUTE_CONTEXT = "appointment.bookingContextTest";
+    private static final String SESSION_ATTRIBUTE_MUTEX = "org.springframework.web.util.WebUtils.MUTEX";
+    private static final int NB_THREADS = 8;
+    private static final int NB_REQUESTS = 40;
+
+    /**
+     * Test that a double submit can not save the appointment of a context twice, and that the context can be saved again once the save has ended
+     */
+    public void testStartSaving( ) throws Exception
+    {
+        BookingContext context = new BookingContext( );
+        assertTrue( context.startSaving( ) );
+        assertFalse( context.startSaving( ) );
+        context.endSaving( );
+        assertTrue( context.startSaving( ) );
+        context.endSaving( );
+
+        // Concurrent submits: only one of them saves the appointment
+        ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+        try
+        {
+            CountDownLatch start = new CountDownLatch( 1 );
+            List<Future<Boolean>> listFuture = new ArrayList<>( );
+            Callable<Boolean> submit = ( ) -> {
+                start.await( );
+                return context.startSaving( );
+            };
+            for ( int i = 0; i < NB_REQUESTS; i++ )
+            {
+                listFuture.add( executor.submit( submit ) );
+            }
+            start.countDown( );
+            int nbSaving = 0;
+            for ( Future<Boolean> future : listFuture )
+            {
+                if ( future.get( ) )
+                {
+                    nbSaving++;
+                }
+            }
+            assertEquals( 1, nbSaving );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Test that the concurrent requests of a session get the same context
+     */
+    public void testGetContextConcurrently( ) throws Exception
+    {
+        MockHttpSession session = new MockHttpSession( );
+        ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+        try
+        {
+            CountDownLatch start = new CountDownLatch( 1 );
+            List<Future<BookingContext>> listFuture = new ArrayList<>( );
+            Callable<BookingContext> request = ( ) -> {
+                start.await( );
+                return BookingContext.getContext( session, SESSION_ATTRIBUTE_CONTEXT );
+            };
+            for ( int i = 0; i < NB_REQUESTS; i++ )
+            {
+                listFuture.add( executor.submit( request ) );
+            }
+            start.countDown( );
+            BookingContext context = listFuture.get( 0 ).get( );
+            for ( Future<BookingContext> future : listFuture )
+            {
+                assertSame( context, future.get( ) );
+            }
+            assertSame( context, session.getAttribute( SESSION_ATTRIBUTE_CONTEXT ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Test that the context is created while holding the mutex of the session, when the session has one
+     */
+    public void testGetContextUnderSessionMutex( ) throws Exception
+    {
+        MockHttpSession session = new MockHttpSession( );
+        Object mutex = new Object( );
+        session.setAttribute( SESSION_ATTRIBUTE_MUTEX, mutex );
+
+        AtomicReference<BookingContext> contextCreated = new AtomicReference<>( );
+        Thread request = new Thread( ( ) -> contextCreated.set( BookingContext.getContext( session, SESSION_ATTRIBUTE_CONTEXT ) ) );
+        synchronized( mutex )
+        {
+            request.start( );
+            // The request waits for the mutex before creating the context
+            while ( request.getState( ) != Thread.State.BLOCKED )
+            {
+                assertTrue( request.isAlive( ) );
+                Thread.sleep( 10 );
+            }
+            assertNull( session.getAttribute( SESSION_ATTRIBUTE_CONTEXT ) );
+        }
+        request.join( );
+        assertNotNull( contextCreated.get( ) );
+        assertSame( contextCreated.get( ), session.getAttribute( SESSION_ATTRIBUTE_CONTEXT ) );
+        assertSame( contextCreated.get( ), BookingContext.getContext( session, SESSION_ATTRIBUTE_CONTEXT ) );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.web;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the utilities of the ETags
+ */
+public class ETagUtilitiesTest extends LuteceTestCase
+{
+    private static final String ETAG = "\"abc\"";
+    private static final String OTHER_ETAG = "\"def\"";
+
+    /**
+     * Test the matching of an ETag with an If-None-Match header
+     */
+    public void testMatches( )
+    {
+        assertTrue( ETagUtilities.matches( ETAG, ETAG ) );
+        assertTrue( ETagUtilities.matches( ETAG, OTHER_ETAG + ", " + ETAG ) );
+        assertTrue( ETagUtilities.matches( ETAG, "*" ) );
+        assertTrue( ETagUtilities.matches( ETAG, "W/" + ETAG ) );
+        assertFalse( ETagUtilities.matches( ETAG, OTHER_ETAG ) );
+        assertFalse( ETagUtilities.matches( ETAG, "abc" ) );
+        assertFalse( ETagUtilities.matches( ETAG, null ) );
+    }
+
+    /**
+     * Test the reading of the If-None-Match header of a request
+     */
+    public void testIsNotModified( )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        assertFalse( ETagUtilities.isNotModified( request, ETAG ) );
+        request.addHeader( "If-None-Match", OTHER_ETAG + ", " + ETAG );
+        assertTrue( ETagUtilities.isNotModified( request, ETAG ) );
+        assertFalse( ETagUtilities.isNotModified( request, "\"ghi\"" ) );
+    }
+}